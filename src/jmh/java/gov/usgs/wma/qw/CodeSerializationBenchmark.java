@@ -0,0 +1,79 @@
+package gov.usgs.wma.qw;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.autoconfigure.http.HttpMessageConverters;
+import org.springframework.http.MediaType;
+import org.springframework.web.accept.ContentNegotiationManager;
+
+import gov.usgs.wma.qw.codes.Code;
+import gov.usgs.wma.qw.codes.CodeList;
+
+/**
+ * Encoding a CodeList of size codes as JSON (Jackson) and XML (JAXB) with the message converters Spring MVC uses, as
+ * the response cache does, and gzipping the result. Run with: mvn -Pjmh compile exec:exec -Djmh.args="CodeSerializationBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodeSerializationBenchmark {
+
+	public static final MediaType XML = MediaType.parseMediaType(BaseRestController.MEDIA_TYPE_APPLICATION_XML_UTF8_VALUE);
+	public static final MediaType JSON = MediaType.parseMediaType(BaseRestController.MEDIA_TYPE_APPLICATION_JSON_UTF8_VALUE);
+
+	@Param({"20", "1000", "50000"})
+	public int size;
+
+	private ResponseCache responseCache;
+	private CodeList codeList;
+	private byte[] json;
+
+	@Setup
+	public void setup() {
+		responseCache = new ResponseCache(new ContentNegotiationManager(), new HttpMessageConverters(), false, 0);
+		List<Code> codes = new ArrayList<>();
+		for (int i = 0; i < size; i++) {
+			Code code = new Code();
+			code.setValue(String.format("USGS-%08d", i));
+			code.setDesc("Site " + i + " & \"friends\" <near> the river");
+			code.setProviders(0 == i % 2 ? "NWIS STORET" : "STORET");
+			codes.add(code);
+		}
+		codeList = new CodeList();
+		codeList.setCodes(codes);
+		codeList.setRecordCount(size);
+		json = json();
+	}
+
+	@Benchmark
+	public byte[] json() {
+		return responseCache.encode(codeList, JSON);
+	}
+
+	@Benchmark
+	public byte[] xml() {
+		return responseCache.encode(codeList, XML);
+	}
+
+	@Benchmark
+	public byte[] gzipJson() {
+		return ResponseCache.gzip(json);
+	}
+
+}
@@ -0,0 +1,109 @@
+package gov.usgs.wma.qw.codes.webservices;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import gov.usgs.wma.qw.EtlEpoch;
+import gov.usgs.wma.qw.codes.CodeList;
+import gov.usgs.wma.qw.codes.CodeType;
+import gov.usgs.wma.qw.codes.catalog.CatalogRow;
+import gov.usgs.wma.qw.codes.catalog.CodeCatalog;
+import gov.usgs.wma.qw.codes.catalog.CodeTable;
+
+/**
+ * CodesRestController.getList, from parameter handling through the code catalog, on a synthetic code type of size
+ * codes (without the response cache, so every call does the work). Run with: mvn -Pjmh compile exec:exec -Djmh.args="CodeListBenchmark -p size=100000"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodeListBenchmark {
+
+	@Param({"1000", "100000"})
+	public int size;
+
+	private BenchmarkController controller;
+	private String after;
+
+	@Setup
+	public void setup() {
+		CodeTable.Builder builder = new CodeTable.Builder(CodeType.CHARACTERISTICNAME);
+		for (int i = 0; i < size; i++) {
+			CatalogRow row = new CatalogRow();
+			row.setCodeValue(String.format("Characteristic %07d", i));
+			row.setProvider(0 == i % 3 ? "NWIS" : "STORET");
+			row.setSearchText(row.getCodeValue().toUpperCase());
+			builder.add(row);
+		}
+		controller = new BenchmarkController(builder.build());
+		after = CodesRestController.encodeAfter(String.format("Characteristic %07d", size / 2));
+	}
+
+	@Benchmark
+	public CodeList firstPage() {
+		return controller.get(null, "1", "20", null);
+	}
+
+	@Benchmark
+	public CodeList lastPage() {
+		return controller.get(null, String.valueOf(size / 20), "20", null);
+	}
+
+	@Benchmark
+	public CodeList afterPage() {
+		return controller.get(null, null, "20", after);
+	}
+
+	@Benchmark
+	public CodeList textPage() {
+		return controller.get("ic%2012", "1", "20", null);
+	}
+
+	@Benchmark
+	public CodeList textAll() {
+		return controller.get("ic 00", null, null, null);
+	}
+
+	private static class BenchmarkController extends CodesRestController {
+		private BenchmarkController(final CodeTable table) {
+			LocalDateTime etl = LocalDateTime.of(2020, 1, 1, 0, 0);
+			etlEpoch = new EtlEpoch(null, null) {
+				@Override
+				public LocalDateTime getLastEtl() {
+					return etl;
+				}
+			};
+			codeCatalog = new CodeCatalog(null, etlEpoch, null, false) {
+				@Override
+				public CodeTable getTable(final CodeType codeType) {
+					return table;
+				}
+			};
+		}
+
+		private CodeList get(final String text, final String pageNumber, final String pageSize, final String after) {
+			MockHttpServletRequest request = new MockHttpServletRequest("GET", "/characteristicname");
+			return getList(CodeType.CHARACTERISTICNAME, text, pageNumber, pageSize, after, null,
+					new ServletWebRequest(request, new MockHttpServletResponse()));
+		}
+	}
+
+}
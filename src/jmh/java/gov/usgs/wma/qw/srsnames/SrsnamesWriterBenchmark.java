@@ -0,0 +1,85 @@
+package gov.usgs.wma.qw.srsnames;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Loading rows public_srsnames rows into a {@link PCodeTable} and writing it as the zipped CSV download and the JSON
+ * document (discarding the bytes), on synthetic codes. Run with: mvn -Pjmh compile exec:exec -Djmh.args="SrsnamesWriterBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SrsnamesWriterBenchmark {
+
+	private static final String[] UNITS = {"ft3/s", "ft", "mg/l", "ug/l", "deg C", "uS/cm @25C", "std units", null};
+
+	@Param({"1000", "20000"})
+	public int rows;
+
+	private List<Map<String, Object>> cursorRows;
+	private PCodeTable table;
+	private PCodeStreamer pCodeStreamer;
+
+	@Setup
+	public void setup() {
+		cursorRows = new ArrayList<>(rows);
+		for (int i = 0; i < rows; i++) {
+			Map<String, Object> row = new LinkedHashMap<>();
+			row.put("parm_cd", String.format("%05d", i));
+			row.put("description", "Parameter " + i + ", water, filtered, " + UNITS[i % UNITS.length]);
+			row.put("measureunitcode", UNITS[i % UNITS.length]);
+			row.put("last_rev_dt", LocalDate.of(2000, 1, 1).plusDays(i % 5000));
+			cursorRows.add(row);
+		}
+		table = load();
+		pCodeStreamer = new PCodeStreamer(null, null);
+	}
+
+	@Benchmark
+	public PCodeTable load() {
+		PCodeTable.Builder builder = new PCodeTable.Builder();
+		for (Map<String, Object> row : cursorRows) {
+			builder.add(row);
+		}
+		return builder.build();
+	}
+
+	@Benchmark
+	public int csvZip() throws IOException {
+		return pCodeStreamer.stream(table, "January 2015", new ZipPCodeStreamWriter(OutputStream.nullOutputStream()));
+	}
+
+	@Benchmark
+	public int json() throws IOException {
+		return pCodeStreamer.stream(table, "January 2015", new JsonPCodeStreamWriter(OutputStream.nullOutputStream()));
+	}
+
+	@Benchmark
+	public int singlePass() throws IOException {
+		return pCodeStreamer.stream(table, "January 2015", new ZipPCodeStreamWriter(OutputStream.nullOutputStream()),
+				new JsonPCodeStreamWriter(OutputStream.nullOutputStream()));
+	}
+
+}
@@ -0,0 +1,57 @@
+package gov.usgs.wma.qw.summary;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import gov.usgs.wma.qw.summary.SldTemplateEngine.MapDataSource;
+import gov.usgs.wma.qw.summary.SldTemplateEngine.MapGeometry;
+
+/**
+ * Velocity against the template-free renderer for the summary SLD. Run with: mvn -Pjmh compile exec:exec
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SldRendererBenchmark {
+
+	@Param({"All", "EPA", "USGS"})
+	public MapDataSource source;
+
+	private final MapGeometry geom = MapGeometry.Huc8;
+	private final String[] binValues = {"9", "9", "10", "56", "57", "495", "496", "520", "521", "728"};
+
+	@Benchmark
+	public String velocity() {
+		return SldTemplateEngine.generateDynamicStyle(source, geom, binValues, "binSLDTemplate.vm");
+	}
+
+	@Benchmark
+	public byte[] velocityBytes() {
+		return velocity().getBytes(StandardCharsets.ISO_8859_1);
+	}
+
+	@Benchmark
+	public byte[] renderer() {
+		return SldRenderer.render(source, geom, binValues);
+	}
+
+	@Benchmark
+	public String rendererString() {
+		return new String(renderer(), StandardCharsets.ISO_8859_1);
+	}
+
+}
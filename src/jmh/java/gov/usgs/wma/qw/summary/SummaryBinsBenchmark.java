@@ -0,0 +1,92 @@
+package gov.usgs.wma.qw.summary;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import gov.usgs.wma.qw.summary.SldTemplateEngine.MapDataSource;
+import gov.usgs.wma.qw.summary.SldTemplateEngine.MapGeometry;
+import gov.usgs.wma.qw.summary.SldTemplateEngine.MapTimeFrame;
+
+/**
+ * Building the summary cube from rows qwportal_summary rows, and classifying it into bins and an SLD, on synthetic
+ * (skewed) counts. Run with: mvn -Pjmh compile exec:exec -Djmh.args="SummaryBinsBenchmark -p rows=200000"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SummaryBinsBenchmark {
+
+	@Param({"10000", "200000"})
+	public int rows;
+
+	@Param({"Quantile", "Jenks"})
+	public Classification classification;
+
+	@Param({"Counties", "Huc8"})
+	public MapGeometry geometry;
+
+	private List<SummaryRow> summaryRows;
+	private SummaryCube cube;
+	private SummaryController controller;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(42);
+		summaryRows = new ArrayList<>(rows);
+		for (int i = 0; i < rows; i++) {
+			SummaryRow row = new SummaryRow();
+			int county = random.nextInt(3200);
+			row.setNwisOrEpa(0 == i % 2 ? "E" : "N");
+			row.setFipsStateCode(String.format("%02d", county / 60));
+			row.setFipsStateAndCounty(String.format("US:%02d:%03d", county / 60, county % 60));
+			row.setHuc8(String.format("%08d", random.nextInt(2200)));
+			//Mostly small counts with a long tail, as the real ones are.
+			int allTime = (int) Math.exp(random.nextDouble() * 10);
+			row.setSamplesAllTime(allTime);
+			row.setSamplesPast60Months(allTime / 3);
+			row.setSamplesPast12Months(allTime / 10);
+			summaryRows.add(row);
+		}
+		cube = buildCube();
+		controller = new SummaryController(null, null, null, null);
+	}
+
+	@Benchmark
+	public SummaryCube buildCube() {
+		SummaryCube.Builder builder = new SummaryCube.Builder();
+		for (SummaryRow row : summaryRows) {
+			builder.add(row);
+		}
+		return builder.build();
+	}
+
+	@Benchmark
+	public SummaryBins bins() {
+		return controller.buildBins(cube, MapDataSource.All, geometry, MapTimeFrame.Past60Months, classification,
+				SldTemplateEngine.COLOR_COUNT);
+	}
+
+	@Benchmark
+	public String sld() {
+		return controller.buildSld(cube, MapDataSource.All, geometry, MapTimeFrame.Past60Months.getStringAbbreviation(),
+				classification, SldTemplateEngine.COLOR_COUNT);
+	}
+
+}
@@ -1,30 +1,116 @@
 package gov.usgs.wma.qw;
 
 import java.nio.charset.Charset;
-import java.time.LocalDateTime;
-import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.function.Supplier;
 
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.context.request.NativeWebRequest;
 import org.springframework.web.context.request.WebRequest;
 
+import gov.usgs.wma.qw.springinit.ReplicaRoutingDataSource;
+
 public abstract class BaseRestController {
 
 	public static final String MEDIA_TYPE_TEXT_CSV_UTF8_VALUE = "text/csv;charset=UTF-8";
 	public static final String MEDIA_TYPE_APPLICATION_XML_UTF8_VALUE = "application/xml;charset=UTF-8";
 	public static final String MEDIA_TYPE_APPLICATION_JSON_UTF8_VALUE = "application/json;charset=UTF-8";
+	public static final String MEDIA_TYPE_APPLICATION_NDJSON_UTF8_VALUE = "application/x-ndjson;charset=UTF-8";
 	public static final String HEADER_CONTENT_DISPOSITION = "Content-disposition";
 	public static final String DEFAULT_ENCODING = "UTF-8";
 	public static final MediaType MEDIA_TYPE_TEXT_CSV_UTF8 = new MediaType("text", "csv", Charset.forName(BaseRestController.DEFAULT_ENCODING));
+	public static final MediaType MEDIA_TYPE_APPLICATION_NDJSON_UTF8 = new MediaType("application", "x-ndjson", Charset.forName(BaseRestController.DEFAULT_ENCODING));
 
-	protected LastUpdateDao lastUpdateDao;
+	protected EtlEpoch etlEpoch;
+	protected ResponseCache responseCache;
 
+	/**
+	 * Check If-Modified-Since against the last ETL. Requests with an If-None-Match are left to
+	 * {@link #isNotModified(WebRequest, String)}, as it takes precedence.
+	 */
 	protected boolean isNotModified(WebRequest webRequest) {
-		LocalDateTime lastUpdatedUtc = lastUpdateDao.getLastEtl();
+		if (null != webRequest.getHeader(HttpHeaders.IF_NONE_MATCH)) {
+			return false;
+		}
+		Long lastUpdatedUtc = etlEpoch.getLastEtlMillis();
 		if (null != lastUpdatedUtc) {
-			return webRequest.checkNotModified(lastUpdatedUtc.toInstant(ZoneOffset.UTC).toEpochMilli());
+			return webRequest.checkNotModified(lastUpdatedUtc);
 		} else {
 			return false;
 		}
 	}
 
+	/**
+	 * Check If-None-Match (and, without it, If-Modified-Since) against this ETag and the last ETL.
+	 * Either way, the ETag and Last-Modified headers are set on the response.
+	 */
+	protected boolean isNotModified(WebRequest webRequest, String etag) {
+		Long lastUpdatedUtc = etlEpoch.getLastEtlMillis();
+		if (null != lastUpdatedUtc) {
+			return webRequest.checkNotModified(etag, lastUpdatedUtc);
+		} else {
+			return webRequest.checkNotModified(etag);
+		}
+	}
+
+	/**
+	 * @return a (quoted) strong ETag for this content.
+	 */
+	public static String buildEtag(byte[] content) {
+		return "\"" + DigestUtils.md5DigestAsHex(content) + "\"";
+	}
+
+	/**
+	 * Serve the encoded response for this resource and parameters, with an ETag of its content, from the
+	 * {@link ResponseCache}, building (and caching) it with the supplier on a miss. A body to be cached under the ETL
+	 * epoch is built on the primary, as a lagging replica could still have the data of the previous one.
+	 * @return null when the response has been written (or is not modified), otherwise the supplier's body for
+	 * Spring MVC to write.
+	 */
+	protected <T> T cached(final String resource, final Map<String, Object> params, final WebRequest webRequest,
+			final Supplier<T> supplier) {
+		MediaType mediaType = null == responseCache ? null : responseCache.negotiate(webRequest);
+		if (null == mediaType) {
+			return supplier.get();
+		}
+		Long etlMillis = etlEpoch.getLastEtlMillis();
+		String key = null == etlMillis ? null : ResponseCache.buildKey(etlMillis, mediaType, resource, params);
+		ResponseCache.Entry entry = null == key ? null : responseCache.get(key);
+		if (null == entry) {
+			T body = null == key ? supplier.get() : ReplicaRoutingDataSource.onPrimary(supplier);
+			if (null == body) {
+				return null;
+			}
+			entry = responseCache.put(key, mediaType, body);
+		}
+		write(entry, webRequest);
+		return null;
+	}
+
+	/**
+	 * Write the encoded entry, gzipped if it has a gzip variant and the client accepts gzip, unless it is not
+	 * modified (each variant having its own ETag). Either way the response varies on Accept-Encoding.
+	 */
+	protected void write(final ResponseCache.Entry entry, final WebRequest webRequest) {
+		boolean gzip = null != entry.getGzipBody() && acceptsGzip(webRequest);
+		varyOnAcceptEncoding(((NativeWebRequest) webRequest).getNativeResponse(HttpServletResponse.class));
+		if (!isNotModified(webRequest, entry.getEtag(gzip))) {
+			responseCache.write(entry, gzip, webRequest);
+		}
+	}
+
+	protected static boolean acceptsGzip(final WebRequest webRequest) {
+		return ResponseCache.acceptsGzip(webRequest.getHeader(HttpHeaders.ACCEPT_ENCODING));
+	}
+
+	protected static void varyOnAcceptEncoding(final HttpServletResponse response) {
+		if (null != response && !response.getHeaders(HttpHeaders.VARY).contains(HttpHeaders.ACCEPT_ENCODING)) {
+			response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+		}
+	}
+
 }
@@ -0,0 +1,107 @@
+package gov.usgs.wma.qw;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.function.Supplier;
+
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Lets work run {@link #run with} a {@link Handle} have its statements cancelled from another thread, as interrupting
+ * the thread or cancelling its future does not stop a statement running in the database. Each statement the work
+ * prepares is registered with the handle (and given its query timeout) until the work finishes; statements prepared
+ * by other work are left alone.
+ */
+@Intercepts({
+	@Signature(type=StatementHandler.class, method="prepare", args={Connection.class, Integer.class})
+})
+public class CancellableStatementInterceptor implements Interceptor {
+
+	private static final Logger LOG = LoggerFactory.getLogger(CancellableStatementInterceptor.class);
+
+	private static final ThreadLocal<Handle> HANDLE = new ThreadLocal<>();
+
+	/**
+	 * Run the work, its statements registered with the handle.
+	 */
+	public static <T> T run(final Handle handle, final Supplier<T> work) {
+		HANDLE.set(handle);
+		try {
+			return work.get();
+		} finally {
+			HANDLE.remove();
+			handle.clear();
+		}
+	}
+
+	@Override
+	public Object intercept(final Invocation invocation) throws Throwable {
+		Statement statement = (Statement) invocation.proceed();
+		register(statement);
+		return statement;
+	}
+
+	/**
+	 * Register the statement with the handle of the work running on this thread, if there is one.
+	 */
+	public static void register(final Statement statement) throws SQLException {
+		Handle handle = HANDLE.get();
+		if (null != handle) {
+			handle.register(statement);
+		}
+	}
+
+	public static class Handle {
+		private final int timeoutSeconds;
+		private Statement statement;
+		private boolean cancelled;
+
+		/**
+		 * @param timeoutSeconds the query timeout of the statements, or 0 to leave them as they are.
+		 */
+		public Handle(final int timeoutSeconds) {
+			this.timeoutSeconds = timeoutSeconds;
+		}
+
+		protected synchronized void register(final Statement inStatement) throws SQLException {
+			if (cancelled) {
+				inStatement.close();
+				throw new SQLException("Cancelled before the statement ran");
+			}
+			if (0 < timeoutSeconds) {
+				inStatement.setQueryTimeout(timeoutSeconds);
+			}
+			statement = inStatement;
+		}
+
+		protected synchronized void clear() {
+			statement = null;
+		}
+
+		/**
+		 * Cancel the statement running, if any, and any the work would go on to prepare.
+		 */
+		public void cancel() {
+			Statement running;
+			synchronized (this) {
+				cancelled = true;
+				running = statement;
+			}
+			if (null != running) {
+				try {
+					running.cancel();
+				} catch (SQLException e) {
+					LOG.debug("Unable to cancel a statement: {}", e.getLocalizedMessage());
+				}
+			}
+		}
+	}
+
+}
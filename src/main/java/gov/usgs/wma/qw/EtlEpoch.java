@@ -0,0 +1,83 @@
+package gov.usgs.wma.qw;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Holds the completed_utc of the most recent ETL in memory so that requests do not need a database
+ * round trip just to answer conditional GETs. The value is refreshed on a background schedule and an
+ * {@link EtlEpochChangedEvent} is published whenever it moves.
+ */
+@Component
+public class EtlEpoch {
+
+	private static final Logger LOG = LoggerFactory.getLogger(EtlEpoch.class);
+
+	private final LastUpdateDao lastUpdateDao;
+	private final ApplicationEventPublisher eventPublisher;
+
+	private volatile LocalDateTime lastEtl;
+
+	@Autowired
+	public EtlEpoch(final LastUpdateDao lastUpdateDao, final ApplicationEventPublisher eventPublisher) {
+		this.lastUpdateDao = lastUpdateDao;
+		this.eventPublisher = eventPublisher;
+	}
+
+	/**
+	 * @return the completed_utc of the last ETL, or null if it is not (yet) known.
+	 * Until the first successful refresh, the database is consulted directly.
+	 */
+	public LocalDateTime getLastEtl() {
+		LocalDateTime rtn = lastEtl;
+		if (null == rtn) {
+			rtn = refresh();
+		}
+		return rtn;
+	}
+
+	/**
+	 * @return the last ETL as epoch milliseconds, or null if it is not (yet) known.
+	 */
+	public Long getLastEtlMillis() {
+		LocalDateTime rtn = getLastEtl();
+		return null == rtn ? null : rtn.toInstant(ZoneOffset.UTC).toEpochMilli();
+	}
+
+	@Scheduled(initialDelayString="${codes.etl.initialDelay:0}", fixedDelayString="${codes.etl.refreshInterval:60000}")
+	public void scheduledRefresh() {
+		try {
+			refresh();
+		} catch (RuntimeException e) {
+			LOG.warn("Unable to refresh the ETL epoch: {}", e.getLocalizedMessage());
+		}
+	}
+
+	/**
+	 * Re-read the last ETL from the database, publishing an {@link EtlEpochChangedEvent} if it has moved forward. One
+	 * older than that already known is ignored, so the epoch (and everything built for it) never goes back.
+	 * @return the current last ETL.
+	 */
+	public synchronized LocalDateTime refresh() {
+		LocalDateTime previous = lastEtl;
+		LocalDateTime current = lastUpdateDao.getLastEtl();
+		if (null != previous && (null == current || current.isBefore(previous))) {
+			LOG.debug("Ignoring ETL epoch {}, older than {}", current, previous);
+			return previous;
+		}
+		lastEtl = current;
+		if (null != current && !current.equals(previous)) {
+			LOG.info("ETL epoch moved from {} to {}", previous, current);
+			eventPublisher.publishEvent(new EtlEpochChangedEvent(this, previous, current));
+		}
+		return current;
+	}
+
+}
@@ -0,0 +1,31 @@
+package gov.usgs.wma.qw;
+
+import java.time.LocalDateTime;
+
+import org.springframework.context.ApplicationEvent;
+
+public class EtlEpochChangedEvent extends ApplicationEvent {
+
+	private static final long serialVersionUID = -1753384217014468262L;
+
+	private final LocalDateTime previousEtl;
+	private final LocalDateTime currentEtl;
+
+	public EtlEpochChangedEvent(final Object source, final LocalDateTime previousEtl, final LocalDateTime currentEtl) {
+		super(source);
+		this.previousEtl = previousEtl;
+		this.currentEtl = currentEtl;
+	}
+
+	/**
+	 * @return the prior ETL completion time, null when this is the first one seen.
+	 */
+	public LocalDateTime getPreviousEtl() {
+		return previousEtl;
+	}
+
+	public LocalDateTime getCurrentEtl() {
+		return currentEtl;
+	}
+
+}
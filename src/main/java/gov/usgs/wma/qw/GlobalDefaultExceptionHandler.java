@@ -14,6 +14,7 @@ import org.springframework.web.bind.MissingServletRequestParameterException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
 
 @ControllerAdvice
 public class GlobalDefaultExceptionHandler {
@@ -29,6 +30,9 @@ public class GlobalDefaultExceptionHandler {
 				|| ex instanceof HttpMediaTypeNotSupportedException) {
 			int x = ex.getLocalizedMessage().indexOf("\n");
 			response.sendError(HttpStatus.BAD_REQUEST.value(), (x > 0 ? ex.getLocalizedMessage().substring(0, x) : ex.getLocalizedMessage()) );
+		} else if (ex instanceof ResponseStatusException) {
+			ResponseStatusException statusException = (ResponseStatusException) ex;
+			response.sendError(statusException.getStatus().value(), statusException.getReason());
 		} else {
 			int hashValue = response.hashCode();
 			//Note: we are giving the user a generic message.  
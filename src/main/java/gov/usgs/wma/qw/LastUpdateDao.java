@@ -7,6 +7,8 @@ import org.mybatis.spring.support.SqlSessionDaoSupport;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import gov.usgs.wma.qw.springinit.ReplicaRoutingDataSource;
+
 @Component
 public class LastUpdateDao extends SqlSessionDaoSupport {
 
@@ -18,8 +20,11 @@ public class LastUpdateDao extends SqlSessionDaoSupport {
 		setSqlSessionFactory(sqlSessionFactory);
 	}
 
+	/**
+	 * Always read from the primary, so the epoch does not move back and forth between replicas.
+	 */
 	public LocalDateTime getLastEtl() {
-		return getSqlSession().selectOne(String.join(".", NAME_SPACE, GET_QUERY));
+		return ReplicaRoutingDataSource.onPrimary(() -> getSqlSession().selectOne(String.join(".", NAME_SPACE, GET_QUERY)));
 	}
 
 }
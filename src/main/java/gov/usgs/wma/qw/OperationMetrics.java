@@ -0,0 +1,82 @@
+package gov.usgs.wma.qw;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Times the phases of a request which are not database statements (those are timed by
+ * {@link StatementMetricsInterceptor}), as the qw.operation timer tagged with the operation and the code type (or
+ * other small, fixed set of values) it was for. Timers are recorded in Micrometer's global registry, to which Spring
+ * Boot adds its own, so nothing need be injected and, outside of Spring (as in unit tests), timing costs next to
+ * nothing. Each timer is registered once and kept, as it follows registries added to (or removed from) the global one.
+ */
+public final class OperationMetrics {
+
+	public static final String OPERATION_TIMER = "qw.operation";
+	public static final String OPERATION_TAG = "operation";
+	public static final String TYPE_TAG = "type";
+	public static final String NO_TYPE = "none";
+
+	public static final String LIST = "list";
+	public static final String STREAM = "stream";
+	public static final String SINGLE = "single";
+	public static final String VALIDATE = "validate";
+	public static final String ENCODE = "encode";
+	public static final String SUMMARY_BINS = "summaryBins";
+	public static final String SUMMARY_COUNTS = "summaryCounts";
+	public static final String SLD_RENDER = "sldRender";
+	public static final String SRSNAMES_ROWS = "srsnamesRows";
+	public static final String SRSNAMES_FILES = "srsnamesFiles";
+	public static final String CSV_ZIP = "csvZip";
+	public static final String SRSNAMES_JSON = "srsnamesJson";
+
+	/** By operation, then type. */
+	private static final Map<String, Map<String, Timer>> TIMERS = new ConcurrentHashMap<>();
+
+	private OperationMetrics() {
+	}
+
+	/**
+	 * @param type the code type, media type or the like, or null if there is none. It must come from a small, fixed
+	 * set of values, never from the request as given.
+	 */
+	public static Timer timer(final String operation, final Object type) {
+		return TIMERS.computeIfAbsent(operation, key -> new ConcurrentHashMap<>())
+				.computeIfAbsent(null == type ? NO_TYPE : type.toString(), typeName -> Timer.builder(OPERATION_TIMER)
+						.tag(OPERATION_TAG, operation)
+						.tag(TYPE_TAG, typeName)
+						.register(Metrics.globalRegistry));
+	}
+
+	public static <T> T time(final String operation, final Object type, final Supplier<T> supplier) {
+		Timer.Sample sample = Timer.start(Metrics.globalRegistry);
+		try {
+			return supplier.get();
+		} finally {
+			sample.stop(timer(operation, type));
+		}
+	}
+
+	/**
+	 * Time a phase writing to a stream, letting its IOException through.
+	 */
+	public static void timeWrite(final String operation, final Object type, final TimedWrite write) throws IOException {
+		Timer.Sample sample = Timer.start(Metrics.globalRegistry);
+		try {
+			write.run();
+		} finally {
+			sample.stop(timer(operation, type));
+		}
+	}
+
+	@FunctionalInterface
+	public interface TimedWrite {
+		void run() throws IOException;
+	}
+
+}
@@ -0,0 +1,367 @@
+package gov.usgs.wma.qw;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.http.HttpMessageConverters;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+import org.springframework.web.accept.ContentNegotiationManager;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * A bounded, least recently used cache of encoded (XML or JSON) response bodies, each with a strong ETag of its
+ * content. Keys include the ETL epoch, the negotiated media type, the resource and its normalized parameters, so
+ * entries never outlive the data they were built from; the whole cache is also dropped whenever the ETL epoch moves.
+ * Bodies are encoded with the same message converters Spring MVC would use, so a cached response is byte for byte
+ * what the controller would have produced. Bodies large enough to be worth it are also gzipped once, as the entry is
+ * built, so clients accepting gzip can be sent the compressed variant (with its own ETag) without compressing per request.
+ */
+@Component
+public class ResponseCache {
+
+	public static final String GZIP = "gzip";
+	/** Below this, gzip's header and trailer eat most of the saving. */
+	public static final int MIN_GZIP_BYTES = 512;
+
+	private final ContentNegotiationManager contentNegotiationManager;
+	private final List<HttpMessageConverter<?>> converters;
+	private final boolean enabled;
+	private final long maxBytes;
+	private final long maxEntryBytes;
+
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+	private long bytes;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+
+	@Autowired
+	public ResponseCache(final ContentNegotiationManager contentNegotiationManager, final HttpMessageConverters httpMessageConverters,
+			@Value("${codes.responseCache.enabled:false}") final boolean enabled,
+			@Value("${codes.responseCache.maxBytes:67108864}") final long maxBytes) {
+		this.contentNegotiationManager = contentNegotiationManager;
+		this.converters = httpMessageConverters.getConverters();
+		this.enabled = enabled;
+		this.maxBytes = maxBytes;
+		//Keep a single huge (unpaged) response from flushing everything else.
+		this.maxEntryBytes = maxBytes / 16;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Pick the response media type as Spring MVC would: the first of the handler's producible types compatible with
+	 * the most specific requested type.
+	 * @return the media type, or null if it cannot be determined here (in which case Spring MVC should be left to it).
+	 */
+	public MediaType negotiate(final WebRequest webRequest) {
+		@SuppressWarnings("unchecked")
+		Set<MediaType> producible = (Set<MediaType>) webRequest.getAttribute(HandlerMapping.PRODUCIBLE_MEDIA_TYPES_ATTRIBUTE,
+				RequestAttributes.SCOPE_REQUEST);
+		if (null == producible || producible.isEmpty() || !(webRequest instanceof NativeWebRequest)) {
+			return null;
+		}
+		try {
+			List<MediaType> requested = contentNegotiationManager.resolveMediaTypes((NativeWebRequest) webRequest);
+			MediaType.sortBySpecificityAndQuality(requested);
+			for (MediaType accept : requested) {
+				for (MediaType candidate : producible) {
+					if (accept.isCompatibleWith(candidate) && candidate.isConcrete()) {
+						return candidate;
+					}
+				}
+			}
+		} catch (HttpMediaTypeNotAcceptableException e) {
+			//Let Spring MVC report it.
+		}
+		return null;
+	}
+
+	/**
+	 * @return a key unique to the ETL epoch, media type, resource and parameters. Null parameters are ignored and
+	 * array parameters are treated as sets.
+	 */
+	public static String buildKey(final Long etlMillis, final MediaType mediaType, final String resource,
+			final Map<String, Object> params) {
+		StringBuilder key = new StringBuilder();
+		key.append(etlMillis).append('|').append(mediaType).append('|').append(resource);
+		if (null != params) {
+			for (Map.Entry<String, Object> param : new TreeMap<>(params).entrySet()) {
+				Object value = param.getValue();
+				if (value instanceof Object[]) {
+					Object[] values = ((Object[]) value).clone();
+					Arrays.sort(values);
+					value = Arrays.toString(values);
+				}
+				if (null != value) {
+					key.append('\u0000').append(param.getKey()).append('=').append(value);
+				}
+			}
+		}
+		return key.toString();
+	}
+
+	/**
+	 * @return the cached entry, or null if there is none (or the cache is disabled).
+	 */
+	public Entry get(final String key) {
+		if (!enabled) {
+			return null;
+		}
+		Entry rtn;
+		synchronized (entries) {
+			rtn = entries.get(key);
+		}
+		(null == rtn ? misses : hits).incrementAndGet();
+		return rtn;
+	}
+
+	/**
+	 * Encode the body and, if caching is enabled and it is small enough, gzip and cache it.
+	 * @param key the key from {@link #buildKey(Long, MediaType, String, Map)}, or null to only encode.
+	 * @return the encoded entry.
+	 */
+	public Entry put(final String key, final MediaType mediaType, final Object body) {
+		byte[] encoded = encode(body, mediaType);
+		boolean cache = enabled && null != key && encoded.length <= maxEntryBytes;
+		Entry entry = new Entry(mediaType, encoded, cache);
+		if (cache) {
+			long size = sizeOf(key, entry);
+			synchronized (entries) {
+				Entry previous = entries.put(key, entry);
+				bytes += size - (null == previous ? 0 : sizeOf(key, previous));
+				Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+				while (bytes > maxBytes && eldest.hasNext()) {
+					Map.Entry<String, Entry> evicted = eldest.next();
+					bytes -= sizeOf(evicted.getKey(), evicted.getValue());
+					eldest.remove();
+					evictions.incrementAndGet();
+				}
+			}
+		}
+		return entry;
+	}
+
+	/**
+	 * Write the entry, or its gzip variant, with its ETag.
+	 */
+	public void write(final Entry entry, final boolean gzip, final WebRequest webRequest) {
+		HttpServletResponse response = ((NativeWebRequest) webRequest).getNativeResponse(HttpServletResponse.class);
+		byte[] body = gzip ? entry.getGzipBody() : entry.getBody();
+		response.setHeader(HttpHeaders.ETAG, entry.getEtag(gzip));
+		response.setContentType(entry.getMediaType().toString());
+		if (gzip) {
+			response.setHeader(HttpHeaders.CONTENT_ENCODING, GZIP);
+		}
+		response.setContentLength(body.length);
+		try {
+			response.getOutputStream().write(body);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * @return true if this Accept-Encoding header allows gzip: it is listed, or * is, with a non-zero quality.
+	 */
+	public static boolean acceptsGzip(final String acceptEncoding) {
+		if (null == acceptEncoding) {
+			return false;
+		}
+		Boolean gzip = null;
+		boolean any = false;
+		for (String coding : acceptEncoding.split(",")) {
+			String[] parts = coding.split(";");
+			String name = parts[0].trim().toLowerCase();
+			boolean accepted = true;
+			for (int i = 1; i < parts.length; i++) {
+				String param = parts[i].trim().toLowerCase();
+				if (param.startsWith("q=")) {
+					try {
+						accepted = 0 < Double.parseDouble(param.substring(2));
+					} catch (NumberFormatException e) {
+						accepted = false;
+					}
+				}
+			}
+			if (GZIP.equals(name) || "x-gzip".equals(name)) {
+				gzip = accepted;
+			} else if ("*".equals(name)) {
+				any = accepted;
+			}
+		}
+		return null == gzip ? any : gzip;
+	}
+
+	/**
+	 * @return the ETag of the gzip variant of the content with this (quoted, strong) ETag.
+	 */
+	public static String gzipEtag(final String etag) {
+		return etag.substring(0, etag.length() - 1) + "-" + GZIP + "\"";
+	}
+
+	/**
+	 * @return the body gzipped (at the best compression, as it is done once), or null if it is too small to be worth
+	 * it or does not get smaller.
+	 */
+	public static byte[] gzip(final byte[] body) {
+		if (body.length < MIN_GZIP_BYTES) {
+			return null;
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4);
+		try (GZIPOutputStream gzip = new GZIPOutputStream(out) {
+					{
+						def.setLevel(Deflater.BEST_COMPRESSION);
+					}
+				}) {
+			gzip.write(body);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return out.size() < body.length ? out.toByteArray() : null;
+	}
+
+	@EventListener
+	public void onEtlEpochChanged(final EtlEpochChangedEvent event) {
+		clear();
+	}
+
+	public void clear() {
+		synchronized (entries) {
+			entries.clear();
+			bytes = 0;
+		}
+	}
+
+	public Map<String, Object> getStats() {
+		Map<String, Object> rtn = new LinkedHashMap<>();
+		rtn.put("enabled", enabled);
+		synchronized (entries) {
+			rtn.put("entries", entries.size());
+			rtn.put("bytes", bytes);
+		}
+		rtn.put("maxBytes", maxBytes);
+		rtn.put("hits", hits.get());
+		rtn.put("misses", misses.get());
+		rtn.put("evictions", evictions.get());
+		return rtn;
+	}
+
+	protected byte[] encode(final Object body, final MediaType mediaType) {
+		return OperationMetrics.time(OperationMetrics.ENCODE, mediaType.getSubtype(), () -> convert(body, mediaType));
+	}
+
+	@SuppressWarnings("unchecked")
+	private byte[] convert(final Object body, final MediaType mediaType) {
+		for (HttpMessageConverter<?> converter : converters) {
+			if (converter.canWrite(body.getClass(), mediaType)) {
+				BufferedOutputMessage message = new BufferedOutputMessage();
+				try {
+					((HttpMessageConverter<Object>) converter).write(body, mediaType, message);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+				return message.body.toByteArray();
+			}
+		}
+		throw new IllegalStateException("No converter for " + body.getClass().getName() + " as " + mediaType);
+	}
+
+	private static long sizeOf(final String key, final Entry entry) {
+		//Roughly the key's chars, the bodies and the map entry overhead.
+		return key.length() * 2L + entry.getBody().length + (null == entry.getGzipBody() ? 0 : entry.getGzipBody().length) + 128;
+	}
+
+	public static class Entry {
+		private final MediaType mediaType;
+		private final byte[] body;
+		private final byte[] gzipBody;
+		private final String etag;
+
+		/**
+		 * An entry without a gzip variant, for a body which is only used once.
+		 */
+		public Entry(final MediaType mediaType, final byte[] body) {
+			this(mediaType, body, false);
+		}
+
+		/**
+		 * @param compress whether to build the gzip variant (if worth it), for a body which will be kept.
+		 */
+		public Entry(final MediaType mediaType, final byte[] body, final boolean compress) {
+			this.mediaType = mediaType;
+			this.body = body;
+			this.gzipBody = compress ? gzip(body) : null;
+			this.etag = BaseRestController.buildEtag(body);
+		}
+
+		public String getEtag() {
+			return etag;
+		}
+
+		/**
+		 * @return the ETag of the gzip variant (if gzip), otherwise of the body.
+		 */
+		public String getEtag(final boolean gzip) {
+			return gzip ? gzipEtag(etag) : etag;
+		}
+
+		public MediaType getMediaType() {
+			return mediaType;
+		}
+
+		public byte[] getBody() {
+			return body;
+		}
+
+		/**
+		 * @return the gzipped body, or null if there is no gzip variant.
+		 */
+		public byte[] getGzipBody() {
+			return gzipBody;
+		}
+	}
+
+	private static class BufferedOutputMessage implements HttpOutputMessage {
+		private final HttpHeaders headers = new HttpHeaders();
+		private final ByteArrayOutputStream body = new ByteArrayOutputStream(4096);
+
+		@Override
+		public HttpHeaders getHeaders() {
+			return headers;
+		}
+
+		@Override
+		public OutputStream getBody() {
+			return body;
+		}
+	}
+
+}
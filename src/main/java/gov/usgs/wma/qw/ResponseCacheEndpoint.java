@@ -0,0 +1,29 @@
+package gov.usgs.wma.qw;
+
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exposes the {@link ResponseCache} size and hit/miss statistics at /about/responsecache.
+ */
+@Component
+@Endpoint(id="responsecache")
+public class ResponseCacheEndpoint {
+
+	private final ResponseCache responseCache;
+
+	@Autowired
+	public ResponseCacheEndpoint(final ResponseCache responseCache) {
+		this.responseCache = responseCache;
+	}
+
+	@ReadOperation
+	public Map<String, Object> stats() {
+		return responseCache.getStats();
+	}
+
+}
@@ -0,0 +1,32 @@
+package gov.usgs.wma.qw;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exposes the statements recorded by the {@link SlowStatementInterceptor}, and its settings, at /about/slowstatements.
+ */
+@Component
+@Endpoint(id="slowstatements")
+public class SlowStatementEndpoint {
+
+	private final SlowStatementInterceptor slowStatementInterceptor;
+
+	@Autowired
+	public SlowStatementEndpoint(final SlowStatementInterceptor slowStatementInterceptor) {
+		this.slowStatementInterceptor = slowStatementInterceptor;
+	}
+
+	@ReadOperation
+	public Map<String, Object> statements() {
+		Map<String, Object> rtn = new LinkedHashMap<>(slowStatementInterceptor.getSettings());
+		rtn.put("statements", slowStatementInterceptor.getStatements());
+		return rtn;
+	}
+
+}
@@ -0,0 +1,286 @@
+package gov.usgs.wma.qw;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.ParameterMode;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.TypeHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Records the MyBatis selects which take longer than the threshold, with their statement id and bound parameters, in
+ * a bounded ring buffer (the oldest dropped first) exposed at /about/slowstatements. For a sampled fraction of them the
+ * plan is also captured with EXPLAIN (ANALYZE, BUFFERS), on its own connection and in the background, one at a time;
+ * as that runs the statement again, any which arrive while one is being explained are not.
+ * <p>
+ * Selects streamed to a ResultHandler (the unpaged code lists and the public_srsnames cursor) are not timed, as their
+ * rows are written to the client while they run, so a slow client would look like a slow statement.
+ */
+@Component
+@Intercepts({
+	@Signature(type=org.apache.ibatis.executor.Executor.class, method="query",
+			args={MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class})
+})
+public class SlowStatementInterceptor implements Interceptor {
+
+	private static final Logger LOG = LoggerFactory.getLogger(SlowStatementInterceptor.class);
+
+	public static final String EXPLAIN = "EXPLAIN (ANALYZE, BUFFERS) ";
+	/** Longer parameter values (the values being validated, say) are cut to this many characters. */
+	public static final int MAX_PARAMETER_CHARS = 200;
+
+	private final DataSource dataSource;
+	private final boolean enabled;
+	private final long thresholdMillis;
+	private final double sampleRate;
+	private final int capacity;
+	private final int explainTimeoutSeconds;
+	private final Executor explainExecutor;
+	private final Deque<SlowStatement> statements = new ArrayDeque<>();
+
+	@Autowired
+	public SlowStatementInterceptor(final DataSource dataSource,
+			@Value("${codes.slowStatements.enabled:false}") final boolean enabled,
+			@Value("${codes.slowStatements.thresholdMillis:1000}") final long thresholdMillis,
+			@Value("${codes.slowStatements.sampleRate:0}") final double sampleRate,
+			@Value("${codes.slowStatements.capacity:100}") final int capacity,
+			@Value("${codes.slowStatements.explainTimeoutSeconds:60}") final int explainTimeoutSeconds) {
+		this(dataSource, enabled, thresholdMillis, sampleRate, capacity, explainTimeoutSeconds, newExplainExecutor());
+	}
+
+	protected SlowStatementInterceptor(final DataSource dataSource, final boolean enabled, final long thresholdMillis,
+			final double sampleRate, final int capacity, final int explainTimeoutSeconds, final Executor explainExecutor) {
+		this.dataSource = dataSource;
+		this.enabled = enabled;
+		this.thresholdMillis = thresholdMillis;
+		this.sampleRate = sampleRate;
+		this.capacity = capacity;
+		this.explainTimeoutSeconds = explainTimeoutSeconds;
+		this.explainExecutor = explainExecutor;
+	}
+
+	/**
+	 * One thread and no queue, so a statement to be explained while another is being is rejected (and not explained).
+	 */
+	protected static ThreadPoolExecutor newExplainExecutor() {
+		return new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new SynchronousQueue<>(), runnable -> {
+			Thread thread = new Thread(runnable, "slow-statement-explain");
+			thread.setDaemon(true);
+			return thread;
+		}, new ThreadPoolExecutor.AbortPolicy());
+	}
+
+	@Override
+	public Object intercept(final Invocation invocation) throws Throwable {
+		if (!enabled || org.apache.ibatis.executor.Executor.NO_RESULT_HANDLER != invocation.getArgs()[3]) {
+			return invocation.proceed();
+		}
+		long start = System.nanoTime();
+		try {
+			return invocation.proceed();
+		} finally {
+			long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+			if (millis >= thresholdMillis) {
+				record((MappedStatement) invocation.getArgs()[0], invocation.getArgs()[1], millis);
+			}
+		}
+	}
+
+	protected void record(final MappedStatement mappedStatement, final Object parameter, final long millis) {
+		try {
+			BoundSql boundSql = mappedStatement.getBoundSql(parameter);
+			List<Object> values = getParameterValues(mappedStatement.getConfiguration(), boundSql, parameter);
+			SlowStatement slow = new SlowStatement(mappedStatement.getId(), millis, toStrings(boundSql, values));
+			//The parameters are what users searched for, so are only logged when debugging.
+			LOG.info("Slow statement {} took {} ms", slow.getId(), millis);
+			LOG.debug("Slow statement {} had the parameters {}", slow.getId(), slow.getParameters());
+			synchronized (statements) {
+				if (statements.size() >= capacity) {
+					statements.removeFirst();
+				}
+				statements.addLast(slow);
+			}
+			if (0 < sampleRate && ThreadLocalRandom.current().nextDouble() < sampleRate) {
+				explainExecutor.execute(() -> slow.plan = explain(boundSql, values));
+			}
+		} catch (RejectedExecutionException e) {
+			LOG.debug("Already explaining a statement, so not explaining another");
+		} catch (RuntimeException e) {
+			LOG.warn("Unable to record the slow statement {}: {}", mappedStatement.getId(), e.getLocalizedMessage());
+		}
+	}
+
+	/**
+	 * @return the value of each of the statement's parameters, looked up as MyBatis' DefaultParameterHandler does.
+	 */
+	protected static List<Object> getParameterValues(final Configuration configuration, final BoundSql boundSql,
+			final Object parameter) {
+		List<Object> values = new ArrayList<>();
+		MetaObject metaObject = null;
+		for (ParameterMapping mapping : boundSql.getParameterMappings()) {
+			String property = mapping.getProperty();
+			Object value;
+			if (boundSql.hasAdditionalParameter(property)) {
+				value = boundSql.getAdditionalParameter(property);
+			} else if (null == parameter) {
+				value = null;
+			} else if (configuration.getTypeHandlerRegistry().hasTypeHandler(parameter.getClass())) {
+				value = parameter;
+			} else {
+				if (null == metaObject) {
+					metaObject = configuration.newMetaObject(parameter);
+				}
+				value = metaObject.getValue(property);
+			}
+			values.add(value);
+		}
+		return values;
+	}
+
+	private static Map<String, String> toStrings(final BoundSql boundSql, final List<Object> values) {
+		Map<String, String> rtn = new LinkedHashMap<>();
+		for (int i = 0; i < values.size(); i++) {
+			Object value = values.get(i);
+			String text = value instanceof Object[] ? Arrays.toString((Object[]) value) : String.valueOf(value);
+			if (text.length() > MAX_PARAMETER_CHARS) {
+				text = text.substring(0, MAX_PARAMETER_CHARS) + "...";
+			}
+			rtn.put(boundSql.getParameterMappings().get(i).getProperty(), text);
+		}
+		return rtn;
+	}
+
+	/**
+	 * Run the statement again, with the same parameters, under EXPLAIN (ANALYZE, BUFFERS) in a read-only transaction
+	 * which is rolled back.
+	 * @return the plan, one line per element, or the reason it could not be had.
+	 */
+	@SuppressWarnings("unchecked")
+	protected List<String> explain(final BoundSql boundSql, final List<Object> values) {
+		List<String> plan = new ArrayList<>();
+		try (Connection connection = dataSource.getConnection()) {
+			connection.setReadOnly(true);
+			connection.setAutoCommit(false);
+			try (PreparedStatement ps = connection.prepareStatement(EXPLAIN + boundSql.getSql())) {
+				ps.setQueryTimeout(explainTimeoutSeconds);
+				List<ParameterMapping> mappings = boundSql.getParameterMappings();
+				for (int i = 0; i < mappings.size(); i++) {
+					ParameterMapping mapping = mappings.get(i);
+					if (ParameterMode.OUT != mapping.getMode()) {
+						JdbcType jdbcType = null == mapping.getJdbcType() ? JdbcType.OTHER : mapping.getJdbcType();
+						((TypeHandler<Object>) mapping.getTypeHandler()).setParameter(ps, i + 1, values.get(i), jdbcType);
+					}
+				}
+				try (ResultSet rs = ps.executeQuery()) {
+					while (rs.next()) {
+						plan.add(rs.getString(1));
+					}
+				}
+			} finally {
+				connection.rollback();
+			}
+		} catch (SQLException | RuntimeException e) {
+			LOG.warn("Unable to explain a slow statement: {}", e.getLocalizedMessage());
+			plan.add("Unable to explain: " + e.getLocalizedMessage());
+		}
+		return plan;
+	}
+
+	/**
+	 * @return the slow statements recorded, oldest first.
+	 */
+	public List<SlowStatement> getStatements() {
+		synchronized (statements) {
+			return new ArrayList<>(statements);
+		}
+	}
+
+	public Map<String, Object> getSettings() {
+		Map<String, Object> rtn = new LinkedHashMap<>();
+		rtn.put("enabled", enabled);
+		rtn.put("thresholdMillis", thresholdMillis);
+		rtn.put("sampleRate", sampleRate);
+		rtn.put("capacity", capacity);
+		return rtn;
+	}
+
+	@PreDestroy
+	public void destroy() {
+		if (explainExecutor instanceof ThreadPoolExecutor) {
+			((ThreadPoolExecutor) explainExecutor).shutdownNow();
+		}
+	}
+
+	public static class SlowStatement {
+		private final Instant time = Instant.now();
+		private final String id;
+		private final long millis;
+		private final Map<String, String> parameters;
+		private volatile List<String> plan;
+
+		public SlowStatement(final String id, final long millis, final Map<String, String> parameters) {
+			this.id = id;
+			this.millis = millis;
+			this.parameters = parameters;
+		}
+
+		public Instant getTime() {
+			return time;
+		}
+
+		public String getId() {
+			return id;
+		}
+
+		public long getMillis() {
+			return millis;
+		}
+
+		public Map<String, String> getParameters() {
+			return parameters;
+		}
+
+		/**
+		 * @return the EXPLAIN (ANALYZE, BUFFERS) output, or null if it was not sampled (or is still running).
+		 */
+		public List<String> getPlan() {
+			return plan;
+		}
+	}
+
+}
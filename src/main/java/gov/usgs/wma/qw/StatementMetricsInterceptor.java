@@ -0,0 +1,58 @@
+package gov.usgs.wma.qw;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Times every MyBatis statement as the qw.statement timer, tagged with the mapper namespace and statement id. The
+ * code statement ids are per code type and operation (codeMonitoringLocationList, codeMonitoringLocationCount, ...),
+ * so this is where the time spent in the database shows up, apart from the {@link OperationMetrics} around it. With a
+ * ResultHandler the time includes handling the rows, as they are fetched while it runs. The timer of each statement is
+ * registered once and kept.
+ */
+@Intercepts({
+	@Signature(type=Executor.class, method="query", args={MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+	@Signature(type=Executor.class, method="update", args={MappedStatement.class, Object.class})
+})
+public class StatementMetricsInterceptor implements Interceptor {
+
+	public static final String STATEMENT_TIMER = "qw.statement";
+	public static final String NAMESPACE_TAG = "namespace";
+	public static final String STATEMENT_TAG = "statement";
+
+	/** By statement id. */
+	private static final Map<String, Timer> TIMERS = new ConcurrentHashMap<>();
+
+	@Override
+	public Object intercept(final Invocation invocation) throws Throwable {
+		Timer.Sample sample = Timer.start(Metrics.globalRegistry);
+		try {
+			return invocation.proceed();
+		} finally {
+			sample.stop(timer(((MappedStatement) invocation.getArgs()[0]).getId()));
+		}
+	}
+
+	public static Timer timer(final String statementId) {
+		return TIMERS.computeIfAbsent(statementId, key -> {
+			int dot = key.lastIndexOf('.');
+			return Timer.builder(STATEMENT_TIMER)
+					.tag(NAMESPACE_TAG, dot < 0 ? "" : key.substring(0, dot))
+					.tag(STATEMENT_TAG, key.substring(dot + 1))
+					.register(Metrics.globalRegistry);
+		});
+	}
+
+}
@@ -5,6 +5,8 @@ import java.util.Collection;
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlRootElement;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 @XmlRootElement (name = "Codes")
 public class CodeList {
 
@@ -12,6 +14,8 @@ public class CodeList {
 
 	private int recordCount;
 
+	private String after;
+
 	@XmlElement (name = "Code")
 	public Collection<Code> getCodes() {
 		return codes;
@@ -30,4 +34,17 @@ public class CodeList {
 		recordCount = inRecordCount;
 	}
 
+	/**
+	 * @return the continuation token for the next page when paging with after, otherwise null.
+	 */
+	@XmlElement (name = "after")
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	public String getAfter() {
+		return after;
+	}
+
+	public void setAfter(final String inAfter) {
+		after = inAfter;
+	}
+
 }
@@ -22,11 +22,13 @@ public enum CodeType {
 	private final String singleSelectID;
 	private final String listSelectID;
 	private final String countSelectID;
+	private final String catalogSelectID;
 
 	private CodeType(String selectID) {
 		this.singleSelectID = String.join(".", CODES_MAPPER_NAMESPACE, selectID);
 		this.listSelectID = String.join(".", CODES_MAPPER_NAMESPACE, selectID + "List");
 		this.countSelectID = String.join(".", CODES_MAPPER_NAMESPACE, selectID + "Count");
+		this.catalogSelectID = String.join(".", CODES_MAPPER_NAMESPACE, selectID + "Catalog");
 	}
 
 	public String getSingleSelectID() {
@@ -41,4 +43,8 @@ public enum CodeType {
 		return countSelectID;
 	}
 
+	public String getCatalogSelectID() {
+		return catalogSelectID;
+	}
+
 }
\ No newline at end of file
@@ -0,0 +1,39 @@
+package gov.usgs.wma.qw.codes;
+
+import java.util.Collection;
+
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlElementWrapper;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * The result of validating many values of a code type at once: the codes which were found and the values which were not.
+ */
+@XmlRootElement (name = "Validation")
+public class CodeValidation {
+
+	private Collection<Code> found;
+
+	private Collection<String> missing;
+
+	@XmlElementWrapper (name = "found")
+	@XmlElement (name = "Code")
+	public Collection<Code> getFound() {
+		return found;
+	}
+
+	public void setFound(final Collection<Code> inFound) {
+		found = inFound;
+	}
+
+	@XmlElementWrapper (name = "missing")
+	@XmlElement (name = "value")
+	public Collection<String> getMissing() {
+		return missing;
+	}
+
+	public void setMissing(final Collection<String> inMissing) {
+		missing = inMissing;
+	}
+
+}
@@ -0,0 +1,27 @@
+package gov.usgs.wma.qw.codes;
+
+import javax.xml.bind.annotation.XmlTransient;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * A code as read by the *List statements, which also carry the total number of codes matching the filters
+ * (a windowed count) so that a page and its record count come back in one round trip.
+ */
+public class PagedCode extends Code {
+
+	private static final long serialVersionUID = -2715334306542284817L;
+
+	protected int recordCount;
+
+	@XmlTransient
+	@JsonIgnore
+	public int getRecordCount() {
+		return recordCount;
+	}
+
+	public void setRecordCount(final int inRecordCount) {
+		recordCount = inRecordCount;
+	}
+
+}
@@ -0,0 +1,64 @@
+package gov.usgs.wma.qw.codes.catalog;
+
+/**
+ * One (code, provider) row as read from a code table while building the catalog.
+ * Only the columns relevant to the code type being loaded are populated.
+ */
+public class CatalogRow {
+
+	private String codeValue;
+	private String description;
+	private String provider;
+	private String searchText;
+	private String organization;
+	private String descriptionWithCountry;
+
+	public String getCodeValue() {
+		return codeValue;
+	}
+
+	public void setCodeValue(final String inCodeValue) {
+		codeValue = inCodeValue;
+	}
+
+	public String getDescription() {
+		return description;
+	}
+
+	public void setDescription(final String inDescription) {
+		description = inDescription;
+	}
+
+	public String getProvider() {
+		return provider;
+	}
+
+	public void setProvider(final String inProvider) {
+		provider = inProvider;
+	}
+
+	public String getSearchText() {
+		return searchText;
+	}
+
+	public void setSearchText(final String inSearchText) {
+		searchText = inSearchText;
+	}
+
+	public String getOrganization() {
+		return organization;
+	}
+
+	public void setOrganization(final String inOrganization) {
+		organization = inOrganization;
+	}
+
+	public String getDescriptionWithCountry() {
+		return descriptionWithCountry;
+	}
+
+	public void setDescriptionWithCountry(final String inDescriptionWithCountry) {
+		descriptionWithCountry = inDescriptionWithCountry;
+	}
+
+}
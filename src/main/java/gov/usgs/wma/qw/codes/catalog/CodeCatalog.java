@@ -0,0 +1,107 @@
+package gov.usgs.wma.qw.codes.catalog;
+
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import gov.usgs.wma.qw.EtlEpoch;
+import gov.usgs.wma.qw.EtlEpochChangedEvent;
+import gov.usgs.wma.qw.codes.CodeType;
+import gov.usgs.wma.qw.codes.dao.CodeDao;
+import gov.usgs.wma.qw.springinit.ReplicaRoutingDataSource;
+
+/**
+ * Serves code lookups from immutable, in-memory snapshots of every {@link CodeType}.
+ * A new snapshot is built in the background whenever the ETL epoch moves and swapped in once complete. Until then
+ * (or if it cannot be built) {@link #getTable(CodeType)} returns null and callers should fall back to {@link CodeDao}.
+ */
+@Component
+public class CodeCatalog {
+
+	private static final Logger LOG = LoggerFactory.getLogger(CodeCatalog.class);
+
+	private final CodeDao codeDao;
+	private final EtlEpoch etlEpoch;
+	private final TransactionTemplate transactionTemplate;
+	private final boolean enabled;
+
+	private volatile Snapshot snapshot;
+
+	@Autowired
+	public CodeCatalog(final CodeDao codeDao, final EtlEpoch etlEpoch, final PlatformTransactionManager transactionManager,
+			@Value("${codes.catalog.enabled:false}") final boolean enabled) {
+		this.codeDao = codeDao;
+		this.etlEpoch = etlEpoch;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.transactionTemplate.setReadOnly(true);
+		this.enabled = enabled;
+	}
+
+	/**
+	 * @return the in-memory table for this code type, or null if there is no snapshot for the current ETL epoch.
+	 */
+	public CodeTable getTable(final CodeType codeType) {
+		Snapshot current = snapshot;
+		if (null != current && current.etl.equals(etlEpoch.getLastEtl())) {
+			return current.tables.get(codeType);
+		}
+		return null;
+	}
+
+	@Async
+	@EventListener
+	public void onEtlEpochChanged(final EtlEpochChangedEvent event) {
+		if (enabled) {
+			rebuild(event.getCurrentEtl());
+		}
+	}
+
+	/**
+	 * Load every code type and swap the result in as the current snapshot. Code types which fail to load are left
+	 * out of the snapshot (and so served from the database).
+	 */
+	public synchronized void rebuild(final LocalDateTime etl) {
+		long start = System.currentTimeMillis();
+		Map<CodeType, CodeTable> tables = new EnumMap<>(CodeType.class);
+		for (CodeType codeType : CodeType.values()) {
+			if (!codeDao.hasCatalogRows(codeType)) {
+				continue;
+			}
+			try {
+				//A (read-only) transaction lets the driver stream the rows rather than holding them all in memory. It is on
+				//the primary, as a lagging replica would give a stale snapshot tagged with the new epoch.
+				CodeTable table = ReplicaRoutingDataSource.onPrimary(() -> transactionTemplate.execute(status -> {
+					CodeTable.Builder builder = new CodeTable.Builder(codeType);
+					codeDao.getCatalogRows(codeType, context -> builder.add(context.getResultObject()));
+					return builder.build();
+				}));
+				tables.put(codeType, table);
+			} catch (RuntimeException e) {
+				LOG.warn("Unable to load {} into the code catalog: {}", codeType, e.getLocalizedMessage());
+			}
+		}
+		snapshot = new Snapshot(etl, tables);
+		LOG.info("Code catalog for ETL {} built in {} ms", etl, System.currentTimeMillis() - start);
+	}
+
+	private static final class Snapshot {
+		private final LocalDateTime etl;
+		private final Map<CodeType, CodeTable> tables;
+
+		private Snapshot(final LocalDateTime etl, final Map<CodeType, CodeTable> tables) {
+			this.etl = etl;
+			this.tables = tables;
+		}
+	}
+
+}
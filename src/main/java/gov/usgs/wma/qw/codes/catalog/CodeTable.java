@@ -0,0 +1,425 @@
+package gov.usgs.wma.qw.codes.catalog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+
+import gov.usgs.wma.qw.codes.Code;
+import gov.usgs.wma.qw.codes.CodeList;
+import gov.usgs.wma.qw.codes.CodeType;
+
+/**
+ * An immutable, in-memory copy of one code type. Codes are held in parallel arrays in database (code_value collation)
+ * order, so results are ordered exactly as the SQL in codeMapper.xml orders them. Providers are held as a bit mask
+ * over a small, sorted dictionary and organizations are dictionary encoded. Text searches are narrowed by a
+ * {@link TrigramIndex} over the search keys before being verified.
+ */
+public class CodeTable {
+
+	public static final char KEY_SEPARATOR = '\u0000';
+	public static final int MAX_PROVIDERS = 16;
+
+	private final CodeType codeType;
+	private final int size;
+	private final String[] values;
+	private final String[] descs;
+	private final String[] descsWithCountry;
+	private final String[] searchKeys;
+	private final int[] providerMasks;
+	private final String[] providerNames;
+	private final String[] providerStrings;
+	private final int[] organizations;
+	private final Map<String, Integer> organizationIndex;
+	private final int[] byLength;
+	private final int[] lengthRanks;
+	private final TrigramIndex trigramIndex;
+	private final int[] slots;
+
+	private CodeTable(final Builder builder) {
+		codeType = builder.codeType;
+		size = builder.values.size();
+		values = builder.values.toArray(new String[size]);
+		descs = builder.descs.toArray(new String[size]);
+		descsWithCountry = CodeType.STATECODE == codeType ? builder.descsWithCountry.toArray(new String[size]) : null;
+
+		providerNames = builder.providerNames.toArray(new String[builder.providerNames.size()]);
+		Arrays.sort(providerNames);
+		int[] remap = new int[providerNames.length];
+		for (int i = 0; i < providerNames.length; i++) {
+			remap[i] = Arrays.binarySearch(providerNames, builder.providerNames.get(i));
+		}
+		providerMasks = new int[size];
+		for (int i = 0; i < size; i++) {
+			int mask = builder.providerMasks[i];
+			for (int bit = 0; bit < remap.length; bit++) {
+				if (0 != (mask & (1 << bit))) {
+					providerMasks[i] |= 1 << remap[bit];
+				}
+			}
+		}
+		providerStrings = buildProviderStrings(providerNames);
+
+		if (CodeType.MONITORINGLOCATION == codeType) {
+			organizationIndex = new HashMap<>(builder.organizationIndex);
+			organizations = Arrays.copyOf(builder.organizations, size);
+		} else {
+			organizationIndex = new HashMap<>();
+			organizations = null;
+		}
+
+		searchKeys = new String[size];
+		long[] lengthKeys = new long[size];
+		for (int i = 0; i < size; i++) {
+			searchKeys[i] = buildSearchKey(i, builder);
+			//Data sources are not ordered by length when searched.
+			long length = CodeType.DATASOURCE == codeType ? 0 : values[i].codePointCount(0, values[i].length());
+			lengthKeys[i] = (length << 32) | i;
+		}
+		Arrays.sort(lengthKeys);
+		byLength = new int[size];
+		lengthRanks = new int[size];
+		String[] rankedKeys = new String[size];
+		for (int i = 0; i < size; i++) {
+			byLength[i] = (int) lengthKeys[i];
+			lengthRanks[byLength[i]] = i;
+			rankedKeys[i] = searchKeys[byLength[i]];
+		}
+		trigramIndex = new TrigramIndex(rankedKeys);
+
+		slots = new int[Integer.highestOneBit(Math.max(size, 1) * 2) * 2];
+		for (int i = 0; i < size; i++) {
+			int slot = slotFor(values[i]);
+			while (0 != slots[slot]) {
+				slot = (slot + 1) & (slots.length - 1);
+			}
+			slots[slot] = i + 1;
+		}
+	}
+
+	public CodeType getCodeType() {
+		return codeType;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public TrigramIndex getTrigramIndex() {
+		return trigramIndex;
+	}
+
+	/**
+	 * Filter, search and page this code type as the codeMapper.xml *List and *Count statements would.
+	 * @param parameterMap the same parameters as are given to CodeDao.getCodes
+	 * @return the requested page of codes along with the total number matching the filters (from the after key
+	 * onward when given), or null if the after key is not a code in this table.
+	 */
+	public CodeList getList(final Map<String, Object> parameterMap) {
+		Integer offset = (Integer) parameterMap.get("offset");
+		Integer fetchSize = (Integer) parameterMap.get("fetchSize");
+		int skip = null == offset ? 0 : offset;
+		int limit = null == fetchSize ? Integer.MAX_VALUE : fetchSize;
+		List<Code> codes = new ArrayList<>();
+		int count = forEach(parameterMap, skip, limit, codes::add);
+		if (count < 0) {
+			return null;
+		}
+
+		CodeList rtn = new CodeList();
+		rtn.setCodes(codes);
+		rtn.setRecordCount(count);
+		return rtn;
+	}
+
+	/**
+	 * Filter and search this code type, handing each code in the requested range to the consumer as it is found.
+	 * @param parameterMap the same parameters as are given to CodeDao.getCodes (the offset and fetchSize are ignored)
+	 * @param skip the number of matching codes to pass over before the first given to the consumer.
+	 * @param limit the most codes to give to the consumer.
+	 * @return the total number matching the filters (from the after key onward when given), or -1 if the after key
+	 * is not a code in this table.
+	 */
+	public int forEach(final Map<String, Object> parameterMap, final int skip, final int limit, final Consumer<Code> consumer) {
+		String text = (String) parameterMap.get("text");
+		TextMatcher matcher = null == text ? null : TextMatcher.of(text);
+		int providerFilter = getProviderFilter(parameterMap);
+		IntPredicate filter = getFilter(parameterMap, providerFilter);
+		boolean withCountry = isWithCountry(parameterMap);
+		int afterRank = -1;
+		if (null != parameterMap.get("after")) {
+			int afterPos = indexOf((String) parameterMap.get("after"));
+			if (afterPos < 0) {
+				return -1;
+			}
+			afterRank = null == matcher ? afterPos : lengthRanks[afterPos];
+		}
+
+		//Candidates are ranks in byLength order, so the text search ordering is kept.
+		int[] candidates = null == matcher ? null : trigramIndex.getCandidates(matcher.getFragments());
+		int candidateCount = null == candidates ? size : candidates.length;
+
+		int count = 0;
+		for (int i = null == candidates ? afterRank + 1 : 0; i < candidateCount; i++) {
+			int rank = null == candidates ? i : candidates[i];
+			if (rank <= afterRank) {
+				continue;
+			}
+			int pos = null == matcher ? rank : byLength[rank];
+			if ((null == matcher || matcher.matches(searchKeys[pos])) && filter.test(pos)) {
+				if (count >= skip && count - skip < limit) {
+					consumer.accept(toCode(pos, providerFilter, withCountry));
+				}
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * @return the code with exactly this value, or null if there is none.
+	 */
+	public Code getCode(final String codeValue) {
+		int pos = indexOf(codeValue);
+		return pos < 0 ? null : toCode(pos, -1, true);
+	}
+
+	/**
+	 * @return the codes with exactly these values, in the same (database) order as the lists.
+	 */
+	public List<Code> getCodes(final Collection<String> codeValues) {
+		int[] positions = new int[codeValues.size()];
+		int found = 0;
+		for (String codeValue : codeValues) {
+			int pos = indexOf(codeValue);
+			if (pos >= 0) {
+				positions[found++] = pos;
+			}
+		}
+		Arrays.sort(positions, 0, found);
+		List<Code> rtn = new ArrayList<>(found);
+		for (int i = 0; i < found; i++) {
+			if (0 == i || positions[i] != positions[i - 1]) {
+				rtn.add(toCode(positions[i], -1, true));
+			}
+		}
+		return rtn;
+	}
+
+	protected int indexOf(final String codeValue) {
+		if (null != codeValue) {
+			int slot = slotFor(codeValue);
+			while (0 != slots[slot]) {
+				if (values[slots[slot] - 1].equals(codeValue)) {
+					return slots[slot] - 1;
+				}
+				slot = (slot + 1) & (slots.length - 1);
+			}
+		}
+		return -1;
+	}
+
+	protected Code toCode(final int pos, final int providerFilter, final boolean withCountry) {
+		Code code = new Code();
+		code.setValue(values[pos]);
+		code.setDesc(withCountry && null != descsWithCountry ? descsWithCountry[pos] : descs[pos]);
+		code.setProviders(providerStrings[providerMasks[pos] & providerFilter]);
+		return code;
+	}
+
+	protected boolean isWithCountry(final Map<String, Object> parameterMap) {
+		String[] countrycode = (String[]) parameterMap.get("countrycode");
+		return null != countrycode && countrycode.length > 1;
+	}
+
+	protected int getProviderFilter(final Map<String, Object> parameterMap) {
+		String[] provider = CodeType.MONITORINGLOCATION == codeType ? (String[]) parameterMap.get("provider") : null;
+		int rtn = -1;
+		if (null != provider) {
+			rtn = 0;
+			for (String name : provider) {
+				int bit = Arrays.binarySearch(providerNames, name);
+				if (bit >= 0) {
+					rtn |= 1 << bit;
+				}
+			}
+		}
+		return rtn;
+	}
+
+	protected IntPredicate getFilter(final Map<String, Object> parameterMap, final int providerFilter) {
+		switch (codeType) {
+		case COUNTYCODE:
+			return getPrefixFilter((String[]) parameterMap.get("statecode"), 1);
+		case STATECODE:
+			String[] countrycode = (String[]) parameterMap.get("countrycode");
+			return getPrefixFilter(null == countrycode ? new String[] {"US"} : countrycode, 0);
+		case MONITORINGLOCATION:
+			BitSet orgs = getOrganizationFilter((String[]) parameterMap.get("organizationid"));
+			return pos -> (null == orgs || (organizations[pos] >= 0 && orgs.get(organizations[pos])))
+					&& 0 != (providerMasks[pos] & providerFilter);
+		default:
+			return pos -> true;
+		}
+	}
+
+	/**
+	 * Equivalent of <code>substring(code_value from '[^:]+(:[^:]+){colons}') in (...)</code>.
+	 */
+	protected IntPredicate getPrefixFilter(final String[] prefixes, final int colons) {
+		if (null == prefixes) {
+			return pos -> true;
+		}
+		List<String> valid = new ArrayList<>();
+		for (String prefix : prefixes) {
+			if (null != prefix && isPrefixShape(prefix, colons)) {
+				valid.add(prefix);
+			}
+		}
+		return pos -> {
+			String value = values[pos];
+			for (String prefix : valid) {
+				if (value.startsWith(prefix) && (value.length() == prefix.length() || ':' == value.charAt(prefix.length()))) {
+					return true;
+				}
+			}
+			return false;
+		};
+	}
+
+	protected BitSet getOrganizationFilter(final String[] organizationid) {
+		BitSet rtn = null;
+		if (null != organizationid) {
+			rtn = new BitSet(organizationIndex.size());
+			for (String org : organizationid) {
+				Integer idx = organizationIndex.get(org);
+				if (null != idx) {
+					rtn.set(idx);
+				}
+			}
+		}
+		return rtn;
+	}
+
+	private static boolean isPrefixShape(final String prefix, final int colons) {
+		String[] parts = prefix.split(":", -1);
+		if (parts.length != colons + 1) {
+			return false;
+		}
+		for (String part : parts) {
+			if (part.isEmpty()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private String buildSearchKey(final int pos, final Builder builder) {
+		switch (codeType) {
+		case MONITORINGLOCATION:
+			String searchText = builder.searchTexts.get(pos);
+			return null == searchText ? null : searchText.toUpperCase(Locale.ROOT);
+		case DATASOURCE:
+			return values[pos].toUpperCase(Locale.ROOT);
+		default:
+			//Both the description and code value are searched.
+			String desc = null == descs[pos] ? "" : descs[pos];
+			return values[pos].toUpperCase(Locale.ROOT) + KEY_SEPARATOR + desc.toUpperCase(Locale.ROOT);
+		}
+	}
+
+	private int slotFor(final String value) {
+		int h = value.hashCode();
+		return (h ^ (h >>> 16)) & (slots.length - 1);
+	}
+
+	private static String[] buildProviderStrings(final String[] providerNames) {
+		String[] rtn = new String[1 << providerNames.length];
+		for (int mask = 1; mask < rtn.length; mask++) {
+			StringBuilder sb = new StringBuilder();
+			for (int bit = 0; bit < providerNames.length; bit++) {
+				if (0 != (mask & (1 << bit))) {
+					if (sb.length() > 0) {
+						sb.append(' ');
+					}
+					sb.append(providerNames[bit]);
+				}
+			}
+			rtn[mask] = sb.toString();
+		}
+		return rtn;
+	}
+
+	/**
+	 * Accumulates catalog rows, which must arrive ordered by code_value, into a {@link CodeTable}.
+	 */
+	public static class Builder {
+		private final CodeType codeType;
+		private final List<String> values = new ArrayList<>();
+		private final List<String> descs = new ArrayList<>();
+		private final List<String> descsWithCountry = new ArrayList<>();
+		private final List<String> searchTexts = new ArrayList<>();
+		private final List<String> providerNames = new ArrayList<>();
+		private final Map<String, Integer> organizationIndex = new HashMap<>();
+		private int[] providerMasks = new int[1024];
+		private int[] organizations = new int[1024];
+
+		public Builder(final CodeType codeType) {
+			this.codeType = codeType;
+		}
+
+		public Builder add(final CatalogRow row) {
+			int last = values.size() - 1;
+			if (last < 0 || !values.get(last).equals(row.getCodeValue())) {
+				last++;
+				values.add(row.getCodeValue());
+				descs.add(row.getDescription());
+				descsWithCountry.add(row.getDescriptionWithCountry());
+				searchTexts.add(row.getSearchText());
+				if (last == providerMasks.length) {
+					providerMasks = Arrays.copyOf(providerMasks, last * 2);
+					organizations = Arrays.copyOf(organizations, last * 2);
+				}
+				organizations[last] = organizationIndexOf(row.getOrganization());
+			} else {
+				//The rows of a code come least description first, so the first which has one is kept.
+				if (null == descs.get(last) && null != row.getDescription()) {
+					descs.set(last, row.getDescription());
+				}
+				if (null == descsWithCountry.get(last) && null != row.getDescriptionWithCountry()) {
+					descsWithCountry.set(last, row.getDescriptionWithCountry());
+				}
+			}
+			if (null != row.getProvider()) {
+				int bit = providerNames.indexOf(row.getProvider());
+				if (bit < 0) {
+					if (providerNames.size() == MAX_PROVIDERS) {
+						throw new IllegalStateException("Too many providers for " + codeType + ": " + row.getProvider());
+					}
+					bit = providerNames.size();
+					providerNames.add(row.getProvider());
+				}
+				providerMasks[last] |= 1 << bit;
+			}
+			return this;
+		}
+
+		private int organizationIndexOf(final String organization) {
+			if (null == organization) {
+				return -1;
+			}
+			return organizationIndex.computeIfAbsent(organization, k -> organizationIndex.size());
+		}
+
+		public CodeTable build() {
+			return new CodeTable(this);
+		}
+	}
+
+}
@@ -0,0 +1,83 @@
+package gov.usgs.wma.qw.codes.catalog;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory equivalent of the SQL <code>upper(column) like '%' || upper(#{text}) || '%'</code> used by codeMapper.xml.
+ * Search keys are expected to already be upper cased. The LIKE wildcards (% and _) and the backslash escape are honored,
+ * but never match across the {@link CodeTable#KEY_SEPARATOR} between the columns of a search key.
+ */
+public final class TextMatcher {
+
+	private final String literal;
+	private final Pattern pattern;
+	private final List<String> fragments;
+
+	private TextMatcher(final String literal, final Pattern pattern, final List<String> fragments) {
+		this.literal = literal;
+		this.pattern = pattern;
+		this.fragments = Collections.unmodifiableList(fragments);
+	}
+
+	public static TextMatcher of(final String text) {
+		String upper = text.toUpperCase(Locale.ROOT);
+		if (upper.indexOf('%') < 0 && upper.indexOf('_') < 0 && upper.indexOf('\\') < 0) {
+			return new TextMatcher(upper, null, List.of(upper));
+		}
+		StringBuilder regex = new StringBuilder();
+		List<String> fragments = new ArrayList<>();
+		StringBuilder fragment = new StringBuilder();
+		for (int i = 0; i < upper.length(); i++) {
+			char c = upper.charAt(i);
+			if ('\\' == c && i + 1 < upper.length()) {
+				i++;
+				regex.append(Pattern.quote(String.valueOf(upper.charAt(i))));
+				fragment.append(upper.charAt(i));
+			} else if ('%' == c || '_' == c) {
+				regex.append("[^").append(CodeTable.KEY_SEPARATOR).append('%' == c ? "]*" : "]");
+				addFragment(fragments, fragment);
+			} else {
+				regex.append(Pattern.quote(String.valueOf(c)));
+				fragment.append(c);
+			}
+		}
+		addFragment(fragments, fragment);
+		return new TextMatcher(null, Pattern.compile(regex.toString(), Pattern.DOTALL), fragments);
+	}
+
+	private static void addFragment(final List<String> fragments, final StringBuilder fragment) {
+		if (fragment.length() > 0) {
+			fragments.add(fragment.toString());
+			fragment.setLength(0);
+		}
+	}
+
+	/**
+	 * @return the text to search for when it contains no wildcards, otherwise null.
+	 */
+	public String getLiteral() {
+		return literal;
+	}
+
+	/**
+	 * @return the runs of literal text between wildcards, all of which must appear in a matching search key.
+	 */
+	public List<String> getFragments() {
+		return fragments;
+	}
+
+	public boolean matches(final String searchKey) {
+		if (null == searchKey) {
+			return false;
+		} else if (null == pattern) {
+			return searchKey.contains(literal);
+		} else {
+			return pattern.matcher(searchKey).find();
+		}
+	}
+
+}
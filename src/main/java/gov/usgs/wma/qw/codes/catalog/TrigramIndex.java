@@ -0,0 +1,156 @@
+package gov.usgs.wma.qw.codes.catalog;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An inverted index from every trigram (three consecutive characters) of a table's search keys to the codes containing it.
+ * Postings are stored in one compressed-row array and hold each code's rank in (length(code_value), code_value) order,
+ * so the intersection of posting lists is already in the order the code lists are returned in.
+ * Candidates must still be verified against the search text, as sharing trigrams does not imply a substring match.
+ */
+public class TrigramIndex {
+
+	public static final int GRAM_LENGTH = 3;
+
+	private static final int[] NO_CANDIDATES = new int[0];
+
+	private final long[] grams;
+	private final int[] offsets;
+	private final int[] postings;
+
+	/**
+	 * @param searchKeys the upper cased search key of each code, indexed by rank.
+	 */
+	public TrigramIndex(final String[] searchKeys) {
+		Map<Long, int[]> counts = new HashMap<>();
+		for (String key : searchKeys) {
+			for (long gram : distinctGrams(key)) {
+				counts.computeIfAbsent(gram, k -> new int[3])[0]++;
+			}
+		}
+
+		grams = new long[counts.size()];
+		int i = 0;
+		for (Long gram : counts.keySet()) {
+			grams[i++] = gram;
+		}
+		Arrays.sort(grams);
+		offsets = new int[grams.length + 1];
+		for (i = 0; i < grams.length; i++) {
+			int[] slot = counts.get(grams[i]);
+			slot[1] = i;
+			offsets[i + 1] = offsets[i] + slot[0];
+		}
+
+		postings = new int[offsets[grams.length]];
+		for (int rank = 0; rank < searchKeys.length; rank++) {
+			for (long gram : distinctGrams(searchKeys[rank])) {
+				int[] slot = counts.get(gram);
+				postings[offsets[slot[1]] + slot[2]++] = rank;
+			}
+		}
+	}
+
+	public int getGramCount() {
+		return grams.length;
+	}
+
+	public int getPostingCount() {
+		return postings.length;
+	}
+
+	/**
+	 * @param fragments upper cased literal text which must all appear in a matching search key.
+	 * @return the ranks (ascending) of the codes containing every trigram of the fragments, or null if the fragments
+	 * are too short to narrow the search (in which case every code is a candidate).
+	 */
+	public int[] getCandidates(final List<String> fragments) {
+		//Each gram's posting length and index packed into a long, so sorting them puts the shortest lists first.
+		long[] lists = new long[0];
+		int count = 0;
+		for (String fragment : fragments) {
+			long[] fragmentGrams = distinctGrams(fragment);
+			lists = Arrays.copyOf(lists, count + fragmentGrams.length);
+			for (long gram : fragmentGrams) {
+				int idx = Arrays.binarySearch(grams, gram);
+				if (idx < 0) {
+					return NO_CANDIDATES;
+				}
+				lists[count++] = ((long) (offsets[idx + 1] - offsets[idx]) << 32) | idx;
+			}
+		}
+		if (0 == count) {
+			return null;
+		}
+		Arrays.sort(lists, 0, count);
+		//The shortest list is the only copy made; the others are intersected with it where they lie in postings.
+		int first = (int) lists[0];
+		int[] rtn = Arrays.copyOfRange(postings, offsets[first], offsets[first + 1]);
+		int size = rtn.length;
+		for (int l = 1; l < count && size > 0; l++) {
+			int idx = (int) lists[l];
+			size = intersect(rtn, size, postings, offsets[idx], offsets[idx + 1]);
+		}
+		return size == rtn.length ? rtn : Arrays.copyOf(rtn, size);
+	}
+
+	/**
+	 * Intersect a short sorted list with a (usually much) longer one, the range [from, to) of the array it is in, by
+	 * galloping through the longer. The values found are kept at the start of the short list, in place.
+	 * @return the number of values kept.
+	 */
+	protected static int intersect(final int[] shorter, final int shorterSize, final int[] longer, final int from, final int to) {
+		int size = 0;
+		int lo = from;
+		for (int i = 0; i < shorterSize && lo < to; i++) {
+			int value = shorter[i];
+			int step = 1;
+			int hi = lo;
+			while (hi < to && longer[hi] < value) {
+				lo = hi;
+				hi += step;
+				step <<= 1;
+			}
+			int idx = Arrays.binarySearch(longer, lo, Math.min(hi + 1, to), value);
+			if (idx >= 0) {
+				shorter[size++] = value;
+				lo = idx + 1;
+			} else {
+				lo = -idx - 1;
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * @return the sorted, distinct trigrams of the text, each packed into the low 48 bits of a long.
+	 * Trigrams spanning the {@link CodeTable#KEY_SEPARATOR} are skipped.
+	 */
+	protected static long[] distinctGrams(final String text) {
+		if (null == text || text.length() < GRAM_LENGTH) {
+			return new long[0];
+		}
+		long[] rtn = new long[text.length() - GRAM_LENGTH + 1];
+		int size = 0;
+		for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+			char a = text.charAt(i);
+			char b = text.charAt(i + 1);
+			char c = text.charAt(i + 2);
+			if (CodeTable.KEY_SEPARATOR != a && CodeTable.KEY_SEPARATOR != b && CodeTable.KEY_SEPARATOR != c) {
+				rtn[size++] = ((long) a << 32) | ((long) b << 16) | c;
+			}
+		}
+		Arrays.sort(rtn, 0, size);
+		int distinct = 0;
+		for (int i = 0; i < size; i++) {
+			if (0 == distinct || rtn[distinct - 1] != rtn[i]) {
+				rtn[distinct++] = rtn[i];
+			}
+		}
+		return Arrays.copyOf(rtn, distinct);
+	}
+
+}
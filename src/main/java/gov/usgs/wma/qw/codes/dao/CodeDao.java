@@ -3,21 +3,75 @@ package gov.usgs.wma.qw.codes.dao;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
+import javax.annotation.PreDestroy;
+
+import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.SqlSessionFactory;
 import org.mybatis.spring.support.SqlSessionDaoSupport;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import gov.usgs.wma.qw.CancellableStatementInterceptor;
 import gov.usgs.wma.qw.codes.Code;
+import gov.usgs.wma.qw.codes.CodeList;
 import gov.usgs.wma.qw.codes.CodeType;
+import gov.usgs.wma.qw.codes.PagedCode;
+import gov.usgs.wma.qw.codes.catalog.CatalogRow;
+import gov.usgs.wma.qw.springinit.ReplicaRoutingDataSource;
 
 @Component
 public class CodeDao extends SqlSessionDaoSupport {
 
+	/** Tells the list statements to leave off the windowed count, as it is being counted separately. */
+	public static final String SEPARATE_COUNT = "separateCount";
+
+	private final Executor countExecutor;
+	private final int timeoutSeconds;
+
+	/**
+	 * @param parallelCount whether a page's list and count run as separate statements, at the same time.
+	 * @param threads the most list and count statements run at once for that; beyond them (and as many queued) the
+	 * request's own thread runs them.
+	 * @param timeoutSeconds the query timeout of those statements, or 0 for none.
+	 */
 	@Autowired
-	public CodeDao(SqlSessionFactory sqlSessionFactory) {
+	public CodeDao(SqlSessionFactory sqlSessionFactory,
+			@Value("${codes.parallelCount.enabled:false}") final boolean parallelCount,
+			@Value("${codes.parallelCount.threads:8}") final int threads,
+			@Value("${codes.parallelCount.timeoutSeconds:60}") final int timeoutSeconds) {
+		this(sqlSessionFactory, parallelCount ? newCountExecutor(threads) : null, timeoutSeconds);
+	}
+
+	/**
+	 * @param countExecutor runs a page's list and count statements, or null to get both from the one statement.
+	 */
+	protected CodeDao(SqlSessionFactory sqlSessionFactory, final Executor countExecutor, final int timeoutSeconds) {
 		setSqlSessionFactory(sqlSessionFactory);
+		this.countExecutor = countExecutor;
+		this.timeoutSeconds = timeoutSeconds;
+	}
+
+	private static ThreadPoolExecutor newCountExecutor(final int threads) {
+		AtomicInteger number = new AtomicInteger();
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(threads), runnable -> {
+					Thread thread = new Thread(runnable, "code-list-count-" + number.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}, new ThreadPoolExecutor.CallerRunsPolicy());
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
 	}
 
 	public int getRecordCount(final CodeType codeType, final Map<String, Object> parameterMap) {
@@ -28,12 +82,144 @@ public class CodeDao extends SqlSessionDaoSupport {
 		return getSqlSession().selectList(codeType.getListSelectID(), parameterMap);
 	}
 
+	/**
+	 * Get a page of codes along with the total number matching the filters using a single statement.
+	 * The total rides along on each row as a windowed count, so the separate count statement is only needed when
+	 * the page is empty and past the first row. Without a fetchSize every code is returned, so they are the total.
+	 * <p>
+	 * With the parallel count on, a numbered page is instead listed and counted by separate statements run at the same
+	 * time (see {@link #getCodeListAndCount}). Pages read from an after token still use the windowed count, which is
+	 * of the codes from the token onward.
+	 */
+	public CodeList getCodeList(final CodeType codeType, final Map<String, Object> parameterMap) {
+		if (null != countExecutor && null != parameterMap.get("fetchSize") && !parameterMap.containsKey("after")) {
+			return getCodeListAndCount(codeType, parameterMap);
+		}
+		List<Code> codes = getCodes(codeType, parameterMap);
+		Integer offset = (Integer) parameterMap.get("offset");
+		CodeList rtn = new CodeList();
+		rtn.setCodes(codes);
+		if (null == parameterMap.get("fetchSize")) {
+			rtn.setRecordCount(codes.size());
+		} else if (!codes.isEmpty()) {
+			rtn.setRecordCount(((PagedCode) codes.get(0)).getRecordCount());
+		} else if (null != offset && 0 < offset) {
+			rtn.setRecordCount(getRecordCount(codeType, parameterMap));
+		}
+		return rtn;
+	}
+
+	/**
+	 * List the page (without the windowed count) and count the codes matching the filters as two statements, each on
+	 * its own connection and outside of any transaction, run at the same time. The list is only put together once both
+	 * have finished. If either fails (or times out) the other is cancelled, in the database if it is already running,
+	 * and the failure thrown straight away. Work pinned {@link ReplicaRoutingDataSource#onPrimary on the primary} has
+	 * both statements run there too.
+	 */
+	protected CodeList getCodeListAndCount(final CodeType codeType, final Map<String, Object> parameterMap) {
+		Map<String, Object> listParameters = new HashMap<>(parameterMap);
+		listParameters.put(SEPARATE_COUNT, Boolean.TRUE);
+		boolean onPrimary = ReplicaRoutingDataSource.isOnPrimary();
+		CancellableStatementInterceptor.Handle listHandle = new CancellableStatementInterceptor.Handle(timeoutSeconds);
+		CancellableStatementInterceptor.Handle countHandle = new CancellableStatementInterceptor.Handle(timeoutSeconds);
+		CompletableFuture<List<Code>> codes = CompletableFuture.supplyAsync(
+				() -> run(onPrimary, listHandle, () -> getCodes(codeType, listParameters)), countExecutor);
+		CompletableFuture<Integer> recordCount = CompletableFuture.supplyAsync(
+				() -> run(onPrimary, countHandle, () -> getRecordCount(codeType, parameterMap)), countExecutor);
+		//The future is cancelled before its statement, so the failure the statement's cancellation causes is not
+		//mistaken for the one which caused it.
+		codes.whenComplete((rows, e) -> {
+			if (null != e) {
+				recordCount.cancel(true);
+				countHandle.cancel();
+			}
+		});
+		recordCount.whenComplete((count, e) -> {
+			if (null != e) {
+				codes.cancel(true);
+				listHandle.cancel();
+			}
+		});
+		try {
+			CompletableFuture.allOf(codes, recordCount).join();
+		} catch (CompletionException | CancellationException e) {
+			throw getFailure(e, codes, recordCount);
+		}
+		CodeList rtn = new CodeList();
+		rtn.setCodes(codes.join());
+		rtn.setRecordCount(recordCount.join());
+		return rtn;
+	}
+
+	private static <T> T run(final boolean onPrimary, final CancellableStatementInterceptor.Handle handle, final Supplier<T> work) {
+		return onPrimary
+				? ReplicaRoutingDataSource.onPrimary(() -> CancellableStatementInterceptor.run(handle, work))
+				: CancellableStatementInterceptor.run(handle, work);
+	}
+
+	/**
+	 * @return what made the first of the futures to fail do so, rather than the cancellation of the other.
+	 */
+	private static RuntimeException getFailure(final RuntimeException e, final CompletableFuture<?>... futures) {
+		for (CompletableFuture<?> future : futures) {
+			if (future.isCompletedExceptionally() && !future.isCancelled()) {
+				try {
+					future.join();
+				} catch (CompletionException failure) {
+					if (failure.getCause() instanceof Error) {
+						throw (Error) failure.getCause();
+					}
+					return failure.getCause() instanceof RuntimeException ? (RuntimeException) failure.getCause() : failure;
+				}
+			}
+		}
+		return e;
+	}
+
+	@PreDestroy
+	public void destroy() {
+		if (countExecutor instanceof ThreadPoolExecutor) {
+			((ThreadPoolExecutor) countExecutor).shutdownNow();
+		}
+	}
+
+	/**
+	 * Stream the codes to the handler rather than collecting them. Within a (read-only) transaction the driver fetches
+	 * the rows in batches, so memory use is bounded no matter how many codes match.
+	 */
+	public void getCodes(final CodeType codeType, final Map<String, Object> parameterMap, final ResultHandler<Code> handler) {
+		getSqlSession().select(codeType.getListSelectID(), parameterMap, handler);
+	}
+
 	public List<Code> getCodes(final CodeType codeType) {
 		return getCodes(codeType, new HashMap<String, Object>());
 	}
 
 	public Code getCode(final CodeType codeType, final String codeValue) {
-		return getSqlSession().selectOne(codeType.getSingleSelectID(), codeValue);
+		Map<String, Object> parameterMap = new HashMap<>();
+		parameterMap.put("value", codeValue);
+		return getSqlSession().selectOne(codeType.getSingleSelectID(), parameterMap);
+	}
+
+	/**
+	 * Look up many codes in one statement (code_value = any(?)).
+	 * @return the codes found, ordered by value.
+	 */
+	public List<Code> getCodes(final CodeType codeType, final String[] codeValues) {
+		Map<String, Object> parameterMap = new HashMap<>();
+		parameterMap.put("values", codeValues);
+		return getSqlSession().selectList(codeType.getSingleSelectID(), parameterMap);
+	}
+
+	public boolean hasCatalogRows(final CodeType codeType) {
+		return getSqlSession().getConfiguration().hasStatement(codeType.getCatalogSelectID());
+	}
+
+	/**
+	 * Stream every (code, provider) row of the code type, ordered by code value, to the handler.
+	 */
+	public void getCatalogRows(final CodeType codeType, final ResultHandler<CatalogRow> handler) {
+		getSqlSession().select(codeType.getCatalogSelectID(), handler);
 	}
 
 }
@@ -0,0 +1,41 @@
+package gov.usgs.wma.qw.codes.stream;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import gov.usgs.wma.qw.codes.Code;
+
+/**
+ * Writes a code list to a stream one code at a time, so the list never needs to be held in memory.
+ * The record count is that of the codes written, so this is only for unpaged lists.
+ */
+public abstract class CodeStreamWriter {
+
+	private int count;
+
+	public abstract void start() throws IOException;
+
+	/**
+	 * Write the code, rethrowing any IOException unchecked so this can be used as a callback.
+	 */
+	public void write(final Code code) {
+		try {
+			writeCode(code);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		count++;
+	}
+
+	protected abstract void writeCode(final Code code) throws IOException;
+
+	/**
+	 * Finish the document and flush (but do not close) the stream.
+	 */
+	public abstract void end() throws IOException;
+
+	public int getCount() {
+		return count;
+	}
+
+}
@@ -0,0 +1,81 @@
+package gov.usgs.wma.qw.codes.stream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import gov.usgs.wma.qw.codes.Code;
+import gov.usgs.wma.qw.codes.CodeType;
+import gov.usgs.wma.qw.codes.catalog.CodeCatalog;
+import gov.usgs.wma.qw.codes.catalog.CodeTable;
+import gov.usgs.wma.qw.codes.dao.CodeDao;
+
+/**
+ * Writes unpaged code lists (as XML, JSON, CSV or NDJSON) straight from the {@link CodeCatalog} or a database cursor to the response, so that
+ * large lists are never materialized as a List of Codes.
+ */
+@Component
+public class CodeStreamer {
+
+	private final CodeDao codeDao;
+	private final CodeCatalog codeCatalog;
+	private final TransactionTemplate transactionTemplate;
+	private final ObjectMapper objectMapper;
+	private final JAXBContext jaxbContext;
+
+	@Autowired
+	public CodeStreamer(final CodeDao codeDao, final CodeCatalog codeCatalog, final PlatformTransactionManager transactionManager,
+			final ObjectMapper objectMapper) {
+		this.codeDao = codeDao;
+		this.codeCatalog = codeCatalog;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.transactionTemplate.setReadOnly(true);
+		this.objectMapper = objectMapper;
+		try {
+			this.jaxbContext = JAXBContext.newInstance(Code.class);
+		} catch (JAXBException e) {
+			throw new IllegalStateException("Unable to create the Code JAXBContext", e);
+		}
+	}
+
+	/**
+	 * @return a writer for this media type, or null if it cannot be streamed.
+	 */
+	public CodeStreamWriter getWriter(final MediaType mediaType, final OutputStream out) throws IOException {
+		if (MediaType.APPLICATION_JSON.isCompatibleWith(mediaType)) {
+			return new JsonCodeStreamWriter(objectMapper, out);
+		} else if (MediaType.APPLICATION_XML.isCompatibleWith(mediaType)) {
+			return new XmlCodeStreamWriter(jaxbContext, out);
+		} else {
+			return FlatCodeHttpMessageConverter.getWriter(objectMapper, mediaType, out);
+		}
+	}
+
+	/**
+	 * Write every code matching the parameters, which should not include a fetchSize.
+	 * @return the number of codes written.
+	 */
+	public int stream(final CodeType codeType, final Map<String, Object> parameterMap, final CodeStreamWriter writer) throws IOException {
+		writer.start();
+		CodeTable table = codeCatalog.getTable(codeType);
+		if (null == table || 0 > table.forEach(parameterMap, 0, Integer.MAX_VALUE, writer::write)) {
+			//A (read-only) transaction lets the driver stream the rows rather than holding them all in memory.
+			transactionTemplate.executeWithoutResult(status ->
+				codeDao.getCodes(codeType, parameterMap, context -> writer.write(context.getResultObject())));
+		}
+		writer.end();
+		return writer.getCount();
+	}
+
+}
@@ -0,0 +1,58 @@
+package gov.usgs.wma.qw.codes.stream;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import gov.usgs.wma.qw.codes.Code;
+
+/**
+ * Writes codes as CSV, a header and then one line per code. Values are quoted (with embedded quotes doubled) and
+ * missing values are left empty. There is no record count, as a flat file has nowhere to put it.
+ */
+public class CsvCodeStreamWriter extends CodeStreamWriter {
+
+	public static final String HEADER = "\"value\",\"desc\",\"providers\"\n";
+
+	private final Writer writer;
+
+	public CsvCodeStreamWriter(final OutputStream out) {
+		writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+	}
+
+	@Override
+	public void start() throws IOException {
+		writer.write(HEADER);
+	}
+
+	@Override
+	protected void writeCode(final Code code) throws IOException {
+		writeValue(code.getValue());
+		writer.write(',');
+		writeValue(code.getDesc());
+		writer.write(',');
+		writeValue(code.getProviders());
+		writer.write('\n');
+	}
+
+	protected void writeValue(final String value) throws IOException {
+		if (null != value) {
+			writer.write('"');
+			if (value.indexOf('"') < 0) {
+				writer.write(value);
+			} else {
+				writer.write(value.replace("\"", "\"\""));
+			}
+			writer.write('"');
+		}
+	}
+
+	@Override
+	public void end() throws IOException {
+		writer.flush();
+	}
+
+}
@@ -0,0 +1,79 @@
+package gov.usgs.wma.qw.codes.stream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import gov.usgs.wma.qw.BaseRestController;
+import gov.usgs.wma.qw.codes.Code;
+import gov.usgs.wma.qw.codes.CodeList;
+
+/**
+ * Writes a Code or (paged) CodeList as CSV or newline delimited JSON. Unpaged lists are instead streamed by the
+ * {@link CodeStreamer}, which uses the same writers.
+ */
+@Component
+public class FlatCodeHttpMessageConverter extends AbstractHttpMessageConverter<Object> {
+
+	private final ObjectMapper objectMapper;
+
+	@Autowired
+	public FlatCodeHttpMessageConverter(final ObjectMapper objectMapper) {
+		super(BaseRestController.MEDIA_TYPE_TEXT_CSV_UTF8, BaseRestController.MEDIA_TYPE_APPLICATION_NDJSON_UTF8);
+		this.objectMapper = objectMapper;
+	}
+
+	/**
+	 * @return a writer for this media type, or null if it is not a flat one.
+	 */
+	public static CodeStreamWriter getWriter(final ObjectMapper objectMapper, final MediaType mediaType,
+			final OutputStream out) throws IOException {
+		if (BaseRestController.MEDIA_TYPE_TEXT_CSV_UTF8.isCompatibleWith(mediaType)) {
+			return new CsvCodeStreamWriter(out);
+		} else if (BaseRestController.MEDIA_TYPE_APPLICATION_NDJSON_UTF8.isCompatibleWith(mediaType)) {
+			return new NdjsonCodeStreamWriter(objectMapper, out);
+		} else {
+			return null;
+		}
+	}
+
+	@Override
+	protected boolean supports(final Class<?> clazz) {
+		return Code.class.isAssignableFrom(clazz) || CodeList.class.isAssignableFrom(clazz);
+	}
+
+	@Override
+	public boolean canRead(final Class<?> clazz, final MediaType mediaType) {
+		return false;
+	}
+
+	@Override
+	protected Object readInternal(final Class<? extends Object> clazz, final HttpInputMessage inputMessage) {
+		throw new HttpMessageNotReadableException("Codes can not be read as " + inputMessage.getHeaders().getContentType(),
+				inputMessage);
+	}
+
+	@Override
+	protected void writeInternal(final Object body, final HttpOutputMessage outputMessage) throws IOException {
+		CodeStreamWriter writer = getWriter(objectMapper, outputMessage.getHeaders().getContentType(), outputMessage.getBody());
+		writer.start();
+		if (body instanceof CodeList) {
+			if (null != ((CodeList) body).getCodes()) {
+				((CodeList) body).getCodes().forEach(writer::write);
+			}
+		} else {
+			writer.write((Code) body);
+		}
+		writer.end();
+	}
+
+}
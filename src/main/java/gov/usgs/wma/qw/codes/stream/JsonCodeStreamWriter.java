@@ -0,0 +1,46 @@
+package gov.usgs.wma.qw.codes.stream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import gov.usgs.wma.qw.codes.Code;
+
+/**
+ * Writes the same JSON as Jackson does for a CodeList: {"codes":[...],"recordCount":n}
+ */
+public class JsonCodeStreamWriter extends CodeStreamWriter {
+
+	private final JsonGenerator generator;
+	private final ObjectWriter codeWriter;
+
+	public JsonCodeStreamWriter(final ObjectMapper objectMapper, final OutputStream out) throws IOException {
+		generator = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
+		codeWriter = objectMapper.writerFor(Code.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+	}
+
+	@Override
+	public void start() throws IOException {
+		generator.writeStartObject();
+		generator.writeArrayFieldStart("codes");
+	}
+
+	@Override
+	protected void writeCode(final Code code) throws IOException {
+		codeWriter.writeValue(generator, code);
+	}
+
+	@Override
+	public void end() throws IOException {
+		generator.writeEndArray();
+		generator.writeNumberField("recordCount", getCount());
+		generator.writeEndObject();
+		generator.flush();
+	}
+
+}
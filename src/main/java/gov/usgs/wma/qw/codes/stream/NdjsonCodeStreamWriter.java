@@ -0,0 +1,46 @@
+package gov.usgs.wma.qw.codes.stream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import gov.usgs.wma.qw.codes.Code;
+
+/**
+ * Writes codes as newline delimited JSON, each code serialized as Jackson does within a CodeList and on its own line.
+ * There is no record count, as a flat file has nowhere to put it.
+ */
+public class NdjsonCodeStreamWriter extends CodeStreamWriter {
+
+	private final JsonGenerator generator;
+	private final ObjectWriter codeWriter;
+
+	public NdjsonCodeStreamWriter(final ObjectMapper objectMapper, final OutputStream out) throws IOException {
+		generator = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
+		//The lines are separated by hand, rather than with the default (space) root value separator.
+		generator.setRootValueSeparator(null);
+		codeWriter = objectMapper.writerFor(Code.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+	}
+
+	@Override
+	public void start() {
+		//Nothing to open.
+	}
+
+	@Override
+	protected void writeCode(final Code code) throws IOException {
+		codeWriter.writeValue(generator, code);
+		generator.writeRaw('\n');
+	}
+
+	@Override
+	public void end() throws IOException {
+		generator.flush();
+	}
+
+}
@@ -0,0 +1,58 @@
+package gov.usgs.wma.qw.codes.stream;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+
+import gov.usgs.wma.qw.codes.Code;
+
+/**
+ * Writes the same XML as JAXB does for a CodeList, marshalling each Code as a fragment.
+ */
+public class XmlCodeStreamWriter extends CodeStreamWriter {
+
+	public static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>";
+
+	private final Writer writer;
+	private final Marshaller marshaller;
+
+	public XmlCodeStreamWriter(final JAXBContext jaxbContext, final OutputStream out) throws IOException {
+		writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+		try {
+			marshaller = jaxbContext.createMarshaller();
+			marshaller.setProperty(Marshaller.JAXB_FRAGMENT, true);
+			marshaller.setProperty(Marshaller.JAXB_ENCODING, StandardCharsets.UTF_8.name());
+		} catch (JAXBException e) {
+			throw new IOException("Unable to create a Code marshaller", e);
+		}
+	}
+
+	@Override
+	public void start() throws IOException {
+		writer.write(XML_DECLARATION);
+		writer.write("<Codes>");
+	}
+
+	@Override
+	protected void writeCode(final Code code) throws IOException {
+		try {
+			marshaller.marshal(code, writer);
+		} catch (JAXBException e) {
+			throw new IOException("Unable to marshal code " + code.getValue(), e);
+		}
+	}
+
+	@Override
+	public void end() throws IOException {
+		writer.write("<recordCount>" + getCount() + "</recordCount></Codes>");
+		writer.flush();
+	}
+
+}
@@ -5,32 +5,44 @@ import javax.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.context.request.WebRequest;
 
 import gov.usgs.wma.qw.BaseRestController;
-import gov.usgs.wma.qw.LastUpdateDao;
+import gov.usgs.wma.qw.EtlEpoch;
+import gov.usgs.wma.qw.ResponseCache;
 import gov.usgs.wma.qw.codes.Code;
 import gov.usgs.wma.qw.codes.CodeList;
 import gov.usgs.wma.qw.codes.CodeType;
+import gov.usgs.wma.qw.codes.CodeValidation;
+import gov.usgs.wma.qw.codes.catalog.CodeCatalog;
 import gov.usgs.wma.qw.codes.dao.CodeDao;
+import gov.usgs.wma.qw.codes.stream.CodeStreamer;
 import gov.usgs.wma.qw.springinit.ConfigOpenApi;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 
 @Tag(name="Assemblage", description=ConfigOpenApi.LOOKUP_TAG_DESCRIPTION)
 @RestController
-@RequestMapping(value="assemblage", produces={BaseRestController.MEDIA_TYPE_APPLICATION_XML_UTF8_VALUE, BaseRestController.MEDIA_TYPE_APPLICATION_JSON_UTF8_VALUE})
+@RequestMapping(value="assemblage", produces={BaseRestController.MEDIA_TYPE_APPLICATION_XML_UTF8_VALUE, BaseRestController.MEDIA_TYPE_APPLICATION_JSON_UTF8_VALUE,
+		BaseRestController.MEDIA_TYPE_TEXT_CSV_UTF8_VALUE, BaseRestController.MEDIA_TYPE_APPLICATION_NDJSON_UTF8_VALUE})
 public class AssemblageRestController extends CodesRestController {
 	private static final Logger LOG = LoggerFactory.getLogger(CharacteristicNameRestController.class);
 
 	@Autowired
-	public AssemblageRestController(final LastUpdateDao lastUpdateDao, final CodeDao codeDao) {
-		this.lastUpdateDao = lastUpdateDao;
+	public AssemblageRestController(final EtlEpoch etlEpoch, final CodeDao codeDao, final CodeCatalog codeCatalog,
+			final ResponseCache responseCache, final CodeStreamer codeStreamer) {
+		this.etlEpoch = etlEpoch;
 		this.codeDao = codeDao;
+		this.codeCatalog = codeCatalog;
+		this.responseCache = responseCache;
+		this.codeStreamer = codeStreamer;
 	}
 
 	@Operation(description="Return a filtered and paged list of valid Assemblages.")
@@ -38,9 +50,10 @@ public class AssemblageRestController extends CodesRestController {
 	public CodeList getAssemblageNames(final @RequestParam(value="text", required=false) String text,
 			final @RequestParam(value="pagenumber", required=false) String pageNumber,
 			final @RequestParam(value="pagesize", required=false) String pageSize,
+			final @RequestParam(value="after", required=false) String after,
 			WebRequest webRequest) {
 		LOG.debug("assemblageNames");
-		return getList(CodeType.ASSEMBLAGE, text, pageNumber, pageSize, null, webRequest);
+		return getList(CodeType.ASSEMBLAGE, text, pageNumber, pageSize, after, null, webRequest);
 	}
 
 	@Operation(description="Validate and return the requested Assemblage.")
@@ -51,4 +64,18 @@ public class AssemblageRestController extends CodesRestController {
 		return getCode(CodeType.ASSEMBLAGE, value, webRequest, response);
 	}
 
+	@Operation(description="Validate many Assemblages at once, given as a semicolon separated list, and return those found and the values missing.")
+	@GetMapping(value="/validate", params="values", produces={BaseRestController.MEDIA_TYPE_APPLICATION_XML_UTF8_VALUE, BaseRestController.MEDIA_TYPE_APPLICATION_JSON_UTF8_VALUE})
+	public CodeValidation getAssemblageValidation(final @RequestParam(value="values") String[] values, WebRequest webRequest) {
+		LOG.debug("assemblageValidation");
+		return validate(CodeType.ASSEMBLAGE, values, webRequest);
+	}
+
+	@Operation(description="Validate many Assemblages at once, given as a JSON array, and return those found and the values missing.")
+	@PostMapping(value="/validate", consumes=MediaType.APPLICATION_JSON_VALUE, produces={BaseRestController.MEDIA_TYPE_APPLICATION_XML_UTF8_VALUE, BaseRestController.MEDIA_TYPE_APPLICATION_JSON_UTF8_VALUE})
+	public CodeValidation postAssemblageValidation(final @RequestBody String[] values, WebRequest webRequest) {
+		LOG.debug("assemblageValidation");
+		return validate(CodeType.ASSEMBLAGE, values, webRequest);
+	}
+
 }
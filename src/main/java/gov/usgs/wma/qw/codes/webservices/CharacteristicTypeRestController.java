@@ -5,33 +5,45 @@ import javax.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.context.request.WebRequest;
 
 import gov.usgs.wma.qw.BaseRestController;
-import gov.usgs.wma.qw.LastUpdateDao;
+import gov.usgs.wma.qw.EtlEpoch;
+import gov.usgs.wma.qw.ResponseCache;
 import gov.usgs.wma.qw.codes.Code;
 import gov.usgs.wma.qw.codes.CodeList;
 import gov.usgs.wma.qw.codes.CodeType;
+import gov.usgs.wma.qw.codes.CodeValidation;
+import gov.usgs.wma.qw.codes.catalog.CodeCatalog;
 import gov.usgs.wma.qw.codes.dao.CodeDao;
+import gov.usgs.wma.qw.codes.stream.CodeStreamer;
 import gov.usgs.wma.qw.springinit.ConfigOpenApi;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 
 @Tag(name="Characteristic Type", description=ConfigOpenApi.LOOKUP_TAG_DESCRIPTION)
 @RestController
-@RequestMapping(value="characteristictype", produces={BaseRestController.MEDIA_TYPE_APPLICATION_XML_UTF8_VALUE, BaseRestController.MEDIA_TYPE_APPLICATION_JSON_UTF8_VALUE})
+@RequestMapping(value="characteristictype", produces={BaseRestController.MEDIA_TYPE_APPLICATION_XML_UTF8_VALUE, BaseRestController.MEDIA_TYPE_APPLICATION_JSON_UTF8_VALUE,
+		BaseRestController.MEDIA_TYPE_TEXT_CSV_UTF8_VALUE, BaseRestController.MEDIA_TYPE_APPLICATION_NDJSON_UTF8_VALUE})
 public class CharacteristicTypeRestController extends CodesRestController {
 
 	private static final Logger LOG = LoggerFactory.getLogger(CharacteristicTypeRestController.class);
 
 	@Autowired
-	public CharacteristicTypeRestController(final LastUpdateDao lastUpdateDao, final CodeDao codeDao) {
-		this.lastUpdateDao = lastUpdateDao;
+	public CharacteristicTypeRestController(final EtlEpoch etlEpoch, final CodeDao codeDao, final CodeCatalog codeCatalog,
+			final ResponseCache responseCache, final CodeStreamer codeStreamer) {
+		this.etlEpoch = etlEpoch;
 		this.codeDao = codeDao;
+		this.codeCatalog = codeCatalog;
+		this.responseCache = responseCache;
+		this.codeStreamer = codeStreamer;
 	}
 
 	@Operation(description="Return a filtered and paged list of valid Characteristic Types.")
@@ -39,9 +51,10 @@ public class CharacteristicTypeRestController extends CodesRestController {
 	public CodeList getCharacteristicTypes(final @RequestParam(value="text", required=false) String text,
 			final @RequestParam(value="pagenumber", required=false) String pageNumber,
 			final @RequestParam(value="pagesize", required=false) String pageSize,
+			final @RequestParam(value="after", required=false) String after,
 			WebRequest webRequest) {
 		LOG.debug("characteristictypes");
-		return getList(CodeType.CHARACTERISTICTYPE, text, pageNumber, pageSize, null, webRequest);
+		return getList(CodeType.CHARACTERISTICTYPE, text, pageNumber, pageSize, after, null, webRequest);
 	}
 
 	@Operation(description="Validate and return the requested Characteristic Type.")
@@ -51,4 +64,18 @@ public class CharacteristicTypeRestController extends CodesRestController {
 		return getCode(CodeType.CHARACTERISTICTYPE, value, webRequest, response);
 	}
 
+	@Operation(description="Validate many Characteristic Types at once, given as a semicolon separated list, and return those found and the values missing.")
+	@GetMapping(value="/validate", params="values", produces={BaseRestController.MEDIA_TYPE_APPLICATION_XML_UTF8_VALUE, BaseRestController.MEDIA_TYPE_APPLICATION_JSON_UTF8_VALUE})
+	public CodeValidation getCharacteristicTypeValidation(final @RequestParam(value="values") String[] values, WebRequest webRequest) {
+		LOG.debug("characteristicTypeValidation");
+		return validate(CodeType.CHARACTERISTICTYPE, values, webRequest);
+	}
+
+	@Operation(description="Validate many Characteristic Types at once, given as a JSON array, and return those found and the values missing.")
+	@PostMapping(value="/validate", consumes=MediaType.APPLICATION_JSON_VALUE, produces={BaseRestController.MEDIA_TYPE_APPLICATION_XML_UTF8_VALUE, BaseRestController.MEDIA_TYPE_APPLICATION_JSON_UTF8_VALUE})
+	public CodeValidation postCharacteristicTypeValidation(final @RequestBody String[] values, WebRequest webRequest) {
+		LOG.debug("characteristicTypeValidation");
+		return validate(CodeType.CHARACTERISTICTYPE, values, webRequest);
+	}
+
 }
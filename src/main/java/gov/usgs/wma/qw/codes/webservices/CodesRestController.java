@@ -1,29 +1,58 @@
 package gov.usgs.wma.qw.codes.webservices;
 
 import gov.usgs.wma.qw.BaseRestController;
+import gov.usgs.wma.qw.OperationMetrics;
+import gov.usgs.wma.qw.ResponseCache;
 import gov.usgs.wma.qw.codes.Code;
 import gov.usgs.wma.qw.codes.CodeList;
 import gov.usgs.wma.qw.codes.CodeType;
+import gov.usgs.wma.qw.codes.CodeValidation;
+import gov.usgs.wma.qw.codes.catalog.CodeCatalog;
+import gov.usgs.wma.qw.codes.catalog.CodeTable;
 import gov.usgs.wma.qw.codes.dao.CodeDao;
+import gov.usgs.wma.qw.codes.stream.CodeStreamWriter;
+import gov.usgs.wma.qw.codes.stream.CodeStreamer;
+import gov.usgs.wma.qw.springinit.ReplicaRoutingDataSource;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
 
 import javax.servlet.http.HttpServletResponse;
 
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.util.StringUtils;
+import org.springframework.web.context.request.NativeWebRequest;
 import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
 
 public abstract class CodesRestController extends BaseRestController {
 
+	public static final int MAX_VALIDATE_VALUES = 1000;
+
 	protected CodeDao codeDao;
+	protected CodeCatalog codeCatalog;
+	protected CodeStreamer codeStreamer;
 
+	/**
+	 * Get a filtered list of codes. Pages are either numbered (pagenumber and pagesize) or, when an after token is given
+	 * (an empty one starting from the beginning), read by seeking from the last code of the previous page. In the
+	 * latter mode the page number is ignored, the recordCount is the number of codes from the token onward and the
+	 * token for the next page is returned while there may be more codes.
+	 */
 	protected CodeList getList(final CodeType codeType, final String text, final String inPageNumber, final String inPageSize,
-			final Map<String, Object> addlParms, WebRequest webRequest) {
-		CodeList codes = new CodeList();
+			final String after, final Map<String, Object> addlParms, WebRequest webRequest) {
 		if (isNotModified(webRequest)) {
 			return null;
 		} else {
@@ -45,26 +74,167 @@ public abstract class CodesRestController extends BaseRestController {
 				Integer fetchSize = Integer.parseInt(inPageSize);
 				queryParams.put("fetchSize", fetchSize);
 
-				if (isInteger(inPageNumber) && Integer.parseInt(inPageNumber) > 0) {
+				if (null == after && isInteger(inPageNumber) && Integer.parseInt(inPageNumber) > 0) {
 					// But the page number is only respected when provided with a fetchsize
 					Integer pageNumber = Integer.parseInt(inPageNumber);
 					queryParams.put("offset", (pageNumber - 1) * fetchSize);
 				}
 			}
-			codes.setCodes(codeDao.getCodes(codeType, queryParams));
-			codes.setRecordCount(codeDao.getRecordCount(codeType, queryParams));
-			return codes;
+			if (StringUtils.hasText(after)) {
+				queryParams.put("after", decodeAfter(after));
+			}
+			//Even an empty token changes the response, as it turns on the after mode.
+			String resource = codeType + (null == after ? "List" : "AfterList");
+			if (null == queryParams.get("fetchSize") && streamed(codeType, resource, queryParams, webRequest)) {
+				return null;
+			}
+			return cached(resource, queryParams, webRequest,
+					() -> OperationMetrics.time(OperationMetrics.LIST, codeType, () -> findList(codeType, queryParams, null != after)));
+		}
+	}
+
+	protected CodeList findList(final CodeType codeType, final Map<String, Object> queryParams, final boolean afterMode) {
+		CodeList codes = null;
+		CodeTable table = codeCatalog.getTable(codeType);
+		if (null != table) {
+			codes = table.getList(queryParams);
+		}
+		if (null == codes) {
+			codes = codeDao.getCodeList(codeType, queryParams);
+		}
+		if (afterMode) {
+			setNextAfter(codes, (Integer) queryParams.get("fetchSize"));
+		}
+		return codes;
+	}
+
+	/**
+	 * Write an unpaged list directly to the response, a code at a time. As the body is not known up front, its ETag
+	 * is of the ETL epoch and normalized request, so the codes are then read on the primary (a lagging replica could
+	 * still have those of the previous epoch).
+	 * @return true if the response has been written (or is not modified), false if the list was not streamed.
+	 */
+	protected boolean streamed(final CodeType codeType, final String resource, final Map<String, Object> queryParams,
+			final WebRequest webRequest) {
+		MediaType mediaType = null == responseCache || null == codeStreamer ? null : responseCache.negotiate(webRequest);
+		if (null == mediaType) {
+			return false;
+		}
+		Long etlMillis = etlEpoch.getLastEtlMillis();
+		if (null != etlMillis) {
+			String version = ResponseCache.buildKey(etlMillis, mediaType, resource, queryParams);
+			if (isNotModified(webRequest, buildEtag(version.getBytes(StandardCharsets.UTF_8)))) {
+				return true;
+			}
+		}
+		HttpServletResponse response = ((NativeWebRequest) webRequest).getNativeResponse(HttpServletResponse.class);
+		try {
+			CodeStreamWriter writer = codeStreamer.getWriter(mediaType, response.getOutputStream());
+			if (null == writer) {
+				return false;
+			}
+			response.setContentType(mediaType.toString());
+			if (null == etlMillis) {
+				stream(codeType, queryParams, writer);
+			} else {
+				ReplicaRoutingDataSource.onPrimary(() -> {
+					stream(codeType, queryParams, writer);
+					return null;
+				});
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return true;
+	}
+
+	private void stream(final CodeType codeType, final Map<String, Object> queryParams, final CodeStreamWriter writer) {
+		try {
+			OperationMetrics.timeWrite(OperationMetrics.STREAM, codeType, () -> codeStreamer.stream(codeType, queryParams, writer));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * A full page may be followed by more codes, so give it the token to seek past its last code.
+	 */
+	protected void setNextAfter(final CodeList codes, final Integer fetchSize) {
+		if (null != fetchSize && null != codes.getCodes() && codes.getCodes().size() == fetchSize) {
+			Code last = null;
+			for (Code code : codes.getCodes()) {
+				last = code;
+			}
+			codes.setAfter(encodeAfter(last.getValue()));
+		}
+	}
+
+	public static String encodeAfter(final String codeValue) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(codeValue.getBytes(StandardCharsets.UTF_8));
+	}
+
+	public static String decodeAfter(final String after) {
+		try {
+			return new String(Base64.getUrlDecoder().decode(after), StandardCharsets.UTF_8);
+		} catch (IllegalArgumentException e) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid after token");
 		}
 	}
 
 	protected Code getCode(final CodeType codeType, final String codeValue, WebRequest webRequest, HttpServletResponse response) {
 		Code rtn = null;
 		if (!isNotModified(webRequest)) {
-			rtn = codeDao.getCode(codeType, codeValue);
-			if (null == rtn) {
-				response.setStatus(HttpStatus.NOT_FOUND.value());
+			rtn = cached(codeType + "Code", Collections.singletonMap("value", codeValue), webRequest,
+					() -> OperationMetrics.time(OperationMetrics.SINGLE, codeType, () -> {
+						CodeTable table = codeCatalog.getTable(codeType);
+						Code code = null == table ? codeDao.getCode(codeType, codeValue) : table.getCode(codeValue);
+						if (null == code) {
+							response.setStatus(HttpStatus.NOT_FOUND.value());
+						}
+						return code;
+					}));
+		}
+		return rtn;
+	}
+
+	/**
+	 * Validate many values at once, with one catalog lookup or database statement. Blank and repeated values are
+	 * ignored and the missing values are sorted, so the response does not depend on the order they were given in.
+	 */
+	protected CodeValidation validate(final CodeType codeType, final String[] inValues, WebRequest webRequest) {
+		if (isNotModified(webRequest)) {
+			return null;
+		}
+		TreeSet<String> values = new TreeSet<>();
+		if (null != inValues) {
+			for (String value : inValues) {
+				if (StringUtils.hasText(value)) {
+					values.add(value);
+				}
 			}
 		}
+		if (values.size() > MAX_VALIDATE_VALUES) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No more than " + MAX_VALIDATE_VALUES + " values may be validated at once");
+		}
+		return cached(codeType + "Validate", Collections.singletonMap("values", values.toArray(new String[0])), webRequest,
+				() -> OperationMetrics.time(OperationMetrics.VALIDATE, codeType, () -> findValidation(codeType, values)));
+	}
+
+	protected CodeValidation findValidation(final CodeType codeType, final SortedSet<String> values) {
+		List<Code> found;
+		if (values.isEmpty()) {
+			found = new ArrayList<>();
+		} else {
+			CodeTable table = codeCatalog.getTable(codeType);
+			found = null == table ? codeDao.getCodes(codeType, values.toArray(new String[0])) : table.getCodes(values);
+		}
+		SortedSet<String> missing = new TreeSet<>(values);
+		for (Code code : found) {
+			missing.remove(code.getValue());
+		}
+		CodeValidation rtn = new CodeValidation();
+		rtn.setFound(found);
+		rtn.setMissing(missing);
 		return rtn;
 	}
 
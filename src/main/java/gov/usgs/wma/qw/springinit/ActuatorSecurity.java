@@ -5,12 +5,22 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
 
+/**
+ * Leaves health, info and prometheus open to all. The other endpoints (responsecache and slowstatements, which show
+ * request parameters and query plans) need the actuator user's credentials, given by basic authentication.
+ */
 @Configuration
 public class ActuatorSecurity extends WebSecurityConfigurerAdapter {
 
+	public static final String[] PUBLIC_ENDPOINTS = {"health", "info", "prometheus"};
+
 	@Override
 	protected void configure(HttpSecurity http) throws Exception {
-		http.requestMatcher(EndpointRequest.toAnyEndpoint()).authorizeRequests().anyRequest().anonymous();
+		http.requestMatcher(EndpointRequest.toAnyEndpoint()).authorizeRequests()
+				.requestMatchers(EndpointRequest.to(PUBLIC_ENDPOINTS)).permitAll()
+				.anyRequest().authenticated()
+			.and()
+				.httpBasic();
 	}
 
 }
@@ -13,7 +13,13 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 
+import gov.usgs.wma.qw.CancellableStatementInterceptor;
+import gov.usgs.wma.qw.SlowStatementInterceptor;
+import gov.usgs.wma.qw.StatementMetricsInterceptor;
 import gov.usgs.wma.qw.codes.Code;
+import gov.usgs.wma.qw.codes.PagedCode;
+import gov.usgs.wma.qw.codes.catalog.CatalogRow;
+import gov.usgs.wma.qw.summary.SummaryRow;
 
 @Configuration
 public class MybatisConfig {
@@ -22,10 +28,16 @@ public class MybatisConfig {
 	public static final String LINKED_HASH_MAP_ALIAS = "LinkedHashMap";
 	public static final String LOCAL_DATE_ALIAS = "LocalDate";
 	public static final String CODE_ALIAS = "Code";
+	public static final String PAGED_CODE_ALIAS = "PagedCode";
+	public static final String CATALOG_ROW_ALIAS = "CatalogRow";
+	public static final String SUMMARY_ROW_ALIAS = "SummaryRow";
 
 	@Autowired
 	DataSource dataSource;
 
+	@Autowired
+	SlowStatementInterceptor slowStatementInterceptor;
+
 	@Bean
 	public org.apache.ibatis.session.Configuration mybatisConfiguration() {
 		org.apache.ibatis.session.Configuration config = new org.apache.ibatis.session.Configuration();
@@ -33,6 +45,9 @@ public class MybatisConfig {
 		config.setCacheEnabled(false);
 		config.setLazyLoadingEnabled(false);
 		config.setAggressiveLazyLoading(false);
+		config.addInterceptor(new StatementMetricsInterceptor());
+		config.addInterceptor(slowStatementInterceptor);
+		config.addInterceptor(new CancellableStatementInterceptor());
 
 		registerAliases(config.getTypeAliasRegistry());
 
@@ -53,6 +68,9 @@ public class MybatisConfig {
 		registry.registerAlias(LINKED_HASH_MAP_ALIAS, LinkedHashMap.class);
 		registry.registerAlias(LOCAL_DATE_ALIAS, LocalDate.class);
 		registry.registerAlias(CODE_ALIAS, Code.class);
+		registry.registerAlias(PAGED_CODE_ALIAS, PagedCode.class);
+		registry.registerAlias(CATALOG_ROW_ALIAS, CatalogRow.class);
+		registry.registerAlias(SUMMARY_ROW_ALIAS, SummaryRow.class);
 	}
 
 }
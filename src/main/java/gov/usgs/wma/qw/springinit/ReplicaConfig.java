@@ -0,0 +1,76 @@
+package gov.usgs.wma.qw.springinit;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.util.StringUtils;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+
+import io.micrometer.core.instrument.Metrics;
+
+/**
+ * When replica JDBC urls are configured, routes every connection (MyBatis' and the transaction manager's alike) through
+ * a {@link ReplicaRoutingDataSource} over a Hikari pool per replica, sized and configured as the primary's
+ * (spring.datasource.hikari) and with the same read-only credentials. Each pool is named for its replica, so the
+ * hikaricp metrics are per node. Their connection timeout is short, so a request waits little on an exhausted replica
+ * before trying the next. Without replicas, Spring Boot's single data source is used as before.
+ */
+@Configuration
+@ConditionalOnExpression("'${codes.replicas.urls:}' != ''")
+public class ReplicaConfig {
+
+	public static final String REPLICA_POOL_PREFIX = "replica-";
+
+	@Value("${codes.replicas.urls:}")
+	private String[] urls;
+
+	@Value("${codes.replicas.selection:LEAST_OUTSTANDING}")
+	private ReplicaRoutingDataSource.Selection selection;
+
+	@Value("${codes.replicas.healthCheckMillis:5000}")
+	private long healthCheckMillis;
+
+	/** How long to wait for a replica's connection; Hikari's least is 250 ms. */
+	@Value("${codes.replicas.connectionTimeoutMillis:250}")
+	private long connectionTimeoutMillis;
+
+	@Bean
+	@ConfigurationProperties("spring.datasource.hikari")
+	public HikariDataSource primaryDataSource(final DataSourceProperties properties) {
+		HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+		dataSource.setPoolName(ReplicaRoutingDataSource.PRIMARY);
+		return dataSource;
+	}
+
+	@Bean
+	@Primary
+	public ReplicaRoutingDataSource dataSource(final HikariDataSource primaryDataSource) {
+		Map<String, DataSource> replicas = new LinkedHashMap<>();
+		for (String url : urls) {
+			if (StringUtils.hasText(url)) {
+				String name = REPLICA_POOL_PREFIX + (replicas.size() + 1);
+				//Not started until first used, so a replica which is down does not stop the application starting.
+				HikariDataSource replica = new HikariDataSource();
+				primaryDataSource.copyStateTo(replica);
+				replica.setJdbcUrl(url.trim());
+				replica.setConnectionTimeout(connectionTimeoutMillis);
+				replica.setPoolName(name);
+				replica.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(Metrics.globalRegistry));
+				replicas.put(name, replica);
+			}
+		}
+		return new ReplicaRoutingDataSource(primaryDataSource, replicas, selection, healthCheckMillis);
+	}
+
+}
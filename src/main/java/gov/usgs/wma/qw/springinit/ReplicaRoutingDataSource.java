@@ -0,0 +1,332 @@
+package gov.usgs.wma.qw.springinit;
+
+import java.io.Closeable;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Spreads connections across read replicas, the application being strictly read-only. Each connection (and so each
+ * statement or transaction) goes to one healthy replica, chosen round robin or as the one with the fewest connections
+ * outstanding (ties going to the lowest recent latency). A replica which fails to give a connection is marked down and
+ * the next is tried; down replicas are re-checked in the background and return once they answer. One whose pool is
+ * merely exhausted (timing out with no failure to connect behind it) is passed over for that connection only, staying
+ * in rotation. When none is healthy, or none can give a connection, the primary is used.
+ * Work which must see the latest data (the ETL epoch, the snapshots built for it and any response cached or given an
+ * ETag under it) is run {@link #onPrimary}, as replicas at different replication positions would otherwise disagree
+ * about it.
+ * <p>
+ * Per node, the time connections are held (a proxy for statement latency) is recorded as the qw.replica.connection
+ * timer, along with gauges of outstanding connections, health and average latency, all tagged with the node's name.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource implements Closeable {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+	public static final String CONNECTION_TIMER = "qw.replica.connection";
+	public static final String OUTSTANDING_GAUGE = "qw.replica.outstanding";
+	public static final String HEALTHY_GAUGE = "qw.replica.healthy";
+	public static final String LATENCY_GAUGE = "qw.replica.latency";
+	public static final String NODE_TAG = "node";
+	public static final String PRIMARY = "primary";
+	/** Weight of the newest sample in the moving average latency. */
+	public static final double LATENCY_WEIGHT = 0.2;
+	public static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+	public enum Selection {
+		ROUND_ROBIN,
+		LEAST_OUTSTANDING
+	}
+
+	/** Set while this thread's connections are to come from the primary. */
+	private static final ThreadLocal<Boolean> ON_PRIMARY = new ThreadLocal<>();
+
+	private final Node primary;
+	private final List<Node> replicas;
+	private final Selection selection;
+	private final AtomicInteger next = new AtomicInteger();
+	private final ScheduledExecutorService healthChecker;
+
+	/**
+	 * @param replicas the replicas, by name, in the order they are to be tried.
+	 * @param healthCheckMillis how often to re-check down replicas, or 0 not to (then see {@link #checkHealth()}).
+	 */
+	public ReplicaRoutingDataSource(final DataSource primary, final Map<String, DataSource> replicas, final Selection selection,
+			final long healthCheckMillis) {
+		this.primary = new Node(PRIMARY, primary);
+		List<Node> nodes = new ArrayList<>();
+		for (Map.Entry<String, DataSource> replica : replicas.entrySet()) {
+			nodes.add(new Node(replica.getKey(), replica.getValue()));
+		}
+		this.replicas = Collections.unmodifiableList(nodes);
+		this.selection = selection;
+		if (0 < healthCheckMillis && !nodes.isEmpty()) {
+			healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "replica-health-check");
+				thread.setDaemon(true);
+				return thread;
+			});
+			healthChecker.scheduleWithFixedDelay(this::checkHealth, healthCheckMillis, healthCheckMillis, TimeUnit.MILLISECONDS);
+		} else {
+			healthChecker = null;
+		}
+	}
+
+	/**
+	 * Run the work with every connection the thread gets (including those of any transaction begun within it) coming
+	 * from the primary. Without replicas there is only the one database, and this just runs the work.
+	 */
+	public static <T> T onPrimary(final Supplier<T> work) {
+		if (isOnPrimary()) {
+			return work.get();
+		}
+		ON_PRIMARY.set(Boolean.TRUE);
+		try {
+			return work.get();
+		} finally {
+			ON_PRIMARY.remove();
+		}
+	}
+
+	/**
+	 * @return whether this thread's connections are to come from the primary, so that work it hands to other threads
+	 * can be run {@link #onPrimary} as well.
+	 */
+	public static boolean isOnPrimary() {
+		return Boolean.TRUE.equals(ON_PRIMARY.get());
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		if (isOnPrimary()) {
+			return primary.getConnection();
+		}
+		//Each healthy replica is tried (at most) once, in the order chosen, before giving up on them.
+		List<Node> tried = new ArrayList<>();
+		for (Node node = select(tried); null != node; node = select(tried)) {
+			tried.add(node);
+			try {
+				return node.getConnection();
+			} catch (SQLTransientConnectionException e) {
+				if (null == e.getCause()) {
+					LOG.debug("Replica {} has no connection free: {}", node.name, e.getLocalizedMessage());
+				} else {
+					node.markDown(e);
+				}
+			} catch (SQLException e) {
+				node.markDown(e);
+			}
+		}
+		return primary.getConnection();
+	}
+
+	@Override
+	public Connection getConnection(final String username, final String password) throws SQLException {
+		throw new SQLException("Replica connections use the configured credentials");
+	}
+
+	/**
+	 * @return the healthy replica to use next, other than those already tried, or null if there is none.
+	 */
+	protected Node select(final List<Node> tried) {
+		int size = replicas.size();
+		if (0 == size) {
+			return null;
+		}
+		int start = Math.floorMod(next.getAndIncrement(), size);
+		Node rtn = null;
+		for (int i = 0; i < size; i++) {
+			Node node = replicas.get((start + i) % size);
+			if (node.isHealthy() && !tried.contains(node)) {
+				if (Selection.ROUND_ROBIN == selection) {
+					return node;
+				} else if (null == rtn || node.getOutstanding() < rtn.getOutstanding()
+						|| (node.getOutstanding() == rtn.getOutstanding() && node.getLatencyMillis() < rtn.getLatencyMillis())) {
+					rtn = node;
+				}
+			}
+		}
+		return rtn;
+	}
+
+	/**
+	 * Try each down replica, returning those which give a valid connection to service.
+	 */
+	public void checkHealth() {
+		for (Node node : replicas) {
+			if (!node.isHealthy()) {
+				try (Connection connection = node.dataSource.getConnection()) {
+					if (connection.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+						node.markUp();
+					}
+				} catch (SQLException | RuntimeException e) {
+					LOG.debug("Replica {} is still down: {}", node.name, e.getLocalizedMessage());
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the state of each node, replicas first.
+	 */
+	public Map<String, Map<String, Object>> getStats() {
+		Map<String, Map<String, Object>> rtn = new LinkedHashMap<>();
+		for (Node node : replicas) {
+			rtn.put(node.name, node.getStats());
+		}
+		rtn.put(PRIMARY, primary.getStats());
+		return rtn;
+	}
+
+	protected List<Node> getReplicas() {
+		return replicas;
+	}
+
+	@Override
+	public void close() {
+		if (null != healthChecker) {
+			healthChecker.shutdownNow();
+		}
+		//The primary is a bean of its own, closed with the context.
+		for (Node node : replicas) {
+			close(node.dataSource);
+		}
+	}
+
+	private static void close(final DataSource dataSource) {
+		if (dataSource instanceof Closeable) {
+			try {
+				((Closeable) dataSource).close();
+			} catch (Exception e) {
+				LOG.warn("Unable to close a data source: {}", e.getLocalizedMessage());
+			}
+		}
+	}
+
+	protected static class Node {
+		private final String name;
+		private final DataSource dataSource;
+		private final AtomicInteger outstanding = new AtomicInteger();
+		private final AtomicLong connections = new AtomicLong();
+		private final Timer timer;
+		private volatile boolean healthy = true;
+		private volatile double latencyMillis;
+
+		protected Node(final String name, final DataSource dataSource) {
+			this.name = name;
+			this.dataSource = dataSource;
+			this.timer = Timer.builder(CONNECTION_TIMER).tag(NODE_TAG, name).register(Metrics.globalRegistry);
+			Gauge.builder(OUTSTANDING_GAUGE, outstanding, AtomicInteger::get).tag(NODE_TAG, name).register(Metrics.globalRegistry);
+			Gauge.builder(HEALTHY_GAUGE, this, node -> node.healthy ? 1 : 0).tag(NODE_TAG, name).register(Metrics.globalRegistry);
+			Gauge.builder(LATENCY_GAUGE, this, Node::getLatencyMillis).tag(NODE_TAG, name).register(Metrics.globalRegistry);
+		}
+
+		protected Connection getConnection() throws SQLException {
+			Connection connection = dataSource.getConnection();
+			outstanding.incrementAndGet();
+			connections.incrementAndGet();
+			return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] {Connection.class},
+					new TrackedConnection(this, connection));
+		}
+
+		protected void release(final long nanos) {
+			outstanding.decrementAndGet();
+			timer.record(nanos, TimeUnit.NANOSECONDS);
+			double millis = nanos / 1000000.0;
+			latencyMillis = 0 == latencyMillis ? millis : latencyMillis + LATENCY_WEIGHT * (millis - latencyMillis);
+		}
+
+		protected void markDown(final Exception e) {
+			if (healthy) {
+				LOG.warn("Replica {} marked down: {}", name, e.getLocalizedMessage());
+			}
+			healthy = false;
+		}
+
+		protected void markUp() {
+			if (!healthy) {
+				LOG.info("Replica {} is back up", name);
+			}
+			healthy = true;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public boolean isHealthy() {
+			return healthy;
+		}
+
+		public int getOutstanding() {
+			return outstanding.get();
+		}
+
+		public double getLatencyMillis() {
+			return latencyMillis;
+		}
+
+		protected Map<String, Object> getStats() {
+			Map<String, Object> rtn = new LinkedHashMap<>();
+			rtn.put("healthy", healthy);
+			rtn.put("outstanding", outstanding.get());
+			rtn.put("latencyMillis", latencyMillis);
+			rtn.put("connections", connections.get());
+			return rtn;
+		}
+	}
+
+	/**
+	 * Releases the node's outstanding count, and records how long the connection was held, when it is closed.
+	 */
+	private static final class TrackedConnection implements InvocationHandler {
+		private final Node node;
+		private final Connection connection;
+		private final long start = System.nanoTime();
+		private final AtomicBoolean closed = new AtomicBoolean();
+
+		private TrackedConnection(final Node node, final Connection connection) {
+			this.node = node;
+			this.connection = connection;
+		}
+
+		@Override
+		public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+			if ("close".equals(method.getName()) && 0 == method.getParameterCount() && closed.compareAndSet(false, true)) {
+				node.release(System.nanoTime() - start);
+			}
+			try {
+				return method.invoke(connection, args);
+			} catch (InvocationTargetException e) {
+				throw e.getCause();
+			}
+		}
+	}
+
+}
@@ -4,6 +4,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.format.FormatterRegistry;
 import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.util.AntPathMatcher;
 import org.springframework.web.servlet.config.annotation.ContentNegotiationConfigurer;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
@@ -15,6 +17,8 @@ import gov.usgs.wma.qw.BaseRestController;
 import gov.usgs.wma.qw.CustomStringToArrayConverter;
 
 @Configuration
+@EnableAsync
+@EnableScheduling
 public class SpringConfig implements WebMvcConfigurer {
 
 	@Autowired
@@ -39,6 +43,7 @@ public class SpringConfig implements WebMvcConfigurer {
 			.mediaType("csv", BaseRestController.MEDIA_TYPE_TEXT_CSV_UTF8)
 			.mediaType("xml", MediaType.APPLICATION_XML)
 			.mediaType("json", MediaType.APPLICATION_JSON)
+			.mediaType("ndjson", BaseRestController.MEDIA_TYPE_APPLICATION_NDJSON_UTF8)
 			;
 	}
 
@@ -55,7 +60,7 @@ public class SpringConfig implements WebMvcConfigurer {
 		registry
 			.addMapping("/**")
 			.allowedOrigins("*")
-			.allowedMethods("GET", "OPTIONS")
+			.allowedMethods("GET", "POST", "OPTIONS")
 			.allowedHeaders("Origin", "Accept", "X-Requested-With", "Content-Type", "Access-Control-Request-Method", "Access-Control-Request-Headers");
 	}
 
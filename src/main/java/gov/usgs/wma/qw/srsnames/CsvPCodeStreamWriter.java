@@ -0,0 +1,52 @@
+package gov.usgs.wma.qw.srsnames;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes the rows as CSV: a header of the (lowercase) column names and then one line per row, with every value quoted.
+ * The header is written with the first row, so there is none without rows.
+ */
+public class CsvPCodeStreamWriter extends PCodeStreamWriter {
+
+	private final Writer writer;
+
+	public CsvPCodeStreamWriter(final OutputStream out) {
+		writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+	}
+
+	@Override
+	public void start(final String maxLastRevDate) throws IOException {
+		//The header is written with the first row, as a cursor only gives the column names with it.
+	}
+
+	@Override
+	protected void writeRow(final String[] columns, final String[] values) throws IOException {
+		if (0 == getCount()) {
+			writeLine(columns, true);
+		}
+		writeLine(values, false);
+	}
+
+	protected void writeLine(final String[] values, final boolean header) throws IOException {
+		for (int i = 0; i < values.length; i++) {
+			if (0 < i) {
+				writer.write(',');
+			}
+			writer.write('"');
+			writer.write(header ? values[i].toLowerCase() : values[i]);
+			writer.write('"');
+		}
+		writer.write('\n');
+	}
+
+	@Override
+	public void end() throws IOException {
+		writer.flush();
+	}
+
+}
@@ -0,0 +1,47 @@
+package gov.usgs.wma.qw.srsnames;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Writes the JSON document: {"maxLastRevDate":"January 2015","pcodes":[{"parm_cd":"00060",...},...]}
+ */
+public class JsonPCodeStreamWriter extends PCodeStreamWriter {
+
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+	private final JsonGenerator generator;
+
+	public JsonPCodeStreamWriter(final OutputStream out) throws IOException {
+		generator = JSON_FACTORY.createGenerator(out, JsonEncoding.UTF8);
+		generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+	}
+
+	@Override
+	public void start(final String maxLastRevDate) throws IOException {
+		generator.writeStartObject();
+		generator.writeStringField("maxLastRevDate", maxLastRevDate);
+		generator.writeArrayFieldStart("pcodes");
+	}
+
+	@Override
+	protected void writeRow(final String[] columns, final String[] values) throws IOException {
+		generator.writeStartObject();
+		for (int column = 0; column < columns.length; column++) {
+			generator.writeStringField(columns[column], values[column]);
+		}
+		generator.writeEndObject();
+	}
+
+	@Override
+	public void end() throws IOException {
+		generator.writeEndArray();
+		generator.writeEndObject();
+		generator.flush();
+	}
+
+}
@@ -1,9 +1,9 @@
 package gov.usgs.wma.qw.srsnames;
 
 import java.time.LocalDate;
-import java.util.LinkedHashMap;
-import java.util.List;
+import java.util.Map;
 
+import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.SqlSessionFactory;
 import org.mybatis.spring.support.SqlSessionDaoSupport;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -21,15 +21,12 @@ public class PCodeDao extends SqlSessionDaoSupport {
 		setSqlSessionFactory(sqlSessionFactory);
 	}
 
-	/** 
-	 * Gets the a sorted list of pcodes from the database.
-	 * @return the list of sorted pcodes.
+	/**
+	 * Stream the pcodes, sorted, to the handler as maps of column name to value (in column order, with nulls left
+	 * as nulls) rather than collecting them. Within a (read-only) transaction the driver fetches the rows in batches.
 	 */
-	public List<LinkedHashMap<String, Object>> getRows() {
-		List<LinkedHashMap<String, Object>> data = getSqlSession().selectList(String.join(".", NAME_SPACE, GET_ROWS_QUERY));
-		//With the magic of Java 8 lambda, We convert nulls to an empty string to avoid having the text "null" in the output.
-		data.forEach((map) -> map.forEach((key, value) -> map.compute(key, (k, v) -> (v == null) ? "" : v)));
-		return data;
+	public void getRows(final ResultHandler<Map<String, Object>> handler) {
+		getSqlSession().select(String.join(".", NAME_SPACE, GET_ROWS_QUERY), handler);
 	}
 
 	/** 
@@ -0,0 +1,49 @@
+package gov.usgs.wma.qw.srsnames;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Writes the public_srsnames rows to a stream one row at a time, whether from a database cursor or a
+ * {@link PCodeTable}, so they never need to be held as objects per row. Null values are given as empty strings, so the
+ * text "null" never appears in the output.
+ */
+public abstract class PCodeStreamWriter {
+
+	private int count;
+
+	/**
+	 * @param maxLastRevDate the (display) date of the latest revision.
+	 */
+	public abstract void start(String maxLastRevDate) throws IOException;
+
+	/**
+	 * Write the row, rethrowing any IOException unchecked so this can be used as a callback.
+	 * @param columns the column names, the same array for every row.
+	 * @param values the row's values (none null), in column order. The array may be reused for the next row.
+	 */
+	public void write(final String[] columns, final String[] values) {
+		try {
+			writeRow(columns, values);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		count++;
+	}
+
+	protected abstract void writeRow(final String[] columns, final String[] values) throws IOException;
+
+	/**
+	 * Finish the document and flush (but do not close) the stream.
+	 */
+	public abstract void end() throws IOException;
+
+	public int getCount() {
+		return count;
+	}
+
+	protected static String toString(final Object value) {
+		return null == value ? "" : value.toString();
+	}
+
+}
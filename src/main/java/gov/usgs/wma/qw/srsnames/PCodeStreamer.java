@@ -0,0 +1,120 @@
+package gov.usgs.wma.qw.srsnames;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import gov.usgs.wma.qw.OperationMetrics;
+
+/**
+ * Writes the public_srsnames rows straight from a database cursor, or from a {@link PCodeTable}, to one or more
+ * {@link PCodeStreamWriter}s, so the rows are never materialized as objects, however many writers there are.
+ */
+@Component
+public class PCodeStreamer {
+
+	/** The (display) date of the latest revision: "January 2015". */
+	public static final DateTimeFormatter LAST_REV_DATE_FORMAT = DateTimeFormatter.ofPattern("MMMM yyyy");
+
+	private final PCodeDao pCodeDao;
+	private final TransactionTemplate transactionTemplate;
+
+	@Autowired
+	public PCodeStreamer(final PCodeDao pCodeDao, final PlatformTransactionManager transactionManager) {
+		this.pCodeDao = pCodeDao;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.transactionTemplate.setReadOnly(true);
+	}
+
+	/**
+	 * @return the date of the latest revision of the codes, as shown in the JSON document and file names ("January 2015"), or "" if there is none.
+	 */
+	public String getMaxLastRevDate() {
+		return formatLastRevDate(pCodeDao.getLastModified());
+	}
+
+	public static String formatLastRevDate(final LocalDate maxLastRevDate) {
+		return null == maxLastRevDate ? "" : maxLastRevDate.format(LAST_REV_DATE_FORMAT);
+	}
+
+	/**
+	 * Write every row, from a database cursor, to each of the writers in a single pass.
+	 * @return the number of rows written (to each).
+	 */
+	public int stream(final String maxLastRevDate, final PCodeStreamWriter... writers) throws IOException {
+		for (PCodeStreamWriter writer : writers) {
+			writer.start(maxLastRevDate);
+		}
+		//A (read-only) transaction lets the driver stream the rows rather than holding them all in memory.
+		transactionTemplate.executeWithoutResult(status -> {
+			RowAdapter adapter = new RowAdapter(writers);
+			pCodeDao.getRows(context -> adapter.write(context.getResultObject()));
+		});
+		return end(writers);
+	}
+
+	/**
+	 * Write every row of the table to each of the writers in a single pass.
+	 * @return the number of rows written (to each).
+	 */
+	public int stream(final PCodeTable table, final String maxLastRevDate, final PCodeStreamWriter... writers) throws IOException {
+		for (PCodeStreamWriter writer : writers) {
+			writer.start(maxLastRevDate);
+		}
+		table.write(writers);
+		return end(writers);
+	}
+
+	/**
+	 * @return a table of every row, read from a database cursor.
+	 */
+	public PCodeTable load() {
+		return OperationMetrics.time(OperationMetrics.SRSNAMES_ROWS, null, () -> transactionTemplate.execute(status -> {
+			PCodeTable.Builder builder = new PCodeTable.Builder();
+			pCodeDao.getRows(context -> builder.add(context.getResultObject()));
+			return builder.build();
+		}));
+	}
+
+	private static int end(final PCodeStreamWriter... writers) throws IOException {
+		int count = 0;
+		for (PCodeStreamWriter writer : writers) {
+			writer.end();
+			count = writer.getCount();
+		}
+		return count;
+	}
+
+	/**
+	 * Hands the rows of the cursor to the writers as arrays, the column names taken from the first row.
+	 */
+	private static final class RowAdapter {
+		private final PCodeStreamWriter[] writers;
+		private String[] columns;
+		private String[] values;
+
+		private RowAdapter(final PCodeStreamWriter[] writers) {
+			this.writers = writers;
+		}
+
+		private void write(final Map<String, Object> row) {
+			if (null == columns) {
+				columns = row.keySet().toArray(new String[row.size()]);
+				values = new String[columns.length];
+			}
+			for (int column = 0; column < columns.length; column++) {
+				values[column] = PCodeStreamWriter.toString(row.get(columns[column]));
+			}
+			for (PCodeStreamWriter writer : writers) {
+				writer.write(columns, values);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,202 @@
+package gov.usgs.wma.qw.srsnames;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An immutable, in-memory copy of public_srsnames, compact enough to keep between ETL runs. It is held by column
+ * rather than by row: the column names once for the table, the date columns as epoch days, columns with many
+ * repeated values (such as measureunitcode and resultsamplefraction) as 16 bit codes into a dictionary of their
+ * distinct values, and the rest as arrays of (deduplicated) strings. Rows are in database order.
+ */
+public class PCodeTable {
+
+	/** The columns holding ISO (yyyy-mm-dd) dates, stored as epoch days. */
+	public static final Set<String> DATE_COLUMNS = Set.of("last_rev_dt");
+	/** The most distinct values a dictionary encoded column can have (code 0 is null). */
+	public static final int MAX_DICTIONARY_SIZE = Character.MAX_VALUE;
+
+	private final String[] columns;
+	private final int size;
+	private final Column[] data;
+
+	private PCodeTable(final String[] columns, final int size, final Column[] data) {
+		this.columns = columns;
+		this.size = size;
+		this.data = data;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the column names, in column order. The array is shared, so must not be changed.
+	 */
+	public String[] getColumns() {
+		return columns;
+	}
+
+	/**
+	 * @return the value, or null if there is none.
+	 */
+	public String get(final int row, final int column) {
+		return data[column].get(row);
+	}
+
+	/**
+	 * @return the distinct values of a dictionary encoded column, or null if the column is not dictionary encoded.
+	 */
+	public String[] getDictionary(final int column) {
+		return data[column] instanceof DictionaryColumn ? ((DictionaryColumn) data[column]).dictionary.clone() : null;
+	}
+
+	/**
+	 * Write every row to each of the writers, which should have been started.
+	 */
+	public void write(final PCodeStreamWriter... writers) {
+		String[] values = new String[columns.length];
+		for (int row = 0; row < size; row++) {
+			for (int column = 0; column < columns.length; column++) {
+				values[column] = PCodeStreamWriter.toString(data[column].get(row));
+			}
+			for (PCodeStreamWriter writer : writers) {
+				writer.write(columns, values);
+			}
+		}
+	}
+
+	private interface Column {
+		String get(int row);
+	}
+
+	private static final class TextColumn implements Column {
+		private final String[] values;
+
+		private TextColumn(final String[] values) {
+			this.values = values;
+		}
+
+		@Override
+		public String get(final int row) {
+			return values[row];
+		}
+	}
+
+	private static final class DictionaryColumn implements Column {
+		private final String[] dictionary;
+		private final char[] codes;
+
+		private DictionaryColumn(final String[] dictionary, final char[] codes) {
+			this.dictionary = dictionary;
+			this.codes = codes;
+		}
+
+		@Override
+		public String get(final int row) {
+			return 0 == codes[row] ? null : dictionary[codes[row] - 1];
+		}
+	}
+
+	private static final class DateColumn implements Column {
+		private static final int NULL_DATE = Integer.MIN_VALUE;
+
+		private final int[] epochDays;
+
+		private DateColumn(final int[] epochDays) {
+			this.epochDays = epochDays;
+		}
+
+		@Override
+		public String get(final int row) {
+			return NULL_DATE == epochDays[row] ? null : LocalDate.ofEpochDay(epochDays[row]).toString();
+		}
+	}
+
+	public static class Builder {
+		private String[] columns;
+		private List<Map<String, Integer>> indexes;
+		private List<List<String>> dictionaries;
+		private int[][] values = new int[0][];
+		private int size;
+
+		/**
+		 * Add a row of column name to value, as from {@link PCodeDao#getRows}. The first row's columns are the table's.
+		 */
+		public Builder add(final Map<String, Object> row) {
+			if (null == columns) {
+				columns = row.keySet().toArray(new String[row.size()]);
+				indexes = new ArrayList<>(columns.length);
+				dictionaries = new ArrayList<>(columns.length);
+				values = new int[columns.length][1024];
+				for (int column = 0; column < columns.length; column++) {
+					indexes.add(new HashMap<>());
+					dictionaries.add(new ArrayList<>());
+				}
+			}
+			if (size == values[0].length) {
+				for (int column = 0; column < columns.length; column++) {
+					values[column] = Arrays.copyOf(values[column], size * 2);
+				}
+			}
+			for (int column = 0; column < columns.length; column++) {
+				Object value = row.get(columns[column]);
+				if (DATE_COLUMNS.contains(columns[column])) {
+					values[column][size] = null == value ? DateColumn.NULL_DATE : (int) LocalDate.parse(value.toString()).toEpochDay();
+				} else {
+					values[column][size] = indexOf(column, value);
+				}
+			}
+			size++;
+			return this;
+		}
+
+		/**
+		 * @return the value's (1 based) index in the column's distinct values, or 0 for null.
+		 */
+		private int indexOf(final int column, final Object value) {
+			if (null == value) {
+				return 0;
+			}
+			List<String> dictionary = dictionaries.get(column);
+			return indexes.get(column).computeIfAbsent(value.toString(), k -> {
+				dictionary.add(k);
+				return dictionary.size();
+			});
+		}
+
+		public PCodeTable build() {
+			if (null == columns) {
+				return new PCodeTable(new String[0], 0, new Column[0]);
+			}
+			Column[] data = new Column[columns.length];
+			for (int column = 0; column < columns.length; column++) {
+				int[] columnValues = values[column];
+				List<String> dictionary = dictionaries.get(column);
+				if (DATE_COLUMNS.contains(columns[column])) {
+					data[column] = new DateColumn(Arrays.copyOf(columnValues, size));
+				} else if (dictionary.size() <= MAX_DICTIONARY_SIZE && dictionary.size() * 2 <= size) {
+					//Mostly repeated values, so worth a dictionary.
+					char[] codes = new char[size];
+					for (int row = 0; row < size; row++) {
+						codes[row] = (char) columnValues[row];
+					}
+					data[column] = new DictionaryColumn(dictionary.toArray(new String[dictionary.size()]), codes);
+				} else {
+					String[] strings = new String[size];
+					for (int row = 0; row < size; row++) {
+						strings[row] = 0 == columnValues[row] ? null : dictionary.get(columnValues[row] - 1);
+					}
+					data[column] = new TextColumn(strings);
+				}
+			}
+			return new PCodeTable(columns, size, data);
+		}
+	}
+
+}
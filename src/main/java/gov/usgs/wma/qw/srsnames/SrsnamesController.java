@@ -1,16 +1,10 @@
 package gov.usgs.wma.qw.srsnames;
 
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.LinkedHashMap;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
-import java.util.Map;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -19,6 +13,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.web.HttpMediaTypeNotAcceptableException;
 import org.springframework.web.accept.ContentNegotiationStrategy;
@@ -29,7 +27,10 @@ import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.context.request.WebRequest;
 
 import gov.usgs.wma.qw.BaseRestController;
-import gov.usgs.wma.qw.LastUpdateDao;
+import gov.usgs.wma.qw.EtlEpoch;
+import gov.usgs.wma.qw.OperationMetrics;
+import gov.usgs.wma.qw.ResponseCache;
+import gov.usgs.wma.qw.springinit.ReplicaRoutingDataSource;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 
@@ -41,93 +42,163 @@ public class SrsnamesController extends BaseRestController {
 
 	private static final Logger LOG = LoggerFactory.getLogger(SrsnamesController.class);
 
-	private PCodeDao pCodeDao;
+	/** Tomcat's request attributes for handing a file to the connector to send (with sendfile) after the response. */
+	protected static final String SENDFILE_SUPPORTED_ATTR = "org.apache.tomcat.sendfile.support";
+	protected static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+	protected static final String SENDFILE_FILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+	protected static final String SENDFILE_FILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+	private PCodeStreamer pCodeStreamer;
+	private SrsnamesStore srsnamesStore;
 	private ContentNegotiationStrategy contentStrategy;
 
 	@Autowired
-	public SrsnamesController(final LastUpdateDao lastUpdateDao, final PCodeDao pCodeDao, ContentNegotiationStrategy contentStrategy) {
-		this.lastUpdateDao = lastUpdateDao;
-		this.pCodeDao = pCodeDao;
+	public SrsnamesController(final EtlEpoch etlEpoch, final PCodeStreamer pCodeStreamer, final SrsnamesStore srsnamesStore,
+			ContentNegotiationStrategy contentStrategy) {
+		this.etlEpoch = etlEpoch;
+		this.pCodeStreamer = pCodeStreamer;
+		this.srsnamesStore = srsnamesStore;
 		this.contentStrategy = contentStrategy;
 	}
 
 	@Operation(description="Return the list of NWIS Public SRS Names.")
 	@GetMapping(produces={MEDIA_TYPE_APPLICATION_JSON_UTF8_VALUE, MEDIA_TYPE_TEXT_CSV_UTF8_VALUE})
-	public Object getPublicSrsnamesJson(HttpServletRequest request, HttpServletResponse response, WebRequest webRequest) throws HttpMediaTypeNotAcceptableException {
+	public void getPublicSrsnamesJson(HttpServletRequest request, HttpServletResponse response, WebRequest webRequest) throws HttpMediaTypeNotAcceptableException {
 		LOG.debug("publicsrsnamesJson");
-		if (isNotModified(webRequest)) {
-			return null;
+		List<MediaType> mediaTypes = contentStrategy.resolveMediaTypes(new ServletWebRequest(request));
+		boolean csv = mediaTypes.contains(MEDIA_TYPE_TEXT_CSV_UTF8);
+		//Only the prebuilt JSON has a gzip variant, with its own ETag.
+		SrsnamesStore.Artifact artifact = null == srsnamesStore ? null
+				: csv ? srsnamesStore.getZip() : srsnamesStore.getJson(acceptsGzip(webRequest));
+		if (!csv) {
+			varyOnAcceptEncoding(response);
+		}
+		String etag = buildEtag(csv);
+		if (null != etag && null != artifact && null != artifact.getContentEncoding()) {
+			etag = ResponseCache.gzipEtag(etag);
+		}
+		if (isNotModified(webRequest) || (null != etag && isNotModified(webRequest, etag))) {
+			return;
+		}
+
+		if (null != artifact) {
+			serve(request, response, artifact, etag);
+			return;
+		}
+
+		//Without the prebuilt files, the rows are streamed from the database straight to the response. Under the epoch's
+		//ETag they are read on the primary, as a lagging replica could still have those of the previous epoch.
+		if (null == etag) {
+			stream(response, csv);
 		} else {
-			//This is off of the last system-wide etl rather than the public_srsnames.max_last_modified column
-			//since it might be possible for codes to go away without updating the former date...
-			String maxLastRevDate = getMaxLastRevDate();
-			List<LinkedHashMap<String, Object>> data = pCodeDao.getRows();
-
-			List<MediaType> mediaTypes = contentStrategy.resolveMediaTypes(new ServletWebRequest(request));
-			if (mediaTypes.contains(MEDIA_TYPE_TEXT_CSV_UTF8)) {
-				doCsv(response, maxLastRevDate.replace(" ", "_"), data);
+			ReplicaRoutingDataSource.onPrimary(() -> {
+				stream(response, csv);
 				return null;
+			});
+		}
+	}
+
+	protected void stream(final HttpServletResponse response, final boolean csv) {
+		try {
+			String maxLastRevDate = pCodeStreamer.getMaxLastRevDate();
+			if (csv) {
+				response.setContentType(SrsnamesStore.MEDIA_TYPE_APPLICATION_ZIP_VALUE);
+				response.setHeader(HEADER_CONTENT_DISPOSITION, "attachment;filename=\"" + ZipPCodeStreamWriter.getFileName(maxLastRevDate, ".zip") + "\"");
+				OperationMetrics.timeWrite(OperationMetrics.CSV_ZIP, null,
+						() -> pCodeStreamer.stream(maxLastRevDate, new ZipPCodeStreamWriter(response.getOutputStream())));
 			} else {
-				return doJson(maxLastRevDate, data);
+				response.setContentType(MEDIA_TYPE_APPLICATION_JSON_UTF8_VALUE);
+				OperationMetrics.timeWrite(OperationMetrics.SRSNAMES_JSON, null,
+						() -> pCodeStreamer.stream(maxLastRevDate, new JsonPCodeStreamWriter(response.getOutputStream())));
 			}
+		} catch (IOException e) {
+			throw new RuntimeException("publicsrsnames: Could not write to the output stream.", e);
 		}
 	}
 
-	protected String getMaxLastRevDate() {
-		String rtn = "";
-		LocalDate maxLastRevDate = pCodeDao.getLastModified();
-		if (null != maxLastRevDate) {
-			rtn = maxLastRevDate.format(DateTimeFormatter.ofPattern("MMMM yyyy"));
+	/**
+	 * The file is too large to hash per request, so the ETag is of the ETL epoch and the representation.
+	 * @return the ETag, or null if the ETL epoch is not known.
+	 */
+	protected String buildEtag(final boolean csv) {
+		Long etlMillis = etlEpoch.getLastEtlMillis();
+		if (null == etlMillis) {
+			return null;
 		}
-		return rtn;
+		return buildEtag((etlMillis + (csv ? "|csv" : "|json")).getBytes(StandardCharsets.UTF_8));
 	}
 
-	protected Object doJson(String maxlastRevDate, List<LinkedHashMap<String, Object>> data) {
-		Map<String, Object> rtn = new HashMap<>();
-		rtn.put("maxLastRevDate", maxlastRevDate);
-		rtn.put("pcodes", data);
-		return rtn;
-	}
+	/**
+	 * Send the prebuilt file, or the single byte range of it asked for (with If-Range, only while the ETag still
+	 * matches). On Tomcat the file is handed to the connector to send with sendfile, otherwise it is copied to the
+	 * response with {@link FileChannel#transferTo}.
+	 */
+	protected void serve(final HttpServletRequest request, final HttpServletResponse response, final SrsnamesStore.Artifact artifact,
+			final String etag) {
+		long length = artifact.getLength();
+		response.setContentType(artifact.getContentType());
+		if (null != artifact.getFileName()) {
+			response.setHeader(HEADER_CONTENT_DISPOSITION, "attachment;filename=\"" + artifact.getFileName() + "\"");
+		}
+		if (null != artifact.getContentEncoding()) {
+			response.setHeader(HttpHeaders.CONTENT_ENCODING, artifact.getContentEncoding());
+		}
+		response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+		long start = 0;
+		long end = length - 1;
+		HttpRange range = getRange(request, etag);
+		if (null != range) {
+			try {
+				start = range.getRangeStart(length);
+				end = range.getRangeEnd(length);
+			} catch (IllegalArgumentException e) {
+				start = length;
+			}
+			if (start > end) {
+				response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+				response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+				return;
+			}
+			response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+			response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+		}
+		response.setContentLengthLong(end - start + 1);
 
-	public void doCsv(HttpServletResponse response, String maxlastRevDate, List<LinkedHashMap<String, Object>> data) {
-		response.setHeader(HEADER_CONTENT_DISPOSITION, "attachment;filename=\"public_srsnames_" + maxlastRevDate + ".zip\"");
-		response.setCharacterEncoding(DEFAULT_ENCODING);
+		if (HttpMethod.HEAD.matches(request.getMethod())) {
+			return;
+		}
+		if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED_ATTR))) {
+			request.setAttribute(SENDFILE_FILENAME_ATTR, artifact.getFile().toAbsolutePath().toString());
+			request.setAttribute(SENDFILE_FILE_START_ATTR, start);
+			request.setAttribute(SENDFILE_FILE_END_ATTR, end + 1);
+			return;
+		}
 		try {
-			ZipOutputStream gzipOut = new ZipOutputStream(response.getOutputStream());
-			gzipOut.putNextEntry(new ZipEntry("public_srsnames_" + maxlastRevDate + ".csv"));
-			PrintWriter out = new PrintWriter(gzipOut);
-			writeCsvData(out, data);
-			out.flush();
-			gzipOut.closeEntry();
-			gzipOut.close();
+			artifact.transferTo(start, end - start + 1, Channels.newChannel(response.getOutputStream()));
 		} catch (IOException e) {
-			throw new RuntimeException("publicsrsnames: Could not open output stream for csv download.", e);
+			throw new RuntimeException("publicsrsnames: Could not send " + artifact.getFile(), e);
 		}
 	}
 
-	protected void writeCsvData(final PrintWriter out, final List<LinkedHashMap<String, Object>> data) {
-		Iterator<String> colList = data.get(0).keySet().iterator();
-		while (colList.hasNext()) {
-			String colName = colList.next();
-			out.print("\"" + colName.toLowerCase() + "\"");
-			if (colList.hasNext()) {
-				out.print(",");
-			}
+	/**
+	 * @return the single byte range asked for, or null for the whole file: when there is no Range header, it is
+	 * malformed or asks for several ranges, or an If-Range does not match the ETag.
+	 */
+	protected HttpRange getRange(final HttpServletRequest request, final String etag) {
+		String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+		if (null == rangeHeader) {
+			return null;
 		}
-		out.println();
-
-		Iterator<LinkedHashMap<String, Object>> pCodeIterator = data.iterator();
-		while (pCodeIterator.hasNext()) {
-			Map<String, Object> pCode = pCodeIterator.next();
-			Iterator<Object> cols = pCode.values().iterator();
-			while (cols.hasNext()) {
-				Object colVal = cols.next();
-				out.print("\"" + colVal + "\"");
-				if (cols.hasNext()) {
-					out.print(",");
-				}
-			}
-			out.println();
+		String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+		if (null != ifRange && !ifRange.equals(etag)) {
+			return null;
+		}
+		try {
+			List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+			return 1 == ranges.size() ? ranges.get(0) : null;
+		} catch (IllegalArgumentException e) {
+			return null;
 		}
 	}
 
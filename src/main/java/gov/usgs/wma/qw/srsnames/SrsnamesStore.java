@@ -0,0 +1,261 @@
+package gov.usgs.wma.qw.srsnames;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.zip.GZIPOutputStream;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+import gov.usgs.wma.qw.BaseRestController;
+import gov.usgs.wma.qw.EtlEpoch;
+import gov.usgs.wma.qw.EtlEpochChangedEvent;
+import gov.usgs.wma.qw.OperationMetrics;
+import gov.usgs.wma.qw.ResponseCache;
+import gov.usgs.wma.qw.springinit.ReplicaRoutingDataSource;
+
+/**
+ * Holds public_srsnames as a {@link PCodeTable} and, rendered from it, the download (the zipped CSV) and JSON document
+ * (plain and gzipped), written once per ETL epoch to local files so they can be served without re-querying or
+ * re-compressing per request. They are rebuilt in the background whenever the ETL epoch moves and swapped in once both
+ * are complete. Until then (or if they cannot be built) the getters return null and callers should fall back to
+ * {@link PCodeStreamer}.
+ */
+@Component
+public class SrsnamesStore {
+
+	private static final Logger LOG = LoggerFactory.getLogger(SrsnamesStore.class);
+
+	public static final String MEDIA_TYPE_APPLICATION_ZIP_VALUE = "application/zip";
+
+	private final EtlEpoch etlEpoch;
+	private final PCodeStreamer pCodeStreamer;
+	private final boolean enabled;
+
+	private volatile Snapshot snapshot;
+	/** The files of the previous snapshot are kept until the next rebuild, as downloads of them may still be running. */
+	private Snapshot retired;
+
+	@Autowired
+	public SrsnamesStore(final EtlEpoch etlEpoch, final PCodeStreamer pCodeStreamer,
+			@Value("${codes.srsnamesStore.enabled:false}") final boolean enabled) {
+		this.etlEpoch = etlEpoch;
+		this.pCodeStreamer = pCodeStreamer;
+		this.enabled = enabled;
+	}
+
+	/**
+	 * @return the rows, or null if there are none for the current ETL epoch.
+	 */
+	public PCodeTable getTable() {
+		Snapshot current = getCurrent();
+		return null == current ? null : current.table;
+	}
+
+	/**
+	 * @return the zipped CSV, or null if there is none for the current ETL epoch.
+	 */
+	public Artifact getZip() {
+		Snapshot current = getCurrent();
+		return null == current ? null : current.zip;
+	}
+
+	/**
+	 * @return the JSON document, or null if there is none for the current ETL epoch.
+	 */
+	public Artifact getJson() {
+		return getJson(false);
+	}
+
+	/**
+	 * @return the JSON document (gzipped if gzip), or null if there is none for the current ETL epoch.
+	 */
+	public Artifact getJson(final boolean gzip) {
+		Snapshot current = getCurrent();
+		return null == current ? null : gzip ? current.gzipJson : current.json;
+	}
+
+	@Async
+	@EventListener
+	public void onEtlEpochChanged(final EtlEpochChangedEvent event) {
+		if (enabled) {
+			rebuild(event.getCurrentEtl());
+		}
+	}
+
+	/**
+	 * Load the table, write both representations from it in a single pass and swap them in as the current snapshot.
+	 * If any of it fails, the previous snapshot is kept (and, being for an older ETL epoch, no longer served).
+	 */
+	public synchronized void rebuild(final LocalDateTime etl) {
+		long start = System.currentTimeMillis();
+		Path zipFile = null;
+		Path jsonFile = null;
+		Path gzipJsonFile = null;
+		Snapshot built;
+		try {
+			//From the primary, as a lagging replica would give stale files tagged with the new epoch.
+			String maxLastRevDate = ReplicaRoutingDataSource.onPrimary(pCodeStreamer::getMaxLastRevDate);
+			PCodeTable table = ReplicaRoutingDataSource.onPrimary(pCodeStreamer::load);
+			zipFile = Files.createTempFile("public_srsnames", ".zip");
+			jsonFile = Files.createTempFile("public_srsnames", ".json");
+			gzipJsonFile = Files.createTempFile("public_srsnames", ".json.gz");
+			//The zip is already compressed, so only the JSON has a gzip variant.
+			try (OutputStream zipOs = new BufferedOutputStream(Files.newOutputStream(zipFile));
+					OutputStream jsonOs = new BufferedOutputStream(Files.newOutputStream(jsonFile));
+					OutputStream gzipJsonOs = new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(gzipJsonFile)))) {
+				OperationMetrics.timeWrite(OperationMetrics.SRSNAMES_FILES, null, () -> pCodeStreamer.stream(table, maxLastRevDate,
+						new ZipPCodeStreamWriter(zipOs), new JsonPCodeStreamWriter(jsonOs), new JsonPCodeStreamWriter(gzipJsonOs)));
+			}
+			built = new Snapshot(etl, table,
+					new Artifact(zipFile, MEDIA_TYPE_APPLICATION_ZIP_VALUE, ZipPCodeStreamWriter.getFileName(maxLastRevDate, ".zip")),
+					new Artifact(jsonFile, BaseRestController.MEDIA_TYPE_APPLICATION_JSON_UTF8_VALUE, null),
+					new Artifact(gzipJsonFile, BaseRestController.MEDIA_TYPE_APPLICATION_JSON_UTF8_VALUE, null, ResponseCache.GZIP));
+		} catch (IOException | RuntimeException e) {
+			LOG.warn("Unable to build the public_srsnames files: {}", e.getLocalizedMessage());
+			delete(zipFile);
+			delete(jsonFile);
+			delete(gzipJsonFile);
+			return;
+		}
+		if (null != snapshot && etl.isBefore(snapshot.etl)) {
+			delete(built);
+			return;
+		}
+		delete(retired);
+		retired = snapshot;
+		snapshot = built;
+		LOG.info("public_srsnames files for ETL {} built in {} ms", etl, System.currentTimeMillis() - start);
+	}
+
+	@PreDestroy
+	public synchronized void destroy() {
+		delete(retired);
+		delete(snapshot);
+		retired = null;
+		snapshot = null;
+	}
+
+	private Snapshot getCurrent() {
+		Snapshot current = snapshot;
+		return null != current && current.etl.equals(etlEpoch.getLastEtl()) ? current : null;
+	}
+
+	private static void delete(final Snapshot old) {
+		if (null != old) {
+			delete(old.zip.file);
+			delete(old.json.file);
+			delete(old.gzipJson.file);
+		}
+	}
+
+	private static void delete(final Path file) {
+		if (null != file) {
+			try {
+				Files.deleteIfExists(file);
+			} catch (IOException e) {
+				LOG.warn("Unable to delete {}: {}", file, e.getLocalizedMessage());
+			}
+		}
+	}
+
+	/**
+	 * One representation, as a file which is not changed once written.
+	 */
+	public static class Artifact {
+		private final Path file;
+		private final long length;
+		private final String contentType;
+		private final String fileName;
+		private final String contentEncoding;
+
+		/**
+		 * @param fileName the name to download the file as, or null if it is not an attachment.
+		 */
+		public Artifact(final Path file, final String contentType, final String fileName) throws IOException {
+			this(file, contentType, fileName, null);
+		}
+
+		/**
+		 * @param contentEncoding the coding the file is compressed with (gzip), or null if it is not.
+		 */
+		public Artifact(final Path file, final String contentType, final String fileName, final String contentEncoding) throws IOException {
+			this.file = file;
+			this.length = Files.size(file);
+			this.contentType = contentType;
+			this.fileName = fileName;
+			this.contentEncoding = contentEncoding;
+		}
+
+		public Path getFile() {
+			return file;
+		}
+
+		public long getLength() {
+			return length;
+		}
+
+		public String getContentType() {
+			return contentType;
+		}
+
+		public String getFileName() {
+			return fileName;
+		}
+
+		public String getContentEncoding() {
+			return contentEncoding;
+		}
+
+		/**
+		 * Copy count bytes, from position, to the target with {@link FileChannel#transferTo}, so the file's content
+		 * need not pass through the heap.
+		 */
+		public void transferTo(final long position, final long count, final WritableByteChannel target) throws IOException {
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+				long pos = position;
+				long remaining = count;
+				while (remaining > 0) {
+					long transferred = channel.transferTo(pos, remaining, target);
+					if (transferred <= 0) {
+						throw new IOException("Unexpected end of " + file);
+					}
+					pos += transferred;
+					remaining -= transferred;
+				}
+			}
+		}
+	}
+
+	private static final class Snapshot {
+		private final LocalDateTime etl;
+		private final PCodeTable table;
+		private final Artifact zip;
+		private final Artifact json;
+		private final Artifact gzipJson;
+
+		private Snapshot(final LocalDateTime etl, final PCodeTable table, final Artifact zip, final Artifact json,
+				final Artifact gzipJson) {
+			this.etl = etl;
+			this.table = table;
+			this.zip = zip;
+			this.json = json;
+			this.gzipJson = gzipJson;
+		}
+	}
+
+}
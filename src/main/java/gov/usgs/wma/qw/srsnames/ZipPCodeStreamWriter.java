@@ -0,0 +1,64 @@
+package gov.usgs.wma.qw.srsnames;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes the CSV as the single entry of a zip file. The entry is dated the first of the month of the latest revision
+ * rather than now, so the same rows always give the same bytes: the prebuilt file and one streamed from the database
+ * are served under the same ETag.
+ */
+public class ZipPCodeStreamWriter extends CsvPCodeStreamWriter {
+
+	public static final LocalDateTime DOS_EPOCH = LocalDateTime.of(1980, 1, 1, 0, 0);
+
+	private final ZipOutputStream zip;
+
+	public ZipPCodeStreamWriter(final OutputStream out) {
+		this(new ZipOutputStream(out));
+	}
+
+	private ZipPCodeStreamWriter(final ZipOutputStream zip) {
+		super(zip);
+		this.zip = zip;
+	}
+
+	@Override
+	public void start(final String maxLastRevDate) throws IOException {
+		ZipEntry entry = new ZipEntry(getFileName(maxLastRevDate, ".csv"));
+		entry.setTimeLocal(getEntryTime(maxLastRevDate));
+		zip.putNextEntry(entry);
+		super.start(maxLastRevDate);
+	}
+
+	@Override
+	public void end() throws IOException {
+		super.end();
+		zip.closeEntry();
+		zip.finish();
+	}
+
+	/**
+	 * @return the start of the month of this (display) date, or the earliest time a zip entry can have if there is none.
+	 */
+	public static LocalDateTime getEntryTime(final String maxLastRevDate) {
+		try {
+			return YearMonth.parse(maxLastRevDate, PCodeStreamer.LAST_REV_DATE_FORMAT).atDay(1).atStartOfDay();
+		} catch (DateTimeParseException e) {
+			return DOS_EPOCH;
+		}
+	}
+
+	/**
+	 * @return the name of the CSV entry or, with ".zip", of the download, for this (display) date.
+	 */
+	public static String getFileName(final String maxLastRevDate, final String extension) {
+		return "public_srsnames_" + maxLastRevDate.replace(" ", "_") + extension;
+	}
+
+}
@@ -0,0 +1,196 @@
+package gov.usgs.wma.qw.summary;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import gov.usgs.wma.qw.summary.SummaryController.RowCounts;
+
+/**
+ * The ways the discrete sample counts of a summary map can be classified into bins. Each works in memory over the
+ * counts (greater than zero, in ascending order) and returns the bins lowest first, leaving out any which would be
+ * empty, so there may be fewer bins than classes asked for. Each bin's number is that of its class (from one), so it
+ * keeps its class's color.
+ */
+public enum Classification {
+
+	/** As equal in size as possible (the first bins taking one more count each), as ntile does. */
+	Quantile('Q') {
+		@Override
+		public List<RowCounts> classify(final int[] sorted, final int classes) {
+			List<RowCounts> rtn = new ArrayList<>(classes);
+			int size = sorted.length / classes;
+			int larger = sorted.length % classes;
+			int from = 0;
+			for (int bin = 1; bin <= classes && from < sorted.length; bin++) {
+				int to = from + size + (bin <= larger ? 1 : 0);
+				rtn.add(new RowCounts(bin, sorted[from], sorted[to - 1], to - from));
+				from = to;
+			}
+			return rtn;
+		}
+	},
+
+	/** The range of the counts split into intervals of (as near as whole numbers allow) equal width. */
+	EqualInterval('E') {
+		@Override
+		public List<RowCounts> classify(final int[] sorted, final int classes) {
+			if (0 == sorted.length) {
+				return new ArrayList<>();
+			}
+			long min = sorted[0];
+			long width = (long) sorted[sorted.length - 1] - min + 1;
+			long[] uppers = new long[classes];
+			for (int i = 0; i < classes; i++) {
+				uppers[i] = min + width * (i + 1) / classes - 1;
+			}
+			return byUpperBounds(sorted, uppers);
+		}
+	},
+
+	/** Natural breaks: the bins minimizing the squared deviation of the counts from their bin's mean (Fisher-Jenks). */
+	Jenks('J') {
+		@Override
+		public List<RowCounts> classify(final int[] sorted, final int classes) {
+			//Work over the distinct counts, weighted by how often they occur, so equal counts share a bin.
+			int[] values = new int[sorted.length];
+			int[] weights = new int[sorted.length];
+			int distinct = 0;
+			for (int count : sorted) {
+				if (0 < distinct && values[distinct - 1] == count) {
+					weights[distinct - 1]++;
+				} else {
+					values[distinct] = count;
+					weights[distinct++] = 1;
+				}
+			}
+			int k = Math.min(classes, distinct);
+			if (0 == k) {
+				return new ArrayList<>();
+			}
+
+			//Prefix sums of the weights, weighted values and weighted squares give any run's deviation in constant time.
+			double[] w = new double[distinct + 1];
+			double[] wv = new double[distinct + 1];
+			double[] wv2 = new double[distinct + 1];
+			for (int i = 0; i < distinct; i++) {
+				w[i + 1] = w[i] + weights[i];
+				wv[i + 1] = wv[i] + (double) weights[i] * values[i];
+				wv2[i + 1] = wv2[i] + (double) weights[i] * values[i] * values[i];
+			}
+
+			//cost[j] is the least deviation of the first j distinct counts in the current number of bins, start[c][j]
+			//the first distinct count of the last of those bins.
+			double[] cost = new double[distinct + 1];
+			int[][] start = new int[k][distinct + 1];
+			for (int j = 1; j <= distinct; j++) {
+				cost[j] = deviation(w, wv, wv2, 0, j);
+			}
+			for (int c = 1; c < k; c++) {
+				double[] next = new double[distinct + 1];
+				for (int j = distinct; j > c; j--) {
+					next[j] = Double.MAX_VALUE;
+					for (int i = c; i < j; i++) {
+						double candidate = cost[i] + deviation(w, wv, wv2, i, j);
+						if (candidate < next[j]) {
+							next[j] = candidate;
+							start[c][j] = i;
+						}
+					}
+				}
+				cost = next;
+			}
+
+			long[] uppers = new long[k];
+			int end = distinct;
+			for (int c = k - 1; c >= 0; c--) {
+				uppers[c] = values[end - 1];
+				end = start[c][end];
+			}
+			return byUpperBounds(sorted, uppers);
+		}
+	},
+
+	/** The range of the counts split into intervals of equal width on a logarithmic scale. */
+	Log('L') {
+		@Override
+		public List<RowCounts> classify(final int[] sorted, final int classes) {
+			if (0 == sorted.length) {
+				return new ArrayList<>();
+			}
+			double min = Math.log(sorted[0]);
+			double range = Math.log(sorted[sorted.length - 1]) - min;
+			long[] uppers = new long[classes];
+			for (int i = 0; i < classes - 1; i++) {
+				uppers[i] = (long) Math.floor(Math.exp(min + range * (i + 1) / classes));
+			}
+			uppers[classes - 1] = sorted[sorted.length - 1];
+			return byUpperBounds(sorted, uppers);
+		}
+	};
+
+	private final static Map<String, Classification> charMap = new HashMap<String, Classification>();
+	private final char abbreviation;
+	private Classification(char inAbbrev) {
+		abbreviation = inAbbrev;
+	}
+	public String getStringAbbreviation(){
+		return getStringAbbreviationFromChar(this.abbreviation);
+	}
+	private static String getStringAbbreviationFromChar(char abbrev){
+		return String.valueOf(abbrev).toUpperCase();
+	}
+	static {
+		for (Classification t : Classification.values()) {
+			Classification dup = charMap.put(t.getStringAbbreviation(), t);
+			if (dup != null){
+				throw new RuntimeException("Pick a new char const for: " + t + ". " + t.abbreviation + "is already used by: " + dup);
+			}
+		}
+	}
+	public static Classification fromAbbreviation(String classificationString) {
+		return classificationString == null || classificationString.length() < 1
+				? null
+				: charMap.get(getStringAbbreviationFromChar(classificationString.charAt(0)));
+	}
+
+	/**
+	 * @param sorted the counts greater than zero, in ascending order.
+	 * @param classes the number of bins wanted (at least one).
+	 * @return the bins, lowest first.
+	 */
+	public abstract List<RowCounts> classify(int[] sorted, int classes);
+
+	/**
+	 * @param uppers the (inclusive) upper bound of each class, ascending; the last at least the highest count.
+	 * @return a bin for each class with counts in it, numbered as the class. A bin's min is one more than the previous bin's max (the lowest
+	 * count for the first) and its max the class's upper bound (at most the highest count), so the bins cover the range
+	 * of the counts without gaps.
+	 */
+	protected static List<RowCounts> byUpperBounds(final int[] sorted, final long[] uppers) {
+		List<RowCounts> rtn = new ArrayList<>(uppers.length);
+		long lower = sorted[0];
+		int from = 0;
+		for (int i = 0; i < uppers.length; i++) {
+			long upper = uppers[i];
+			int to = from;
+			while (to < sorted.length && sorted[to] <= upper) {
+				to++;
+			}
+			if (to > from) {
+				rtn.add(new RowCounts(i + 1, (int) lower, (int) Math.min(upper, sorted[sorted.length - 1]), to - from));
+				lower = upper + 1;
+			}
+			from = to;
+		}
+		return rtn;
+	}
+
+	private static double deviation(final double[] w, final double[] wv, final double[] wv2, final int from, final int to) {
+		double weight = w[to] - w[from];
+		double sum = wv[to] - wv[from];
+		return wv2[to] - wv2[from] - sum * sum / weight;
+	}
+
+}
@@ -0,0 +1,132 @@
+package gov.usgs.wma.qw.summary;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.http.MediaType;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import gov.usgs.wma.qw.summary.SldTemplateEngine.MapDataSource;
+import gov.usgs.wma.qw.summary.SldTemplateEngine.MapGeometry;
+import gov.usgs.wma.qw.summary.SldTemplateEngine.MapTimeFrame;
+
+/**
+ * The discrete sample count of each feature (state, county or HUC8) of a summary map, in feature id order. Only
+ * features with a count greater than zero (and an id) are included; any other feature's count is zero.
+ */
+public class FeatureCounts {
+
+	public static final String COUNT_COLUMN = "discrete_sample_count";
+
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+	private final MapGeometry mapGeometry;
+	private final String[] ids;
+	private final int[] counts;
+
+	public FeatureCounts(final MapGeometry mapGeometry, final String[] ids, final int[] counts) {
+		this.mapGeometry = mapGeometry;
+		this.ids = ids;
+		this.counts = counts;
+	}
+
+	public static FeatureCounts fromCube(final SummaryCube cube, final MapDataSource mapDataSource, final MapGeometry mapGeometry,
+			final MapTimeFrame mapTimeFrame) {
+		int features = cube.getFeatureCount(mapGeometry);
+		String[] ids = new String[features];
+		int[] counts = new int[features];
+		int size = 0;
+		for (int f = 0; f < features; f++) {
+			int count = cube.getCount(mapDataSource, mapGeometry, mapTimeFrame, f);
+			String id = cube.getFeatureId(mapGeometry, f);
+			if (count > 0 && null != id) {
+				ids[size] = id;
+				counts[size++] = count;
+			}
+		}
+		return new FeatureCounts(mapGeometry, Arrays.copyOf(ids, size), Arrays.copyOf(counts, size));
+	}
+
+	/**
+	 * @param rows the feature_id and discrete_sample_count of each feature, as from {@link SummaryDao#retrieveFeatureCounts(Map)}.
+	 */
+	public static FeatureCounts fromRows(final MapGeometry mapGeometry, final List<Map<String, Object>> rows) {
+		String[] ids = new String[rows.size()];
+		int[] counts = new int[rows.size()];
+		int size = 0;
+		for (Map<String, Object> row : rows) {
+			Object id = row.get("feature_id");
+			Object count = row.get(COUNT_COLUMN);
+			if (null != id && count instanceof Number && ((Number) count).intValue() > 0) {
+				ids[size] = id.toString();
+				counts[size++] = ((Number) count).intValue();
+			}
+		}
+		return new FeatureCounts(mapGeometry, Arrays.copyOf(ids, size), Arrays.copyOf(counts, size));
+	}
+
+	public int size() {
+		return ids.length;
+	}
+
+	/**
+	 * @return a new array of the counts, in ascending order.
+	 */
+	public int[] getSortedCounts() {
+		int[] rtn = counts.clone();
+		Arrays.sort(rtn);
+		return rtn;
+	}
+
+	/**
+	 * @return the header of the feature id column, as the column is named in qwportal_summary.
+	 */
+	public static String getIdColumn(final MapGeometry mapGeometry) {
+		switch (mapGeometry) {
+		case States:
+			return "fips_state_code";
+		case Counties:
+			return "fips_state_and_county";
+		default:
+			return "huc8";
+		}
+	}
+
+	/**
+	 * @return the counts as (UTF-8) CSV if the media type is text/csv, otherwise as a JSON object of id to count.
+	 */
+	public byte[] encode(final MediaType mediaType) {
+		return "csv".equals(mediaType.getSubtype()) ? toCsv() : toJson();
+	}
+
+	protected byte[] toCsv() {
+		StringBuilder csv = new StringBuilder(32 + ids.length * 20);
+		csv.append('"').append(getIdColumn(mapGeometry)).append("\",\"").append(COUNT_COLUMN).append("\"\n");
+		for (int i = 0; i < ids.length; i++) {
+			csv.append('"').append(ids[i].replace("\"", "\"\"")).append("\",").append(counts[i]).append('\n');
+		}
+		return csv.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	protected byte[] toJson() {
+		ByteArrayOutputStream json = new ByteArrayOutputStream(2 + ids.length * 20);
+		try (JsonGenerator generator = JSON_FACTORY.createGenerator(json)) {
+			generator.writeStartObject();
+			for (int i = 0; i < ids.length; i++) {
+				generator.writeNumberField(ids[i], counts[i]);
+			}
+			generator.writeEndObject();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return json.toByteArray();
+	}
+
+}
@@ -0,0 +1,206 @@
+package gov.usgs.wma.qw.summary;
+
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Map;
+
+import gov.usgs.wma.qw.summary.SldTemplateEngine.MapDataSource;
+import gov.usgs.wma.qw.summary.SldTemplateEngine.MapGeometry;
+
+/**
+ * Renders exactly what binSLDTemplate.vm does, without Velocity. The static text of the template is held as
+ * pre-encoded (ISO-8859-1) segments and the bin values are written between them into a single array sized up front,
+ * so rendering allocates little more than the result. {@link SldTemplateEngine#generateDynamicStyle} remains as the
+ * reference the output is tested against.
+ */
+public final class SldRenderer {
+
+	private static final String FILL_COMMENT = "<!-- CssParameters allowed are fill (the color) and fill-opacity -->\n";
+
+	private static final byte[] HEAD = encode("<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>\n"
+			+ "<StyledLayerDescriptor version=\"1.0.0\" xmlns=\"http://www.opengis.net/sld\" xmlns:ogc=\"http://www.opengis.net/ogc\"\n"
+			+ "  xmlns:xlink=\"http://www.w3.org/1999/xlink\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" xmlns:gml=\"http://www.opengis.net/gml\"\n"
+			+ "  xsi:schemaLocation=\"http://www.opengis.net/sld http://schemas.opengis.net/sld/1.0.0/StyledLayerDescriptor.xsd\">\n"
+			+ "  <NamedLayer>\n"
+			+ "    <Name>");
+
+	private static final byte[] ABSTRACT = encode("</Name>\n"
+			+ "    <UserStyle>\n"
+			+ "      <Name>sample_density</Name>\n"
+			+ "      <Title>Discrete Sample Density</Title>\n"
+			+ "      <Abstract>A filter that filters all sample data contained in the waterquality portal for \n"
+			+ "        the United States into ");
+
+	/** The number of categories in the abstract, spelled out as the template's "five" is (beyond nine, in digits). */
+	private static final byte[][] CATEGORY_COUNTS = {encode("no"), encode("one"), encode("two"), encode("three"),
+			encode("four"), encode("five"), encode("six"), encode("seven"), encode("eight"), encode("nine")};
+
+	private static final byte[] ZERO_RULE = encode(" categories of discrete sample density, represented in different colors</Abstract>\n"
+			+ "      <FeatureTypeStyle>\n"
+			+ "         <Rule>\n"
+			+ "              <Title>0</Title>\n"
+			+ "              <ogc:Filter>\n"
+			+ "                  <ogc:PropertyIsLessThan>\n"
+			+ "                      <ogc:PropertyName>discrete_sample_count</ogc:PropertyName>\n"
+			+ "                      <ogc:Literal>1</ogc:Literal>\n"
+			+ "                  </ogc:PropertyIsLessThan>\n"
+			+ "              </ogc:Filter>\n"
+			+ "             <PolygonSymbolizer>\n"
+			+ "                 <Fill>\n"
+			+ "                    " + FILL_COMMENT
+			+ "                    <CssParameter name=\"fill\">#FFFFFF</CssParameter>\n"
+			+ "                    <CssParameter name=\"fill-opacity\">1</CssParameter>\n"
+			+ "                 </Fill>\n"
+			+ "                 <Stroke>\n"
+			+ "                    <CssParameter name=\"stroke\">#000000</CssParameter>\n"
+			+ "                    <CssParameter name=\"stroke-width\">0.2</CssParameter>\n"
+			+ "                 </Stroke>\n"
+			+ "              </PolygonSymbolizer>\n"
+			+ "          </Rule>\n"
+			//Velocity keeps the indentation of the #foreach line.
+			+ "      \t");
+
+	private static final byte[] RULE_TITLE = encode("        <Rule>\n"
+			+ "          <Title>");
+
+	private static final byte[] TITLE_SEPARATOR = encode(" - ");
+
+	private static final byte[] LOWER_BOUNDARY = encode("</Title>\n"
+			+ "          <ogc:Filter>\n"
+			+ "            <ogc:PropertyIsBetween>\n"
+			+ "             <ogc:PropertyName>discrete_sample_count</ogc:PropertyName>\n"
+			+ "            <ogc:LowerBoundary>\n"
+			+ "                <ogc:Literal>");
+
+	private static final byte[] UPPER_BOUNDARY = encode("</ogc:Literal>\n"
+			+ "              </ogc:LowerBoundary>\n"
+			+ "              <ogc:UpperBoundary>\n"
+			+ "                <ogc:Literal>");
+
+	private static final byte[] FILL = encode("</ogc:Literal>\n"
+			+ "              </ogc:UpperBoundary>\n"
+			+ "            </ogc:PropertyIsBetween>\n"
+			+ "          </ogc:Filter>\n"
+			+ "          <PolygonSymbolizer>\n"
+			+ "             <Fill>\n"
+			+ "                " + FILL_COMMENT
+			+ "                <CssParameter name=\"fill\">");
+
+	private static final byte[] RULE_END = encode("</CssParameter>\n"
+			+ "                <CssParameter name=\"fill-opacity\">1</CssParameter>\n"
+			+ "             </Fill>\n"
+			+ "             <Stroke>\n"
+			+ "                <CssParameter name=\"stroke\">#000000</CssParameter>\n"
+			+ "                <CssParameter name=\"stroke-width\">0.2</CssParameter>\n"
+			+ "             </Stroke>\n"
+			+ "          </PolygonSymbolizer>\n"
+			+ "        </Rule>\n"
+			//And of the #end line.
+			+ "        ");
+
+	private static final byte[] TAIL = encode("\n"
+			+ "     </FeatureTypeStyle>\n"
+			+ "    </UserStyle>\n"
+			+ "    </NamedLayer>\n"
+			+ "</StyledLayerDescriptor>");
+
+	private static final int STATIC_LENGTH = HEAD.length + ABSTRACT.length + ZERO_RULE.length + TAIL.length;
+	private static final int RULE_STATIC_LENGTH = RULE_TITLE.length + TITLE_SEPARATOR.length + LOWER_BOUNDARY.length
+			+ UPPER_BOUNDARY.length + FILL.length + RULE_END.length;
+
+	private static final Map<MapGeometry, byte[]> LAYER_NAMES = new EnumMap<>(MapGeometry.class);
+	private static final Map<MapDataSource, byte[][]> COLORS = new EnumMap<>(MapDataSource.class);
+	static {
+		for (MapGeometry geom : MapGeometry.values()) {
+			LAYER_NAMES.put(geom, encode(SldTemplateEngine.getLayerName(geom)));
+		}
+		for (MapDataSource source : MapDataSource.values()) {
+			String[] colors = SldTemplateEngine.getColors(source);
+			byte[][] encoded = new byte[colors.length][];
+			for (int i = 0; i < colors.length; i++) {
+				encoded[i] = encode(colors[i]);
+			}
+			COLORS.put(source, encoded);
+		}
+	}
+
+	private SldRenderer() {}
+
+	/**
+	 * @param binValues the min and max of each bin, in pairs (at least {@link SldTemplateEngine#COLOR_COUNT} of them).
+	 * @return the SLD, encoded as ISO-8859-1.
+	 */
+	public static byte[] render(final MapDataSource source, final MapGeometry geom, final String[] binValues) {
+		return render(COLORS.get(source), geom, binValues);
+	}
+
+	/**
+	 * @param colors the fill color of each bin, lowest first.
+	 * @param binValues the min and max of each bin, in pairs (at least as many as there are colors).
+	 * @return the SLD, with a rule for each color, encoded as ISO-8859-1.
+	 */
+	public static byte[] render(final String[] colors, final MapGeometry geom, final String[] binValues) {
+		byte[][] encoded = new byte[colors.length][];
+		for (int i = 0; i < colors.length; i++) {
+			encoded[i] = encode(colors[i]);
+		}
+		return render(encoded, geom, binValues);
+	}
+
+	private static byte[] render(final byte[][] colors, final MapGeometry geom, final String[] binValues) {
+		byte[] layerName = LAYER_NAMES.get(geom);
+
+		byte[] categoryCount = colors.length < CATEGORY_COUNTS.length ? CATEGORY_COUNTS[colors.length] : encode(String.valueOf(colors.length));
+
+		int length = STATIC_LENGTH + layerName.length + categoryCount.length + colors.length * RULE_STATIC_LENGTH;
+		for (int bin = 0; bin < colors.length; bin++) {
+			length += 2 * (binValues[bin*2].length() + binValues[(bin*2)+1].length()) + colors[bin].length;
+		}
+
+		byte[] out = new byte[length];
+		int pos = put(HEAD, out, 0);
+		pos = put(layerName, out, pos);
+		pos = put(ABSTRACT, out, pos);
+		pos = put(categoryCount, out, pos);
+		pos = put(ZERO_RULE, out, pos);
+		for (int bin = 0; bin < colors.length; bin++) {
+			String min = binValues[bin*2];
+			String max = binValues[(bin*2)+1];
+			pos = put(RULE_TITLE, out, pos);
+			pos = put(min, out, pos);
+			pos = put(TITLE_SEPARATOR, out, pos);
+			pos = put(max, out, pos);
+			pos = put(LOWER_BOUNDARY, out, pos);
+			pos = put(min, out, pos);
+			pos = put(UPPER_BOUNDARY, out, pos);
+			pos = put(max, out, pos);
+			pos = put(FILL, out, pos);
+			pos = put(colors[bin], out, pos);
+			pos = put(RULE_END, out, pos);
+		}
+		put(TAIL, out, pos);
+		return out;
+	}
+
+	private static int put(final byte[] segment, final byte[] out, final int pos) {
+		System.arraycopy(segment, 0, out, pos, segment.length);
+		return pos + segment.length;
+	}
+
+	/**
+	 * Write the value as ISO-8859-1, replacing characters it can not encode with '?' (as String.getBytes does).
+	 */
+	private static int put(final String value, final byte[] out, final int pos) {
+		int length = value.length();
+		for (int i = 0; i < length; i++) {
+			char c = value.charAt(i);
+			out[pos + i] = (byte) (c <= 0xFF ? c : '?');
+		}
+		return pos + length;
+	}
+
+	private static byte[] encode(final String segment) {
+		return segment.getBytes(StandardCharsets.ISO_8859_1);
+	}
+
+}
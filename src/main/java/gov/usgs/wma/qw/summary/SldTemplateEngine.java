@@ -59,11 +59,47 @@ public class SldTemplateEngine {
 		return xmlWriter.toString();
 	}
 
+	/**
+	 * @return the fill colors of the bins (lowest first) for this data source.
+	 */
+	static String[] getColors(MapDataSource source) {
+		return colorMapBySource.get(source.getStringAbbreviation());
+	}
+
+	/**
+	 * @return the fill colors of this many bins (lowest first) for this data source: its five colors stretched (or
+	 * squeezed) by linear interpolation, so five bins get exactly the usual colors.
+	 */
+	static String[] getColors(MapDataSource source, int binCount) {
+		String[] stops = getColors(source);
+		if (stops.length == binCount) {
+			return stops;
+		}
+		String[] rtn = new String[binCount];
+		for (int bin = 0; bin < binCount; bin++) {
+			double position = 1 == binCount ? 0 : (double) bin * (stops.length - 1) / (binCount - 1);
+			int stop = Math.min((int) position, stops.length - 2);
+			double fraction = position - stop;
+			StringBuilder color = new StringBuilder("#");
+			for (int channel = 1; channel < 7; channel += 2) {
+				int from = Integer.parseInt(stops[stop].substring(channel, channel + 2), 16);
+				int to = Integer.parseInt(stops[stop + 1].substring(channel, channel + 2), 16);
+				color.append(String.format("%02X", Math.round(from + (to - from) * fraction)));
+			}
+			rtn[bin] = color.toString();
+		}
+		return rtn;
+	}
+
+	static String getLayerName(MapGeometry geom) {
+		return "qw_portal_map:" + geom.toString().toLowerCase() +"_all";
+	}
+
 	/**
 	 * Create a velocity context with the given parameters.
 	 */
 	private static VelocityContext buildVelocityContext(MapDataSource source, MapGeometry geom, String[] binValues) {
-		String[] colors = colorMapBySource.get(source.getStringAbbreviation());
+		String[] colors = getColors(source);
 		List<Map<String, String>> bins = new ArrayList<Map<String,String>>();
 		for (int bin = 0; bin < colors.length; bin++) {
 			Map<String, String> attribs = new HashMap<String, String>();
@@ -76,7 +112,7 @@ public class SldTemplateEngine {
 			bins.add(attribs);
 		}
 		VelocityContext velContext = new VelocityContext();
-		velContext.put("layerName", "qw_portal_map:" + geom.toString().toLowerCase() +"_all");
+		velContext.put("layerName", getLayerName(geom));
 		velContext.put("binList", bins);
 		return velContext;
 	}
@@ -148,4 +184,44 @@ public class SldTemplateEngine {
 					: charMap.get(getStringAbbreviationFromChar(sourceString.charAt(0)));
 		}
 	}
+
+	/**
+	 * a simple enum to handle binding to parameters. Unknown time frames are all time.
+	 */
+	public static enum MapTimeFrame {
+		All('A', "ALL_TIME"),
+		Past12Months('1', "PAST_12_MONTHS"),
+		Past60Months('5', "PAST_60_MONTHS");
+
+		private final static Map<String, MapTimeFrame> charMap = new HashMap<String, MapTimeFrame>();
+		private final char abbreviation;
+		private final String columnSuffix;
+		private MapTimeFrame(char inAbbrev, String inColumnSuffix) {
+			abbreviation = inAbbrev;
+			columnSuffix = inColumnSuffix;
+		}
+		public String getStringAbbreviation(){
+			return getStringAbbreviationFromChar(this.abbreviation);
+		}
+		public String getColumnSuffix() {
+			return columnSuffix;
+		}
+		private static String getStringAbbreviationFromChar(char abbrev){
+			return String.valueOf(abbrev).toUpperCase();
+		}
+		static {
+			for (MapTimeFrame t : MapTimeFrame.values()) {
+				MapTimeFrame dup = charMap.put(t.getStringAbbreviation(), t);
+				if (dup != null){
+					throw new RuntimeException("Pick a new char const for: " + t + ". " + t.abbreviation + "is already used by: " + dup);
+				}
+			}
+		}
+		public static MapTimeFrame fromAbbreviation(String timeFrameString) {
+			MapTimeFrame rtn = timeFrameString == null || timeFrameString.length() < 1
+					? null
+					: charMap.get(getStringAbbreviationFromChar(timeFrameString.charAt(0)));
+			return null == rtn ? All : rtn;
+		}
+	}
 }
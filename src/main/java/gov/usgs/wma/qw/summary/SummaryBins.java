@@ -0,0 +1,107 @@
+package gov.usgs.wma.qw.summary;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The bins of a summary map as JSON: the same boundaries and colors as its SLD, with the number of features in each,
+ * so a client can style the map and draw its legend from one payload.
+ */
+public class SummaryBins {
+
+	private String dataSource;
+	private String geometry;
+	private String timeFrame;
+	private String classification;
+	private List<Bin> bins = new ArrayList<>();
+
+	public String getDataSource() {
+		return dataSource;
+	}
+
+	public void setDataSource(final String inDataSource) {
+		dataSource = inDataSource;
+	}
+
+	public String getGeometry() {
+		return geometry;
+	}
+
+	public void setGeometry(final String inGeometry) {
+		geometry = inGeometry;
+	}
+
+	public String getTimeFrame() {
+		return timeFrame;
+	}
+
+	public void setTimeFrame(final String inTimeFrame) {
+		timeFrame = inTimeFrame;
+	}
+
+	public String getClassification() {
+		return classification;
+	}
+
+	public void setClassification(final String inClassification) {
+		classification = inClassification;
+	}
+
+	public List<Bin> getBins() {
+		return bins;
+	}
+
+	public void setBins(final List<Bin> inBins) {
+		bins = inBins;
+	}
+
+	public static class Bin {
+		private int min;
+		private int max;
+		private int count;
+		private String color;
+
+		public Bin() {
+		}
+
+		public Bin(final int min, final int max, final int count, final String color) {
+			this.min = min;
+			this.max = max;
+			this.count = count;
+			this.color = color;
+		}
+
+		public int getMin() {
+			return min;
+		}
+
+		public void setMin(final int inMin) {
+			min = inMin;
+		}
+
+		public int getMax() {
+			return max;
+		}
+
+		public void setMax(final int inMax) {
+			max = inMax;
+		}
+
+		public int getCount() {
+			return count;
+		}
+
+		public void setCount(final int inCount) {
+			count = inCount;
+		}
+
+		public String getColor() {
+			return color;
+		}
+
+		public void setColor(final String inColor) {
+			color = inColor;
+		}
+	}
+
+}
@@ -1,10 +1,12 @@
 package gov.usgs.wma.qw.summary;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -13,18 +15,27 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
 
 import gov.usgs.wma.qw.BaseRestController;
-import gov.usgs.wma.qw.LastUpdateDao;
+import gov.usgs.wma.qw.EtlEpoch;
+import gov.usgs.wma.qw.EtlEpochChangedEvent;
+import gov.usgs.wma.qw.OperationMetrics;
+import gov.usgs.wma.qw.ResponseCache;
 import gov.usgs.wma.qw.srsnames.SrsnamesController;
 import gov.usgs.wma.qw.summary.SldTemplateEngine.MapDataSource;
 import gov.usgs.wma.qw.summary.SldTemplateEngine.MapGeometry;
+import gov.usgs.wma.qw.summary.SldTemplateEngine.MapTimeFrame;
+import gov.usgs.wma.qw.summary.SummaryStore.Sld;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -38,12 +49,26 @@ public class SummaryController extends BaseRestController {
 
 	private static final Logger LOG = LoggerFactory.getLogger(SrsnamesController.class);
 
+	public static final int MIN_CLASSES = 2;
+	public static final int MAX_CLASSES = 9;
+
 	private SummaryDao summaryDao;
+	private SummaryStore summaryStore;
 
 	@Autowired
-	public SummaryController(final LastUpdateDao lastUpdateDao, final SummaryDao summaryDao) {
-		this.lastUpdateDao = lastUpdateDao;
+	public SummaryController(final EtlEpoch etlEpoch, final SummaryDao summaryDao, final SummaryStore summaryStore,
+			final ResponseCache responseCache) {
+		this.etlEpoch = etlEpoch;
 		this.summaryDao = summaryDao;
+		this.summaryStore = summaryStore;
+		this.responseCache = responseCache;
+	}
+
+	@EventListener
+	public void onEtlEpochChanged(final EtlEpochChangedEvent event) {
+		if (null != summaryStore && summaryStore.isEnabled()) {
+			summaryStore.rebuild(event.getCurrentEtl(), this::buildSld);
+		}
 	}
 
 	@Operation(description="Return the requested National Results Coverage Map SLD.")
@@ -64,47 +89,317 @@ public class SummaryController extends BaseRestController {
 					schema=@Schema(allowableValues={"A","1","5"})
 					)
 			final @RequestParam(value="timeFrame") String timeFrame,
+			@Parameter(
+					description="Q=Quantile (the default); E=Equal Interval; J=Jenks Natural Breaks; L=Logarithmic",
+					schema=@Schema(allowableValues={"Q","E","J","L"})
+					)
+			final @RequestParam(value="classification", required=false) String classification,
+			@Parameter(
+					description="The number of bins, from " + MIN_CLASSES + " to " + MAX_CLASSES + " (default 5)"
+					)
+			final @RequestParam(value="classes", required=false) Integer classes,
 			HttpServletRequest request, HttpServletResponse response, WebRequest webRequest) throws IOException {
 		LOG.debug("summary");
 		response.setCharacterEncoding("ISO-8859-1");
+		Classification mapClassification = getClassification(classification);
+		int classCount = getClasses(classes);
 		if (isNotModified(webRequest)) {
 			return null;
 		} else {
 			MapDataSource mapDataSource = MapDataSource.fromAbbreviation(dataSource);
 			MapGeometry mapGeometry = MapGeometry.fromAbbreviation(geometry);
+			MapTimeFrame mapTimeFrame = MapTimeFrame.fromAbbreviation(timeFrame);
 
-			Map<String, Object> dbparms = deriveDbParams(mapDataSource, mapGeometry, timeFrame);
-			String[] binValues = retrieveBinValues(dbparms);
-			if (SldTemplateEngine.COLOR_COUNT > binValues.length) {
+			Sld sld = null;
+			if (null != summaryStore && isDefault(mapClassification, classCount)) {
+				sld = summaryStore.get(mapDataSource, mapGeometry, mapTimeFrame);
+			}
+			if (null == sld) {
+				//Any other SLD is classified and rendered once per ETL epoch, as the bins are.
+				Map<String, Object> params = new HashMap<>();
+				params.put("dataSource", mapDataSource);
+				params.put("geometry", mapGeometry);
+				params.put("timeFrame", mapTimeFrame);
+				params.put("classification", mapClassification);
+				params.put("classes", classCount);
+				AtomicBoolean noContent = new AtomicBoolean();
+				String body = cached("summarySld", params, webRequest, () -> {
+					String built = buildSld(null == summaryStore ? null : summaryStore.getCube(), mapDataSource, mapGeometry, timeFrame,
+							mapClassification, classCount);
+					noContent.set(null == built);
+					return built;
+				});
+				if (!noContent.get()) {
+					return body;
+				}
+			}
+			if (null == sld || null == sld.getBody()) {
 				response.sendError(HttpStatus.NO_CONTENT.value());
 				return null;
 			} else {
-				return SldTemplateEngine.generateDynamicStyle(mapDataSource, mapGeometry, binValues, "binSLDTemplate.vm");
+				//The ETag is of the content, so it survives ETL runs which do not change the bins.
+				boolean gzip = null != sld.getGzipBody() && acceptsGzip(webRequest);
+				varyOnAcceptEncoding(response);
+				if (isNotModified(webRequest, sld.getEtag(gzip))) {
+					return null;
+				} else if (gzip) {
+					response.setContentType(MEDIA_TYPE_APPLICATION_XML_UTF8_VALUE);
+					response.setHeader(HttpHeaders.CONTENT_ENCODING, ResponseCache.GZIP);
+					response.setContentLength(sld.getGzipBody().length);
+					response.getOutputStream().write(sld.getGzipBody());
+					return null;
+				}
+				return sld.getBody();
 			}
 		}
 	}
 
-	protected String[] retrieveBinValues(Map<String, Object> parms) {
-		String[] binValues = new String[0];
-		if (null != summaryDao && null != parms && 3 == parms.size()) {
-			List<RowCounts> bins = summaryDao.retrieveCounts(parms);
-			if (bins != null) {
-				binValues = new String[bins.size()*2];
-				Integer previousMax = -1;
-				int i=0;
-				for (RowCounts binVals : bins) {
-					if (previousMax > 0){
-						//just to make sure there are no holes in the bin
-						binValues[i*2] = String.valueOf(previousMax+1);
-					}else{
-						binValues[i*2] = String.valueOf(binVals.getCounts().get(1));
-					}
-					previousMax = binVals.getCounts().get(2);
-					binValues[i*2+1] = String.valueOf(previousMax);
-					i++;
+	@Operation(description="Return the bins of the requested National Results Coverage Map as JSON: the boundaries and color of each, "
+			+ "as in the SLD, and the number of features in it.")
+	@GetMapping(value="bins", produces=BaseRestController.MEDIA_TYPE_APPLICATION_JSON_UTF8_VALUE)
+	public SummaryBins getSummaryBins(
+			@Parameter(
+					description="A=All; E=EPA; N=NWIS",
+					schema=@Schema(allowableValues={"A","E","N"})
+					)
+			final @RequestParam(value="dataSource") String dataSource,
+			@Parameter(
+					description="S=States; C=Counties; H=Huc8",
+					schema=@Schema(allowableValues={"S","C","H"})
+					)
+			final @RequestParam(value="geometry") String geometry,
+			@Parameter(
+					description="A=All; 1=Last 12 Months; 5=Last 5 Years",
+					schema=@Schema(allowableValues={"A","1","5"})
+					)
+			final @RequestParam(value="timeFrame") String timeFrame,
+			@Parameter(
+					description="Q=Quantile (the default); E=Equal Interval; J=Jenks Natural Breaks; L=Logarithmic",
+					schema=@Schema(allowableValues={"Q","E","J","L"})
+					)
+			final @RequestParam(value="classification", required=false) String classification,
+			@Parameter(
+					description="The number of bins, from " + MIN_CLASSES + " to " + MAX_CLASSES + " (default 5)"
+					)
+			final @RequestParam(value="classes", required=false) Integer classes,
+			WebRequest webRequest) {
+		LOG.debug("summaryBins");
+		MapDataSource mapDataSource = MapDataSource.fromAbbreviation(dataSource);
+		MapGeometry mapGeometry = MapGeometry.fromAbbreviation(geometry);
+		if (null == mapDataSource || null == mapGeometry) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown dataSource or geometry");
+		}
+		MapTimeFrame mapTimeFrame = MapTimeFrame.fromAbbreviation(timeFrame);
+		Classification mapClassification = getClassification(classification);
+		int classCount = getClasses(classes);
+		if (isNotModified(webRequest)) {
+			return null;
+		} else {
+			Map<String, Object> params = new HashMap<>();
+			params.put("dataSource", mapDataSource);
+			params.put("geometry", mapGeometry);
+			params.put("timeFrame", mapTimeFrame);
+			params.put("classification", mapClassification);
+			params.put("classes", classCount);
+			return cached("summaryBins", params, webRequest,
+					() -> buildBins(null == summaryStore ? null : summaryStore.getCube(), mapDataSource, mapGeometry, mapTimeFrame,
+							mapClassification, classCount));
+		}
+	}
+
+	@Operation(description="Return the discrete sample count of each feature (state, county or HUC8) of the requested National Results "
+			+ "Coverage Map, as CSV or a JSON object of feature id to count. Features without samples are left out.")
+	@GetMapping(value="counts", produces={BaseRestController.MEDIA_TYPE_TEXT_CSV_UTF8_VALUE,
+			BaseRestController.MEDIA_TYPE_APPLICATION_JSON_UTF8_VALUE})
+	public void getSummaryCounts(
+			@Parameter(
+					description="A=All; E=EPA; N=NWIS",
+					schema=@Schema(allowableValues={"A","E","N"})
+					)
+			final @RequestParam(value="dataSource") String dataSource,
+			@Parameter(
+					description="S=States; C=Counties; H=Huc8",
+					schema=@Schema(allowableValues={"S","C","H"})
+					)
+			final @RequestParam(value="geometry") String geometry,
+			@Parameter(
+					description="A=All; 1=Last 12 Months; 5=Last 5 Years",
+					schema=@Schema(allowableValues={"A","1","5"})
+					)
+			final @RequestParam(value="timeFrame") String timeFrame,
+			WebRequest webRequest) {
+		LOG.debug("summaryCounts");
+		MapDataSource mapDataSource = MapDataSource.fromAbbreviation(dataSource);
+		MapGeometry mapGeometry = MapGeometry.fromAbbreviation(geometry);
+		if (null == mapDataSource || null == mapGeometry) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown dataSource or geometry");
+		}
+		MapTimeFrame mapTimeFrame = MapTimeFrame.fromAbbreviation(timeFrame);
+		if (!isNotModified(webRequest)) {
+			MediaType mediaType = responseCache.negotiate(webRequest);
+			if (null == mediaType) {
+				mediaType = SummaryStore.COUNT_MEDIA_TYPES[0];
+			}
+			ResponseCache.Entry entry = null == summaryStore ? null : summaryStore.getCounts(mapDataSource, mapGeometry, mapTimeFrame, mediaType);
+			if (null == entry) {
+				entry = new ResponseCache.Entry(mediaType,
+						buildCounts(null == summaryStore ? null : summaryStore.getCube(), mapDataSource, mapGeometry, mapTimeFrame).encode(mediaType));
+			}
+			write(entry, webRequest);
+		}
+	}
+
+	/**
+	 * @return the feature counts, from the cube if there is one, otherwise the database.
+	 */
+	protected FeatureCounts buildCounts(final SummaryCube cube, final MapDataSource mapDataSource, final MapGeometry mapGeometry,
+			final MapTimeFrame mapTimeFrame) {
+		return OperationMetrics.time(OperationMetrics.SUMMARY_COUNTS, mapGeometry, () -> {
+			if (null != cube) {
+				return FeatureCounts.fromCube(cube, mapDataSource, mapGeometry, mapTimeFrame);
+			} else {
+				Map<String, Object> parms = deriveDbParams(mapDataSource, mapGeometry, mapTimeFrame.getStringAbbreviation());
+				return FeatureCounts.fromRows(mapGeometry, summaryDao.retrieveFeatureCounts(parms));
+			}
+		});
+	}
+
+	protected SummaryBins buildBins(final SummaryCube cube, final MapDataSource mapDataSource, final MapGeometry mapGeometry,
+			final MapTimeFrame mapTimeFrame, final Classification classification, final int classes) {
+		return OperationMetrics.time(OperationMetrics.SUMMARY_BINS, mapGeometry,
+				() -> buildBinsUntimed(cube, mapDataSource, mapGeometry, mapTimeFrame, classification, classes));
+	}
+
+	private SummaryBins buildBinsUntimed(final SummaryCube cube, final MapDataSource mapDataSource, final MapGeometry mapGeometry,
+			final MapTimeFrame mapTimeFrame, final Classification classification, final int classes) {
+		List<RowCounts> bins = retrieveBins(cube, mapDataSource, mapGeometry, mapTimeFrame.getStringAbbreviation(), classification, classes);
+		//The same (gap free) boundaries as the SLD.
+		String[] binValues = toBinValues(bins);
+		String[] colors = SldTemplateEngine.getColors(mapDataSource, classes);
+		SummaryBins rtn = new SummaryBins();
+		rtn.setDataSource(mapDataSource.getStringAbbreviation());
+		rtn.setGeometry(mapGeometry.getStringAbbreviation());
+		rtn.setTimeFrame(mapTimeFrame.getStringAbbreviation());
+		rtn.setClassification(classification.getStringAbbreviation());
+		//A class left empty has no bin, but the others keep their own class's color.
+		for (int i = 0; i < bins.size(); i++) {
+			rtn.getBins().add(new SummaryBins.Bin(Integer.parseInt(binValues[i*2]), Integer.parseInt(binValues[i*2+1]),
+					bins.get(i).getBinCount(), colors[bins.get(i).getBinNumber() - 1]));
+		}
+		return rtn;
+	}
+
+	/**
+	 * Bin the counts into quintiles and render the SLD.
+	 * @return the SLD, or null if there are no counts to style.
+	 */
+	protected String buildSld(final SummaryCube cube, final MapDataSource mapDataSource, final MapGeometry mapGeometry,
+			final String timeFrame) {
+		return buildSld(cube, mapDataSource, mapGeometry, timeFrame, Classification.Quantile, SldTemplateEngine.COLOR_COUNT);
+	}
+
+	/**
+	 * Classify the counts (from the cube if there is one, otherwise the database) and render the SLD, with a rule for
+	 * each class with counts in it, in that class's color.
+	 * @return the SLD, or null if there are no counts to style.
+	 */
+	protected String buildSld(final SummaryCube cube, final MapDataSource mapDataSource, final MapGeometry mapGeometry,
+			final String timeFrame, final Classification classification, final int classes) {
+		return OperationMetrics.time(OperationMetrics.SLD_RENDER, mapGeometry,
+				() -> buildSldUntimed(cube, mapDataSource, mapGeometry, timeFrame, classification, classes));
+	}
+
+	private String buildSldUntimed(final SummaryCube cube, final MapDataSource mapDataSource, final MapGeometry mapGeometry,
+			final String timeFrame, final Classification classification, final int classes) {
+		List<RowCounts> bins = retrieveBins(cube, mapDataSource, mapGeometry, timeFrame, classification, classes);
+		String[] binValues = toBinValues(bins);
+		if (bins.isEmpty()) {
+			return null;
+		} else if (SldTemplateEngine.COLOR_COUNT == classes && SldTemplateEngine.COLOR_COUNT == bins.size()) {
+			return new String(SldRenderer.render(mapDataSource, mapGeometry, binValues), StandardCharsets.ISO_8859_1);
+		} else {
+			//A class left empty has no rule, but the others keep their own class's color.
+			String[] ramp = SldTemplateEngine.getColors(mapDataSource, classes);
+			String[] colors = new String[bins.size()];
+			for (int i = 0; i < colors.length; i++) {
+				colors[i] = ramp[bins.get(i).getBinNumber() - 1];
+			}
+			return new String(SldRenderer.render(colors, mapGeometry, binValues), StandardCharsets.ISO_8859_1);
+		}
+	}
+
+	/**
+	 * Classify the counts in memory: from the cube if there is one, otherwise from the feature counts queried from the
+	 * database. Only the quintiles are queried from the database directly.
+	 * @return the bins, lowest first.
+	 */
+	protected List<RowCounts> retrieveBins(final SummaryCube cube, final MapDataSource mapDataSource, final MapGeometry mapGeometry,
+			final String timeFrame, final Classification classification, final int classes) {
+		List<RowCounts> bins = null;
+		if (null != cube && null != mapDataSource && null != mapGeometry) {
+			bins = cube.getBins(mapDataSource, mapGeometry, MapTimeFrame.fromAbbreviation(timeFrame), classification, classes);
+		} else {
+			Map<String, Object> parms = deriveDbParams(mapDataSource, mapGeometry, timeFrame);
+			if (null != summaryDao && 3 == parms.size()) {
+				if (isDefault(classification, classes)) {
+					bins = summaryDao.retrieveCounts(parms);
+				} else {
+					bins = classification.classify(
+							FeatureCounts.fromRows(mapGeometry, summaryDao.retrieveFeatureCounts(parms)).getSortedCounts(), classes);
 				}
 			}
 		}
+		return null == bins ? new ArrayList<>() : bins;
+	}
+
+	/**
+	 * @return the classification, quantile if none is given.
+	 * @throws ResponseStatusException (400) if it is unknown.
+	 */
+	protected Classification getClassification(final String classification) {
+		if (null == classification || classification.isEmpty()) {
+			return Classification.Quantile;
+		}
+		Classification rtn = Classification.fromAbbreviation(classification);
+		if (null == rtn) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown classification");
+		}
+		return rtn;
+	}
+
+	/**
+	 * @return the number of classes, {@link SldTemplateEngine#COLOR_COUNT} if none is given.
+	 * @throws ResponseStatusException (400) if it is out of range.
+	 */
+	protected int getClasses(final Integer classes) {
+		if (null == classes) {
+			return SldTemplateEngine.COLOR_COUNT;
+		}
+		if (classes < MIN_CLASSES || classes > MAX_CLASSES) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "classes must be from " + MIN_CLASSES + " to " + MAX_CLASSES);
+		}
+		return classes;
+	}
+
+	protected static boolean isDefault(final Classification classification, final int classes) {
+		return Classification.Quantile == classification && SldTemplateEngine.COLOR_COUNT == classes;
+	}
+
+	protected static String[] toBinValues(List<RowCounts> bins) {
+		String[] binValues = new String[bins.size()*2];
+		int previousMax = -1;
+		int i=0;
+		for (RowCounts binVals : bins) {
+			if (previousMax > 0){
+				//just to make sure there are no holes in the bin
+				binValues[i*2] = String.valueOf(previousMax+1);
+			}else{
+				binValues[i*2] = String.valueOf(binVals.getBinMin());
+			}
+			previousMax = binVals.getBinMax();
+			binValues[i*2+1] = String.valueOf(previousMax);
+			i++;
+		}
 		return binValues;
 	}
 
@@ -150,30 +445,45 @@ public class SummaryController extends BaseRestController {
 	}
 
 	protected String getTimeFrame(String timeFrame) {
-		String rtn = "ALL_TIME";
-		if (timeFrame != null && timeFrame.length() > 0) {
-			char timeFrameChar = timeFrame.charAt(0);
-			switch (timeFrameChar) {
-			case '5':
-				rtn = "PAST_60_MONTHS";
-				break;
-			case '1':
-				rtn = "PAST_12_MONTHS";
-				break;
-			default:
-				break;
-			}
-		}
-		return rtn;
+		return MapTimeFrame.fromAbbreviation(timeFrame).getColumnSuffix();
 	}
 
 	public static class RowCounts {
-		private List<Integer> counts = new ArrayList<Integer>();
-		public void setValue(Integer value) {
-			counts.add(value);
+		private int binNumber;
+		private int binMin;
+		private int binMax;
+		private int binCount;
+		public RowCounts() {
+		}
+		public RowCounts(int binNumber, int binMin, int binMax, int binCount) {
+			this.binNumber = binNumber;
+			this.binMin = binMin;
+			this.binMax = binMax;
+			this.binCount = binCount;
+		}
+		public int getBinNumber() {
+			return binNumber;
+		}
+		public void setBinNumber(int binNumber) {
+			this.binNumber = binNumber;
+		}
+		public int getBinMin() {
+			return binMin;
+		}
+		public void setBinMin(int binMin) {
+			this.binMin = binMin;
+		}
+		public int getBinMax() {
+			return binMax;
+		}
+		public void setBinMax(int binMax) {
+			this.binMax = binMax;
+		}
+		public int getBinCount() {
+			return binCount;
 		}
-		public List<Integer> getCounts() {
-			return counts;
+		public void setBinCount(int binCount) {
+			this.binCount = binCount;
 		}
 	}
 }
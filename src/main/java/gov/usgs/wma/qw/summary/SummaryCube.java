@@ -0,0 +1,187 @@
+package gov.usgs.wma.qw.summary;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import gov.usgs.wma.qw.summary.SldTemplateEngine.MapDataSource;
+import gov.usgs.wma.qw.summary.SldTemplateEngine.MapGeometry;
+import gov.usgs.wma.qw.summary.SldTemplateEngine.MapTimeFrame;
+import gov.usgs.wma.qw.summary.SummaryController.RowCounts;
+
+/**
+ * The discrete sample counts of qwportal_summary summed by geometry (state, county or HUC8), data source and time frame,
+ * built from a single pass over the table. Each geometry keeps its feature ids in one array and the sums in
+ * primitive arrays indexed [data source][time frame][feature], so any of the 27 summaries can be binned without going
+ * back to the database. The sums for {@link MapDataSource#All} are those of EPA and USGS combined.
+ */
+public class SummaryCube {
+
+	private static final int SOURCES = MapDataSource.values().length;
+	private static final int TIME_FRAMES = MapTimeFrame.values().length;
+	private static final MapDataSource[] ROW_SOURCES = {MapDataSource.EPA, MapDataSource.USGS};
+
+	private final String[][] featureIds;
+	private final int[][][][] counts;
+
+	private SummaryCube(final String[][] featureIds, final int[][][][] counts) {
+		this.featureIds = featureIds;
+		this.counts = counts;
+	}
+
+	public int getFeatureCount(final MapGeometry mapGeometry) {
+		return featureIds[mapGeometry.ordinal()].length;
+	}
+
+	/**
+	 * @return the FIPS state code, FIPS state and county code or HUC8 of the feature; features are in id order with
+	 * the null id (rows without one) last.
+	 */
+	public String getFeatureId(final MapGeometry mapGeometry, final int feature) {
+		return featureIds[mapGeometry.ordinal()][feature];
+	}
+
+	public int getCount(final MapDataSource mapDataSource, final MapGeometry mapGeometry, final MapTimeFrame mapTimeFrame,
+			final int feature) {
+		return counts[mapGeometry.ordinal()][mapDataSource.ordinal()][mapTimeFrame.ordinal()][feature];
+	}
+
+	/**
+	 * @return a new array of the counts greater than zero, in ascending order.
+	 */
+	public int[] getSortedCounts(final MapDataSource mapDataSource, final MapGeometry mapGeometry, final MapTimeFrame mapTimeFrame) {
+		int[] all = counts[mapGeometry.ordinal()][mapDataSource.ordinal()][mapTimeFrame.ordinal()];
+		int[] rtn = new int[all.length];
+		int size = 0;
+		for (int count : all) {
+			if (count > 0) {
+				rtn[size++] = count;
+			}
+		}
+		rtn = Arrays.copyOf(rtn, size);
+		Arrays.sort(rtn);
+		return rtn;
+	}
+
+	/**
+	 * Bin the counts greater than zero as the discreteSampleCountBin query does with ntile (see {@link Classification#Quantile}).
+	 * @return the bins, lowest first. There are fewer than binCount if there are fewer counts than that.
+	 */
+	public List<RowCounts> getQuantileBins(final MapDataSource mapDataSource, final MapGeometry mapGeometry,
+			final MapTimeFrame mapTimeFrame, final int binCount) {
+		return getBins(mapDataSource, mapGeometry, mapTimeFrame, Classification.Quantile, binCount);
+	}
+
+	/**
+	 * @return the counts greater than zero classified into (at most) this many bins, lowest first.
+	 */
+	public List<RowCounts> getBins(final MapDataSource mapDataSource, final MapGeometry mapGeometry,
+			final MapTimeFrame mapTimeFrame, final Classification classification, final int binCount) {
+		return classification.classify(getSortedCounts(mapDataSource, mapGeometry, mapTimeFrame), binCount);
+	}
+
+	public static class Builder {
+		private final List<Map<String, Integer>> features = new ArrayList<>();
+		private final String[][] ids = new String[MapGeometry.values().length][];
+		//[geometry][row source * TIME_FRAMES + time frame][feature]
+		private final int[][][] sums = new int[MapGeometry.values().length][ROW_SOURCES.length * TIME_FRAMES][];
+
+		public Builder() {
+			for (MapGeometry mapGeometry : MapGeometry.values()) {
+				features.add(new HashMap<>());
+				ids[mapGeometry.ordinal()] = new String[64];
+				for (int i = 0; i < ROW_SOURCES.length * TIME_FRAMES; i++) {
+					sums[mapGeometry.ordinal()][i] = new int[64];
+				}
+			}
+		}
+
+		/**
+		 * Add the row's counts to its state, county and HUC8. Rows which are neither EPA nor USGS are ignored.
+		 */
+		public Builder add(final SummaryRow row) {
+			int source = rowSource(row.getNwisOrEpa());
+			if (source < 0) {
+				return this;
+			}
+			//In MapTimeFrame order.
+			int[] samples = {value(row.getSamplesAllTime()), value(row.getSamplesPast12Months()), value(row.getSamplesPast60Months())};
+			add(MapGeometry.States, row.getFipsStateCode(), source, samples);
+			add(MapGeometry.Counties, row.getFipsStateAndCounty(), source, samples);
+			add(MapGeometry.Huc8, row.getHuc8(), source, samples);
+			return this;
+		}
+
+		public SummaryCube build() {
+			String[][] featureIds = new String[MapGeometry.values().length][];
+			int[][][][] counts = new int[MapGeometry.values().length][SOURCES][TIME_FRAMES][];
+			for (MapGeometry mapGeometry : MapGeometry.values()) {
+				int g = mapGeometry.ordinal();
+				int size = features.get(g).size();
+				Integer[] order = new Integer[size];
+				for (int i = 0; i < size; i++) {
+					order[i] = i;
+				}
+				Arrays.sort(order, Comparator.comparing(i -> ids[g][i], Comparator.nullsLast(Comparator.naturalOrder())));
+
+				featureIds[g] = new String[size];
+				for (int f = 0; f < size; f++) {
+					featureIds[g][f] = ids[g][order[f]];
+				}
+				for (MapTimeFrame mapTimeFrame : MapTimeFrame.values()) {
+					int t = mapTimeFrame.ordinal();
+					int[] all = new int[size];
+					for (int s = 0; s < ROW_SOURCES.length; s++) {
+						int[] from = sums[g][s * TIME_FRAMES + t];
+						int[] to = new int[size];
+						for (int f = 0; f < size; f++) {
+							to[f] = from[order[f]];
+							all[f] = Math.addExact(all[f], to[f]);
+						}
+						counts[g][ROW_SOURCES[s].ordinal()][t] = to;
+					}
+					counts[g][MapDataSource.All.ordinal()][t] = all;
+				}
+			}
+			return new SummaryCube(featureIds, counts);
+		}
+
+		private void add(final MapGeometry mapGeometry, final String id, final int source, final int[] samples) {
+			int g = mapGeometry.ordinal();
+			Map<String, Integer> index = features.get(g);
+			Integer feature = index.get(id);
+			if (null == feature) {
+				feature = index.size();
+				index.put(id, feature);
+				if (feature == ids[g].length) {
+					ids[g] = Arrays.copyOf(ids[g], feature * 2);
+					for (int i = 0; i < sums[g].length; i++) {
+						sums[g][i] = Arrays.copyOf(sums[g][i], feature * 2);
+					}
+				}
+				ids[g][feature] = id;
+			}
+			for (int t = 0; t < TIME_FRAMES; t++) {
+				int[] slot = sums[g][source * TIME_FRAMES + t];
+				slot[feature] = Math.addExact(slot[feature], samples[t]);
+			}
+		}
+
+		private static int rowSource(final String nwisOrEpa) {
+			for (int s = 0; s < ROW_SOURCES.length; s++) {
+				if (ROW_SOURCES[s].getStringAbbreviation().equals(nwisOrEpa)) {
+					return s;
+				}
+			}
+			return -1;
+		}
+
+		private static int value(final Integer samples) {
+			return null == samples ? 0 : samples;
+		}
+	}
+
+}
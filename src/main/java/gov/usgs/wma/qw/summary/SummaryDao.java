@@ -3,6 +3,7 @@ package gov.usgs.wma.qw.summary;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.SqlSessionFactory;
 import org.mybatis.spring.support.SqlSessionDaoSupport;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,6 +16,8 @@ public class SummaryDao extends SqlSessionDaoSupport {
 
 	private static final String NAME_SPACE = "summary";
 	private static final String BIN_QUERY = "discreteSampleCountBin";
+	private static final String FEATURE_QUERY = "discreteSampleCountByFeature";
+	private static final String ROWS_QUERY = "summaryRows";
 
 	@Autowired
 	public SummaryDao(SqlSessionFactory sqlSessionFactory) {
@@ -25,4 +28,19 @@ public class SummaryDao extends SqlSessionDaoSupport {
 		return getSqlSession().selectList(String.join(".", NAME_SPACE, BIN_QUERY),  queryParams);
 	}
 
+	/**
+	 * @return the feature_id and discrete_sample_count of each feature with samples, in feature_id order.
+	 */
+	public List<Map<String, Object>> retrieveFeatureCounts(Map<String, Object> queryParams) {
+		return getSqlSession().selectList(String.join(".", NAME_SPACE, FEATURE_QUERY), queryParams);
+	}
+
+	/**
+	 * Stream every row of qwportal_summary to the handler. Call within a (read-only) transaction so the driver can
+	 * use a cursor rather than reading the whole table into memory.
+	 */
+	public void getSummaryRows(final ResultHandler<SummaryRow> handler) {
+		getSqlSession().select(String.join(".", NAME_SPACE, ROWS_QUERY), handler);
+	}
+
 }
@@ -0,0 +1,72 @@
+package gov.usgs.wma.qw.summary;
+
+/**
+ * One row of qwportal_summary as streamed while building the {@link SummaryCube}.
+ */
+public class SummaryRow {
+
+	private String nwisOrEpa;
+	private String fipsStateCode;
+	private String fipsStateAndCounty;
+	private String huc8;
+	private Integer samplesPast12Months;
+	private Integer samplesPast60Months;
+	private Integer samplesAllTime;
+
+	public String getNwisOrEpa() {
+		return nwisOrEpa;
+	}
+
+	public void setNwisOrEpa(final String inNwisOrEpa) {
+		nwisOrEpa = inNwisOrEpa;
+	}
+
+	public String getFipsStateCode() {
+		return fipsStateCode;
+	}
+
+	public void setFipsStateCode(final String inFipsStateCode) {
+		fipsStateCode = inFipsStateCode;
+	}
+
+	public String getFipsStateAndCounty() {
+		return fipsStateAndCounty;
+	}
+
+	public void setFipsStateAndCounty(final String inFipsStateAndCounty) {
+		fipsStateAndCounty = inFipsStateAndCounty;
+	}
+
+	public String getHuc8() {
+		return huc8;
+	}
+
+	public void setHuc8(final String inHuc8) {
+		huc8 = inHuc8;
+	}
+
+	public Integer getSamplesPast12Months() {
+		return samplesPast12Months;
+	}
+
+	public void setSamplesPast12Months(final Integer inSamplesPast12Months) {
+		samplesPast12Months = inSamplesPast12Months;
+	}
+
+	public Integer getSamplesPast60Months() {
+		return samplesPast60Months;
+	}
+
+	public void setSamplesPast60Months(final Integer inSamplesPast60Months) {
+		samplesPast60Months = inSamplesPast60Months;
+	}
+
+	public Integer getSamplesAllTime() {
+		return samplesAllTime;
+	}
+
+	public void setSamplesAllTime(final Integer inSamplesAllTime) {
+		samplesAllTime = inSamplesAllTime;
+	}
+
+}
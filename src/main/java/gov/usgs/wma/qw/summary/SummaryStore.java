@@ -0,0 +1,221 @@
+package gov.usgs.wma.qw.summary;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import gov.usgs.wma.qw.BaseRestController;
+import gov.usgs.wma.qw.EtlEpoch;
+import gov.usgs.wma.qw.ResponseCache;
+import gov.usgs.wma.qw.springinit.ReplicaRoutingDataSource;
+import gov.usgs.wma.qw.summary.SldTemplateEngine.MapDataSource;
+import gov.usgs.wma.qw.summary.SldTemplateEngine.MapGeometry;
+import gov.usgs.wma.qw.summary.SldTemplateEngine.MapTimeFrame;
+
+/**
+ * Holds the {@link SummaryCube} and, for every summary map (each data source, geometry and time frame), its SLD and
+ * encoded {@link FeatureCounts}, with their ETags and gzip variants, for the current ETL epoch. They are rebuilt in the
+ * background whenever the ETL epoch moves, from a single pass over qwportal_summary, and swapped in once all are
+ * complete. Until then (or if they cannot be built) the getters return null and callers should fall back to
+ * {@link SummaryDao}.
+ */
+@Component
+public class SummaryStore {
+
+	private static final Logger LOG = LoggerFactory.getLogger(SummaryStore.class);
+
+	/** The media types the feature counts are encoded in. */
+	public static final MediaType[] COUNT_MEDIA_TYPES = {BaseRestController.MEDIA_TYPE_TEXT_CSV_UTF8,
+			MediaType.valueOf(BaseRestController.MEDIA_TYPE_APPLICATION_JSON_UTF8_VALUE)};
+
+	private final EtlEpoch etlEpoch;
+	private final SummaryDao summaryDao;
+	private final TransactionTemplate transactionTemplate;
+	private final boolean enabled;
+
+	private volatile Snapshot snapshot;
+
+	@FunctionalInterface
+	public interface SldBuilder {
+		/**
+		 * @param cube the counts to bin.
+		 * @param timeFrame the time frame's abbreviation, as given in a request.
+		 * @return the SLD, or null if there are no bins to style.
+		 */
+		String build(SummaryCube cube, MapDataSource mapDataSource, MapGeometry mapGeometry, String timeFrame);
+	}
+
+	@Autowired
+	public SummaryStore(final EtlEpoch etlEpoch, final SummaryDao summaryDao, final PlatformTransactionManager transactionManager,
+			@Value("${codes.summaryStore.enabled:false}") final boolean enabled) {
+		this.etlEpoch = etlEpoch;
+		this.summaryDao = summaryDao;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.transactionTemplate.setReadOnly(true);
+		this.enabled = enabled;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * @return the cube, or null if there is none for the current ETL epoch.
+	 */
+	public SummaryCube getCube() {
+		Snapshot current = getCurrent();
+		return null == current ? null : current.cube;
+	}
+
+	/**
+	 * @return the stored SLD, or null if there is none for the current ETL epoch.
+	 */
+	public Sld get(final MapDataSource mapDataSource, final MapGeometry mapGeometry, final MapTimeFrame mapTimeFrame) {
+		Snapshot current = getCurrent();
+		if (null != current && null != mapDataSource && null != mapGeometry) {
+			return current.slds.get(buildKey(mapDataSource, mapGeometry, mapTimeFrame));
+		}
+		return null;
+	}
+
+	/**
+	 * @return the encoded feature counts (CSV or JSON, by the media type's subtype), or null if there are none for the
+	 * current ETL epoch.
+	 */
+	public ResponseCache.Entry getCounts(final MapDataSource mapDataSource, final MapGeometry mapGeometry,
+			final MapTimeFrame mapTimeFrame, final MediaType mediaType) {
+		Snapshot current = getCurrent();
+		if (null != current && null != mapDataSource && null != mapGeometry) {
+			return current.counts.get(buildKey(mapDataSource, mapGeometry, mapTimeFrame) + "|" + mediaType.getSubtype());
+		}
+		return null;
+	}
+
+	/**
+	 * Load the cube, build every SLD and encode every set of feature counts from it and swap the result in as the current
+	 * snapshot. If any of it fails, the previous snapshot is kept (and, being for an older ETL epoch, no longer served).
+	 */
+	@Async
+	public void rebuild(final LocalDateTime etl, final SldBuilder builder) {
+		long start = System.currentTimeMillis();
+		SummaryCube cube;
+		Map<String, Sld> slds = new HashMap<>();
+		Map<String, ResponseCache.Entry> counts = new HashMap<>();
+		try {
+			cube = loadCube();
+			for (MapDataSource mapDataSource : MapDataSource.values()) {
+				for (MapGeometry mapGeometry : MapGeometry.values()) {
+					for (MapTimeFrame mapTimeFrame : MapTimeFrame.values()) {
+						String key = buildKey(mapDataSource, mapGeometry, mapTimeFrame);
+						slds.put(key, new Sld(builder.build(cube, mapDataSource, mapGeometry, mapTimeFrame.getStringAbbreviation()), true));
+						FeatureCounts featureCounts = FeatureCounts.fromCube(cube, mapDataSource, mapGeometry, mapTimeFrame);
+						for (MediaType mediaType : COUNT_MEDIA_TYPES) {
+							counts.put(key + "|" + mediaType.getSubtype(), new ResponseCache.Entry(mediaType, featureCounts.encode(mediaType), true));
+						}
+					}
+				}
+			}
+		} catch (RuntimeException e) {
+			LOG.warn("Unable to build the summary cube, SLDs and counts: {}", e.getLocalizedMessage());
+			return;
+		}
+		synchronized (this) {
+			if (null == snapshot || !etl.isBefore(snapshot.etl)) {
+				snapshot = new Snapshot(etl, cube, slds, counts);
+			}
+		}
+		LOG.info("Summary cube, SLDs and counts for ETL {} built in {} ms", etl, System.currentTimeMillis() - start);
+	}
+
+	protected SummaryCube loadCube() {
+		//A (read-only) transaction lets the driver stream the rows rather than holding them all in memory. It is on the
+		//primary, as a lagging replica would give a stale cube tagged with the new epoch.
+		return ReplicaRoutingDataSource.onPrimary(() -> transactionTemplate.execute(status -> {
+			SummaryCube.Builder builder = new SummaryCube.Builder();
+			summaryDao.getSummaryRows(context -> builder.add(context.getResultObject()));
+			return builder.build();
+		}));
+	}
+
+	private Snapshot getCurrent() {
+		Snapshot current = snapshot;
+		return null != current && current.etl.equals(etlEpoch.getLastEtl()) ? current : null;
+	}
+
+	protected static String buildKey(final MapDataSource mapDataSource, final MapGeometry mapGeometry, final MapTimeFrame mapTimeFrame) {
+		return mapDataSource + "|" + mapGeometry + "|" + mapTimeFrame;
+	}
+
+	public static class Sld {
+		private final String body;
+		private final byte[] gzipBody;
+		private final String etag;
+
+		/**
+		 * @param body the SLD, or null if there is no content.
+		 */
+		public Sld(final String body) {
+			this(body, false);
+		}
+
+		/**
+		 * @param compress whether to build the gzip variant (if worth it), for an SLD which will be kept.
+		 */
+		public Sld(final String body, final boolean compress) {
+			this.body = body;
+			byte[] bytes = null == body ? null : body.getBytes(StandardCharsets.ISO_8859_1);
+			this.etag = null == body ? null : BaseRestController.buildEtag(bytes);
+			//The SLD is plain ASCII, so the bytes are the same whichever charset it is sent in.
+			this.gzipBody = null == body || !compress ? null : ResponseCache.gzip(bytes);
+		}
+
+		public String getBody() {
+			return body;
+		}
+
+		/**
+		 * @return the gzipped SLD, or null if there is no gzip variant.
+		 */
+		public byte[] getGzipBody() {
+			return gzipBody;
+		}
+
+		public String getEtag() {
+			return etag;
+		}
+
+		/**
+		 * @return the ETag of the gzip variant (if gzip), otherwise of the SLD.
+		 */
+		public String getEtag(final boolean gzip) {
+			return gzip ? ResponseCache.gzipEtag(etag) : etag;
+		}
+	}
+
+	private static final class Snapshot {
+		private final LocalDateTime etl;
+		private final SummaryCube cube;
+		private final Map<String, Sld> slds;
+		private final Map<String, ResponseCache.Entry> counts;
+
+		private Snapshot(final LocalDateTime etl, final SummaryCube cube, final Map<String, Sld> slds,
+				final Map<String, ResponseCache.Entry> counts) {
+			this.etl = etl;
+			this.cube = cube;
+			this.slds = slds;
+			this.counts = counts;
+		}
+	}
+
+}
@@ -1,42 +1,67 @@
 package gov.usgs.wma.qw;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.when;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.Date;
+import java.util.Map;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.web.context.request.NativeWebRequest;
 import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
 
 import gov.usgs.wma.qw.BaseRestController;
-import gov.usgs.wma.qw.LastUpdateDao;
+import gov.usgs.wma.qw.EtlEpoch;
+import gov.usgs.wma.qw.codes.CodeList;
+import gov.usgs.wma.qw.springinit.ReplicaRoutingDataSource;
 
 @SpringBootTest
 public class BaseRestControllerTest {
 
 	@MockBean
-	private LastUpdateDao lastUpdateDao;
+	private EtlEpoch etlEpoch;
 	private TestController testController;
 	private LocalDateTime localFromUTC; 
 
 	private class TestController extends BaseRestController {
-		public TestController(final LastUpdateDao lastUpdateDao) {
-			this.lastUpdateDao = lastUpdateDao;
+		public TestController(final EtlEpoch etlEpoch) {
+			this.etlEpoch = etlEpoch;
+		}
+	}
+
+	private class CachedController extends BaseRestController {
+		private int calls;
+
+		public CachedController(final EtlEpoch etlEpoch, final ResponseCache responseCache) {
+			this.etlEpoch = etlEpoch;
+			this.responseCache = responseCache;
+		}
+
+		public CodeList get(final String text, final WebRequest webRequest) {
+			return cached("test", Map.of("text", text), webRequest, () -> {
+				calls++;
+				return ResponseCacheTest.codeList(text);
+			});
 		}
 	}
 
 	@BeforeEach
 	public void setup() {
-		testController = new TestController(lastUpdateDao);
+		testController = new TestController(etlEpoch);
 		localFromUTC = LocalDateTime.of(2014, 1, 1, 1, 1, 1);
 	}
 
@@ -44,7 +69,7 @@ public class BaseRestControllerTest {
 	public void isNotModifiedTest() {
 		//Not sure why, but we need to reset the requests/responses after each call...
 		//Also, in real life these dates are UTC...
-		when(lastUpdateDao.getLastEtl()).thenReturn(localFromUTC);
+		when(etlEpoch.getLastEtlMillis()).thenReturn(localFromUTC.toInstant(ZoneOffset.UTC).toEpochMilli());
 
 		MockHttpServletRequest mockRequest = new MockHttpServletRequest();
 		MockHttpServletResponse servletResponse = new MockHttpServletResponse();
@@ -70,4 +95,137 @@ public class BaseRestControllerTest {
 		assertFalse(testController.isNotModified(webRequest), "Header set for before last modified, so is modified.");
 	}
 
+	@Test
+	public void isNotModifiedEtagTest() {
+		when(etlEpoch.getLastEtlMillis()).thenReturn(localFromUTC.toInstant(ZoneOffset.UTC).toEpochMilli());
+		String etag = BaseRestController.buildEtag("abc".getBytes());
+		assertEquals("\"900150983cd24fb0d6963f7d28e17f72\"", etag);
+
+		MockHttpServletRequest mockRequest = new MockHttpServletRequest("GET", "/");
+		MockHttpServletResponse servletResponse = new MockHttpServletResponse();
+		NativeWebRequest webRequest = new ServletWebRequest(mockRequest, servletResponse);
+		mockRequest.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+		mockRequest.addHeader("If-Modified-Since", localFromUTC.minusSeconds(1).toInstant(ZoneOffset.UTC).toEpochMilli());
+		assertFalse(testController.isNotModified(webRequest), "If-None-Match takes precedence.");
+		assertTrue(testController.isNotModified(webRequest, etag), "Same ETag, so is not modified.");
+		assertEquals(etag, servletResponse.getHeader(HttpHeaders.ETAG));
+
+		mockRequest = new MockHttpServletRequest("GET", "/");
+		servletResponse = new MockHttpServletResponse();
+		webRequest = new ServletWebRequest(mockRequest, servletResponse);
+		mockRequest.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+		mockRequest.addHeader("If-Modified-Since", new Date());
+		assertFalse(testController.isNotModified(webRequest, BaseRestController.buildEtag("abd".getBytes())),
+				"Different ETag, so is modified.");
+		assertEquals(200, servletResponse.getStatus());
+	}
+
+	@Test
+	public void cachedTest() throws Exception {
+		when(etlEpoch.getLastEtlMillis()).thenReturn(localFromUTC.toInstant(ZoneOffset.UTC).toEpochMilli());
+		CachedController controller = new CachedController(etlEpoch, ResponseCacheTest.responseCache(1000000));
+
+		ServletWebRequest webRequest = ResponseCacheTest.webRequest("json");
+		assertNull(controller.get("US", webRequest));
+		MockHttpServletResponse response = (MockHttpServletResponse) webRequest.getResponse();
+		assertEquals(BaseRestController.MEDIA_TYPE_APPLICATION_JSON_UTF8_VALUE, response.getContentType());
+		assertEquals("{\"codes\":[{\"value\":\"US\"}],\"recordCount\":1}", response.getContentAsString());
+
+		webRequest = ResponseCacheTest.webRequest("json");
+		assertNull(controller.get("US", webRequest));
+		assertEquals(response.getContentAsString(), ((MockHttpServletResponse) webRequest.getResponse()).getContentAsString());
+		assertEquals(1, controller.calls);
+
+		//Different media type
+		webRequest = ResponseCacheTest.webRequest("xml");
+		assertNull(controller.get("US", webRequest));
+		assertTrue(((MockHttpServletResponse) webRequest.getResponse()).getContentAsString().contains("<Code value=\"US\"/>"));
+		assertEquals(2, controller.calls);
+
+		//The ETag is of the content
+		String etag = ((MockHttpServletResponse) webRequest.getResponse()).getHeader(HttpHeaders.ETAG);
+		assertEquals(BaseRestController.buildEtag(((MockHttpServletResponse) webRequest.getResponse()).getContentAsByteArray()), etag);
+		webRequest = ResponseCacheTest.webRequest("xml");
+		((MockHttpServletRequest) webRequest.getRequest()).addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+		assertNull(controller.get("US", webRequest));
+		assertEquals(304, ((MockHttpServletResponse) webRequest.getResponse()).getStatus());
+		assertEquals(0, ((MockHttpServletResponse) webRequest.getResponse()).getContentLength());
+
+		//Unknown ETL epoch is written, but not cached
+		when(etlEpoch.getLastEtlMillis()).thenReturn(null);
+		webRequest = ResponseCacheTest.webRequest("json");
+		assertNull(controller.get("US", webRequest));
+		assertEquals(response.getContentAsString(), ((MockHttpServletResponse) webRequest.getResponse()).getContentAsString());
+		assertNull(controller.get("US", ResponseCacheTest.webRequest("json")));
+		assertEquals(4, controller.calls);
+	}
+
+	@Test
+	public void cachedStaleReplicaTest() throws Exception {
+		long previousEtl = localFromUTC.toInstant(ZoneOffset.UTC).toEpochMilli();
+		long currentEtl = localFromUTC.plusDays(1).toInstant(ZoneOffset.UTC).toEpochMilli();
+		ResponseCache responseCache = ResponseCacheTest.responseCache(1000000);
+		//The replica still has the data of the previous epoch, only the primary that of the current one.
+		CachedController controller = new CachedController(etlEpoch, responseCache) {
+			@Override
+			public CodeList get(final String text, final WebRequest webRequest) {
+				return cached("test", Map.of("text", text), webRequest,
+						() -> ResponseCacheTest.codeList(ReplicaRoutingDataSource.isOnPrimary() ? "current" : "previous"));
+			}
+		};
+		when(etlEpoch.getLastEtlMillis()).thenReturn(currentEtl);
+
+		ServletWebRequest webRequest = ResponseCacheTest.webRequest("json");
+		assertNull(controller.get("US", webRequest));
+		assertEquals("{\"codes\":[{\"value\":\"current\"}],\"recordCount\":1}",
+				((MockHttpServletResponse) webRequest.getResponse()).getContentAsString());
+		String key = ResponseCache.buildKey(currentEtl, ResponseCacheTest.JSON, "test", Map.of("text", "US"));
+		assertEquals("{\"codes\":[{\"value\":\"current\"}],\"recordCount\":1}",
+				new String(responseCache.get(key).getBody(), StandardCharsets.UTF_8));
+		assertNull(responseCache.get(ResponseCache.buildKey(previousEtl, ResponseCacheTest.JSON, "test", Map.of("text", "US"))));
+
+		//Unknown ETL epoch is neither cached nor pinned to the primary.
+		when(etlEpoch.getLastEtlMillis()).thenReturn(null);
+		webRequest = ResponseCacheTest.webRequest("json");
+		assertNull(controller.get("US", webRequest));
+		assertEquals("{\"codes\":[{\"value\":\"previous\"}],\"recordCount\":1}",
+				((MockHttpServletResponse) webRequest.getResponse()).getContentAsString());
+	}
+
+	@Test
+	public void cachedGzipTest() throws Exception {
+		when(etlEpoch.getLastEtlMillis()).thenReturn(localFromUTC.toInstant(ZoneOffset.UTC).toEpochMilli());
+		CachedController controller = new CachedController(etlEpoch, ResponseCacheTest.responseCache(1000000));
+		String text = new String(new char[1000]).replace('\0', 'X');
+
+		ServletWebRequest webRequest = ResponseCacheTest.webRequest("json");
+		assertNull(controller.get(text, webRequest));
+		MockHttpServletResponse plain = (MockHttpServletResponse) webRequest.getResponse();
+		assertNull(plain.getHeader(HttpHeaders.CONTENT_ENCODING));
+		assertEquals(HttpHeaders.ACCEPT_ENCODING, plain.getHeader(HttpHeaders.VARY));
+
+		webRequest = ResponseCacheTest.webRequest("json");
+		((MockHttpServletRequest) webRequest.getRequest()).addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate");
+		assertNull(controller.get(text, webRequest));
+		MockHttpServletResponse gzipped = (MockHttpServletResponse) webRequest.getResponse();
+		assertEquals(ResponseCache.GZIP, gzipped.getHeader(HttpHeaders.CONTENT_ENCODING));
+		assertEquals(HttpHeaders.ACCEPT_ENCODING, gzipped.getHeader(HttpHeaders.VARY));
+		assertEquals(gzipped.getContentAsByteArray().length, gzipped.getContentLength());
+		assertArrayEquals(plain.getContentAsByteArray(), ResponseCacheTest.gunzip(gzipped.getContentAsByteArray()));
+		String etag = gzipped.getHeader(HttpHeaders.ETAG);
+		assertEquals(ResponseCache.gzipEtag(plain.getHeader(HttpHeaders.ETAG)), etag);
+		assertEquals(1, controller.calls);
+
+		//Each variant is only not modified for its own ETag.
+		webRequest = ResponseCacheTest.webRequest("json");
+		((MockHttpServletRequest) webRequest.getRequest()).addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip");
+		((MockHttpServletRequest) webRequest.getRequest()).addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+		assertNull(controller.get(text, webRequest));
+		assertEquals(304, ((MockHttpServletResponse) webRequest.getResponse()).getStatus());
+		webRequest = ResponseCacheTest.webRequest("json");
+		((MockHttpServletRequest) webRequest.getRequest()).addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+		assertNull(controller.get(text, webRequest));
+		assertEquals(200, ((MockHttpServletResponse) webRequest.getResponse()).getStatus());
+	}
+
 }
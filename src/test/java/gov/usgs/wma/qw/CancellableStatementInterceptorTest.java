@@ -0,0 +1,74 @@
+package gov.usgs.wma.qw;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.plugin.Invocation;
+import org.junit.jupiter.api.Test;
+
+public class CancellableStatementInterceptorTest {
+
+	private final CancellableStatementInterceptor interceptor = new CancellableStatementInterceptor();
+
+	@Test
+	public void cancelTest() throws Throwable {
+		Statement statement = mock(Statement.class);
+		CancellableStatementInterceptor.Handle handle = new CancellableStatementInterceptor.Handle(5);
+		Object rtn = CancellableStatementInterceptor.run(handle, () -> {
+			try {
+				Object prepared = interceptor.intercept(invocation(statement));
+				handle.cancel();
+				return prepared;
+			} catch (Throwable e) {
+				throw new IllegalStateException(e);
+			}
+		});
+		assertSame(statement, rtn);
+		verify(statement).setQueryTimeout(5);
+		verify(statement).cancel();
+
+		//Any statement the work goes on to prepare is closed rather than run.
+		Statement next = mock(Statement.class);
+		IllegalStateException e = assertThrows(IllegalStateException.class, () -> CancellableStatementInterceptor.run(handle, () -> {
+			try {
+				return interceptor.intercept(invocation(next));
+			} catch (Throwable t) {
+				throw new IllegalStateException(t);
+			}
+		}));
+		assertEquals(SQLException.class, e.getCause().getClass());
+		verify(next).close();
+	}
+
+	@Test
+	public void noHandleTest() throws Throwable {
+		Statement statement = mock(Statement.class);
+		assertSame(statement, interceptor.intercept(invocation(statement)));
+		verifyNoInteractions(statement);
+
+		//Nor is it registered once the work is done.
+		CancellableStatementInterceptor.Handle handle = new CancellableStatementInterceptor.Handle(0);
+		CancellableStatementInterceptor.run(handle, () -> null);
+		interceptor.intercept(invocation(statement));
+		handle.cancel();
+		verifyNoInteractions(statement);
+	}
+
+	private static Invocation invocation(final Statement statement) throws Exception {
+		StatementHandler handler = mock(StatementHandler.class);
+		when(handler.prepare(null, null)).thenReturn(statement);
+		return new Invocation(handler, StatementHandler.class.getMethod("prepare", Connection.class, Integer.class),
+				new Object[] {null, null});
+	}
+
+}
@@ -0,0 +1,94 @@
+package gov.usgs.wma.qw;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+
+public class EtlEpochTest {
+
+	private LastUpdateDao lastUpdateDao;
+	private ApplicationEventPublisher eventPublisher;
+	private EtlEpoch etlEpoch;
+	private LocalDateTime first;
+	private LocalDateTime second;
+
+	@BeforeEach
+	public void setup() {
+		lastUpdateDao = mock(LastUpdateDao.class);
+		eventPublisher = mock(ApplicationEventPublisher.class);
+		etlEpoch = new EtlEpoch(lastUpdateDao, eventPublisher);
+		first = LocalDateTime.of(2014, 1, 1, 1, 1, 1);
+		second = LocalDateTime.of(2014, 1, 2, 1, 1, 1);
+	}
+
+	@Test
+	public void getLastEtlTest() {
+		when(lastUpdateDao.getLastEtl()).thenReturn(first);
+
+		//Loaded on first use and held after that
+		assertEquals(first, etlEpoch.getLastEtl());
+		assertEquals(first, etlEpoch.getLastEtl());
+		assertEquals(first.toInstant(ZoneOffset.UTC).toEpochMilli(), etlEpoch.getLastEtlMillis());
+		verify(lastUpdateDao, times(1)).getLastEtl();
+	}
+
+	@Test
+	public void getLastEtlUnknownTest() {
+		assertNull(etlEpoch.getLastEtl());
+		assertNull(etlEpoch.getLastEtlMillis());
+		verify(eventPublisher, times(0)).publishEvent(any());
+	}
+
+	@Test
+	public void refreshTest() {
+		ArgumentCaptor<EtlEpochChangedEvent> captor = ArgumentCaptor.forClass(EtlEpochChangedEvent.class);
+		when(lastUpdateDao.getLastEtl()).thenReturn(first, first, second);
+
+		etlEpoch.refresh();
+		//No change, no event
+		etlEpoch.refresh();
+		etlEpoch.refresh();
+		assertEquals(second, etlEpoch.getLastEtl());
+
+		verify(eventPublisher, times(2)).publishEvent(captor.capture());
+		assertNull(captor.getAllValues().get(0).getPreviousEtl());
+		assertEquals(first, captor.getAllValues().get(0).getCurrentEtl());
+		assertEquals(first, captor.getAllValues().get(1).getPreviousEtl());
+		assertEquals(second, captor.getAllValues().get(1).getCurrentEtl());
+	}
+
+	@Test
+	public void olderEpochTest() {
+		when(lastUpdateDao.getLastEtl()).thenReturn(second, first, null, second);
+
+		etlEpoch.refresh();
+		//An older (or lost) epoch, as from a lagging replica, is ignored.
+		assertEquals(second, etlEpoch.refresh());
+		assertEquals(second, etlEpoch.refresh());
+		etlEpoch.refresh();
+		assertEquals(second, etlEpoch.getLastEtl());
+		verify(eventPublisher, times(1)).publishEvent(any());
+	}
+
+	@Test
+	public void scheduledRefreshTest() {
+		when(lastUpdateDao.getLastEtl()).thenReturn(first).thenThrow(new RuntimeException("db down"));
+		etlEpoch.scheduledRefresh();
+		//Failures are logged and the last known value retained
+		etlEpoch.scheduledRefresh();
+		assertEquals(first, etlEpoch.getLastEtl());
+	}
+
+}
@@ -0,0 +1,84 @@
+package gov.usgs.wma.qw;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import gov.usgs.wma.qw.codes.CodeType;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class OperationMetricsTest {
+
+	private SimpleMeterRegistry registry;
+
+	@BeforeEach
+	public void setup() {
+		registry = new SimpleMeterRegistry();
+		Metrics.addRegistry(registry);
+	}
+
+	@AfterEach
+	public void teardown() {
+		Metrics.removeRegistry(registry);
+	}
+
+	@Test
+	public void timeTest() throws Exception {
+		assertEquals("x", OperationMetrics.time(OperationMetrics.LIST, CodeType.COUNTRYCODE, () -> "x"));
+		assertEquals("y", OperationMetrics.time(OperationMetrics.LIST, CodeType.COUNTRYCODE, () -> "y"));
+		OperationMetrics.timeWrite(OperationMetrics.CSV_ZIP, null, () -> {});
+		assertThrows(IOException.class,
+				() -> OperationMetrics.timeWrite(OperationMetrics.CSV_ZIP, null, () -> {throw new IOException("closed");}));
+
+		assertEquals(2, timer(OperationMetrics.LIST, "COUNTRYCODE").count());
+		assertEquals(2, timer(OperationMetrics.CSV_ZIP, OperationMetrics.NO_TYPE).count());
+	}
+
+	@Test
+	public void statementTimerTest() {
+		StatementMetricsInterceptor.timer("codes.codeCountryCodeList").record(Duration.ofMillis(5));
+		Timer timer = registry.find(StatementMetricsInterceptor.STATEMENT_TIMER)
+				.tag(StatementMetricsInterceptor.NAMESPACE_TAG, "codes")
+				.tag(StatementMetricsInterceptor.STATEMENT_TAG, "codeCountryCodeList")
+				.timer();
+		assertEquals(1, timer.count());
+	}
+
+	@Test
+	public void cachedTimerTest() {
+		assertSame(OperationMetrics.timer(OperationMetrics.ENCODE, CodeType.STATECODE),
+				OperationMetrics.timer(OperationMetrics.ENCODE, CodeType.STATECODE));
+		assertSame(StatementMetricsInterceptor.timer("codes.codeStateCodeList"),
+				StatementMetricsInterceptor.timer("codes.codeStateCodeList"));
+
+		//A kept timer still records to registries added after it was first registered.
+		SimpleMeterRegistry later = new SimpleMeterRegistry();
+		Metrics.addRegistry(later);
+		try {
+			OperationMetrics.time(OperationMetrics.ENCODE, CodeType.STATECODE, () -> "x");
+			assertEquals(1, later.find(OperationMetrics.OPERATION_TIMER)
+					.tag(OperationMetrics.OPERATION_TAG, OperationMetrics.ENCODE)
+					.tag(OperationMetrics.TYPE_TAG, "STATECODE")
+					.timer().count());
+		} finally {
+			Metrics.removeRegistry(later);
+		}
+	}
+
+	private Timer timer(final String operation, final String type) {
+		return registry.find(OperationMetrics.OPERATION_TIMER)
+				.tag(OperationMetrics.OPERATION_TAG, operation)
+				.tag(OperationMetrics.TYPE_TAG, type)
+				.timer();
+	}
+
+}
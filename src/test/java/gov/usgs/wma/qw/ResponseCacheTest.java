@@ -0,0 +1,183 @@
+package gov.usgs.wma.qw;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.http.HttpMessageConverters;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.accept.ContentNegotiationManager;
+import org.springframework.web.accept.HeaderContentNegotiationStrategy;
+import org.springframework.web.accept.ParameterContentNegotiationStrategy;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.HandlerMapping;
+
+import gov.usgs.wma.qw.codes.Code;
+import gov.usgs.wma.qw.codes.CodeList;
+
+public class ResponseCacheTest {
+
+	public static final MediaType XML = MediaType.parseMediaType(BaseRestController.MEDIA_TYPE_APPLICATION_XML_UTF8_VALUE);
+	public static final MediaType JSON = MediaType.parseMediaType(BaseRestController.MEDIA_TYPE_APPLICATION_JSON_UTF8_VALUE);
+
+	public static ResponseCache responseCache(final long maxBytes) {
+		ParameterContentNegotiationStrategy parameter = new ParameterContentNegotiationStrategy(
+				Map.of("xml", MediaType.APPLICATION_XML, "json", MediaType.APPLICATION_JSON));
+		parameter.setParameterName("mimeType");
+		ContentNegotiationManager manager = new ContentNegotiationManager(parameter, new HeaderContentNegotiationStrategy());
+		return new ResponseCache(manager, new HttpMessageConverters(), true, maxBytes);
+	}
+
+	public static ServletWebRequest webRequest(final String mimeType) {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+		if (null != mimeType) {
+			request.setParameter("mimeType", mimeType);
+		}
+		request.setAttribute(HandlerMapping.PRODUCIBLE_MEDIA_TYPES_ATTRIBUTE, new LinkedHashSet<>(List.of(XML, JSON)));
+		return new ServletWebRequest(request, new MockHttpServletResponse());
+	}
+
+	@Test
+	public void negotiateTest() {
+		ResponseCache cache = responseCache(1000000);
+		assertEquals(XML, cache.negotiate(webRequest(null)));
+		assertEquals(XML, cache.negotiate(webRequest("xml")));
+		assertEquals(JSON, cache.negotiate(webRequest("json")));
+
+		ServletWebRequest accept = webRequest(null);
+		((MockHttpServletRequest) accept.getRequest()).addHeader("Accept", "application/xml;q=0.5, application/json");
+		assertEquals(JSON, cache.negotiate(accept));
+
+		ServletWebRequest csv = webRequest(null);
+		((MockHttpServletRequest) csv.getRequest()).addHeader("Accept", "text/csv");
+		assertNull(cache.negotiate(csv));
+
+		//Outside of a handler mapping (no producible types) Spring MVC decides.
+		assertNull(cache.negotiate(new ServletWebRequest(new MockHttpServletRequest())));
+	}
+
+	@Test
+	public void buildKeyTest() {
+		Map<String, Object> params = new HashMap<>();
+		params.put("text", "a");
+		params.put("provider", new String[] {"STORET", "NWIS"});
+		params.put("organizationid", null);
+		Map<String, Object> same = new HashMap<>();
+		same.put("provider", new String[] {"NWIS", "STORET"});
+		same.put("text", "a");
+		assertEquals(ResponseCache.buildKey(1L, XML, "r", params), ResponseCache.buildKey(1L, XML, "r", same));
+		assertNotEquals(ResponseCache.buildKey(1L, XML, "r", params), ResponseCache.buildKey(2L, XML, "r", params));
+		assertNotEquals(ResponseCache.buildKey(1L, XML, "r", params), ResponseCache.buildKey(1L, JSON, "r", params));
+		same.put("text", "b");
+		assertNotEquals(ResponseCache.buildKey(1L, XML, "r", params), ResponseCache.buildKey(1L, XML, "r", same));
+	}
+
+	@Test
+	public void putGetTest() {
+		ResponseCache cache = responseCache(1000000);
+		CodeList codeList = codeList("US");
+		assertNull(cache.get("a"));
+		ResponseCache.Entry entry = cache.put("a", JSON, codeList);
+		assertEquals("{\"codes\":[{\"value\":\"US\"}],\"recordCount\":1}", new String(entry.getBody(), StandardCharsets.UTF_8));
+		assertTrue(Arrays.equals(entry.getBody(), cache.get("a").getBody()));
+		assertTrue(new String(cache.put("b", XML, codeList).getBody(), StandardCharsets.UTF_8).contains("<Code value=\"US\"/>"));
+
+		Map<String, Object> stats = cache.getStats();
+		assertEquals(2, stats.get("entries"));
+		assertEquals(1L, stats.get("hits"));
+		assertEquals(1L, stats.get("misses"));
+
+		cache.onEtlEpochChanged(null);
+		assertNull(cache.get("a"));
+		assertEquals(0L, cache.getStats().get("bytes"));
+	}
+
+	@Test
+	public void evictionTest() {
+		//Each entry is about 170 bytes
+		ResponseCache cache = responseCache(16 * 400);
+		for (int i = 0; i < 100; i++) {
+			cache.put("k" + i, JSON, codeList("C" + i));
+			cache.get("k0");
+		}
+		Map<String, Object> stats = cache.getStats();
+		assertTrue((Long) stats.get("bytes") <= 16 * 400);
+		assertTrue((Long) stats.get("evictions") > 0);
+		//Recently used entries are kept
+		assertNotNull(cache.get("k0"));
+		assertNotNull(cache.get("k99"));
+		assertNull(cache.get("k50"));
+
+		//Too big for the cache, but still encoded
+		CodeList big = codeList(new String(new char[500]).replace('\0', 'X'));
+		assertEquals(540, cache.put("big", JSON, big).getBody().length);
+		assertNull(cache.get("big"));
+	}
+
+	@Test
+	public void acceptsGzipTest() {
+		assertTrue(ResponseCache.acceptsGzip("gzip"));
+		assertTrue(ResponseCache.acceptsGzip("deflate, GZIP;q=0.5, br"));
+		assertTrue(ResponseCache.acceptsGzip("x-gzip"));
+		assertTrue(ResponseCache.acceptsGzip("*"));
+		assertFalse(ResponseCache.acceptsGzip(null));
+		assertFalse(ResponseCache.acceptsGzip("identity"));
+		assertFalse(ResponseCache.acceptsGzip("gzip;q=0"));
+		assertFalse(ResponseCache.acceptsGzip("gzip;q=0.0, *"));
+		assertFalse(ResponseCache.acceptsGzip("*;q=0"));
+		assertTrue(ResponseCache.acceptsGzip("*;q=0, gzip"));
+		assertFalse(ResponseCache.acceptsGzip("gzip;q=x"));
+	}
+
+	@Test
+	public void gzipTest() throws Exception {
+		assertEquals("\"abc-gzip\"", ResponseCache.gzipEtag("\"abc\""));
+		assertNull(ResponseCache.gzip(new byte[ResponseCache.MIN_GZIP_BYTES - 1]));
+		byte[] body = new String(new char[2000]).replace('\0', 'X').getBytes(StandardCharsets.UTF_8);
+		byte[] gzipped = ResponseCache.gzip(body);
+		assertTrue(gzipped.length < body.length);
+		assertArrayEquals(body, gunzip(gzipped));
+
+		//Only kept entries are compressed.
+		ResponseCache cache = responseCache(1000000);
+		CodeList big = codeList(new String(new char[1000]).replace('\0', 'X'));
+		assertNull(cache.put(null, JSON, big).getGzipBody());
+		ResponseCache.Entry entry = cache.put("big", JSON, big);
+		assertArrayEquals(entry.getBody(), gunzip(entry.getGzipBody()));
+		assertEquals(ResponseCache.gzipEtag(entry.getEtag()), entry.getEtag(true));
+		assertEquals(entry.getEtag(), entry.getEtag(false));
+		assertNull(cache.put("small", JSON, codeList("US")).getGzipBody());
+	}
+
+	public static byte[] gunzip(final byte[] gzipped) throws Exception {
+		try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(gzipped))) {
+			return gzip.readAllBytes();
+		}
+	}
+
+	public static CodeList codeList(final String value) {
+		Code code = new Code();
+		code.setValue(value);
+		CodeList rtn = new CodeList();
+		rtn.setCodes(List.of(code));
+		rtn.setRecordCount(1);
+		return rtn;
+	}
+
+}
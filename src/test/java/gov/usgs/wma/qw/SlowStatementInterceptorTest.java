@@ -0,0 +1,148 @@
+package gov.usgs.wma.qw;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class SlowStatementInterceptorTest {
+
+	private DataSource dataSource;
+	private PreparedStatement ps;
+	private MappedStatement mappedStatement;
+
+	@BeforeEach
+	public void setup() throws Exception {
+		dataSource = mock(DataSource.class);
+		Connection connection = mock(Connection.class);
+		ps = mock(PreparedStatement.class);
+		ResultSet rs = mock(ResultSet.class);
+		when(dataSource.getConnection()).thenReturn(connection);
+		when(connection.prepareStatement(anyString())).thenReturn(ps);
+		when(ps.executeQuery()).thenReturn(rs);
+		when(rs.next()).thenReturn(true, true, false);
+		when(rs.getString(1)).thenReturn("Seq Scan on code", "Execution Time: 1.0 ms");
+
+		Configuration configuration = new Configuration();
+		mappedStatement = new MappedStatement.Builder(configuration, "codes.codeCountryCodeList",
+				new StaticSqlSource(configuration, "select * from code where text like ? and provider = ?",
+						List.of(new ParameterMapping.Builder(configuration, "text", Object.class).build(),
+								new ParameterMapping.Builder(configuration, "provider", Object.class).build())),
+				SqlCommandType.SELECT).build();
+	}
+
+	@Test
+	public void slowTest() throws Throwable {
+		//Every statement is slow and explained, right away.
+		SlowStatementInterceptor interceptor = new SlowStatementInterceptor(dataSource, true, 0, 1, 2, 5, Runnable::run);
+		Map<String, Object> parameters = new HashMap<>();
+		parameters.put("text", "%abc%");
+		parameters.put("provider", new String[] {"NWIS", "STORET"});
+		interceptor.intercept(invocation(parameters));
+
+		List<SlowStatementInterceptor.SlowStatement> statements = interceptor.getStatements();
+		assertEquals(1, statements.size());
+		assertEquals("codes.codeCountryCodeList", statements.get(0).getId());
+		assertEquals(Map.of("text", "%abc%", "provider", "[NWIS, STORET]"), statements.get(0).getParameters());
+		assertEquals(List.of("Seq Scan on code", "Execution Time: 1.0 ms"), statements.get(0).getPlan());
+		verify(ps).setQueryTimeout(5);
+		verify(ps).setString(1, "%abc%");
+
+		//The oldest are dropped.
+		interceptor.intercept(invocation(Map.of("text", "1", "provider", "NWIS")));
+		interceptor.intercept(invocation(Map.of("text", "2", "provider", "NWIS")));
+		statements = interceptor.getStatements();
+		assertEquals(2, statements.size());
+		assertEquals("1", statements.get(0).getParameters().get("text"));
+		assertEquals("2", statements.get(1).getParameters().get("text"));
+	}
+
+	@Test
+	public void notSlowTest() throws Throwable {
+		SlowStatementInterceptor interceptor = new SlowStatementInterceptor(dataSource, true, 60000, 1, 2, 5, Runnable::run);
+		interceptor.intercept(invocation(Map.of("text", "a", "provider", "NWIS")));
+		assertTrue(interceptor.getStatements().isEmpty());
+
+		//Recorded, but not explained.
+		interceptor = new SlowStatementInterceptor(dataSource, true, 0, 0, 2, 5, Runnable::run);
+		interceptor.intercept(invocation(Map.of("text", "a", "provider", "NWIS")));
+		assertNull(interceptor.getStatements().get(0).getPlan());
+
+		interceptor = new SlowStatementInterceptor(dataSource, false, 0, 1, 2, 5, Runnable::run);
+		interceptor.intercept(invocation(Map.of("text", "a", "provider", "NWIS")));
+		assertTrue(interceptor.getStatements().isEmpty());
+		verifyNoInteractions(dataSource);
+	}
+
+	@Test
+	public void resultHandlerTest() throws Throwable {
+		//Streamed to the client as it runs, so not timed.
+		SlowStatementInterceptor interceptor = new SlowStatementInterceptor(dataSource, true, 0, 1, 2, 5, Runnable::run);
+		interceptor.intercept(invocation(Map.of("text", "a", "provider", "NWIS"), context -> { }));
+		assertTrue(interceptor.getStatements().isEmpty());
+		verifyNoInteractions(dataSource);
+	}
+
+	@Test
+	public void explainExecutorTest() throws Exception {
+		ThreadPoolExecutor executor = SlowStatementInterceptor.newExplainExecutor();
+		CountDownLatch running = new CountDownLatch(1);
+		CountDownLatch done = new CountDownLatch(1);
+		try {
+			executor.execute(() -> {
+				running.countDown();
+				try {
+					done.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			});
+			running.await();
+			//Nothing waits for the one being explained.
+			assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> { }));
+		} finally {
+			done.countDown();
+			executor.shutdownNow();
+		}
+	}
+
+	private Invocation invocation(final Map<String, Object> parameters) throws Exception {
+		return invocation(parameters, Executor.NO_RESULT_HANDLER);
+	}
+
+	private Invocation invocation(final Map<String, Object> parameters, final ResultHandler<?> handler) throws Exception {
+		return new Invocation(mock(Executor.class),
+				Executor.class.getMethod("query", MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class),
+				new Object[] {mappedStatement, parameters, RowBounds.DEFAULT, handler});
+	}
+
+}
@@ -0,0 +1,241 @@
+package gov.usgs.wma.qw.codes.catalog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import gov.usgs.wma.qw.codes.Code;
+import gov.usgs.wma.qw.codes.CodeList;
+import gov.usgs.wma.qw.codes.CodeType;
+
+public class CodeTableTest {
+
+	public static CatalogRow row(String value, String desc, String provider) {
+		CatalogRow row = new CatalogRow();
+		row.setCodeValue(value);
+		row.setDescription(desc);
+		row.setProvider(provider);
+		return row;
+	}
+
+	public static CatalogRow mlRow(String value, String desc, String provider, String organization) {
+		CatalogRow row = row(value, desc, provider);
+		row.setSearchText(value + " " + desc);
+		row.setOrganization(organization);
+		return row;
+	}
+
+	public static CodeTable projects() {
+		//Rows arrive in database collation order, which is not Java's String order.
+		return new CodeTable.Builder(CodeType.PROJECT)
+				.add(row("Aaa", null, "STORET"))
+				.add(row("Aaa", null, "NWIS"))
+				.add(row("Aab", null, "STEWARDS"))
+				.add(row("Bb b", "bee", "NWIS"))
+				.add(row("ddd", null, "STEWARDS"))
+				.add(row("eeee_a", null, "STORET"))
+				.build();
+	}
+
+	@Test
+	public void listTest() {
+		Map<String, Object> parms = new HashMap<>();
+		CodeList codeList = projects().getList(parms);
+		assertEquals(5, codeList.getRecordCount());
+		assertEquals(List.of("Aaa", "Aab", "Bb b", "ddd", "eeee_a"), values(codeList));
+		Code aaa = codeList.getCodes().iterator().next();
+		assertEquals("NWIS STORET", aaa.getProviders());
+		assertNull(aaa.getDesc());
+	}
+
+	@Test
+	public void pagingTest() {
+		Map<String, Object> parms = new HashMap<>();
+		parms.put("fetchSize", 2);
+		parms.put("offset", 2);
+		CodeList codeList = projects().getList(parms);
+		assertEquals(5, codeList.getRecordCount());
+		assertEquals(List.of("Bb b", "ddd"), values(codeList));
+
+		parms.put("offset", 20);
+		codeList = projects().getList(parms);
+		assertEquals(5, codeList.getRecordCount());
+		assertEquals(0, codeList.getCodes().size());
+	}
+
+	@Test
+	public void textTest() {
+		Map<String, Object> parms = new HashMap<>();
+		//Ordered by length, then value.
+		parms.put("text", "a");
+		assertEquals(List.of("Aaa", "Aab", "eeee_a"), values(projects().getList(parms)));
+
+		//Description is also searched
+		parms.put("text", "BEE");
+		assertEquals(List.of("Bb b"), values(projects().getList(parms)));
+
+		//LIKE wildcards and escapes
+		parms.put("text", "e_a");
+		assertEquals(List.of("eeee_a"), values(projects().getList(parms)));
+		parms.put("text", "b%b");
+		assertEquals(List.of("Bb b"), values(projects().getList(parms)));
+		parms.put("text", "a\\_");
+		assertEquals(0, projects().getList(parms).getRecordCount());
+		//Wildcards do not span the value and description
+		parms.put("text", "b%e");
+		assertEquals(List.of("Bb b"), values(projects().getList(parms)));
+		parms.put("text", "d%e");
+		assertEquals(0, projects().getList(parms).getRecordCount());
+	}
+
+	@Test
+	public void afterTest() {
+		Map<String, Object> parms = new HashMap<>();
+		parms.put("fetchSize", 2);
+		parms.put("after", "Aab");
+		CodeList codeList = projects().getList(parms);
+		assertEquals(List.of("Bb b", "ddd"), values(codeList));
+		assertEquals(3, codeList.getRecordCount());
+
+		//Text searches seek in length order
+		parms.put("text", "a");
+		parms.put("after", "Aaa");
+		assertEquals(List.of("Aab", "eeee_a"), values(projects().getList(parms)));
+
+		//Unknown keys can not be sought in memory
+		parms.put("after", "Aac");
+		assertNull(projects().getList(parms));
+	}
+
+	@Test
+	public void getCodeTest() {
+		CodeTable table = projects();
+		assertEquals("Bb b", table.getCode("Bb b").getValue());
+		assertEquals("NWIS", table.getCode("Bb b").getProviders());
+		assertNull(table.getCode("bb b"));
+		assertNull(table.getCode(null));
+	}
+
+	@Test
+	public void getCodesTest() {
+		CodeTable table = projects();
+		List<Code> codes = table.getCodes(List.of("ddd", "zzz", "Aaa", "bb b", "ddd"));
+		assertEquals(List.of("Aaa", "ddd"), codes.stream().map(Code::getValue).collect(Collectors.toList()));
+		assertEquals("NWIS STORET", codes.get(0).getProviders());
+		assertEquals(0, table.getCodes(List.of()).size());
+	}
+
+	@Test
+	public void countyTest() {
+		CodeTable table = new CodeTable.Builder(CodeType.COUNTYCODE)
+				.add(row("US:19:001", "US, IOWA, ADAIR COUNTY", "NWIS"))
+				.add(row("US:19:003", "US, IOWA, ADAMS COUNTY", "NWIS"))
+				.add(row("US:1:001", "US, ONE", "NWIS"))
+				.add(row("US:55:001", "US, WISCONSIN, ADAMS COUNTY", "NWIS"))
+				.build();
+		Map<String, Object> parms = new HashMap<>();
+		parms.put("statecode", new String[] {"US:19", "US"});
+		assertEquals(List.of("US:19:001", "US:19:003"), values(table.getList(parms)));
+		parms.put("text", "adams");
+		assertEquals(List.of("US:19:003"), values(table.getList(parms)));
+	}
+
+	@Test
+	public void stateTest() {
+		CodeTable.Builder builder = new CodeTable.Builder(CodeType.STATECODE);
+		for (String[] state : new String[][] {{"CN:93", "MANITOBA"}, {"MX:86", "BAJA CALIFORNIA NORTE"}, {"US:19", "IOWA"}}) {
+			CatalogRow row = row(state[0], state[1], "NWIS");
+			row.setDescriptionWithCountry(state[0].substring(0, 2) + ", " + state[1]);
+			builder.add(row);
+		}
+		CodeTable table = builder.build();
+
+		Map<String, Object> parms = new HashMap<>();
+		CodeList codeList = table.getList(parms);
+		assertEquals(List.of("US:19"), values(codeList));
+		assertEquals("IOWA", codeList.getCodes().iterator().next().getDesc());
+
+		parms.put("countrycode", new String[] {"CN"});
+		codeList = table.getList(parms);
+		assertEquals(List.of("CN:93"), values(codeList));
+		assertEquals("MANITOBA", codeList.getCodes().iterator().next().getDesc());
+
+		parms.put("countrycode", new String[] {"CN", "US"});
+		codeList = table.getList(parms);
+		assertEquals(List.of("CN:93", "US:19"), values(codeList));
+		assertEquals("CN, MANITOBA", codeList.getCodes().iterator().next().getDesc());
+
+		assertEquals("US, IOWA", table.getCode("US:19").getDesc());
+	}
+
+	@Test
+	public void descriptionTest() {
+		//A code's rows come least description first (nulls last), so the first is kept.
+		CodeTable table = new CodeTable.Builder(CodeType.PROJECT)
+				.add(row("Aaa", "A", "STORET"))
+				.add(row("Aaa", "B", "STEWARDS"))
+				.add(row("Aaa", null, "NWIS"))
+				.build();
+		assertEquals("A", table.getCode("Aaa").getDesc());
+
+		//As is the first description with the country, which may not be on that row.
+		CatalogRow second = row("US:19", "IOWA STATE", "STORET");
+		second.setDescriptionWithCountry("US, IOWA STATE");
+		table = new CodeTable.Builder(CodeType.STATECODE)
+				.add(row("US:19", "IOWA", "NWIS"))
+				.add(second)
+				.build();
+		assertEquals("US, IOWA STATE", table.getCode("US:19").getDesc());
+		assertEquals("IOWA", table.getList(new HashMap<>()).getCodes().iterator().next().getDesc());
+	}
+
+	@Test
+	public void monitoringLocationTest() {
+		CodeTable table = new CodeTable.Builder(CodeType.MONITORINGLOCATION)
+				.add(mlRow("USGS-07083000", "HALFMOON CREEK NEAR MALTA, CO", "NWIS", "USGS-CO"))
+				.add(mlRow("USGS-07083000", "HALFMOON CREEK NEAR MALTA, CO", "BIODATA", "USGS-CO"))
+				.add(mlRow("USGS-07083200", "HALFMOON CR BL HALFMOON DIVERSION NR LEADVILLE, CO", "NWIS", "USGS-CO"))
+				.add(mlRow("USGS-07083700", "ARKANSAS RIVER NEAR MALTA, CO.", "NWIS", "USGS-AR"))
+				.build();
+		Map<String, Object> parms = new HashMap<>();
+		CodeList codeList = table.getList(parms);
+		assertEquals(3, codeList.getRecordCount());
+		assertEquals("BIODATA NWIS", codeList.getCodes().iterator().next().getProviders());
+
+		parms.put("text", "malta");
+		assertEquals(List.of("USGS-07083000", "USGS-07083700"), values(table.getList(parms)));
+
+		parms.put("organizationid", new String[] {"USGS-CO", "NOPE"});
+		assertEquals(List.of("USGS-07083000"), values(table.getList(parms)));
+
+		parms.remove("text");
+		parms.put("provider", new String[] {"BIODATA"});
+		codeList = table.getList(parms);
+		assertEquals(List.of("USGS-07083000"), values(codeList));
+		assertEquals("BIODATA", codeList.getCodes().iterator().next().getProviders());
+	}
+
+	@Test
+	public void dataSourceTest() {
+		CodeTable table = new CodeTable.Builder(CodeType.DATASOURCE)
+				.add(row("NWIS", null, null))
+				.add(row("STORET", null, null))
+				.build();
+		Map<String, Object> parms = new HashMap<>();
+		parms.put("text", "wis");
+		CodeList codeList = table.getList(parms);
+		assertEquals(List.of("NWIS"), values(codeList));
+		assertNull(codeList.getCodes().iterator().next().getProviders());
+	}
+
+	public static List<String> values(CodeList codeList) {
+		return codeList.getCodes().stream().map(Code::getValue).collect(Collectors.toList());
+	}
+
+}
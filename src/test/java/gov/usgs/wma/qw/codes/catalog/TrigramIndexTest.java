@@ -0,0 +1,74 @@
+package gov.usgs.wma.qw.codes.catalog;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import gov.usgs.wma.qw.codes.CodeType;
+
+public class TrigramIndexTest {
+
+	private static final String[] KEYS = new String[] {"ABCD", "BCDE" + CodeTable.KEY_SEPARATOR + "XYZ", null, "ZABC"};
+
+	@Test
+	public void candidatesTest() {
+		TrigramIndex index = new TrigramIndex(KEYS);
+		assertArrayEquals(new int[] {0, 1}, index.getCandidates(List.of("BCD")));
+		assertArrayEquals(new int[] {0, 3}, index.getCandidates(List.of("ABC")));
+		assertArrayEquals(new int[] {0}, index.getCandidates(List.of("ABCD")));
+		//Every fragment must be present.
+		assertArrayEquals(new int[] {1}, index.getCandidates(List.of("BCD", "XYZ")));
+		//Trigrams never span the key separator.
+		assertArrayEquals(new int[0], index.getCandidates(List.of("EXY")));
+		assertArrayEquals(new int[0], index.getCandidates(List.of("QQQ")));
+		//Too short to use the index.
+		assertNull(index.getCandidates(List.of("AB", "C")));
+	}
+
+	@Test
+	public void intersectTest() {
+		int[] longer = new int[1000];
+		for (int i = 0; i < longer.length; i++) {
+			longer[i] = i * 3;
+		}
+		int[] shorter = {0, 1, 3, 4, 2997, 3000};
+		assertEquals(3, TrigramIndex.intersect(shorter, shorter.length, longer, 0, longer.length));
+		assertArrayEquals(new int[] {0, 3, 2997}, Arrays.copyOf(shorter, 3));
+		assertEquals(0, TrigramIndex.intersect(new int[] {5000}, 1, longer, 0, longer.length));
+
+		//Only the range given is searched.
+		shorter = new int[] {0, 3, 6, 9, 12, 2997};
+		assertEquals(2, TrigramIndex.intersect(shorter, 5, longer, 2, 4));
+		assertArrayEquals(new int[] {6, 9}, Arrays.copyOf(shorter, 2));
+	}
+
+	@Test
+	public void sameAsScanTest() {
+		CodeTable.Builder builder = new CodeTable.Builder(CodeType.PROJECT);
+		for (int i = 0; i < 500; i++) {
+			builder.add(CodeTableTest.row(String.format("P%04d", i), "project " + Integer.toString(i, 7), "NWIS"));
+		}
+		CodeTable table = builder.build();
+		Map<String, Object> parms = new HashMap<>();
+		for (String text : new String[] {"12", "123", "0012", "ject 1", "p%3", "P0_1", "61%5", "roj\\_"}) {
+			parms.put("text", text);
+			TextMatcher matcher = TextMatcher.of(text);
+			long expected = 0;
+			for (int i = 0; i < 500; i++) {
+				String value = String.format("P%04d", i);
+				if (matcher.matches(value + CodeTable.KEY_SEPARATOR + ("PROJECT " + Integer.toString(i, 7)))) {
+					expected++;
+				}
+			}
+			assertEquals(expected, table.getList(parms).getRecordCount(), text);
+		}
+	}
+
+}
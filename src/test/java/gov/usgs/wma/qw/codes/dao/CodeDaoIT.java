@@ -19,6 +19,7 @@ import com.github.springtestdbunit.annotation.DatabaseSetup;
 
 import gov.usgs.wma.qw.BaseIT;
 import gov.usgs.wma.qw.codes.Code;
+import gov.usgs.wma.qw.codes.CodeList;
 import gov.usgs.wma.qw.codes.CodeType;
 import gov.usgs.wma.qw.codes.dao.CodeDao;
 import gov.usgs.wma.qw.springinit.DBTestConfig;
@@ -843,6 +844,51 @@ public class CodeDaoIT extends BaseIT {
 		assertEquals("RM", codes.get(0).getValue());
 	}
 
+	@Test
+	@DatabaseSetup("classpath:/testData/countryCode.xml")
+	public void getCodeListTest() {
+		Map<String, Object> parms = new HashMap<String, Object>();
+		parms.put("fetchSize", 3);
+		parms.put("offset", 14);
+		CodeList codeList = codeDao.getCodeList(CodeType.COUNTRYCODE, parms);
+		assertEquals(3, codeList.getCodes().size());
+		assertEquals("IZ", codeList.getCodes().iterator().next().getValue());
+		assertEquals(19, codeList.getRecordCount());
+
+		//Past the end - falls back to the count statement
+		parms.put("offset", 30);
+		codeList = codeDao.getCodeList(CodeType.COUNTRYCODE, parms);
+		assertEquals(0, codeList.getCodes().size());
+		assertEquals(19, codeList.getRecordCount());
+
+		parms.clear();
+		parms.put("text", "zzzz");
+		codeList = codeDao.getCodeList(CodeType.COUNTRYCODE, parms);
+		assertEquals(0, codeList.getCodes().size());
+		assertEquals(0, codeList.getRecordCount());
+
+		//Seek past a key rather than using an offset
+		parms.clear();
+		parms.put("fetchSize", 3);
+		parms.put("after", "GT");
+		codeList = codeDao.getCodeList(CodeType.COUNTRYCODE, parms);
+		assertEquals(3, codeList.getCodes().size());
+		assertEquals("IZ", codeList.getCodes().iterator().next().getValue());
+		assertEquals(5, codeList.getRecordCount());
+	}
+
+	@Test
+	@DatabaseSetup("classpath:/testData/countryCode.xml")
+	public void getCodesByValueTest() {
+		List<Code> codes = codeDao.getCodes(CodeType.COUNTRYCODE, new String[] {"IZ", "ZZZ", "AH"});
+		assertEquals(2, codes.size());
+		assertEquals("AH", codes.get(0).getValue());
+		assertEquals("AH COUNTRY", codes.get(0).getDesc());
+		assertEquals("IZ", codes.get(1).getValue());
+
+		assertEquals(0, codeDao.getCodes(CodeType.COUNTRYCODE, new String[] {"ZZZ"}).size());
+	}
+
 	@Test
 	@DatabaseSetup("classpath:/testData/subjectTaxonomicName.xml")
 	public void subjectTaxonomicNameTest() {
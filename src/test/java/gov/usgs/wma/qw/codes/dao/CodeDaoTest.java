@@ -0,0 +1,224 @@
+package gov.usgs.wma.qw.codes.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import gov.usgs.wma.qw.CancellableStatementInterceptor;
+import gov.usgs.wma.qw.codes.Code;
+import gov.usgs.wma.qw.codes.CodeList;
+import gov.usgs.wma.qw.codes.CodeType;
+import gov.usgs.wma.qw.codes.PagedCode;
+import gov.usgs.wma.qw.springinit.ReplicaRoutingDataSource;
+
+public class CodeDaoTest {
+
+	private final ExecutorService executor = Executors.newFixedThreadPool(2);
+	private final List<Map<String, Object>> listParameters = Collections.synchronizedList(new ArrayList<>());
+	private final List<Map<String, Object>> countParameters = Collections.synchronizedList(new ArrayList<>());
+
+	@AfterEach
+	public void teardown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void parallelCountTest() {
+		//Each statement waits for the other to start, so they can only both finish if run at the same time.
+		CountDownLatch started = new CountDownLatch(2);
+		CodeDao codeDao = codeDao(executor, () -> {
+			started.countDown();
+			await(started);
+			return List.of(code("a", 0), code("b", 0));
+		}, () -> {
+			started.countDown();
+			await(started);
+			return 42;
+		});
+
+		CodeList codeList = assertTimeoutPreemptively(Duration.ofSeconds(5), () -> codeDao.getCodeList(CodeType.COUNTRYCODE, paged()));
+		assertEquals(2, codeList.getCodes().size());
+		assertEquals(42, codeList.getRecordCount());
+		assertEquals(Boolean.TRUE, listParameters.get(0).get(CodeDao.SEPARATE_COUNT));
+		assertEquals(10, listParameters.get(0).get("offset"));
+		assertFalse(countParameters.get(0).containsKey(CodeDao.SEPARATE_COUNT));
+	}
+
+	@Test
+	public void parallelCountOnPrimaryTest() {
+		CodeDao codeDao = codeDao(executor, () -> List.of(code(String.valueOf(ReplicaRoutingDataSource.isOnPrimary()), 0)),
+				() -> ReplicaRoutingDataSource.isOnPrimary() ? 1 : 0);
+
+		CodeList codeList = ReplicaRoutingDataSource.onPrimary(() -> codeDao.getCodeList(CodeType.COUNTRYCODE, paged()));
+		assertEquals("true", codeList.getCodes().iterator().next().getValue());
+		assertEquals(1, codeList.getRecordCount());
+
+		codeList = codeDao.getCodeList(CodeType.COUNTRYCODE, paged());
+		assertEquals("false", codeList.getCodes().iterator().next().getValue());
+		assertEquals(0, codeList.getRecordCount());
+	}
+
+	@Test
+	public void countFailsTest() throws Exception {
+		//The list's statement only finishes once cancelled, as one running in the database would.
+		CountDownLatch cancelled = new CountDownLatch(1);
+		Statement statement = mock(Statement.class);
+		doAnswer(invocation -> {
+			cancelled.countDown();
+			return null;
+		}).when(statement).cancel();
+		IllegalStateException failure = new IllegalStateException("count failed");
+		CountDownLatch registered = new CountDownLatch(1);
+		CodeDao codeDao = codeDao(executor, () -> {
+			register(statement);
+			registered.countDown();
+			await(cancelled);
+			throw new IllegalStateException("canceling statement due to user request");
+		}, () -> {
+			await(registered);
+			throw failure;
+		});
+
+		IllegalStateException e = assertTimeoutPreemptively(Duration.ofSeconds(5),
+				() -> assertThrows(IllegalStateException.class, () -> codeDao.getCodeList(CodeType.COUNTRYCODE, paged())));
+		assertSame(failure, e);
+		assertTrue(cancelled.await(5, TimeUnit.SECONDS));
+		verify(statement).setQueryTimeout(30);
+	}
+
+	@Test
+	public void listFailsTest() {
+		CountDownLatch never = new CountDownLatch(1);
+		IllegalStateException failure = new IllegalStateException("list failed");
+		CodeDao codeDao = codeDao(executor, () -> {
+			throw failure;
+		}, () -> {
+			await(never);
+			return 0;
+		});
+
+		IllegalStateException e = assertTimeoutPreemptively(Duration.ofSeconds(5),
+				() -> assertThrows(IllegalStateException.class, () -> codeDao.getCodeList(CodeType.COUNTRYCODE, paged())));
+		assertSame(failure, e);
+	}
+
+	@Test
+	public void windowedCountTest() {
+		CodeDao codeDao = codeDao(null, () -> List.of(code("a", 7)), () -> {
+			throw new AssertionError("Not to be counted separately");
+		});
+
+		CodeList codeList = codeDao.getCodeList(CodeType.COUNTRYCODE, paged());
+		assertEquals(7, codeList.getRecordCount());
+		assertFalse(listParameters.get(0).containsKey(CodeDao.SEPARATE_COUNT));
+	}
+
+	@Test
+	public void afterModeTest() {
+		CodeDao codeDao = codeDao(executor, () -> List.of(code("b", 3)), () -> {
+			throw new AssertionError("Not to be counted separately");
+		});
+		Map<String, Object> parameters = new HashMap<>();
+		parameters.put("fetchSize", 10);
+		parameters.put("after", "a");
+
+		CodeList codeList = codeDao.getCodeList(CodeType.COUNTRYCODE, parameters);
+		assertEquals(3, codeList.getRecordCount());
+		assertFalse(listParameters.get(0).containsKey(CodeDao.SEPARATE_COUNT));
+	}
+
+	@Test
+	public void unpagedTest() {
+		CodeDao codeDao = codeDao(executor, () -> List.of(code("a", 0), code("b", 0), code("c", 0)), () -> {
+			throw new AssertionError("Not to be counted separately");
+		});
+
+		CodeList codeList = codeDao.getCodeList(CodeType.COUNTRYCODE, new HashMap<>());
+		assertEquals(3, codeList.getRecordCount());
+		assertTrue(countParameters.isEmpty());
+	}
+
+	private CodeDao codeDao(final Executor countExecutor, final Supplier<List<Code>> codes, final Supplier<Integer> recordCount) {
+		SqlSessionFactory sqlSessionFactory = mock(SqlSessionFactory.class);
+		when(sqlSessionFactory.getConfiguration())
+				.thenReturn(new Configuration(new Environment("test", new JdbcTransactionFactory(), mock(DataSource.class))));
+		return new CodeDao(sqlSessionFactory, countExecutor, 30) {
+			@Override
+			public List<Code> getCodes(final CodeType codeType, final Map<String, Object> parameterMap) {
+				listParameters.add(parameterMap);
+				return codes.get();
+			}
+
+			@Override
+			public int getRecordCount(final CodeType codeType, final Map<String, Object> parameterMap) {
+				countParameters.add(parameterMap);
+				return recordCount.get();
+			}
+		};
+	}
+
+	private static Map<String, Object> paged() {
+		Map<String, Object> parameters = new HashMap<>();
+		parameters.put("fetchSize", 10);
+		parameters.put("offset", 10);
+		return parameters;
+	}
+
+	private static Code code(final String value, final int recordCount) {
+		PagedCode code = new PagedCode();
+		code.setValue(value);
+		code.setRecordCount(recordCount);
+		return code;
+	}
+
+	private static void register(final Statement statement) {
+		try {
+			CancellableStatementInterceptor.register(statement);
+		} catch (SQLException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static void await(final CountDownLatch latch) {
+		try {
+			if (!latch.await(10, TimeUnit.SECONDS)) {
+				throw new IllegalStateException("Timed out waiting");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
+	}
+
+}
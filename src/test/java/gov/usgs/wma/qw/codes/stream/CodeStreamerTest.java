@@ -0,0 +1,163 @@
+package gov.usgs.wma.qw.codes.stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.http.HttpMessageConverters;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import gov.usgs.wma.qw.BaseRestController;
+import gov.usgs.wma.qw.codes.Code;
+import gov.usgs.wma.qw.codes.CodeList;
+import gov.usgs.wma.qw.codes.CodeType;
+import gov.usgs.wma.qw.codes.catalog.CodeCatalog;
+import gov.usgs.wma.qw.codes.catalog.CodeTable;
+import gov.usgs.wma.qw.codes.catalog.CodeTableTest;
+import gov.usgs.wma.qw.codes.dao.CodeDao;
+
+public class CodeStreamerTest {
+
+	private static final MediaType XML = MediaType.parseMediaType(BaseRestController.MEDIA_TYPE_APPLICATION_XML_UTF8_VALUE);
+	private static final MediaType JSON = MediaType.parseMediaType(BaseRestController.MEDIA_TYPE_APPLICATION_JSON_UTF8_VALUE);
+
+	private CodeDao codeDao;
+	private CodeCatalog codeCatalog;
+	private CodeStreamer codeStreamer;
+
+	@BeforeEach
+	public void setup() {
+		codeDao = mock(CodeDao.class);
+		codeCatalog = mock(CodeCatalog.class);
+		codeStreamer = new CodeStreamer(codeDao, codeCatalog, mock(PlatformTransactionManager.class), new ObjectMapper());
+	}
+
+	@Test
+	public void sameAsConvertersTest() throws IOException {
+		List<Code> codes = new ArrayList<>();
+		codes.add(code("US", "UNITED STATES OF AMERICA", "NWIS STORET"));
+		codes.add(code("A&B", "<\"quoted\" & é>", null));
+		codes.add(code("C", "", ""));
+		for (MediaType mediaType : new MediaType[] {XML, JSON}) {
+			assertEquals(convert(codes, mediaType), stream(codes, mediaType), mediaType.toString());
+			assertEquals(convert(new ArrayList<>(), mediaType), stream(new ArrayList<>(), mediaType), mediaType.toString());
+		}
+	}
+
+	@Test
+	public void flatTest() throws IOException {
+		List<Code> codes = new ArrayList<>();
+		codes.add(code("US", "UNITED STATES OF AMERICA", "NWIS STORET"));
+		codes.add(code("A,B", "say \"hi\"", null));
+		assertEquals("\"value\",\"desc\",\"providers\"\n"
+				+ "\"US\",\"UNITED STATES OF AMERICA\",\"NWIS STORET\"\n"
+				+ "\"A,B\",\"say \"\"hi\"\"\",\n",
+				stream(codes, BaseRestController.MEDIA_TYPE_TEXT_CSV_UTF8));
+		assertEquals("{\"value\":\"US\",\"desc\":\"UNITED STATES OF AMERICA\",\"providers\":\"NWIS STORET\"}\n"
+				+ "{\"value\":\"A,B\",\"desc\":\"say \\\"hi\\\"\"}\n",
+				stream(codes, BaseRestController.MEDIA_TYPE_APPLICATION_NDJSON_UTF8));
+	}
+
+	@Test
+	public void flatConverterTest() throws IOException {
+		List<Code> codes = new ArrayList<>();
+		codes.add(code("US", "UNITED STATES OF AMERICA", "NWIS STORET"));
+		codes.add(code("CA", null, "STORET"));
+		HttpMessageConverters converters = new HttpMessageConverters(new FlatCodeHttpMessageConverter(new ObjectMapper()));
+		for (MediaType mediaType : new MediaType[] {BaseRestController.MEDIA_TYPE_TEXT_CSV_UTF8,
+				BaseRestController.MEDIA_TYPE_APPLICATION_NDJSON_UTF8}) {
+			CodeList codeList = new CodeList();
+			codeList.setCodes(codes);
+			codeList.setRecordCount(20);
+			assertEquals(stream(codes, mediaType), convert(converters, codeList, mediaType), mediaType.toString());
+			assertEquals(stream(codes.subList(1, 2), mediaType), convert(converters, codes.get(1), mediaType), mediaType.toString());
+		}
+	}
+
+	@Test
+	public void fromCatalogTest() throws IOException {
+		CodeTable table = CodeTableTest.projects();
+		when(codeCatalog.getTable(CodeType.PROJECT)).thenReturn(table);
+		Map<String, Object> parms = new HashMap<>();
+		parms.put("text", "a");
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		assertEquals(3, codeStreamer.stream(CodeType.PROJECT, parms, codeStreamer.getWriter(JSON, out)));
+		assertEquals(convert(table.getList(parms).getCodes(), JSON), out.toString(StandardCharsets.UTF_8));
+		verifyNoInteractions(codeDao);
+	}
+
+	@Test
+	public void getWriterTest() throws IOException {
+		assertNull(codeStreamer.getWriter(MediaType.TEXT_PLAIN, new ByteArrayOutputStream()));
+		assertNull(FlatCodeHttpMessageConverter.getWriter(new ObjectMapper(), MediaType.APPLICATION_JSON, new ByteArrayOutputStream()));
+	}
+
+	private String stream(final List<Code> codes, final MediaType mediaType) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		CodeStreamWriter writer = codeStreamer.getWriter(mediaType, out);
+		writer.start();
+		codes.forEach(writer::write);
+		writer.end();
+		return out.toString(StandardCharsets.UTF_8);
+	}
+
+	private static String convert(final Collection<Code> codes, final MediaType mediaType) throws IOException {
+		CodeList codeList = new CodeList();
+		codeList.setCodes(codes);
+		codeList.setRecordCount(codes.size());
+		return convert(new HttpMessageConverters(), codeList, mediaType);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static String convert(final HttpMessageConverters converters, final Object body, final MediaType mediaType)
+			throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		HttpOutputMessage message = new HttpOutputMessage() {
+			private final HttpHeaders headers = new HttpHeaders();
+			@Override
+			public OutputStream getBody() {
+				return out;
+			}
+			@Override
+			public HttpHeaders getHeaders() {
+				return headers;
+			}
+		};
+		for (HttpMessageConverter<?> converter : converters.getConverters()) {
+			if (converter.canWrite(body.getClass(), mediaType)) {
+				((HttpMessageConverter<Object>) converter).write(body, mediaType, message);
+				break;
+			}
+		}
+		return out.toString(StandardCharsets.UTF_8);
+	}
+
+	private static Code code(final String value, final String desc, final String providers) {
+		Code code = new Code();
+		code.setValue(value);
+		code.setDesc(desc);
+		code.setProviders(providers);
+		return code;
+	}
+
+}
@@ -5,8 +5,10 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.xmlunit.matchers.CompareMatcher.isIdenticalTo;
 import static uk.co.datumedge.hamcrest.json.SameJSONAs.sameJSONObjectAs;
 
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
+import org.json.JSONArray;
 import org.json.JSONObject;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.web.client.TestRestTemplate;
@@ -50,6 +52,18 @@ public abstract class BaseCodesRestControllerTest extends BaseIT {
 		assertThat(rtn.getBody(), isIdenticalTo(searchXml).ignoreWhitespace().throwComparisonFailure());
 	}
 
+	public void runGetListAsFlatTest(String testEndpoint, String expectedMediaType, String compare, String searchText, String search) throws Exception {
+		String mimeType = BaseRestController.MEDIA_TYPE_TEXT_CSV_UTF8_VALUE.equals(expectedMediaType) ? "csv" : "ndjson";
+		ResponseEntity<String> rtn = runMock(testEndpoint + "?mimeType=" + mimeType, expectedMediaType, null);
+		assertThat(rtn.getBody(), equalTo(compare));
+
+		rtn = runMock(testEndpoint, expectedMediaType, MediaType.parseMediaType(expectedMediaType));
+		assertThat(rtn.getBody(), equalTo(compare));
+
+		rtn = runMock(testEndpoint + "?mimeType=" + mimeType + "&text=" + searchText + "&pagenumber=2&pagesize=1", expectedMediaType, null);
+		assertThat(rtn.getBody(), equalTo(search));
+	}
+
 	public void runGetCodeAsJson(String testEndpoint, String codeValue, String codeJson) throws Exception {
 		ResponseEntity<String> rtn = runMock(testEndpoint + "/validate?value=" + codeValue + "&mimeType=json", BaseRestController.MEDIA_TYPE_APPLICATION_JSON_UTF8_VALUE, null);
 		assertThat(new JSONObject(rtn.getBody()),
@@ -58,6 +72,14 @@ public abstract class BaseCodesRestControllerTest extends BaseIT {
 		rtn = runMock(testEndpoint + "/validate?value=" + codeValue, BaseRestController.MEDIA_TYPE_APPLICATION_JSON_UTF8_VALUE, MediaType.APPLICATION_JSON);
 		assertThat(new JSONObject(rtn.getBody()),
 			sameJSONObjectAs(new JSONObject(codeJson)));
+
+		//The strong ETag of the content is honored
+		assertThat(rtn.getHeaders().getETag(), equalTo(BaseRestController.buildEtag(rtn.getBody().getBytes(StandardCharsets.UTF_8))));
+		HttpHeaders headers = new HttpHeaders();
+		headers.setIfNoneMatch(rtn.getHeaders().getETag());
+		rtn = restTemplate.exchange(testEndpoint + "/validate?value=" + codeValue + "&mimeType=json", HttpMethod.GET,
+				new HttpEntity<String>(null, headers), String.class);
+		assertThat(rtn.getStatusCode(), equalTo(HttpStatus.NOT_MODIFIED));
 	}
 
 	public void runGetCodeAsXml(String testEndpoint, String codeValue, String codeXml) throws Exception {
@@ -68,6 +90,19 @@ public abstract class BaseCodesRestControllerTest extends BaseIT {
 		assertThat(rtn.getBody(), isIdenticalTo(codeXml));
 	}
 
+	public void runValidateTest(String testEndpoint, String values, String validationJson) throws Exception {
+		ResponseEntity<String> rtn = runMock(testEndpoint + "/validate?values=" + values + "&mimeType=json", BaseRestController.MEDIA_TYPE_APPLICATION_JSON_UTF8_VALUE, null);
+		assertThat(new JSONObject(rtn.getBody()), sameJSONObjectAs(new JSONObject(validationJson)));
+
+		HttpHeaders headers = new HttpHeaders();
+		headers.setContentType(MediaType.APPLICATION_JSON);
+		headers.setAccept(List.of(MediaType.APPLICATION_JSON));
+		String body = new JSONArray(values.split(";")).toString();
+		rtn = restTemplate.exchange(testEndpoint + "/validate", HttpMethod.POST, new HttpEntity<String>(body, headers), String.class);
+		assertThat(rtn.getStatusCode(), equalTo(HttpStatus.OK));
+		assertThat(new JSONObject(rtn.getBody()), sameJSONObjectAs(new JSONObject(validationJson)));
+	}
+
 	public ResponseEntity<String> runMock(String url, String expectedMediaType, MediaType acceptMediaType) throws Exception {
 		HttpHeaders headers = new HttpHeaders();
 
@@ -3,17 +3,21 @@ package gov.usgs.wma.qw.codes.webservices;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.anyMap;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -21,15 +25,21 @@ import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpStatus;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.web.context.request.NativeWebRequest;
 import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.server.ResponseStatusException;
 
-import gov.usgs.wma.qw.LastUpdateDao;
+import gov.usgs.wma.qw.EtlEpoch;
 import gov.usgs.wma.qw.codes.Code;
 import gov.usgs.wma.qw.codes.CodeList;
 import gov.usgs.wma.qw.codes.CodeType;
+import gov.usgs.wma.qw.codes.CodeValidation;
+import gov.usgs.wma.qw.codes.catalog.CodeCatalog;
+import gov.usgs.wma.qw.codes.catalog.CodeTable;
+import gov.usgs.wma.qw.codes.catalog.CodeTableTest;
 import gov.usgs.wma.qw.codes.dao.CodeDao;
 import gov.usgs.wma.qw.codes.webservices.CodesRestController;
 
@@ -43,32 +53,34 @@ public class CodesRestControllerTest {
 	private LocalDateTime localFromUTC; 
 
 	@MockBean
-	private LastUpdateDao lastUpdateDao;
+	private EtlEpoch etlEpoch;
 	@MockBean
 	private CodeDao codeDao;
+	@MockBean
+	private CodeCatalog codeCatalog;
 
 	private class TestController extends CodesRestController {
-		public TestController(final LastUpdateDao lastUpdateDao,
-				final CodeDao codeDao) {
-			this.lastUpdateDao = lastUpdateDao;
+		public TestController(final EtlEpoch etlEpoch,
+				final CodeDao codeDao, final CodeCatalog codeCatalog) {
+			this.etlEpoch = etlEpoch;
 			this.codeDao = codeDao;
+			this.codeCatalog = codeCatalog;
 		}
 	}
 
 	@BeforeEach
 	public void setup() {
-		testController = new TestController(lastUpdateDao, codeDao);
+		testController = new TestController(etlEpoch, codeDao, codeCatalog);
 		localFromUTC = LocalDateTime.of(2014, 1, 1, 1, 1, 1);
 	}
 
 	@SuppressWarnings("unchecked")
 	@Test
 	public void getListTest() {
-		when(lastUpdateDao.getLastEtl()).thenReturn(localFromUTC);
-		when(codeDao.getRecordCount(eq(CodeType.COUNTRYCODE), anyMap())).thenReturn(12);
-		when(codeDao.getCodes(eq(CodeType.COUNTRYCODE), anyMap())).thenAnswer(new Answer<List<Code>>() {
+		when(etlEpoch.getLastEtlMillis()).thenReturn(localFromUTC.toInstant(ZoneOffset.UTC).toEpochMilli());
+		when(codeDao.getCodeList(eq(CodeType.COUNTRYCODE), anyMap())).thenAnswer(new Answer<CodeList>() {
 			@Override
-			public List<Code> answer(InvocationOnMock invocation) throws Throwable {
+			public CodeList answer(InvocationOnMock invocation) throws Throwable {
 				//This will place the values sent to the dao in the properties of the code...
 				Code code = new Code();
 				Object[] arguments = invocation.getArguments();
@@ -77,7 +89,10 @@ public class CodesRestControllerTest {
 					code.setValue((String) parms.get("text"));
 					code.setDesc(String.valueOf((Integer) parms.get("offset")));
 					code.setProviders(String.valueOf((Integer) parms.get("fetchSize")));
-					return Arrays.asList(code);
+					CodeList codeList = new CodeList();
+					codeList.setCodes(Arrays.asList(code));
+					codeList.setRecordCount(12);
+					return codeList;
 				}
 				return null;
 			}
@@ -88,7 +103,7 @@ public class CodesRestControllerTest {
 		servletResponse = new MockHttpServletResponse();
 		webRequest = new ServletWebRequest(mockRequest, servletResponse);
 		mockRequest.addHeader("If-Modified-Since", new Date());
-		assertNull(testController.getList(CodeType.COUNTRYCODE, "US", "0", "5", null, webRequest),
+		assertNull(testController.getList(CodeType.COUNTRYCODE, "US", "0", "5", null, null, webRequest),
 				"Header set for after last modified, so is not modified.");
 
 		//Otherwise get the codes
@@ -96,7 +111,7 @@ public class CodesRestControllerTest {
 		mockRequest = new MockHttpServletRequest();
 		servletResponse = new MockHttpServletResponse();
 		webRequest = new ServletWebRequest(mockRequest, servletResponse);
-		CodeList codeList = testController.getList(CodeType.COUNTRYCODE, "US", "1", "5", null, webRequest);
+		CodeList codeList = testController.getList(CodeType.COUNTRYCODE, "US", "1", "5", null, null, webRequest);
 		assertEquals(1, codeList.getCodes().size());
 		assertEquals(12, codeList.getRecordCount());
 		Code code = (Code) codeList.getCodes().toArray()[0];
@@ -105,7 +120,7 @@ public class CodesRestControllerTest {
 		assertEquals("5", code.getProviders());
 
 		//Lotsa nulls
-		codeList = testController.getList(CodeType.COUNTRYCODE, null, null, null, null, webRequest);
+		codeList = testController.getList(CodeType.COUNTRYCODE, null, null, null, null, null, webRequest);
 		assertEquals(1, codeList.getCodes().size());
 		code = (Code) codeList.getCodes().toArray()[0];
 		assertNull(code.getValue());
@@ -113,7 +128,7 @@ public class CodesRestControllerTest {
 		assertEquals("null", code.getProviders());
 
 		//Lotsa empties
-		codeList = testController.getList(CodeType.COUNTRYCODE, "", "", "", new HashMap<String, Object>(), webRequest);
+		codeList = testController.getList(CodeType.COUNTRYCODE, "", "", "", null, new HashMap<String, Object>(), webRequest);
 		assertEquals(1, codeList.getCodes().size());
 		code = (Code) codeList.getCodes().toArray()[0];
 		assertNull(code.getValue());
@@ -121,7 +136,7 @@ public class CodesRestControllerTest {
 		assertEquals("null", code.getProviders());
 
 		//funky values
-		codeList = testController.getList(CodeType.COUNTRYCODE,  "xx x", "y4", "z2", null, webRequest);
+		codeList = testController.getList(CodeType.COUNTRYCODE,  "xx x", "y4", "z2", null, null, webRequest);
 		assertEquals(1, codeList.getCodes().size());
 		code = (Code) codeList.getCodes().toArray()[0];
 		assertEquals("xx x", code.getValue());
@@ -129,7 +144,7 @@ public class CodesRestControllerTest {
 		assertEquals("null", code.getProviders());
 
 		//more funky values
-		codeList = testController.getList(CodeType.COUNTRYCODE,  "xx x", "-4", "-2", null, webRequest);
+		codeList = testController.getList(CodeType.COUNTRYCODE,  "xx x", "-4", "-2", null, null, webRequest);
 		assertEquals(1, codeList.getCodes().size());
 		code = (Code) codeList.getCodes().toArray()[0];
 		assertEquals("xx x", code.getValue());
@@ -137,7 +152,7 @@ public class CodesRestControllerTest {
 		assertEquals("null", code.getProviders());
 
 		//even more funky values
-		codeList = testController.getList(CodeType.COUNTRYCODE,  "xx x", "X", "2", null, webRequest);
+		codeList = testController.getList(CodeType.COUNTRYCODE,  "xx x", "X", "2", null, null, webRequest);
 		assertEquals(1, codeList.getCodes().size());
 		code = (Code) codeList.getCodes().toArray()[0];
 		assertEquals("xx x", code.getValue());
@@ -145,7 +160,7 @@ public class CodesRestControllerTest {
 		assertEquals("2", code.getProviders());
 
 		//later pages
-		codeList = testController.getList(CodeType.COUNTRYCODE,  "xx x", "4", "15", null, webRequest);
+		codeList = testController.getList(CodeType.COUNTRYCODE,  "xx x", "4", "15", null, null, webRequest);
 		assertEquals(1, codeList.getCodes().size());
 		code = (Code) codeList.getCodes().toArray()[0];
 		assertEquals("xx x", code.getValue());
@@ -156,7 +171,7 @@ public class CodesRestControllerTest {
 
 	@Test
 	public void getCodeTest() {
-		when(lastUpdateDao.getLastEtl()).thenReturn(localFromUTC);
+		when(etlEpoch.getLastEtlMillis()).thenReturn(localFromUTC.toInstant(ZoneOffset.UTC).toEpochMilli());
 		Code us = new Code();
 		us.setValue("US");
 		us.setDesc("UNITED STATES OF AMERICA");
@@ -185,6 +200,105 @@ public class CodesRestControllerTest {
 		assertEquals(404, servletResponse.getStatus());
 	}
 
+	@Test
+	public void getFromCatalogTest() {
+		when(etlEpoch.getLastEtlMillis()).thenReturn(localFromUTC.toInstant(ZoneOffset.UTC).toEpochMilli());
+		CodeTable.Builder builder = new CodeTable.Builder(CodeType.COUNTRYCODE);
+		builder.add(CodeTableTest.row("CN", "CANADA", "STORET"));
+		builder.add(CodeTableTest.row("US", "UNITED STATES OF AMERICA", "NWIS"));
+		when(codeCatalog.getTable(CodeType.COUNTRYCODE)).thenReturn(builder.build());
+
+		mockRequest = new MockHttpServletRequest();
+		servletResponse = new MockHttpServletResponse();
+		webRequest = new ServletWebRequest(mockRequest, servletResponse);
+		CodeList codeList = testController.getList(CodeType.COUNTRYCODE, "united", null, null, null, null, webRequest);
+		assertEquals(1, codeList.getRecordCount());
+		assertEquals("US", codeList.getCodes().iterator().next().getValue());
+
+		assertEquals("CANADA", testController.getCode(CodeType.COUNTRYCODE, "CN", webRequest, servletResponse).getDesc());
+		assertNull(testController.getCode(CodeType.COUNTRYCODE, "XX", webRequest, servletResponse));
+		assertEquals(404, servletResponse.getStatus());
+		verifyNoInteractions(codeDao);
+	}
+
+	@Test
+	public void validateTest() {
+		when(etlEpoch.getLastEtlMillis()).thenReturn(localFromUTC.toInstant(ZoneOffset.UTC).toEpochMilli());
+		when(codeCatalog.getTable(CodeType.PROJECT)).thenReturn(CodeTableTest.projects());
+		mockRequest = new MockHttpServletRequest();
+		servletResponse = new MockHttpServletResponse();
+		webRequest = new ServletWebRequest(mockRequest, servletResponse);
+
+		CodeValidation validation = testController.validate(CodeType.PROJECT, new String[] {"ddd", "zzz", "", "Aaa", "Aaa", "bb b"}, webRequest);
+		assertEquals(List.of("Aaa", "ddd"), validation.getFound().stream().map(Code::getValue).collect(Collectors.toList()));
+		assertEquals(List.of("bb b", "zzz"), List.copyOf(validation.getMissing()));
+		verifyNoInteractions(codeDao);
+
+		//Without a snapshot, the values are looked up in one statement.
+		Code aaa = new Code();
+		aaa.setValue("Aaa");
+		when(codeDao.getCodes(CodeType.ORGANIZATION, new String[] {"Aaa", "zzz"})).thenReturn(List.of(aaa));
+		validation = testController.validate(CodeType.ORGANIZATION, new String[] {"zzz", "Aaa"}, webRequest);
+		assertEquals(List.of(aaa), validation.getFound());
+		assertEquals(List.of("zzz"), List.copyOf(validation.getMissing()));
+
+		//Nothing to look up
+		validation = testController.validate(CodeType.ORGANIZATION, new String[] {""}, webRequest);
+		assertTrue(validation.getFound().isEmpty());
+		assertTrue(validation.getMissing().isEmpty());
+
+		String[] tooMany = new String[CodesRestController.MAX_VALIDATE_VALUES + 1];
+		for (int i = 0; i < tooMany.length; i++) {
+			tooMany[i] = String.valueOf(i);
+		}
+		ResponseStatusException e = assertThrows(ResponseStatusException.class,
+				() -> testController.validate(CodeType.PROJECT, tooMany, webRequest));
+		assertEquals(HttpStatus.BAD_REQUEST, e.getStatus());
+	}
+
+	@Test
+	public void getListAfterTest() {
+		when(etlEpoch.getLastEtlMillis()).thenReturn(localFromUTC.toInstant(ZoneOffset.UTC).toEpochMilli());
+		CodeTable.Builder builder = new CodeTable.Builder(CodeType.COUNTRYCODE);
+		for (String country : new String[] {"CA", "CN", "MX", "US"}) {
+			builder.add(CodeTableTest.row(country, null, "NWIS"));
+		}
+		when(codeCatalog.getTable(CodeType.COUNTRYCODE)).thenReturn(builder.build());
+		mockRequest = new MockHttpServletRequest();
+		servletResponse = new MockHttpServletResponse();
+		webRequest = new ServletWebRequest(mockRequest, servletResponse);
+
+		//An empty token starts from the beginning and the page number is ignored.
+		CodeList codeList = testController.getList(CodeType.COUNTRYCODE, null, "2", "3", "", null, webRequest);
+		assertEquals(List.of("CA", "CN", "MX"), CodeTableTest.values(codeList));
+		assertEquals(4, codeList.getRecordCount());
+		assertEquals(CodesRestController.encodeAfter("MX"), codeList.getAfter());
+
+		codeList = testController.getList(CodeType.COUNTRYCODE, null, "2", "3", codeList.getAfter(), null, webRequest);
+		assertEquals(List.of("US"), CodeTableTest.values(codeList));
+		assertEquals(1, codeList.getRecordCount());
+		assertNull(codeList.getAfter());
+
+		//Numbered pages have no token.
+		codeList = testController.getList(CodeType.COUNTRYCODE, null, "1", "3", null, null, webRequest);
+		assertNull(codeList.getAfter());
+		verifyNoInteractions(codeDao);
+
+		//Codes not in the catalog are sought in the database.
+		CodeList fromDao = new CodeList();
+		fromDao.setCodes(List.of());
+		when(codeDao.getCodeList(eq(CodeType.COUNTRYCODE), anyMap())).thenReturn(fromDao);
+		assertEquals(fromDao, testController.getList(CodeType.COUNTRYCODE, null, null, "3", CodesRestController.encodeAfter("XX"), null, webRequest));
+	}
+
+	@Test
+	public void afterTokenTest() {
+		assertEquals("Tm_DqWU", CodesRestController.encodeAfter("No\u00e9e"));
+		assertEquals("No\u00e9e", CodesRestController.decodeAfter(CodesRestController.encodeAfter("No\u00e9e")));
+		ResponseStatusException e = assertThrows(ResponseStatusException.class, () -> CodesRestController.decodeAfter("!!"));
+		assertEquals(HttpStatus.BAD_REQUEST, e.getStatus());
+	}
+
 	@Test
 	public void isIntegerTest() {
 		//NPE avoidance
@@ -6,6 +6,8 @@ import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
 
 import com.github.springtestdbunit.annotation.DatabaseSetup;
 
+import gov.usgs.wma.qw.BaseRestController;
+
 @SpringBootTest(webEnvironment=WebEnvironment.RANDOM_PORT)
 @DatabaseSetup("classpath:/testData/project.xml")
 public class ProjectControllerIT extends BaseCodesRestControllerTest {
@@ -14,9 +16,37 @@ public class ProjectControllerIT extends BaseCodesRestControllerTest {
 	public static String CODE_VALUE = "Bb b";
 	public static String CODE_JSON = "{\"value\":\"Bb b\",\"providers\":\"NWIS STEWARDS\"}";
 	public static String CODE_XML = XML_HEADER +"<Code value=\"Bb b\" providers=\"NWIS STEWARDS\"/>";
+	public static String VALIDATE_VALUES = "Bb b;zzz;Aab";
+	public static String VALIDATE_JSON = "{\"found\":[{\"value\":\"Aab\",\"providers\":\"NWIS STEWARDS STORET\"},"
+			+ "{\"value\":\"Bb b\",\"providers\":\"NWIS STEWARDS\"}],\"missing\":[\"zzz\"]}";
 	public static String SEARCH_TEXT = "aa";
 	public static String SEARCH_JSON = "{\"codes\":[{\"value\":\"Aab\",\"providers\":\"NWIS STEWARDS STORET\"}],\"recordCount\":2}";
 	public static String SEARCH_XML = XML_HEADER + "<Codes><Code value=\"Aab\" providers=\"NWIS STEWARDS STORET\"/><recordCount>2</recordCount></Codes>"; 
+	public static String SEARCH_CSV = "\"value\",\"desc\",\"providers\"\n\"Aab\",,\"NWIS STEWARDS STORET\"\n";
+	public static String SEARCH_NDJSON = "{\"value\":\"Aab\",\"providers\":\"NWIS STEWARDS STORET\"}\n";
+	public static String COMPARE_CSV = "\"value\",\"desc\",\"providers\"\n"
+			+ "\"Aaa\",,\"NWIS STEWARDS STORET\"\n"
+			+ "\"Aab\",,\"NWIS STEWARDS STORET\"\n"
+			+ "\"Bb b\",,\"NWIS STEWARDS\"\n"
+			+ "\"ddd\",,\"STEWARDS\"\n"
+			+ "\"eee\",,\"NWIS STORET\"\n"
+			+ "\"fff\",,\"STEWARDS STORET\"\n"
+			+ "\"ggg\",,\"STEWARDS\"\n"
+			+ "\"hhh\",,\"STEWARDS\"\n"
+			+ "\"iii\",,\"NWIS STEWARDS STORET\"\n"
+			+ "\"jjj\",,\"STORET\"\n"
+			+ "\"čćžđš\",,\"NWIS\"\n";
+	public static String COMPARE_NDJSON = "{\"value\":\"Aaa\",\"providers\":\"NWIS STEWARDS STORET\"}\n"
+			+ "{\"value\":\"Aab\",\"providers\":\"NWIS STEWARDS STORET\"}\n"
+			+ "{\"value\":\"Bb b\",\"providers\":\"NWIS STEWARDS\"}\n"
+			+ "{\"value\":\"ddd\",\"providers\":\"STEWARDS\"}\n"
+			+ "{\"value\":\"eee\",\"providers\":\"NWIS STORET\"}\n"
+			+ "{\"value\":\"fff\",\"providers\":\"STEWARDS STORET\"}\n"
+			+ "{\"value\":\"ggg\",\"providers\":\"STEWARDS\"}\n"
+			+ "{\"value\":\"hhh\",\"providers\":\"STEWARDS\"}\n"
+			+ "{\"value\":\"iii\",\"providers\":\"NWIS STEWARDS STORET\"}\n"
+			+ "{\"value\":\"jjj\",\"providers\":\"STORET\"}\n"
+			+ "{\"value\":\"čćžđš\",\"providers\":\"NWIS\"}\n";
 	public static String COMPARE_FILE_JSON = "project.json";
 	public static String COMPARE_FILE_XML = "project.xml";
 
@@ -30,6 +60,16 @@ public class ProjectControllerIT extends BaseCodesRestControllerTest {
 		runGetListAsXmlTest(TEST_ENDPOINT, SEARCH_TEXT, COMPARE_FILE_XML, SEARCH_XML);
 	}
 
+	@Test
+	public void getListAsCsvTest() throws Exception {
+		runGetListAsFlatTest(TEST_ENDPOINT, BaseRestController.MEDIA_TYPE_TEXT_CSV_UTF8_VALUE, COMPARE_CSV, SEARCH_TEXT, SEARCH_CSV);
+	}
+
+	@Test
+	public void getListAsNdjsonTest() throws Exception {
+		runGetListAsFlatTest(TEST_ENDPOINT, BaseRestController.MEDIA_TYPE_APPLICATION_NDJSON_UTF8_VALUE, COMPARE_NDJSON, SEARCH_TEXT, SEARCH_NDJSON);
+	}
+
 	@Test
 	public void getCodeAsJsonTest() throws Exception {
 		runGetCodeAsJson(TEST_ENDPOINT, CODE_VALUE, CODE_JSON);
@@ -40,4 +80,9 @@ public class ProjectControllerIT extends BaseCodesRestControllerTest {
 		runGetCodeAsXml(TEST_ENDPOINT, CODE_VALUE, CODE_XML);
 	}
 
+	@Test
+	public void validateTest() throws Exception {
+		runValidateTest(TEST_ENDPOINT, VALIDATE_VALUES, VALIDATE_JSON);
+	}
+
 }
@@ -0,0 +1,38 @@
+package gov.usgs.wma.qw.springinit;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+@SpringBootTest(webEnvironment=WebEnvironment.RANDOM_PORT,
+properties={"codes.service.url=/", "management.endpoint.responsecache.enabled=true",
+		"management.endpoints.web.exposure.include=info,health,responsecache",
+		"spring.security.user.name=actuator", "spring.security.user.password=secret"})
+public class ActuatorSecurityTest {
+
+	@Test
+	public void publicTest(@Autowired TestRestTemplate restTemplate) throws Exception {
+		ResponseEntity<String> rtn = restTemplate.getForEntity("/about/info", String.class);
+		assertThat(rtn.getStatusCode(), equalTo(HttpStatus.OK));
+	}
+
+	@Test
+	public void restrictedTest(@Autowired TestRestTemplate restTemplate) throws Exception {
+		ResponseEntity<String> rtn = restTemplate.getForEntity("/about/responsecache", String.class);
+		assertThat(rtn.getStatusCode(), equalTo(HttpStatus.UNAUTHORIZED));
+
+		rtn = restTemplate.withBasicAuth("actuator", "wrong").getForEntity("/about/responsecache", String.class);
+		assertThat(rtn.getStatusCode(), equalTo(HttpStatus.UNAUTHORIZED));
+
+		rtn = restTemplate.withBasicAuth("actuator", "secret").getForEntity("/about/responsecache", String.class);
+		assertThat(rtn.getStatusCode(), equalTo(HttpStatus.OK));
+	}
+
+}
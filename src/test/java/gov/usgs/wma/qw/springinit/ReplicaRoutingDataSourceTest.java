@@ -0,0 +1,166 @@
+package gov.usgs.wma.qw.springinit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import gov.usgs.wma.qw.springinit.ReplicaRoutingDataSource.Selection;
+
+public class ReplicaRoutingDataSourceTest {
+
+	private DataSource primary;
+	private Map<String, DataSource> replicas;
+
+	@BeforeEach
+	public void setup() throws Exception {
+		primary = dataSource(ReplicaRoutingDataSource.PRIMARY);
+		replicas = new LinkedHashMap<>();
+		for (int i = 1; i <= 3; i++) {
+			replicas.put("replica-" + i, dataSource("replica-" + i));
+		}
+	}
+
+	@Test
+	public void roundRobinTest() throws Exception {
+		ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, replicas, Selection.ROUND_ROBIN, 0);
+		List<String> used = new ArrayList<>();
+		for (int i = 0; i < 6; i++) {
+			try (Connection connection = routing.getConnection()) {
+				used.add(connection.getCatalog());
+			}
+		}
+		assertEquals(List.of("replica-1", "replica-2", "replica-3", "replica-1", "replica-2", "replica-3"), used);
+		assertEquals(0, routing.getReplicas().get(0).getOutstanding());
+		assertEquals(2L, routing.getStats().get("replica-1").get("connections"));
+	}
+
+	@Test
+	public void leastOutstandingTest() throws Exception {
+		ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, replicas, Selection.LEAST_OUTSTANDING, 0);
+		//Held connections push the next ones to the other replicas.
+		Set<String> used = new HashSet<>();
+		List<Connection> held = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			held.add(routing.getConnection());
+			used.add(held.get(i).getCatalog());
+		}
+		assertEquals(3, used.size());
+		Connection second = held.get(1);
+		String released = second.getCatalog();
+		second.close();
+		//Closing twice only releases once.
+		second.close();
+		assertEquals(released, routing.getConnection().getCatalog());
+		for (ReplicaRoutingDataSource.Node node : routing.getReplicas()) {
+			assertEquals(1, node.getOutstanding(), node.getName());
+		}
+		verify(replicas.get(released).getConnection(), times(2)).close();
+	}
+
+	@Test
+	public void failoverTest() throws Exception {
+		ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, replicas, Selection.ROUND_ROBIN, 0);
+		when(replicas.get("replica-1").getConnection()).thenThrow(new SQLException("down"));
+		assertEquals("replica-2", routing.getConnection().getCatalog());
+		assertFalse(routing.getReplicas().get(0).isHealthy());
+		//A down replica is passed over.
+		assertEquals("replica-3", routing.getConnection().getCatalog());
+		assertEquals("replica-2", routing.getConnection().getCatalog());
+
+		//With every replica down, the primary is used.
+		when(replicas.get("replica-2").getConnection()).thenThrow(new SQLException("down"));
+		when(replicas.get("replica-3").getConnection()).thenThrow(new SQLException("down"));
+		assertEquals(ReplicaRoutingDataSource.PRIMARY, routing.getConnection().getCatalog());
+		assertEquals(ReplicaRoutingDataSource.PRIMARY, routing.getConnection().getCatalog());
+
+		//Until one answers again.
+		Connection connection = connection("replica-3");
+		when(connection.isValid(anyInt())).thenReturn(true);
+		doReturn(connection).when(replicas.get("replica-3")).getConnection();
+		routing.checkHealth();
+		assertTrue(routing.getReplicas().get(2).isHealthy());
+		assertFalse(routing.getReplicas().get(1).isHealthy());
+		assertEquals("replica-3", routing.getConnection().getCatalog());
+	}
+
+	@Test
+	public void exhaustedTest() throws Exception {
+		ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, replicas, Selection.ROUND_ROBIN, 0);
+		//An exhausted pool is passed over, but stays in rotation.
+		Connection connection = connection("replica-1");
+		doThrow(new SQLTransientConnectionException("replica-1 - Connection is not available"))
+				.doReturn(connection).when(replicas.get("replica-1")).getConnection();
+		assertEquals("replica-2", routing.getConnection().getCatalog());
+		assertTrue(routing.getReplicas().get(0).isHealthy());
+		assertEquals("replica-3", routing.getConnection().getCatalog());
+		assertEquals("replica-1", routing.getConnection().getCatalog());
+
+		//While one which times out failing to connect is down.
+		doThrow(new SQLTransientConnectionException("replica-2 - Connection is not available", new SQLException("refused")))
+				.when(replicas.get("replica-2")).getConnection();
+		assertEquals("replica-3", routing.getConnection().getCatalog());
+		assertFalse(routing.getReplicas().get(1).isHealthy());
+	}
+
+	@Test
+	public void onPrimaryTest() throws Exception {
+		ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, replicas, Selection.ROUND_ROBIN, 0);
+		String used = ReplicaRoutingDataSource.onPrimary(() -> {
+			//Nested work stays on the primary too.
+			ReplicaRoutingDataSource.onPrimary(() -> null);
+			try (Connection connection = routing.getConnection()) {
+				return connection.getCatalog();
+			} catch (SQLException e) {
+				throw new IllegalStateException(e);
+			}
+		});
+		assertEquals(ReplicaRoutingDataSource.PRIMARY, used);
+		assertEquals("replica-1", routing.getConnection().getCatalog());
+	}
+
+	@Test
+	public void noReplicasTest() throws Exception {
+		ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, Map.of(), Selection.LEAST_OUTSTANDING, 1000);
+		assertEquals(ReplicaRoutingDataSource.PRIMARY, routing.getConnection().getCatalog());
+		routing.close();
+	}
+
+	private static DataSource dataSource(final String name) throws SQLException {
+		DataSource dataSource = mock(DataSource.class);
+		Connection connection = connection(name);
+		when(dataSource.getConnection()).thenReturn(connection);
+		return dataSource;
+	}
+
+	/**
+	 * @return a connection which gives its node's name as its catalog.
+	 */
+	private static Connection connection(final String name) throws SQLException {
+		Connection connection = mock(Connection.class);
+		when(connection.getCatalog()).thenReturn(name);
+		return connection;
+	}
+
+}
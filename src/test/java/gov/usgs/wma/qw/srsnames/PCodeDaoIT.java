@@ -4,8 +4,9 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 
 import java.time.LocalDate;
-import java.util.LinkedHashMap;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -35,7 +36,8 @@ public class PCodeDaoIT extends BaseIT {
 
 	@Test
 	public void getRows() {
-		List<LinkedHashMap<String, Object>> rows = pCodeDao.getRows();
+		List<Map<String, Object>> rows = new ArrayList<>();
+		pCodeDao.getRows(context -> rows.add(context.getResultObject()));
 		assertNotNull(rows, "got something");
 		assertEquals(10, rows.size(), "got the correct number rows");
 		assertEquals(11, rows.get(0).keySet().size(), "got the correct number of columns");
@@ -53,126 +55,132 @@ public class PCodeDaoIT extends BaseIT {
 		assertEquals("resultparticlesizebasis", cols[9], "got correct column in position 10");
 		assertEquals("last_rev_dt", cols[10], "got correct column in position 11");
 
-		assertEquals("00060", rows.get(0).get("parm_cd"));
-		assertEquals("Discharge, cubic feet per second", rows.get(0).get("description"));
-		assertEquals("Stream flow, mean. daily", rows.get(0).get("characteristicname"));
-		assertEquals("ft3/s", rows.get(0).get("measureunitcode"));
-		assertEquals("", rows.get(0).get("resultsamplefraction"));
-		assertEquals("", rows.get(0).get("resulttemperaturebasis"));
-		assertEquals("Mean", rows.get(0).get("resultstatisticalbasis"));
-		assertEquals("1 Day", rows.get(0).get("resulttimebasis"));
-		assertEquals("", rows.get(0).get("resultweightbasis"));
-		assertEquals("", rows.get(0).get("resultparticlesizebasis"));
-		assertEquals("2013-07-01", rows.get(0).get("last_rev_dt"));
-
-		assertEquals("00065", rows.get(1).get("parm_cd"));
-		assertEquals("Gage height, feet", rows.get(1).get("description"));
-		assertEquals("Height, gage", rows.get(1).get("characteristicname"));
-		assertEquals("ft", rows.get(1).get("measureunitcode"));
-		assertEquals("", rows.get(1).get("resultsamplefraction"));
-		assertEquals("", rows.get(1).get("resulttemperaturebasis"));
-		assertEquals("", rows.get(1).get("resultstatisticalbasis"));
-		assertEquals("", rows.get(1).get("resulttimebasis"));
-		assertEquals("", rows.get(1).get("resultweightbasis"));
-		assertEquals("", rows.get(1).get("resultparticlesizebasis"));
-		assertEquals("2008-02-21", rows.get(1).get("last_rev_dt"));
-
-		assertEquals("00315", rows.get(2).get("parm_cd"));
-		assertEquals("Biochemical oxygen demand, water, unfiltered, 7 days at 20 degrees Celsius, milligrams per liter", rows.get(2).get("description"));
-		assertEquals("Biochemical oxygen demand, non-standard conditions", rows.get(2).get("characteristicname"));
-		assertEquals("mg/l", rows.get(2).get("measureunitcode"));
-		assertEquals("Total", rows.get(2).get("resultsamplefraction"));
-		assertEquals("20 deg C", rows.get(2).get("resulttemperaturebasis"));
-		assertEquals("", rows.get(2).get("resultstatisticalbasis"));
-		assertEquals("7 Day", rows.get(2).get("resulttimebasis"));
-		assertEquals("", rows.get(2).get("resultweightbasis"));
-		assertEquals("", rows.get(2).get("resultparticlesizebasis"));
-		assertEquals("2008-02-21", rows.get(2).get("last_rev_dt"));
-
-		assertEquals("00746", rows.get(3).get("parm_cd"));
-		assertEquals("Sulfide, water, filtered, milligrams per liter", rows.get(3).get("description"));
-		assertEquals("Sulfide", rows.get(3).get("characteristicname"));
-		assertEquals("mg/l", rows.get(3).get("measureunitcode"));
-		assertEquals("Dissolved", rows.get(3).get("resultsamplefraction"));
-		assertEquals("", rows.get(3).get("resulttemperaturebasis"));
-		assertEquals("", rows.get(3).get("resultstatisticalbasis"));
-		assertEquals("", rows.get(3).get("resulttimebasis"));
-		assertEquals("", rows.get(3).get("resultweightbasis"));
-		assertEquals("", rows.get(3).get("resultparticlesizebasis"));
-		assertEquals("2008-02-21", rows.get(3).get("last_rev_dt"));
-
-		assertEquals("01090", rows.get(4).get("parm_cd"));
-		assertEquals("Zinc, water, filtered, micrograms per liter", rows.get(4).get("description"));
-		assertEquals("Zinc", rows.get(4).get("characteristicname"));
-		assertEquals("ug/l", rows.get(4).get("measureunitcode"));
-		assertEquals("Dissolved", rows.get(4).get("resultsamplefraction"));
-		assertEquals("", rows.get(4).get("resulttemperaturebasis"));
-		assertEquals("", rows.get(4).get("resultstatisticalbasis"));
-		assertEquals("", rows.get(4).get("resulttimebasis"));
-		assertEquals("", rows.get(4).get("resultweightbasis"));
-		assertEquals("", rows.get(4).get("resultparticlesizebasis"));
-		assertEquals("2008-09-23", rows.get(4).get("last_rev_dt"));
-
-		assertEquals("01218", rows.get(5).get("parm_cd"));
-		assertEquals("Terbium, water, unfiltered, micrograms per liter", rows.get(5).get("description"));
-		assertEquals("Terbium", rows.get(5).get("characteristicname"));
-		assertEquals("ug/l", rows.get(5).get("measureunitcode"));
-		assertEquals("Total", rows.get(5).get("resultsamplefraction"));
-		assertEquals("", rows.get(5).get("resulttemperaturebasis"));
-		assertEquals("", rows.get(5).get("resultstatisticalbasis"));
-		assertEquals("", rows.get(5).get("resulttimebasis"));
-		assertEquals("", rows.get(5).get("resultweightbasis"));
-		assertEquals("", rows.get(5).get("resultparticlesizebasis"));
-		assertEquals("2008-09-23", rows.get(5).get("last_rev_dt"));
-
-		assertEquals("01425", rows.get(6).get("parm_cd"));
-		assertEquals("Total nitrogen, soil, total digestion, milligrams per liter", rows.get(6).get("description"));
-		assertEquals("Nitrogen, mixed forms (NH3), (NH4), organic, (NO2) and (NO3)", rows.get(6).get("characteristicname")); 
-		assertEquals("mg/l", rows.get(6).get("measureunitcode"));
-		assertEquals("Total", rows.get(6).get("resultsamplefraction"));
-		assertEquals("", rows.get(6).get("resulttemperaturebasis"));
-		assertEquals("", rows.get(6).get("resultstatisticalbasis"));
-		assertEquals("", rows.get(6).get("resulttimebasis"));
-		assertEquals("", rows.get(6).get("resultweightbasis"));
-		assertEquals("", rows.get(6).get("resultparticlesizebasis"));
-		assertEquals("2009-06-23", rows.get(6).get("last_rev_dt"));
-
-		assertEquals("19504", rows.get(7).get("parm_cd"));
-		assertEquals("Polonium-210 counting error, water, filtered, picocuries per liter", rows.get(7).get("description"));
-		assertEquals("Polonium-210", rows.get(7).get("characteristicname"));
-		assertEquals("pCi/L", rows.get(7).get("measureunitcode"));
-		assertEquals("Dissolved", rows.get(7).get("resultsamplefraction"));
-		assertEquals("", rows.get(7).get("resulttemperaturebasis"));
-		assertEquals("Counting Error", rows.get(7).get("resultstatisticalbasis"));
-		assertEquals("", rows.get(7).get("resulttimebasis"));
-		assertEquals("", rows.get(7).get("resultweightbasis"));
-		assertEquals("", rows.get(7).get("resultparticlesizebasis"));
-		assertEquals("2008-09-23", rows.get(7).get("last_rev_dt"));
-
-		assertEquals("30171", rows.get(8).get("parm_cd"));
-		assertEquals("Naphthalene, soil, recoverable, dry weight, milligrams per kilogram", rows.get(8).get("description"));
-		assertEquals("Naphthalene", rows.get(8).get("characteristicname"));
-		assertEquals("mg/kg", rows.get(8).get("measureunitcode"));
-		assertEquals("Recoverable", rows.get(8).get("resultsamplefraction"));
-		assertEquals("", rows.get(8).get("resulttemperaturebasis"));
-		assertEquals("", rows.get(8).get("resultstatisticalbasis"));
-		assertEquals("", rows.get(8).get("resulttimebasis"));
-		assertEquals("Dry", rows.get(8).get("resultweightbasis"));
-		assertEquals("", rows.get(8).get("resultparticlesizebasis"));
-		assertEquals("2008-09-23", rows.get(8).get("last_rev_dt"));
-
-		assertEquals("82279", rows.get(9).get("parm_cd"));
-		assertEquals("Lead, street debris smaller than 0.5 millimeters, dry weight, milligrams per kilogram", rows.get(9).get("description"));
-		assertEquals("Lead", rows.get(9).get("characteristicname"));
-		assertEquals("mg/kg", rows.get(9).get("measureunitcode"));
-		assertEquals("", rows.get(9).get("resultsamplefraction"));
-		assertEquals("", rows.get(9).get("resulttemperaturebasis"));
-		assertEquals("", rows.get(9).get("resultstatisticalbasis"));
-		assertEquals("", rows.get(9).get("resulttimebasis"));
-		assertEquals("Dry", rows.get(9).get("resultweightbasis"));
-		assertEquals("< 0.5 mm", rows.get(9).get("resultparticlesizebasis"));
-		assertEquals("2010-09-24", rows.get(9).get("last_rev_dt"));
+		assertEquals("00060", value(rows.get(0), "parm_cd"));
+		assertEquals("Discharge, cubic feet per second", value(rows.get(0), "description"));
+		assertEquals("Stream flow, mean. daily", value(rows.get(0), "characteristicname"));
+		assertEquals("ft3/s", value(rows.get(0), "measureunitcode"));
+		assertEquals("", value(rows.get(0), "resultsamplefraction"));
+		assertEquals("", value(rows.get(0), "resulttemperaturebasis"));
+		assertEquals("Mean", value(rows.get(0), "resultstatisticalbasis"));
+		assertEquals("1 Day", value(rows.get(0), "resulttimebasis"));
+		assertEquals("", value(rows.get(0), "resultweightbasis"));
+		assertEquals("", value(rows.get(0), "resultparticlesizebasis"));
+		assertEquals("2013-07-01", value(rows.get(0), "last_rev_dt"));
+
+		assertEquals("00065", value(rows.get(1), "parm_cd"));
+		assertEquals("Gage height, feet", value(rows.get(1), "description"));
+		assertEquals("Height, gage", value(rows.get(1), "characteristicname"));
+		assertEquals("ft", value(rows.get(1), "measureunitcode"));
+		assertEquals("", value(rows.get(1), "resultsamplefraction"));
+		assertEquals("", value(rows.get(1), "resulttemperaturebasis"));
+		assertEquals("", value(rows.get(1), "resultstatisticalbasis"));
+		assertEquals("", value(rows.get(1), "resulttimebasis"));
+		assertEquals("", value(rows.get(1), "resultweightbasis"));
+		assertEquals("", value(rows.get(1), "resultparticlesizebasis"));
+		assertEquals("2008-02-21", value(rows.get(1), "last_rev_dt"));
+
+		assertEquals("00315", value(rows.get(2), "parm_cd"));
+		assertEquals("Biochemical oxygen demand, water, unfiltered, 7 days at 20 degrees Celsius, milligrams per liter", value(rows.get(2), "description"));
+		assertEquals("Biochemical oxygen demand, non-standard conditions", value(rows.get(2), "characteristicname"));
+		assertEquals("mg/l", value(rows.get(2), "measureunitcode"));
+		assertEquals("Total", value(rows.get(2), "resultsamplefraction"));
+		assertEquals("20 deg C", value(rows.get(2), "resulttemperaturebasis"));
+		assertEquals("", value(rows.get(2), "resultstatisticalbasis"));
+		assertEquals("7 Day", value(rows.get(2), "resulttimebasis"));
+		assertEquals("", value(rows.get(2), "resultweightbasis"));
+		assertEquals("", value(rows.get(2), "resultparticlesizebasis"));
+		assertEquals("2008-02-21", value(rows.get(2), "last_rev_dt"));
+
+		assertEquals("00746", value(rows.get(3), "parm_cd"));
+		assertEquals("Sulfide, water, filtered, milligrams per liter", value(rows.get(3), "description"));
+		assertEquals("Sulfide", value(rows.get(3), "characteristicname"));
+		assertEquals("mg/l", value(rows.get(3), "measureunitcode"));
+		assertEquals("Dissolved", value(rows.get(3), "resultsamplefraction"));
+		assertEquals("", value(rows.get(3), "resulttemperaturebasis"));
+		assertEquals("", value(rows.get(3), "resultstatisticalbasis"));
+		assertEquals("", value(rows.get(3), "resulttimebasis"));
+		assertEquals("", value(rows.get(3), "resultweightbasis"));
+		assertEquals("", value(rows.get(3), "resultparticlesizebasis"));
+		assertEquals("2008-02-21", value(rows.get(3), "last_rev_dt"));
+
+		assertEquals("01090", value(rows.get(4), "parm_cd"));
+		assertEquals("Zinc, water, filtered, micrograms per liter", value(rows.get(4), "description"));
+		assertEquals("Zinc", value(rows.get(4), "characteristicname"));
+		assertEquals("ug/l", value(rows.get(4), "measureunitcode"));
+		assertEquals("Dissolved", value(rows.get(4), "resultsamplefraction"));
+		assertEquals("", value(rows.get(4), "resulttemperaturebasis"));
+		assertEquals("", value(rows.get(4), "resultstatisticalbasis"));
+		assertEquals("", value(rows.get(4), "resulttimebasis"));
+		assertEquals("", value(rows.get(4), "resultweightbasis"));
+		assertEquals("", value(rows.get(4), "resultparticlesizebasis"));
+		assertEquals("2008-09-23", value(rows.get(4), "last_rev_dt"));
+
+		assertEquals("01218", value(rows.get(5), "parm_cd"));
+		assertEquals("Terbium, water, unfiltered, micrograms per liter", value(rows.get(5), "description"));
+		assertEquals("Terbium", value(rows.get(5), "characteristicname"));
+		assertEquals("ug/l", value(rows.get(5), "measureunitcode"));
+		assertEquals("Total", value(rows.get(5), "resultsamplefraction"));
+		assertEquals("", value(rows.get(5), "resulttemperaturebasis"));
+		assertEquals("", value(rows.get(5), "resultstatisticalbasis"));
+		assertEquals("", value(rows.get(5), "resulttimebasis"));
+		assertEquals("", value(rows.get(5), "resultweightbasis"));
+		assertEquals("", value(rows.get(5), "resultparticlesizebasis"));
+		assertEquals("2008-09-23", value(rows.get(5), "last_rev_dt"));
+
+		assertEquals("01425", value(rows.get(6), "parm_cd"));
+		assertEquals("Total nitrogen, soil, total digestion, milligrams per liter", value(rows.get(6), "description"));
+		assertEquals("Nitrogen, mixed forms (NH3), (NH4), organic, (NO2) and (NO3)", value(rows.get(6), "characteristicname")); 
+		assertEquals("mg/l", value(rows.get(6), "measureunitcode"));
+		assertEquals("Total", value(rows.get(6), "resultsamplefraction"));
+		assertEquals("", value(rows.get(6), "resulttemperaturebasis"));
+		assertEquals("", value(rows.get(6), "resultstatisticalbasis"));
+		assertEquals("", value(rows.get(6), "resulttimebasis"));
+		assertEquals("", value(rows.get(6), "resultweightbasis"));
+		assertEquals("", value(rows.get(6), "resultparticlesizebasis"));
+		assertEquals("2009-06-23", value(rows.get(6), "last_rev_dt"));
+
+		assertEquals("19504", value(rows.get(7), "parm_cd"));
+		assertEquals("Polonium-210 counting error, water, filtered, picocuries per liter", value(rows.get(7), "description"));
+		assertEquals("Polonium-210", value(rows.get(7), "characteristicname"));
+		assertEquals("pCi/L", value(rows.get(7), "measureunitcode"));
+		assertEquals("Dissolved", value(rows.get(7), "resultsamplefraction"));
+		assertEquals("", value(rows.get(7), "resulttemperaturebasis"));
+		assertEquals("Counting Error", value(rows.get(7), "resultstatisticalbasis"));
+		assertEquals("", value(rows.get(7), "resulttimebasis"));
+		assertEquals("", value(rows.get(7), "resultweightbasis"));
+		assertEquals("", value(rows.get(7), "resultparticlesizebasis"));
+		assertEquals("2008-09-23", value(rows.get(7), "last_rev_dt"));
+
+		assertEquals("30171", value(rows.get(8), "parm_cd"));
+		assertEquals("Naphthalene, soil, recoverable, dry weight, milligrams per kilogram", value(rows.get(8), "description"));
+		assertEquals("Naphthalene", value(rows.get(8), "characteristicname"));
+		assertEquals("mg/kg", value(rows.get(8), "measureunitcode"));
+		assertEquals("Recoverable", value(rows.get(8), "resultsamplefraction"));
+		assertEquals("", value(rows.get(8), "resulttemperaturebasis"));
+		assertEquals("", value(rows.get(8), "resultstatisticalbasis"));
+		assertEquals("", value(rows.get(8), "resulttimebasis"));
+		assertEquals("Dry", value(rows.get(8), "resultweightbasis"));
+		assertEquals("", value(rows.get(8), "resultparticlesizebasis"));
+		assertEquals("2008-09-23", value(rows.get(8), "last_rev_dt"));
+
+		assertEquals("82279", value(rows.get(9), "parm_cd"));
+		assertEquals("Lead, street debris smaller than 0.5 millimeters, dry weight, milligrams per kilogram", value(rows.get(9), "description"));
+		assertEquals("Lead", value(rows.get(9), "characteristicname"));
+		assertEquals("mg/kg", value(rows.get(9), "measureunitcode"));
+		assertEquals("", value(rows.get(9), "resultsamplefraction"));
+		assertEquals("", value(rows.get(9), "resulttemperaturebasis"));
+		assertEquals("", value(rows.get(9), "resultstatisticalbasis"));
+		assertEquals("", value(rows.get(9), "resulttimebasis"));
+		assertEquals("Dry", value(rows.get(9), "resultweightbasis"));
+		assertEquals("< 0.5 mm", value(rows.get(9), "resultparticlesizebasis"));
+		assertEquals("2010-09-24", value(rows.get(9), "last_rev_dt"));
 	}
 
+	/**
+	 * @return the value as the writers output it, with nulls as empty strings.
+	 */
+	private static String value(Map<String, Object> row, String column) {
+		return PCodeStreamWriter.toString(row.get(column));
+	}
 
 }
@@ -0,0 +1,130 @@
+package gov.usgs.wma.qw.srsnames;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipInputStream;
+
+import org.apache.ibatis.executor.result.DefaultResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+public class PCodeStreamerTest {
+
+	private PCodeDao pCodeDao;
+	private PCodeStreamer pCodeStreamer;
+
+	@BeforeEach
+	public void setup() {
+		pCodeDao = mock(PCodeDao.class);
+		pCodeStreamer = new PCodeStreamer(pCodeDao, mock(PlatformTransactionManager.class));
+		mockRows(pCodeDao, testRows());
+	}
+
+	/**
+	 * Two rows, the second with a null, as the database returns them.
+	 */
+	public static List<Map<String, Object>> testRows() {
+		List<Map<String, Object>> rows = new ArrayList<>();
+		Map<String, Object> row = new LinkedHashMap<>();
+		row.put("parm_cd", "00060");
+		row.put("description", "Discharge, cubic feet per second");
+		row.put("measureunitcode", "ft3/s");
+		row.put("last_rev_dt", "2013-07-01");
+		rows.add(row);
+		row = new LinkedHashMap<>();
+		row.put("parm_cd", "00065");
+		row.put("description", "Gage height, feet");
+		row.put("measureunitcode", null);
+		row.put("last_rev_dt", "2015-01-05");
+		rows.add(row);
+		return rows;
+	}
+
+	@SuppressWarnings("unchecked")
+	public static void mockRows(final PCodeDao pCodeDao, final List<Map<String, Object>> rows) {
+		when(pCodeDao.getLastModified()).thenReturn(LocalDate.of(2015, 1, 5));
+		doAnswer(invocation -> {
+			ResultHandler<Map<String, Object>> handler = invocation.getArgument(0);
+			DefaultResultContext<Map<String, Object>> context = new DefaultResultContext<>();
+			for (Map<String, Object> row : rows) {
+				context.nextResultObject(row);
+				handler.handleResult(context);
+			}
+			return null;
+		}).when(pCodeDao).getRows(any(ResultHandler.class));
+	}
+
+	@Test
+	public void jsonTest() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		assertEquals(2, pCodeStreamer.stream(pCodeStreamer.getMaxLastRevDate(), new JsonPCodeStreamWriter(out)));
+		assertEquals("{\"maxLastRevDate\":\"January 2015\",\"pcodes\":["
+				+ "{\"parm_cd\":\"00060\",\"description\":\"Discharge, cubic feet per second\",\"measureunitcode\":\"ft3/s\",\"last_rev_dt\":\"2013-07-01\"},"
+				+ "{\"parm_cd\":\"00065\",\"description\":\"Gage height, feet\",\"measureunitcode\":\"\",\"last_rev_dt\":\"2015-01-05\"}]}",
+				out.toString(StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void singlePassTest() throws IOException {
+		ByteArrayOutputStream zip = new ByteArrayOutputStream();
+		ByteArrayOutputStream csv = new ByteArrayOutputStream();
+		ByteArrayOutputStream json = new ByteArrayOutputStream();
+		pCodeStreamer.stream("January 2015", new ZipPCodeStreamWriter(zip), new CsvPCodeStreamWriter(csv), new JsonPCodeStreamWriter(json));
+		verify(pCodeDao, times(1)).getRows(any());
+
+		String expected = "\"parm_cd\",\"description\",\"measureunitcode\",\"last_rev_dt\"\n"
+				+ "\"00060\",\"Discharge, cubic feet per second\",\"ft3/s\",\"2013-07-01\"\n"
+				+ "\"00065\",\"Gage height, feet\",\"\",\"2015-01-05\"\n";
+		assertEquals(expected, csv.toString(StandardCharsets.UTF_8));
+		try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(zip.toByteArray()))) {
+			assertEquals("public_srsnames_January_2015.csv", zis.getNextEntry().getName());
+			assertEquals(expected, new String(zis.readAllBytes(), StandardCharsets.UTF_8));
+		}
+		assertEquals(2, json.toString(StandardCharsets.UTF_8).split("parm_cd").length - 1);
+	}
+
+	@Test
+	public void zipRepeatableTest() throws Exception {
+		ByteArrayOutputStream first = new ByteArrayOutputStream();
+		pCodeStreamer.stream("January 2015", new ZipPCodeStreamWriter(first));
+		ByteArrayOutputStream second = new ByteArrayOutputStream();
+		pCodeStreamer.stream("January 2015", new ZipPCodeStreamWriter(second));
+		assertArrayEquals(first.toByteArray(), second.toByteArray());
+		//The entry is dated by the revision, not the time it was written.
+		try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(first.toByteArray()))) {
+			assertEquals(LocalDateTime.of(2015, 1, 1, 0, 0), zis.getNextEntry().getTimeLocal());
+		}
+		assertEquals(ZipPCodeStreamWriter.DOS_EPOCH, ZipPCodeStreamWriter.getEntryTime(""));
+	}
+
+	@Test
+	public void noRowsTest() throws IOException {
+		mockRows(pCodeDao, new ArrayList<>());
+		when(pCodeDao.getLastModified()).thenReturn(null);
+		ByteArrayOutputStream csv = new ByteArrayOutputStream();
+		ByteArrayOutputStream json = new ByteArrayOutputStream();
+		assertEquals(0, pCodeStreamer.stream(pCodeStreamer.getMaxLastRevDate(), new CsvPCodeStreamWriter(csv), new JsonPCodeStreamWriter(json)));
+		assertEquals("", csv.toString(StandardCharsets.UTF_8));
+		assertEquals("{\"maxLastRevDate\":\"\",\"pcodes\":[]}", json.toString(StandardCharsets.UTF_8));
+	}
+
+}
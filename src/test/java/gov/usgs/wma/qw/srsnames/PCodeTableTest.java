@@ -0,0 +1,105 @@
+package gov.usgs.wma.qw.srsnames;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+public class PCodeTableTest {
+
+	/**
+	 * Twelve rows: unique codes and descriptions, four units (one null), two fractions and mostly null bases.
+	 */
+	public static List<Map<String, Object>> repetitiveRows() {
+		String[] units = {"mg/l", "ft3/s", null, "ug/l"};
+		List<Map<String, Object>> rows = new ArrayList<>();
+		for (int i = 0; i < 12; i++) {
+			Map<String, Object> row = new LinkedHashMap<>();
+			row.put("parm_cd", String.format("%05d", i));
+			row.put("description", "Parameter " + i);
+			row.put("measureunitcode", units[i % units.length]);
+			row.put("resultsamplefraction", 0 == i % 2 ? "Total" : "Dissolved");
+			row.put("resulttemperaturebasis", 5 == i ? "20 deg C" : null);
+			row.put("last_rev_dt", 7 == i ? null : "2013-07-0" + (1 + i % 3));
+			rows.add(row);
+		}
+		return rows;
+	}
+
+	public static PCodeTable build(List<Map<String, Object>> rows) {
+		PCodeTable.Builder builder = new PCodeTable.Builder();
+		rows.forEach(builder::add);
+		return builder.build();
+	}
+
+	@Test
+	public void encodingTest() {
+		PCodeTable table = build(repetitiveRows());
+		assertEquals(12, table.size());
+		assertArrayEquals(new String[] {"parm_cd", "description", "measureunitcode", "resultsamplefraction",
+				"resulttemperaturebasis", "last_rev_dt"}, table.getColumns());
+
+		//Unique values are kept as strings.
+		assertNull(table.getDictionary(0));
+		assertNull(table.getDictionary(1));
+		assertEquals("00003", table.get(3, 0));
+		assertEquals("Parameter 11", table.get(11, 1));
+
+		//Repeated values share a dictionary entry, null has none.
+		assertArrayEquals(new String[] {"mg/l", "ft3/s", "ug/l"}, table.getDictionary(2));
+		assertArrayEquals(new String[] {"Total", "Dissolved"}, table.getDictionary(3));
+		assertArrayEquals(new String[] {"20 deg C"}, table.getDictionary(4));
+		assertSame(table.get(0, 2), table.get(4, 2));
+		assertNull(table.get(2, 2));
+		assertEquals("ug/l", table.get(3, 2));
+		assertNull(table.get(4, 4));
+		assertEquals("20 deg C", table.get(5, 4));
+
+		//Dates are stored as epoch days.
+		assertNull(table.getDictionary(5));
+		assertEquals("2013-07-01", table.get(0, 5));
+		assertEquals("2013-07-03", table.get(2, 5));
+		assertNull(table.get(7, 5));
+	}
+
+	@Test
+	public void emptyTest() {
+		PCodeTable table = new PCodeTable.Builder().build();
+		assertEquals(0, table.size());
+		assertEquals(0, table.getColumns().length);
+	}
+
+	@Test
+	public void sameAsCursorTest() throws IOException {
+		for (List<Map<String, Object>> rows : List.of(repetitiveRows(), PCodeStreamerTest.testRows(), new ArrayList<Map<String, Object>>())) {
+			PCodeDao pCodeDao = mock(PCodeDao.class);
+			PCodeStreamerTest.mockRows(pCodeDao, rows);
+			PCodeStreamer pCodeStreamer = new PCodeStreamer(pCodeDao, mock(PlatformTransactionManager.class));
+			PCodeTable table = pCodeStreamer.load();
+			assertEquals(rows.size(), table.size());
+
+			ByteArrayOutputStream cursorCsv = new ByteArrayOutputStream();
+			ByteArrayOutputStream cursorJson = new ByteArrayOutputStream();
+			pCodeStreamer.stream("July 2013", new CsvPCodeStreamWriter(cursorCsv), new JsonPCodeStreamWriter(cursorJson));
+			ByteArrayOutputStream tableCsv = new ByteArrayOutputStream();
+			ByteArrayOutputStream tableJson = new ByteArrayOutputStream();
+			assertEquals(rows.size(), pCodeStreamer.stream(table, "July 2013", new CsvPCodeStreamWriter(tableCsv), new JsonPCodeStreamWriter(tableJson)));
+
+			assertEquals(cursorCsv.toString(StandardCharsets.UTF_8), tableCsv.toString(StandardCharsets.UTF_8));
+			assertEquals(cursorJson.toString(StandardCharsets.UTF_8), tableJson.toString(StandardCharsets.UTF_8));
+		}
+	}
+
+}
@@ -8,11 +8,6 @@ import static uk.co.datumedge.hamcrest.json.SameJSONAs.sameJSONObjectAs;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
-import java.io.OutputStream;
-import java.io.PrintWriter;
-import java.util.ArrayList;
-import java.util.LinkedHashMap;
-import java.util.List;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
@@ -22,7 +17,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
 import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
@@ -30,19 +27,12 @@ import com.github.springtestdbunit.annotation.DatabaseSetup;
 
 import gov.usgs.wma.qw.BaseIT;
 import gov.usgs.wma.qw.BaseRestController;
-import gov.usgs.wma.qw.LastUpdateDao;
-import gov.usgs.wma.qw.srsnames.PCodeDao;
 import gov.usgs.wma.qw.srsnames.SrsnamesController;
 
 @SpringBootTest(webEnvironment=WebEnvironment.RANDOM_PORT)
 @DatabaseSetup("classpath:/testData/srsnames.xml")
 public class SrsnamesControllerIT extends BaseIT {
 
-	@Autowired
-	private LastUpdateDao lastUpdateDao;
-	@Autowired
-	private PCodeDao pCodeDao;
-
 	@Test
 	public void getAsJsonTest(@Autowired TestRestTemplate restTemplate) throws Exception {
 		ResponseEntity<String> rtn = restTemplate.getForEntity("/public_srsnames?mimeType=json", String.class);
@@ -54,22 +44,31 @@ public class SrsnamesControllerIT extends BaseIT {
 	}
 
 	@Test
-	public void writeCsvDataTest() {
-		OutputStream stream = new ByteArrayOutputStream();
-		PrintWriter writer = new PrintWriter(stream);
-		SrsnamesController service = new SrsnamesController(lastUpdateDao, pCodeDao, null);
-		LinkedHashMap<String, Object> item1 = new LinkedHashMap<String, Object>();
-		item1.put("bb", "222");
-		item1.put("aa", "111");
-		LinkedHashMap<String, Object> item2 = new LinkedHashMap<String, Object>();
-		item2.put("xx", "bbb");
-		item2.put("zz", "ccc");
-		List<LinkedHashMap<String, Object>> data = new ArrayList<LinkedHashMap<String, Object>>();
-		data.add(item1);
-		data.add(item2);
-		service.writeCsvData(writer, data);
-		writer.close();
-		assertEquals("\"bb\",\"aa\"\n\"222\",\"111\"\n\"bbb\",\"ccc\"\n", stream.toString());
+	public void ifNoneMatchTest(@Autowired TestRestTemplate restTemplate) throws Exception {
+		ResponseEntity<String> rtn = restTemplate.getForEntity("/public_srsnames?mimeType=json", String.class);
+		String etag = rtn.getHeaders().getETag();
+		assertTrue(etag.startsWith("\""));
+
+		HttpHeaders headers = new HttpHeaders();
+		headers.setIfNoneMatch(etag);
+		rtn = restTemplate.exchange("/public_srsnames?mimeType=json", HttpMethod.GET, new HttpEntity<>(headers), String.class);
+		assertThat(rtn.getStatusCode(), equalTo(HttpStatus.NOT_MODIFIED));
+
+		//The csv is a different representation.
+		rtn = restTemplate.exchange("/public_srsnames?mimeType=csv", HttpMethod.GET, new HttpEntity<>(headers), String.class);
+		assertThat(rtn.getStatusCode(), equalTo(HttpStatus.OK));
+	}
+
+	@Test
+	public void writeCsvDataTest() throws Exception {
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		CsvPCodeStreamWriter writer = new CsvPCodeStreamWriter(stream);
+		String[] columns = {"BB", "aa"};
+		writer.start("");
+		writer.write(columns, new String[] {"222", "111"});
+		writer.write(columns, new String[] {"bbb", "ccc"});
+		writer.end();
+		assertEquals("\"bb\",\"aa\"\n\"222\",\"111\"\n\"bbb\",\"ccc\"\n", stream.toString(BaseRestController.DEFAULT_ENCODING));
 	}
 
 	@Test
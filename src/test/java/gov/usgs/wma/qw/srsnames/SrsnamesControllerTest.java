@@ -0,0 +1,165 @@
+package gov.usgs.wma.qw.srsnames;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.ZipInputStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.accept.ContentNegotiationStrategy;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import gov.usgs.wma.qw.BaseRestController;
+import gov.usgs.wma.qw.EtlEpoch;
+import gov.usgs.wma.qw.ResponseCache;
+
+public class SrsnamesControllerTest {
+
+	private static final String ETAG = "\"abc\"";
+
+	private SrsnamesController controller;
+	private Path file;
+	private byte[] content;
+	private SrsnamesStore.Artifact artifact;
+
+	@BeforeEach
+	public void setup() throws Exception {
+		controller = new SrsnamesController(mock(EtlEpoch.class), mock(PCodeStreamer.class), null, null);
+		content = new byte[1000];
+		for (int i = 0; i < content.length; i++) {
+			content[i] = (byte) i;
+		}
+		file = Files.createTempFile("srsnames", ".zip");
+		Files.write(file, content);
+		artifact = new SrsnamesStore.Artifact(file, SrsnamesStore.MEDIA_TYPE_APPLICATION_ZIP_VALUE, "public_srsnames_January_2015.zip");
+	}
+
+	@AfterEach
+	public void teardown() throws Exception {
+		Files.deleteIfExists(file);
+	}
+
+	@Test
+	public void serveTest() {
+		MockHttpServletResponse response = serve(new MockHttpServletRequest("GET", "/public_srsnames"));
+		assertEquals(HttpStatus.OK.value(), response.getStatus());
+		assertEquals("application/zip", response.getContentType());
+		assertEquals("attachment;filename=\"public_srsnames_January_2015.zip\"", response.getHeader(SrsnamesController.HEADER_CONTENT_DISPOSITION));
+		assertEquals("bytes", response.getHeader(HttpHeaders.ACCEPT_RANGES));
+		assertEquals(1000, response.getContentLengthLong());
+		assertArrayEquals(content, response.getContentAsByteArray());
+	}
+
+	@Test
+	public void rangeTest() {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/public_srsnames");
+		request.addHeader(HttpHeaders.RANGE, "bytes=100-199");
+		MockHttpServletResponse response = serve(request);
+		assertEquals(HttpStatus.PARTIAL_CONTENT.value(), response.getStatus());
+		assertEquals("bytes 100-199/1000", response.getHeader(HttpHeaders.CONTENT_RANGE));
+		assertEquals(100, response.getContentLengthLong());
+		assertArrayEquals(Arrays.copyOfRange(content, 100, 200), response.getContentAsByteArray());
+
+		//Open ended and suffix ranges.
+		request = new MockHttpServletRequest("GET", "/public_srsnames");
+		request.addHeader(HttpHeaders.RANGE, "bytes=990-");
+		request.addHeader(HttpHeaders.IF_RANGE, ETAG);
+		response = serve(request);
+		assertEquals("bytes 990-999/1000", response.getHeader(HttpHeaders.CONTENT_RANGE));
+		assertArrayEquals(Arrays.copyOfRange(content, 990, 1000), response.getContentAsByteArray());
+		request = new MockHttpServletRequest("GET", "/public_srsnames");
+		request.addHeader(HttpHeaders.RANGE, "bytes=-2000");
+		response = serve(request);
+		assertEquals("bytes 0-999/1000", response.getHeader(HttpHeaders.CONTENT_RANGE));
+	}
+
+	@Test
+	public void unsatisfiableRangeTest() {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/public_srsnames");
+		request.addHeader(HttpHeaders.RANGE, "bytes=1000-1100");
+		MockHttpServletResponse response = serve(request);
+		assertEquals(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value(), response.getStatus());
+		assertEquals("bytes */1000", response.getHeader(HttpHeaders.CONTENT_RANGE));
+		assertEquals(0, response.getContentAsByteArray().length);
+	}
+
+	@Test
+	public void ignoredRangeTest() {
+		//A stale If-Range, several ranges or a malformed header all get the whole file.
+		for (String[] headers : new String[][] {{"bytes=0-9", "\"old\""}, {"bytes=0-9,20-29", null}, {"lines=1-2", null}}) {
+			MockHttpServletRequest request = new MockHttpServletRequest("GET", "/public_srsnames");
+			request.addHeader(HttpHeaders.RANGE, headers[0]);
+			if (null != headers[1]) {
+				request.addHeader(HttpHeaders.IF_RANGE, headers[1]);
+			}
+			MockHttpServletResponse response = serve(request);
+			assertEquals(HttpStatus.OK.value(), response.getStatus(), headers[0]);
+			assertNull(response.getHeader(HttpHeaders.CONTENT_RANGE));
+			assertEquals(1000, response.getContentAsByteArray().length);
+		}
+	}
+
+	@Test
+	public void gzipTest() throws Exception {
+		artifact = new SrsnamesStore.Artifact(file, BaseRestController.MEDIA_TYPE_APPLICATION_JSON_UTF8_VALUE, null, ResponseCache.GZIP);
+		MockHttpServletResponse response = serve(new MockHttpServletRequest("GET", "/public_srsnames"));
+		assertEquals(ResponseCache.GZIP, response.getHeader(HttpHeaders.CONTENT_ENCODING));
+		assertNull(response.getHeader(SrsnamesController.HEADER_CONTENT_DISPOSITION));
+		assertEquals(1000, response.getContentLengthLong());
+	}
+
+	@Test
+	public void sendfileTest() {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/public_srsnames");
+		request.setAttribute(SrsnamesController.SENDFILE_SUPPORTED_ATTR, Boolean.TRUE);
+		request.addHeader(HttpHeaders.RANGE, "bytes=10-19");
+		MockHttpServletResponse response = serve(request);
+		assertEquals(file.toAbsolutePath().toString(), request.getAttribute(SrsnamesController.SENDFILE_FILENAME_ATTR));
+		assertEquals(10L, request.getAttribute(SrsnamesController.SENDFILE_FILE_START_ATTR));
+		assertEquals(20L, request.getAttribute(SrsnamesController.SENDFILE_FILE_END_ATTR));
+		assertEquals(10, response.getContentLengthLong());
+		assertEquals(0, response.getContentAsByteArray().length);
+	}
+
+	@Test
+	public void streamedTest() throws Exception {
+		//Without the prebuilt files, the rows are streamed from the database.
+		PCodeDao pCodeDao = mock(PCodeDao.class);
+		PCodeStreamerTest.mockRows(pCodeDao, PCodeStreamerTest.testRows());
+		ContentNegotiationStrategy contentStrategy = mock(ContentNegotiationStrategy.class);
+		when(contentStrategy.resolveMediaTypes(any())).thenReturn(List.of(BaseRestController.MEDIA_TYPE_TEXT_CSV_UTF8));
+		controller = new SrsnamesController(mock(EtlEpoch.class), new PCodeStreamer(pCodeDao, mock(PlatformTransactionManager.class)),
+				mock(SrsnamesStore.class), contentStrategy);
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/public_srsnames");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		controller.getPublicSrsnamesJson(request, response, new ServletWebRequest(request, response));
+		assertEquals("application/zip", response.getContentType());
+		assertEquals("attachment;filename=\"public_srsnames_January_2015.zip\"", response.getHeader(SrsnamesController.HEADER_CONTENT_DISPOSITION));
+		try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))) {
+			assertEquals("public_srsnames_January_2015.csv", zis.getNextEntry().getName());
+		}
+	}
+
+	private MockHttpServletResponse serve(MockHttpServletRequest request) {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		controller.serve(request, response, artifact, ETAG);
+		return response;
+	}
+
+}
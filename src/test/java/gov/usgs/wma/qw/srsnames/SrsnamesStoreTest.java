@@ -0,0 +1,132 @@
+package gov.usgs.wma.qw.srsnames;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import gov.usgs.wma.qw.EtlEpoch;
+import gov.usgs.wma.qw.EtlEpochChangedEvent;
+import gov.usgs.wma.qw.ResponseCache;
+
+public class SrsnamesStoreTest {
+
+	private EtlEpoch etlEpoch;
+	private PCodeDao pCodeDao;
+	private SrsnamesStore srsnamesStore;
+	private LocalDateTime first;
+	private LocalDateTime second;
+
+	@BeforeEach
+	public void setup() {
+		etlEpoch = mock(EtlEpoch.class);
+		pCodeDao = mock(PCodeDao.class);
+		srsnamesStore = new SrsnamesStore(etlEpoch, new PCodeStreamer(pCodeDao, mock(PlatformTransactionManager.class)), true);
+		first = LocalDateTime.of(2014, 1, 1, 1, 1, 1);
+		second = LocalDateTime.of(2014, 1, 2, 1, 1, 1);
+		PCodeStreamerTest.mockRows(pCodeDao, PCodeStreamerTest.testRows());
+	}
+
+	@AfterEach
+	public void teardown() {
+		srsnamesStore.destroy();
+	}
+
+	@Test
+	public void rebuildTest() throws Exception {
+		srsnamesStore.rebuild(first);
+
+		//Nothing is served until the ETL epoch matches.
+		assertNull(srsnamesStore.getTable());
+		assertNull(srsnamesStore.getZip());
+		assertNull(srsnamesStore.getJson());
+
+		when(etlEpoch.getLastEtl()).thenReturn(first);
+		assertEquals(2, srsnamesStore.getTable().size());
+		SrsnamesStore.Artifact zip = srsnamesStore.getZip();
+		assertEquals("application/zip", zip.getContentType());
+		assertEquals("public_srsnames_January_2015.zip", zip.getFileName());
+		assertEquals(Files.size(zip.getFile()), zip.getLength());
+		try (ZipInputStream zis = new ZipInputStream(Files.newInputStream(zip.getFile()))) {
+			ZipEntry entry = zis.getNextEntry();
+			assertEquals("public_srsnames_January_2015.csv", entry.getName());
+			assertEquals("\"parm_cd\",\"description\",\"measureunitcode\",\"last_rev_dt\"\n"
+					+ "\"00060\",\"Discharge, cubic feet per second\",\"ft3/s\",\"2013-07-01\"\n"
+					+ "\"00065\",\"Gage height, feet\",\"\",\"2015-01-05\"\n", read(zis));
+		}
+
+		SrsnamesStore.Artifact json = srsnamesStore.getJson();
+		assertNull(json.getFileName());
+		String body = new String(Files.readAllBytes(json.getFile()), StandardCharsets.UTF_8);
+		assertTrue(body.contains("\"maxLastRevDate\":\"January 2015\""));
+		assertTrue(body.contains("{\"parm_cd\":\"00065\",\"description\":\"Gage height, feet\",\"measureunitcode\":\"\",\"last_rev_dt\":\"2015-01-05\"}"));
+		SrsnamesStore.Artifact gzipJson = srsnamesStore.getJson(true);
+		assertEquals(ResponseCache.GZIP, gzipJson.getContentEncoding());
+		assertNull(json.getContentEncoding());
+		try (InputStream is = new GZIPInputStream(Files.newInputStream(gzipJson.getFile()))) {
+			assertEquals(body, read(is));
+		}
+
+		//The previous files are kept for one more rebuild, in case they are still being downloaded.
+		when(etlEpoch.getLastEtl()).thenReturn(second);
+		assertNull(srsnamesStore.getZip());
+		srsnamesStore.rebuild(second);
+		Path newZip = srsnamesStore.getZip().getFile();
+		assertTrue(Files.exists(zip.getFile()));
+		srsnamesStore.rebuild(second);
+		assertFalse(Files.exists(zip.getFile()));
+		assertFalse(Files.exists(json.getFile()));
+		assertFalse(Files.exists(gzipJson.getFile()));
+		assertTrue(Files.exists(newZip));
+
+		//An older ETL is not swapped in.
+		srsnamesStore.rebuild(first);
+		when(etlEpoch.getLastEtl()).thenReturn(first);
+		assertNull(srsnamesStore.getZip());
+	}
+
+	@Test
+	public void rebuildFailureTest() {
+		when(etlEpoch.getLastEtl()).thenReturn(first);
+		srsnamesStore.rebuild(first);
+		Path zip = srsnamesStore.getZip().getFile();
+
+		when(etlEpoch.getLastEtl()).thenReturn(second);
+		when(pCodeDao.getLastModified()).thenThrow(new RuntimeException("no database"));
+		srsnamesStore.rebuild(second);
+		assertNull(srsnamesStore.getZip());
+		assertTrue(Files.exists(zip));
+	}
+
+	@Test
+	public void disabledTest() {
+		srsnamesStore = new SrsnamesStore(etlEpoch, new PCodeStreamer(pCodeDao, mock(PlatformTransactionManager.class)), false);
+		when(etlEpoch.getLastEtl()).thenReturn(first);
+		srsnamesStore.onEtlEpochChanged(new EtlEpochChangedEvent(this, null, first));
+		assertNull(srsnamesStore.getZip());
+	}
+
+	private static String read(InputStream is) throws Exception {
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		is.transferTo(os);
+		return os.toString(StandardCharsets.UTF_8);
+	}
+
+}
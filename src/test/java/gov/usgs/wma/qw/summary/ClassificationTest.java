@@ -0,0 +1,70 @@
+package gov.usgs.wma.qw.summary;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import gov.usgs.wma.qw.summary.SummaryController.RowCounts;
+
+public class ClassificationTest {
+
+	@Test
+	public void quantileTest() {
+		assertBins(new int[][] {{1, 1, 2, 2}, {2, 3, 3, 1}}, Classification.Quantile.classify(new int[] {1, 2, 3}, 2));
+	}
+
+	@Test
+	public void equalIntervalTest() {
+		assertBins(new int[][] {{1, 1, 5, 5}, {2, 6, 10, 5}},
+				Classification.EqualInterval.classify(new int[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10}, 2));
+		//The empty middle class is left out and the next bin, numbered as its class, starts where the last ended.
+		assertBins(new int[][] {{1, 1, 3, 2}, {3, 4, 10, 1}}, Classification.EqualInterval.classify(new int[] {1, 2, 10}, 3));
+	}
+
+	@Test
+	public void jenksTest() {
+		assertBins(new int[][] {{1, 1, 3, 3}, {2, 4, 12, 3}, {3, 13, 51, 2}},
+				Classification.Jenks.classify(new int[] {1, 2, 3, 10, 11, 12, 50, 51}, 3));
+		assertBins(new int[][] {{1, 9, 56, 2}, {2, 57, 520, 2}, {3, 521, 728, 1}},
+				Classification.Jenks.classify(new int[] {9, 56, 495, 520, 728}, 3));
+		//Equal counts are never split.
+		assertBins(new int[][] {{1, 5, 5, 4}}, Classification.Jenks.classify(new int[] {5, 5, 5, 5}, 3));
+		assertBins(new int[][] {{1, 1, 1, 1}, {2, 2, 7, 3}}, Classification.Jenks.classify(new int[] {1, 7, 7, 7}, 2));
+	}
+
+	@Test
+	public void logTest() {
+		//sqrt(1000) is 31.6
+		assertBins(new int[][] {{1, 1, 31, 3}, {2, 32, 1000, 2}}, Classification.Log.classify(new int[] {1, 2, 30, 400, 1000}, 2));
+		//A single count falls in the last class, as the others end below it.
+		assertBins(new int[][] {{4, 7, 7, 2}}, Classification.Log.classify(new int[] {7, 7}, 4));
+	}
+
+	@Test
+	public void emptyTest() {
+		for (Classification classification : Classification.values()) {
+			assertEquals(0, classification.classify(new int[0], 5).size(), classification.toString());
+		}
+	}
+
+	@Test
+	public void fromAbbreviationTest() {
+		assertEquals(Classification.Jenks, Classification.fromAbbreviation("j"));
+		assertEquals(Classification.EqualInterval, Classification.fromAbbreviation("E"));
+		assertNull(Classification.fromAbbreviation("Z"));
+		assertNull(Classification.fromAbbreviation(null));
+	}
+
+	private static void assertBins(int[][] expected, List<RowCounts> bins) {
+		assertEquals(expected.length, bins.size());
+		for (int i = 0; i < expected.length; i++) {
+			RowCounts bin = bins.get(i);
+			assertArrayEquals(expected[i], new int[] {bin.getBinNumber(), bin.getBinMin(), bin.getBinMax(), bin.getBinCount()}, "bin " + i);
+		}
+	}
+
+}
@@ -0,0 +1,46 @@
+package gov.usgs.wma.qw.summary;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import gov.usgs.wma.qw.summary.SldTemplateEngine.MapDataSource;
+import gov.usgs.wma.qw.summary.SldTemplateEngine.MapGeometry;
+
+public class SldRendererTest {
+
+	@Test
+	public void sameAsVelocityTest() {
+		String[][] bins = {
+				{"9", "9", "10", "56", "57", "495", "496", "520", "521", "728"},
+				{"1", "2", "3", "4", "5", "6", "7", "8", "9", "1234567890", "extra", "ignored"}
+		};
+		for (MapDataSource source : MapDataSource.values()) {
+			for (MapGeometry geom : MapGeometry.values()) {
+				for (String[] binValues : bins) {
+					assertEquals(SldTemplateEngine.generateDynamicStyle(source, geom, binValues, "binSLDTemplate.vm"),
+							new String(SldRenderer.render(source, geom, binValues), StandardCharsets.ISO_8859_1),
+							source + " " + geom);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void colorsTest() {
+		String sld = new String(SldRenderer.render(new String[] {"#000001", "#000002", "#000003"}, MapGeometry.States,
+				new String[] {"1", "2", "3", "4", "5", "6"}), StandardCharsets.ISO_8859_1);
+		//The zero rule and one for each color.
+		assertEquals(4, sld.split("<Rule>", -1).length - 1);
+		assertTrue(sld.contains("<Title>5 - 6</Title>"));
+		assertTrue(sld.contains("<CssParameter name=\"fill\">#000003</CssParameter>"));
+		assertTrue(sld.contains("into three categories of discrete sample density"));
+		assertEquals(new String(SldRenderer.render(MapDataSource.USGS, MapGeometry.Huc8, new String[] {"1", "2", "3", "4", "5", "6", "7", "8", "9", "10"}),
+				StandardCharsets.ISO_8859_1), new String(SldRenderer.render(SldTemplateEngine.getColors(MapDataSource.USGS), MapGeometry.Huc8,
+				new String[] {"1", "2", "3", "4", "5", "6", "7", "8", "9", "10"}), StandardCharsets.ISO_8859_1));
+	}
+
+}
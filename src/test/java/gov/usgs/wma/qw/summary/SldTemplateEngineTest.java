@@ -1,5 +1,25 @@
 package gov.usgs.wma.qw.summary;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import gov.usgs.wma.qw.summary.SldTemplateEngine.MapDataSource;
+
 public class SldTemplateEngineTest {
 
+	@Test
+	public void colorRampTest() {
+		assertArrayEquals(SldTemplateEngine.getColors(MapDataSource.EPA), SldTemplateEngine.getColors(MapDataSource.EPA, 5));
+		assertArrayEquals(new String[] {"#F3C391", "#F07F45", "#D23F11"}, SldTemplateEngine.getColors(MapDataSource.All, 3));
+
+		String[] nine = SldTemplateEngine.getColors(MapDataSource.All, 9);
+		assertEquals(9, nine.length);
+		assertEquals("#F3C391", nine[0]);
+		assertEquals("#F5B279", nine[1]);
+		assertEquals("#F6A061", nine[2]);
+		assertEquals("#D23F11", nine[8]);
+	}
+
 }
@@ -8,10 +8,12 @@ import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.xmlunit.matchers.CompareMatcher.isSimilarTo;
 
-import java.util.HashMap;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 
 import org.junit.jupiter.api.Test;
+import org.skyscreamer.jsonassert.JSONAssert;
+import org.skyscreamer.jsonassert.JSONCompareMode;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
@@ -24,7 +26,7 @@ import com.github.springtestdbunit.annotation.DatabaseSetup;
 
 import gov.usgs.wma.qw.BaseIT;
 import gov.usgs.wma.qw.BaseRestController;
-import gov.usgs.wma.qw.LastUpdateDao;
+import gov.usgs.wma.qw.EtlEpoch;
 import gov.usgs.wma.qw.summary.SummaryController;
 import gov.usgs.wma.qw.summary.SummaryDao;
 import gov.usgs.wma.qw.summary.SldTemplateEngine.MapDataSource;
@@ -35,13 +37,13 @@ import gov.usgs.wma.qw.summary.SldTemplateEngine.MapGeometry;
 public class SummaryControllerIT extends BaseIT {
 
 	@Autowired
-	private LastUpdateDao lastUpdateDao;
+	private EtlEpoch etlEpoch;
 	@Autowired
 	private SummaryDao summaryDao;
 
 	@Test
 	public void getDataSourcesTest() {
-		SummaryController controller = new SummaryController(lastUpdateDao, summaryDao);
+		SummaryController controller = new SummaryController(etlEpoch, summaryDao, null, null);
 		assertEquals(0, controller.getDataSources(null).length);
 		assertArrayEquals(new Object[]{"N"}, controller.getDataSources(MapDataSource.USGS));
 		assertArrayEquals(new Object[]{"E"}, controller.getDataSources(MapDataSource.EPA));
@@ -50,7 +52,7 @@ public class SummaryControllerIT extends BaseIT {
 
 	@Test
 	public void getGeometryTest() {
-		SummaryController controller = new SummaryController(lastUpdateDao, summaryDao);
+		SummaryController controller = new SummaryController(etlEpoch, summaryDao, null, null);
 		assertNull(controller.getGeometry(null));
 		assertEquals("States", controller.getGeometry(MapGeometry.States));
 		assertEquals("Counties", controller.getGeometry(MapGeometry.Counties));
@@ -59,7 +61,7 @@ public class SummaryControllerIT extends BaseIT {
 
 	@Test
 	public void getTimeFrameTest() {
-		SummaryController controller = new SummaryController(lastUpdateDao, summaryDao);
+		SummaryController controller = new SummaryController(etlEpoch, summaryDao, null, null);
 		assertEquals("ALL_TIME", controller.getTimeFrame(null));
 		assertEquals("ALL_TIME", controller.getTimeFrame(""));
 		assertEquals("ALL_TIME", controller.getTimeFrame("QQ"));
@@ -70,7 +72,7 @@ public class SummaryControllerIT extends BaseIT {
 
 	@Test
 	public void deriveDbParamsTest() {
-		SummaryController controller = new SummaryController(lastUpdateDao, summaryDao);
+		SummaryController controller = new SummaryController(etlEpoch, summaryDao, null, null);
 		assertEquals(0, controller.deriveDbParams(null, null, null).size());
 		assertEquals(0, controller.deriveDbParams(MapDataSource.All, null, null).size());
 		assertEquals(3, controller.deriveDbParams(MapDataSource.All, MapGeometry.Huc8, null).size());
@@ -108,22 +110,17 @@ public class SummaryControllerIT extends BaseIT {
 	}
 
 	@Test
-	public void retrieveBinValuesTest() {
-		Map<String, Object> parms = new HashMap<>();
-		SummaryController controller = new SummaryController(null, null);
-		assertArrayEquals(new String[0], controller.retrieveBinValues(null));
+	public void retrieveBinsTest() {
+		SummaryController controller = new SummaryController(null, null, null, null);
+		assertArrayEquals(new String[0], SummaryController.toBinValues(
+				controller.retrieveBins(null, MapDataSource.All, MapGeometry.States, "5", Classification.Quantile, 5)));
 
-		assertArrayEquals(new String[0], controller.retrieveBinValues(parms));
+		controller = new SummaryController(etlEpoch, summaryDao, null, null);
+		assertArrayEquals(new String[0], SummaryController.toBinValues(
+				controller.retrieveBins(null, MapDataSource.All, null, "5", Classification.Quantile, 5)));
 
-		parms.put("geometry", "States");
-		parms.put("timeFrame", "PAST_60_MONTHS");
-		assertArrayEquals(new String[0], controller.retrieveBinValues(parms));
-
-		controller = new SummaryController(lastUpdateDao, summaryDao);
-		assertArrayEquals(new String[0], controller.retrieveBinValues(parms));
-
-		parms.put("sources", new Object[]{"E","N"});
-		String[] bins = controller.retrieveBinValues(parms);
+		String[] bins = SummaryController.toBinValues(
+				controller.retrieveBins(null, MapDataSource.All, MapGeometry.States, "5", Classification.Quantile, 5));
 		assertEquals(10, bins.length);
 		assertArrayEquals(new String[]{"9", "9", "10", "56", "57", "495", "496", "520", "521", "728"}, bins);
 	}
@@ -136,4 +133,27 @@ public class SummaryControllerIT extends BaseIT {
 		assertThat(rtn.getBody(), isSimilarTo(getCompareFile("summary.sld")).ignoreWhitespace().throwComparisonFailure());
 	}
 
+	@Test
+	public void getSummaryBinsTest(@Autowired TestRestTemplate restTemplate) throws Exception {
+		ResponseEntity<String> rtn = restTemplate.getForEntity("/summary/bins?dataSource=A&geometry=S&timeFrame=5", String.class);
+		assertThat(rtn.getStatusCode(), equalTo(HttpStatus.OK));
+		assertThat(rtn.getHeaders().get(HttpHeaders.CONTENT_TYPE).get(0), equalTo(BaseRestController.MEDIA_TYPE_APPLICATION_JSON_UTF8_VALUE));
+		assertEquals(BaseRestController.buildEtag(rtn.getBody().getBytes(StandardCharsets.UTF_8)), rtn.getHeaders().getETag());
+		JSONAssert.assertEquals(getCompareFile("summaryBins.json"), rtn.getBody(), JSONCompareMode.STRICT);
+	}
+
+	@Test
+	public void getSummaryCountsTest(@Autowired TestRestTemplate restTemplate) throws Exception {
+		ResponseEntity<String> rtn = restTemplate.getForEntity("/summary/counts?dataSource=A&geometry=S&timeFrame=5&mimeType=csv", String.class);
+		assertThat(rtn.getStatusCode(), equalTo(HttpStatus.OK));
+		assertThat(rtn.getHeaders().get(HttpHeaders.CONTENT_TYPE).get(0), equalTo(BaseRestController.MEDIA_TYPE_TEXT_CSV_UTF8_VALUE));
+		assertEquals(getCompareFile("summaryCounts.csv"), rtn.getBody());
+		assertEquals(BaseRestController.buildEtag(rtn.getBody().getBytes(StandardCharsets.UTF_8)), rtn.getHeaders().getETag());
+
+		rtn = restTemplate.getForEntity("/summary/counts?dataSource=A&geometry=H&timeFrame=5&mimeType=json", String.class);
+		assertThat(rtn.getStatusCode(), equalTo(HttpStatus.OK));
+		assertThat(rtn.getHeaders().get(HttpHeaders.CONTENT_TYPE).get(0), equalTo(BaseRestController.MEDIA_TYPE_APPLICATION_JSON_UTF8_VALUE));
+		assertEquals(getCompareFile("summaryCounts.json"), rtn.getBody());
+	}
+
 }
@@ -0,0 +1,207 @@
+package gov.usgs.wma.qw.summary;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.server.ResponseStatusException;
+
+import gov.usgs.wma.qw.BaseRestController;
+import gov.usgs.wma.qw.EtlEpoch;
+import gov.usgs.wma.qw.ResponseCacheTest;
+import gov.usgs.wma.qw.summary.SldTemplateEngine.MapDataSource;
+import gov.usgs.wma.qw.summary.SldTemplateEngine.MapGeometry;
+import gov.usgs.wma.qw.summary.SldTemplateEngine.MapTimeFrame;
+import gov.usgs.wma.qw.summary.SummaryController.RowCounts;
+
+public class SummaryControllerTest {
+
+	private SummaryDao summaryDao;
+	private SummaryController controller;
+
+	@BeforeEach
+	public void setup() {
+		summaryDao = mock(SummaryDao.class);
+		controller = new SummaryController(mock(EtlEpoch.class), summaryDao, null, null);
+	}
+
+	@Test
+	public void buildBinsTest() throws Exception {
+		SummaryBins bins = controller.buildBins(SummaryCubeTest.testDataCube(), MapDataSource.All, MapGeometry.States,
+				MapTimeFrame.Past60Months, Classification.Quantile, 5);
+		verifyNoInteractions(summaryDao);
+		assertEquals("A", bins.getDataSource());
+		assertEquals("S", bins.getGeometry());
+		assertEquals("5", bins.getTimeFrame());
+		assertBins(new Object[][] {{9, 9, 1, "#F3C391"}, {10, 56, 1, "#F6A061"}, {57, 495, 1, "#F07F45"},
+				{496, 520, 1, "#E36122"}, {521, 728, 1, "#D23F11"}}, bins.getBins());
+	}
+
+	@Test
+	public void buildBinsFromDatabaseTest() {
+		when(summaryDao.retrieveCounts(anyMap())).thenReturn(List.of(new RowCounts(1, 2, 8, 4), new RowCounts(2, 10, 37, 4)));
+		SummaryBins bins = controller.buildBins(null, MapDataSource.EPA, MapGeometry.Counties, MapTimeFrame.Past12Months,
+				Classification.Quantile, 5);
+		assertBins(new Object[][] {{2, 8, 4, "#A3D9F0"}, {9, 37, 4, "#61B5DE"}}, bins.getBins());
+	}
+
+	@Test
+	public void classifiedSldTest() throws Exception {
+		String sld = controller.buildSld(SummaryCubeTest.testDataCube(), MapDataSource.All, MapGeometry.States, "5",
+				Classification.Jenks, 3);
+		verifyNoInteractions(summaryDao);
+		assertEquals(4, sld.split("<Rule>", -1).length - 1);
+		assertTrue(sld.contains("<Title>521 - 728</Title>"));
+		assertTrue(sld.contains("<CssParameter name=\"fill\">#D23F11</CssParameter>"));
+		//Fewer counts than classes, so only the first five of the six classes have a rule.
+		String[] colors = SldTemplateEngine.getColors(MapDataSource.All, 6);
+		sld = controller.buildSld(SummaryCubeTest.testDataCube(), MapDataSource.All, MapGeometry.States, "5",
+				Classification.Quantile, 6);
+		assertEquals(6, sld.split("<Rule>", -1).length - 1);
+		assertTrue(sld.contains("<CssParameter name=\"fill\">" + colors[4] + "</CssParameter>"));
+		assertFalse(sld.contains("<CssParameter name=\"fill\">" + colors[5] + "</CssParameter>"));
+
+		//Without a cube, the feature counts are classified.
+		when(summaryDao.retrieveFeatureCounts(anyMap())).thenReturn(List.of(
+				Map.of("feature_id", "17", FeatureCounts.COUNT_COLUMN, 495L),
+				Map.of("feature_id", "23", FeatureCounts.COUNT_COLUMN, 9L),
+				Map.of("feature_id", "36", FeatureCounts.COUNT_COLUMN, 56L)));
+		SummaryBins bins = controller.buildBins(null, MapDataSource.EPA, MapGeometry.States, MapTimeFrame.All, Classification.EqualInterval, 2);
+		assertEquals("E", bins.getClassification());
+		assertBins(new Object[][] {{9, 251, 2, "#A3D9F0"}, {252, 495, 1, "#124989"}}, bins.getBins());
+		verify(summaryDao, never()).retrieveCounts(anyMap());
+	}
+
+	@Test
+	public void emptyClassColorTest() {
+		when(summaryDao.retrieveFeatureCounts(anyMap())).thenReturn(List.of(
+				Map.of("feature_id", "17", FeatureCounts.COUNT_COLUMN, 495L),
+				Map.of("feature_id", "23", FeatureCounts.COUNT_COLUMN, 9L),
+				Map.of("feature_id", "36", FeatureCounts.COUNT_COLUMN, 56L)));
+		//The middle of the three classes is empty, so the top bin takes the top color rather than the middle one.
+		String[] colors = SldTemplateEngine.getColors(MapDataSource.EPA, 3);
+		SummaryBins bins = controller.buildBins(null, MapDataSource.EPA, MapGeometry.States, MapTimeFrame.All, Classification.EqualInterval, 3);
+		assertBins(new Object[][] {{9, 170, 2, colors[0]}, {171, 495, 1, colors[2]}}, bins.getBins());
+
+		String sld = controller.buildSld(null, MapDataSource.EPA, MapGeometry.States, "A", Classification.EqualInterval, 3);
+		assertEquals(3, sld.split("<Rule>", -1).length - 1);
+		assertTrue(sld.contains("<Title>171 - 495</Title>"));
+		assertTrue(sld.contains("<CssParameter name=\"fill\">" + colors[2] + "</CssParameter>"));
+		assertFalse(sld.contains("<CssParameter name=\"fill\">" + colors[1] + "</CssParameter>"));
+
+		//Only no counts at all leave nothing to style.
+		when(summaryDao.retrieveFeatureCounts(anyMap())).thenReturn(List.of());
+		assertNull(controller.buildSld(null, MapDataSource.EPA, MapGeometry.States, "A", Classification.EqualInterval, 3));
+	}
+
+	@Test
+	public void cachedSldTest() throws Exception {
+		EtlEpoch etlEpoch = mock(EtlEpoch.class);
+		when(etlEpoch.getLastEtlMillis()).thenReturn(1234L);
+		SummaryController cachedController = new SummaryController(etlEpoch, summaryDao, null, ResponseCacheTest.responseCache(1000000));
+		when(summaryDao.retrieveFeatureCounts(anyMap())).thenReturn(List.of(
+				Map.of("feature_id", "17", FeatureCounts.COUNT_COLUMN, 495L),
+				Map.of("feature_id", "23", FeatureCounts.COUNT_COLUMN, 9L),
+				Map.of("feature_id", "36", FeatureCounts.COUNT_COLUMN, 56L)));
+
+		ServletWebRequest webRequest = ResponseCacheTest.webRequest("xml");
+		assertNull(cachedController.getSummarySld("E", "S", "A", "J", 3, null, webRequest.getResponse(), webRequest));
+		String sld = ((MockHttpServletResponse) webRequest.getResponse()).getContentAsString();
+		assertTrue(sld.contains("into three categories of discrete sample density"));
+
+		//Classified once per ETL epoch.
+		webRequest = ResponseCacheTest.webRequest("xml");
+		assertNull(cachedController.getSummarySld("E", "S", "A", "J", 3, null, webRequest.getResponse(), webRequest));
+		assertEquals(sld, ((MockHttpServletResponse) webRequest.getResponse()).getContentAsString());
+		verify(summaryDao, times(1)).retrieveFeatureCounts(anyMap());
+
+		//But by the classes asked for.
+		webRequest = ResponseCacheTest.webRequest("xml");
+		assertNull(cachedController.getSummarySld("E", "S", "A", "J", 2, null, webRequest.getResponse(), webRequest));
+		assertTrue(((MockHttpServletResponse) webRequest.getResponse()).getContentAsString().contains("into two categories"));
+		verify(summaryDao, times(2)).retrieveFeatureCounts(anyMap());
+
+		//Nothing to style is no content, and not cached.
+		when(summaryDao.retrieveFeatureCounts(anyMap())).thenReturn(List.of());
+		webRequest = ResponseCacheTest.webRequest("xml");
+		assertNull(cachedController.getSummarySld("E", "S", "1", "J", 3, null, webRequest.getResponse(), webRequest));
+		assertEquals(204, ((MockHttpServletResponse) webRequest.getResponse()).getStatus());
+	}
+
+	@Test
+	public void classificationParametersTest() {
+		assertEquals(Classification.Quantile, controller.getClassification(null));
+		assertEquals(Classification.Log, controller.getClassification("L"));
+		assertThrows(ResponseStatusException.class, () -> controller.getClassification("Z"));
+		assertEquals(5, controller.getClasses(null));
+		assertEquals(9, controller.getClasses(9));
+		assertThrows(ResponseStatusException.class, () -> controller.getClasses(1));
+		assertThrows(ResponseStatusException.class, () -> controller.getClasses(10));
+	}
+
+	@Test
+	public void buildCountsTest() throws Exception {
+		FeatureCounts counts = controller.buildCounts(SummaryCubeTest.testDataCube(), MapDataSource.All, MapGeometry.States,
+				MapTimeFrame.Past60Months);
+		verifyNoInteractions(summaryDao);
+		assertEquals("\"fips_state_code\",\"discrete_sample_count\"\n\"17\",495\n\"23\",9\n\"36\",56\n\"54\",728\n\"55\",520\n",
+				new String(counts.encode(BaseRestController.MEDIA_TYPE_TEXT_CSV_UTF8), StandardCharsets.UTF_8));
+		assertEquals("{\"17\":495,\"23\":9,\"36\":56,\"54\":728,\"55\":520}",
+				new String(counts.encode(MediaType.APPLICATION_JSON), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void buildCountsFromDatabaseTest() {
+		Map<String, Object> noId = new HashMap<>();
+		noId.put("feature_id", null);
+		noId.put(FeatureCounts.COUNT_COLUMN, 3L);
+		when(summaryDao.retrieveFeatureCounts(anyMap())).thenReturn(List.of(
+				Map.of("feature_id", "01010001", FeatureCounts.COUNT_COLUMN, 9L),
+				Map.of("feature_id", "02020002", FeatureCounts.COUNT_COLUMN, 0L),
+				noId));
+		FeatureCounts counts = controller.buildCounts(null, MapDataSource.USGS, MapGeometry.Huc8, MapTimeFrame.All);
+		assertEquals(1, counts.size());
+		assertEquals("\"huc8\",\"discrete_sample_count\"\n\"01010001\",9\n",
+				new String(counts.encode(BaseRestController.MEDIA_TYPE_TEXT_CSV_UTF8), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void unknownFeatureTest() {
+		ServletWebRequest webRequest = new ServletWebRequest(new MockHttpServletRequest("GET", "/summary/bins"));
+		assertThrows(ResponseStatusException.class, () -> controller.getSummaryBins("Q", "S", "A", null, null, webRequest));
+		assertThrows(ResponseStatusException.class, () -> controller.getSummaryBins("A", null, "A", null, null, webRequest));
+		assertThrows(ResponseStatusException.class, () -> controller.getSummaryCounts("A", "Q", "A", webRequest));
+	}
+
+	private static void assertBins(Object[][] expected, List<SummaryBins.Bin> bins) {
+		assertEquals(expected.length, bins.size());
+		for (int i = 0; i < expected.length; i++) {
+			SummaryBins.Bin bin = bins.get(i);
+			assertEquals(expected[i][0], bin.getMin(), "bin " + i);
+			assertEquals(expected[i][1], bin.getMax(), "bin " + i);
+			assertEquals(expected[i][2], bin.getCount(), "bin " + i);
+			assertEquals(expected[i][3], bin.getColor(), "bin " + i);
+		}
+	}
+
+}
@@ -0,0 +1,122 @@
+package gov.usgs.wma.qw.summary;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.InputStream;
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import gov.usgs.wma.qw.summary.SldTemplateEngine.MapDataSource;
+import gov.usgs.wma.qw.summary.SldTemplateEngine.MapGeometry;
+import gov.usgs.wma.qw.summary.SldTemplateEngine.MapTimeFrame;
+import gov.usgs.wma.qw.summary.SummaryController.RowCounts;
+
+public class SummaryCubeTest {
+
+	/**
+	 * @return the cube of the rows the integration tests load (so the bins can be compared with theirs).
+	 */
+	public static SummaryCube testDataCube() throws Exception {
+		SummaryCube.Builder builder = new SummaryCube.Builder();
+		try (InputStream is = SummaryCubeTest.class.getResourceAsStream("/testData/summary.xml")) {
+			NodeList nodes = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(is)
+					.getElementsByTagName("qwportal_summary");
+			for (int i = 0; i < nodes.getLength(); i++) {
+				Element node = (Element) nodes.item(i);
+				SummaryRow row = new SummaryRow();
+				row.setNwisOrEpa(node.getAttribute("nwis_or_epa"));
+				row.setFipsStateCode(node.getAttribute("fips_state_code"));
+				row.setFipsStateAndCounty(node.getAttribute("fips_state_and_county"));
+				row.setHuc8(node.getAttribute("huc8"));
+				row.setSamplesPast12Months(Integer.valueOf(node.getAttribute("samples_past_12_months")));
+				row.setSamplesPast60Months(Integer.valueOf(node.getAttribute("samples_past_60_months")));
+				row.setSamplesAllTime(Integer.valueOf(node.getAttribute("samples_all_time")));
+				builder.add(row);
+			}
+		}
+		return builder.build();
+	}
+
+	@Test
+	public void binsTest() throws Exception {
+		SummaryCube cube = testDataCube();
+		//The same bins SummaryDaoIT expects from the database.
+		assertBins(new int[][] {{1, 80, 80, 1}, {2, 270, 270, 1}, {3, 2720, 2720, 1}, {4, 4430, 4430, 1}, {5, 4520, 4520, 1}},
+				cube.getQuantileBins(MapDataSource.USGS, MapGeometry.States, MapTimeFrame.All, 5));
+		assertBins(new int[][] {{1, 2, 8, 4}, {2, 10, 37, 4}, {3, 39, 44, 4}, {4, 45, 50, 3}, {5, 53, 58, 3}},
+				cube.getQuantileBins(MapDataSource.EPA, MapGeometry.Counties, MapTimeFrame.Past12Months, 5));
+		assertBins(new int[][] {{1, 9, 14, 2}, {2, 25, 31, 2}, {3, 35, 56, 2}, {4, 728, 728, 1}, {5, 910, 910, 1}},
+				cube.getQuantileBins(MapDataSource.All, MapGeometry.Huc8, MapTimeFrame.Past60Months, 5));
+
+		//And the bin values SummaryControllerIT expects.
+		assertArrayEquals(new String[]{"9", "9", "10", "56", "57", "495", "496", "520", "521", "728"},
+				SummaryController.toBinValues(cube.getQuantileBins(MapDataSource.All, MapGeometry.States, MapTimeFrame.Past60Months, 5)));
+	}
+
+	@Test
+	public void ntileTest() {
+		SummaryCube.Builder builder = new SummaryCube.Builder();
+		int[] counts = {7, 0, 3, 9, 1, 5, 3};
+		for (int i = 0; i < counts.length; i++) {
+			builder.add(row("N", "0" + i, counts[i]));
+		}
+		//Not a data source, so ignored.
+		builder.add(row("X", "01", 100));
+		SummaryCube cube = builder.build();
+
+		//Six counts over four bins: the first two take the extra count.
+		assertBins(new int[][] {{1, 1, 3, 2}, {2, 3, 5, 2}, {3, 7, 7, 1}, {4, 9, 9, 1}},
+				cube.getQuantileBins(MapDataSource.USGS, MapGeometry.States, MapTimeFrame.All, 4));
+		//Fewer counts than bins.
+		assertBins(new int[][] {{1, 1, 1, 1}, {2, 3, 3, 1}, {3, 3, 3, 1}, {4, 5, 5, 1}, {5, 7, 7, 1}, {6, 9, 9, 1}},
+				cube.getQuantileBins(MapDataSource.All, MapGeometry.States, MapTimeFrame.All, 10));
+		assertEquals(0, cube.getQuantileBins(MapDataSource.EPA, MapGeometry.States, MapTimeFrame.All, 5).size());
+		assertArrayEquals(new int[] {1, 3, 3, 5, 7, 9}, cube.getSortedCounts(MapDataSource.USGS, MapGeometry.States, MapTimeFrame.All));
+	}
+
+	@Test
+	public void featuresTest() {
+		SummaryCube cube = new SummaryCube.Builder()
+				.add(row("N", "55", 3))
+				.add(row("E", "55", 4))
+				.add(row("E", null, 2))
+				.add(row("N", "19", 1))
+				.build();
+		assertEquals(3, cube.getFeatureCount(MapGeometry.States));
+		assertEquals("19", cube.getFeatureId(MapGeometry.States, 0));
+		assertEquals("55", cube.getFeatureId(MapGeometry.States, 1));
+		assertNull(cube.getFeatureId(MapGeometry.States, 2));
+		assertEquals(7, cube.getCount(MapDataSource.All, MapGeometry.States, MapTimeFrame.All, 1));
+		assertEquals(4, cube.getCount(MapDataSource.EPA, MapGeometry.States, MapTimeFrame.All, 1));
+		assertEquals(0, cube.getCount(MapDataSource.EPA, MapGeometry.States, MapTimeFrame.All, 0));
+		//Only the all time count was given.
+		assertEquals(0, cube.getCount(MapDataSource.All, MapGeometry.States, MapTimeFrame.Past12Months, 1));
+		assertEquals(1, cube.getFeatureCount(MapGeometry.Huc8));
+	}
+
+	private static SummaryRow row(String source, String state, int allTime) {
+		SummaryRow row = new SummaryRow();
+		row.setNwisOrEpa(source);
+		row.setFipsStateCode(state);
+		row.setFipsStateAndCounty(null == state ? null : state + "001");
+		row.setHuc8("01010001");
+		row.setSamplesAllTime(allTime);
+		return row;
+	}
+
+	private static void assertBins(int[][] expected, List<RowCounts> bins) {
+		assertEquals(expected.length, bins.size());
+		for (int i = 0; i < expected.length; i++) {
+			RowCounts bin = bins.get(i);
+			assertArrayEquals(expected[i], new int[] {bin.getBinNumber(), bin.getBinMin(), bin.getBinMax(), bin.getBinCount()}, "bin " + i);
+		}
+	}
+
+}
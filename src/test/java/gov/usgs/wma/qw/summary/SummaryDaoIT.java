@@ -30,31 +30,11 @@ public class SummaryDaoIT extends BaseIT {
 
 	@Test
 	public void retrieveCountsTestNAS() {
-		RowCounts rowCounts1 = new RowCounts();
-		rowCounts1.setValue(1);
-		rowCounts1.setValue(80);
-		rowCounts1.setValue(80);
-		rowCounts1.setValue(1);
-		RowCounts rowCounts2 = new RowCounts();
-		rowCounts2.setValue(2);
-		rowCounts2.setValue(270);
-		rowCounts2.setValue(270);
-		rowCounts2.setValue(1);
-		RowCounts rowCounts3 = new RowCounts();
-		rowCounts3.setValue(3);
-		rowCounts3.setValue(2720);
-		rowCounts3.setValue(2720);
-		rowCounts3.setValue(1);
-		RowCounts rowCounts4 = new RowCounts();
-		rowCounts4.setValue(4);
-		rowCounts4.setValue(4430);
-		rowCounts4.setValue(4430);
-		rowCounts4.setValue(1);
-		RowCounts rowCounts5 = new RowCounts();
-		rowCounts5.setValue(5);
-		rowCounts5.setValue(4520);
-		rowCounts5.setValue(4520);
-		rowCounts5.setValue(1);
+		RowCounts rowCounts1 = new RowCounts(1, 80, 80, 1);
+		RowCounts rowCounts2 = new RowCounts(2, 270, 270, 1);
+		RowCounts rowCounts3 = new RowCounts(3, 2720, 2720, 1);
+		RowCounts rowCounts4 = new RowCounts(4, 4430, 4430, 1);
+		RowCounts rowCounts5 = new RowCounts(5, 4520, 4520, 1);
 
 		List<RowCounts> expectedBins = new ArrayList<>();
 		expectedBins.add(rowCounts1);
@@ -73,31 +53,11 @@ public class SummaryDaoIT extends BaseIT {
 
 	@Test
 	public void retrieveCountsTestE12C() {
-		RowCounts rowCounts1 = new RowCounts();
-		rowCounts1.setValue(1);
-		rowCounts1.setValue(2);
-		rowCounts1.setValue(8);
-		rowCounts1.setValue(4);
-		RowCounts rowCounts2 = new RowCounts();
-		rowCounts2.setValue(2);
-		rowCounts2.setValue(10);
-		rowCounts2.setValue(37);
-		rowCounts2.setValue(4);
-		RowCounts rowCounts3 = new RowCounts();
-		rowCounts3.setValue(3);
-		rowCounts3.setValue(39);
-		rowCounts3.setValue(44);
-		rowCounts3.setValue(4);
-		RowCounts rowCounts4 = new RowCounts();
-		rowCounts4.setValue(4);
-		rowCounts4.setValue(45);
-		rowCounts4.setValue(50);
-		rowCounts4.setValue(3);
-		RowCounts rowCounts5 = new RowCounts();
-		rowCounts5.setValue(5);
-		rowCounts5.setValue(53);
-		rowCounts5.setValue(58);
-		rowCounts5.setValue(3);
+		RowCounts rowCounts1 = new RowCounts(1, 2, 8, 4);
+		RowCounts rowCounts2 = new RowCounts(2, 10, 37, 4);
+		RowCounts rowCounts3 = new RowCounts(3, 39, 44, 4);
+		RowCounts rowCounts4 = new RowCounts(4, 45, 50, 3);
+		RowCounts rowCounts5 = new RowCounts(5, 53, 58, 3);
 
 		List<RowCounts> expectedBins = new ArrayList<>();
 		expectedBins.add(rowCounts1);
@@ -116,31 +76,11 @@ public class SummaryDaoIT extends BaseIT {
 
 	@Test
 	public void retrieveCountsTestB60H() {
-		RowCounts rowCounts1 = new RowCounts();
-		rowCounts1.setValue(1);
-		rowCounts1.setValue(9);
-		rowCounts1.setValue(14);
-		rowCounts1.setValue(2);
-		RowCounts rowCounts2 = new RowCounts();
-		rowCounts2.setValue(2);
-		rowCounts2.setValue(25);
-		rowCounts2.setValue(31);
-		rowCounts2.setValue(2);
-		RowCounts rowCounts3 = new RowCounts();
-		rowCounts3.setValue(3);
-		rowCounts3.setValue(35);
-		rowCounts3.setValue(56);
-		rowCounts3.setValue(2);
-		RowCounts rowCounts4 = new RowCounts();
-		rowCounts4.setValue(4);
-		rowCounts4.setValue(728);
-		rowCounts4.setValue(728);
-		rowCounts4.setValue(1);
-		RowCounts rowCounts5 = new RowCounts();
-		rowCounts5.setValue(5);
-		rowCounts5.setValue(910);
-		rowCounts5.setValue(910);
-		rowCounts5.setValue(1);
+		RowCounts rowCounts1 = new RowCounts(1, 9, 14, 2);
+		RowCounts rowCounts2 = new RowCounts(2, 25, 31, 2);
+		RowCounts rowCounts3 = new RowCounts(3, 35, 56, 2);
+		RowCounts rowCounts4 = new RowCounts(4, 728, 728, 1);
+		RowCounts rowCounts5 = new RowCounts(5, 910, 910, 1);
 
 		List<RowCounts> expectedBins = new ArrayList<>();
 		expectedBins.add(rowCounts1);
@@ -157,19 +97,34 @@ public class SummaryDaoIT extends BaseIT {
 		assertBins(expectedBins, bins, 1, 2);
 	}
 
+	@Test
+	public void retrieveFeatureCountsTest() {
+		Map<String, Object> params = new HashMap<>();
+		params.put("sources", new String[]{"E"});
+		params.put("timeFrame","ALL_TIME");
+		params.put("geometry","States");
+		List<Map<String, Object>> counts = summaryDao.retrieveFeatureCounts(params);
+		assertEquals(5, counts.size());
+		assertEquals("17", counts.get(0).get("feature_id"));
+		assertEquals(700, ((Number) counts.get(0).get(FeatureCounts.COUNT_COLUMN)).intValue());
+		assertEquals("55", counts.get(4).get("feature_id"));
+		assertEquals(2650, ((Number) counts.get(4).get(FeatureCounts.COUNT_COLUMN)).intValue());
+	}
+
 	private void assertBins(List<RowCounts> expectedBins, List<RowCounts> bins, int minBinCnt, int maxBinCnt) {
 		assertEquals(5, bins.size());
 		int prevMax = 1;
 		for (int i=0; i<bins.size(); i++) {
-			assertEquals(i+1, bins.get(i).getCounts().get(0).intValue());
-			assertTrue(prevMax <= bins.get(i).getCounts().get(1).intValue(), "bin "+ i +" min <= prev bin max");
-			assertTrue(bins.get(i).getCounts().get(1).intValue() <= bins.get(i).getCounts().get(2).intValue(), "bin "+ i +" min <= bin max");
-			assertTrue(minBinCnt <= bins.get(i).getCounts().get(3).intValue(), "bin "+ i +" count >= min count");
-			assertTrue(maxBinCnt >= bins.get(i).getCounts().get(3).intValue(), "bin "+ i +" count <= min count");
-			prevMax = bins.get(i).getCounts().get(2).intValue();
-			for (int j=0; j<expectedBins.get(i).getCounts().size(); j++) {
-				assertEquals(expectedBins.get(i).getCounts().get(j), bins.get(i).getCounts().get(j));
-			}
+			assertEquals(i+1, bins.get(i).getBinNumber());
+			assertTrue(prevMax <= bins.get(i).getBinMin(), "bin "+ i +" min <= prev bin max");
+			assertTrue(bins.get(i).getBinMin() <= bins.get(i).getBinMax(), "bin "+ i +" min <= bin max");
+			assertTrue(minBinCnt <= bins.get(i).getBinCount(), "bin "+ i +" count >= min count");
+			assertTrue(maxBinCnt >= bins.get(i).getBinCount(), "bin "+ i +" count <= min count");
+			prevMax = bins.get(i).getBinMax();
+			assertEquals(expectedBins.get(i).getBinNumber(), bins.get(i).getBinNumber());
+			assertEquals(expectedBins.get(i).getBinMin(), bins.get(i).getBinMin());
+			assertEquals(expectedBins.get(i).getBinMax(), bins.get(i).getBinMax());
+			assertEquals(expectedBins.get(i).getBinCount(), bins.get(i).getBinCount());
 		}
 	}
 }
@@ -0,0 +1,117 @@
+package gov.usgs.wma.qw.summary;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import gov.usgs.wma.qw.BaseRestController;
+import gov.usgs.wma.qw.EtlEpoch;
+import gov.usgs.wma.qw.ResponseCache;
+import gov.usgs.wma.qw.ResponseCacheTest;
+import gov.usgs.wma.qw.summary.SummaryStore.Sld;
+import gov.usgs.wma.qw.summary.SldTemplateEngine.MapDataSource;
+import gov.usgs.wma.qw.summary.SldTemplateEngine.MapGeometry;
+import gov.usgs.wma.qw.summary.SldTemplateEngine.MapTimeFrame;
+
+public class SummaryStoreTest {
+
+	private EtlEpoch etlEpoch;
+	private SummaryDao summaryDao;
+	private SummaryStore summaryStore;
+	private LocalDateTime first;
+	private LocalDateTime second;
+
+	@BeforeEach
+	public void setup() {
+		etlEpoch = mock(EtlEpoch.class);
+		summaryDao = mock(SummaryDao.class);
+		summaryStore = new SummaryStore(etlEpoch, summaryDao, mock(PlatformTransactionManager.class), true);
+		first = LocalDateTime.of(2014, 1, 1, 1, 1, 1);
+		second = LocalDateTime.of(2014, 1, 2, 1, 1, 1);
+	}
+
+	@Test
+	public void rebuildTest() {
+		Set<String> built = new HashSet<>();
+		summaryStore.rebuild(first, (cube, source, geometry, timeFrame) -> {
+			built.add(source + geometry.getStringAbbreviation() + timeFrame);
+			return MapGeometry.Huc8 == geometry ? null : source + " " + geometry + " " + timeFrame;
+		});
+		assertEquals(27, built.size());
+		assertNull(summaryStore.getCube());
+
+		//Nothing is served until the ETL epoch matches.
+		assertNull(summaryStore.get(MapDataSource.EPA, MapGeometry.States, MapTimeFrame.Past12Months));
+
+		when(etlEpoch.getLastEtl()).thenReturn(first);
+		assertEquals(0, summaryStore.getCube().getFeatureCount(MapGeometry.States));
+		Sld sld = summaryStore.get(MapDataSource.EPA, MapGeometry.States, MapTimeFrame.Past12Months);
+		assertEquals("EPA States 1", sld.getBody());
+		assertEquals(BaseRestController.buildEtag("EPA States 1".getBytes(StandardCharsets.ISO_8859_1)), sld.getEtag());
+		assertEquals("All Counties A", summaryStore.get(MapDataSource.All, MapGeometry.Counties, MapTimeFrame.All).getBody());
+		//Too short to be worth compressing.
+		assertNull(sld.getGzipBody());
+		assertEquals(sld.getEtag(), sld.getEtag(false));
+
+		//An empty cube has no feature counts.
+		assertEquals("\"fips_state_code\",\"discrete_sample_count\"\n", new String(summaryStore.getCounts(MapDataSource.EPA,
+				MapGeometry.States, MapTimeFrame.All, BaseRestController.MEDIA_TYPE_TEXT_CSV_UTF8).getBody(), StandardCharsets.UTF_8));
+		assertEquals("{}", new String(summaryStore.getCounts(MapDataSource.EPA, MapGeometry.States, MapTimeFrame.All,
+				MediaType.APPLICATION_JSON).getBody(), StandardCharsets.UTF_8));
+
+		//No bins is remembered as no content.
+		sld = summaryStore.get(MapDataSource.USGS, MapGeometry.Huc8, MapTimeFrame.Past60Months);
+		assertNull(sld.getBody());
+		assertNull(sld.getEtag());
+		assertNull(summaryStore.get(null, MapGeometry.Huc8, MapTimeFrame.All));
+
+		when(etlEpoch.getLastEtl()).thenReturn(second);
+		assertNull(summaryStore.get(MapDataSource.EPA, MapGeometry.States, MapTimeFrame.Past12Months));
+	}
+
+	@Test
+	public void sldGzipTest() throws Exception {
+		String body = new String(new char[2000]).replace('\0', 'X');
+		Sld sld = new Sld(body, true);
+		assertEquals(body, new String(ResponseCacheTest.gunzip(sld.getGzipBody()), StandardCharsets.ISO_8859_1));
+		assertEquals(ResponseCache.gzipEtag(sld.getEtag()), sld.getEtag(true));
+		assertNull(new Sld(body).getGzipBody());
+		assertNull(new Sld(null, true).getGzipBody());
+	}
+
+	@Test
+	public void rebuildFailureTest() {
+		when(etlEpoch.getLastEtl()).thenReturn(first);
+		summaryStore.rebuild(first, (cube, source, geometry, timeFrame) -> "sld");
+		summaryStore.rebuild(second, (cube, source, geometry, timeFrame) -> {
+			throw new IllegalStateException("no database");
+		});
+		assertEquals("sld", summaryStore.get(MapDataSource.EPA, MapGeometry.States, MapTimeFrame.All).getBody());
+
+		//An older ETL does not replace a newer one.
+		summaryStore.rebuild(second, (cube, source, geometry, timeFrame) -> "newer");
+		summaryStore.rebuild(first, (cube, source, geometry, timeFrame) -> "older");
+		when(etlEpoch.getLastEtl()).thenReturn(second);
+		assertEquals("newer", summaryStore.get(MapDataSource.EPA, MapGeometry.States, MapTimeFrame.All).getBody());
+	}
+
+	@Test
+	public void mapTimeFrameTest() {
+		assertEquals(MapTimeFrame.All, MapTimeFrame.fromAbbreviation(null));
+		assertEquals(MapTimeFrame.All, MapTimeFrame.fromAbbreviation("QQ"));
+		assertEquals(MapTimeFrame.Past12Months, MapTimeFrame.fromAbbreviation("1"));
+		assertEquals("PAST_60_MONTHS", MapTimeFrame.fromAbbreviation("5").getColumnSuffix());
+	}
+
+}